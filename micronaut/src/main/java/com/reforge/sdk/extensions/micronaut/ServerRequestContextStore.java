@@ -4,6 +4,7 @@ import com.reforge.sdk.context.Context;
 import com.reforge.sdk.context.ContextSet;
 import com.reforge.sdk.context.ContextSetReadable;
 import com.reforge.sdk.context.ContextStore;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.context.ServerRequestContext;
 import java.util.Optional;
 
@@ -11,11 +12,14 @@ import java.util.Optional;
  * This supersedes the standard ThreadLocalContext store for micronaut because
  * micronaut is an event-based server, so a request can be handled by many threads.
  * Instead of using a ThreadLocal, we stash the context into the attributes of the current
- * HttpRequest via ServerRequestContext.currentRequest()
+ * HttpRequest via ServerRequestContext.currentRequest(). The evaluation scope lives
+ * alongside it for the rest of the request, or until the context changes.
  */
 public class ServerRequestContextStore implements ContextStore {
 
   public static final String ATTRIBUTE_NAME = "reforge-sdk-contexts";
+  public static final String EVALUATION_SCOPE_ATTRIBUTE_NAME =
+    "reforge-sdk-evaluation-scope";
 
   @Override
   public void addContext(Context context) {
@@ -24,6 +28,7 @@ public class ServerRequestContextStore implements ContextStore {
         prefabContextSet -> prefabContextSet.addContext(context),
         () -> setContext(context)
       );
+    discardEvaluationScope();
   }
 
   @Override
@@ -33,6 +38,7 @@ public class ServerRequestContextStore implements ContextStore {
       .map(req -> {
         Optional<ContextSetReadable> currentContext = getContext();
         req.setAttribute(ATTRIBUTE_NAME, ContextSet.convert(contextSetReadable));
+        discardEvaluationScope(req);
         return currentContext;
       })
       .orElse(Optional.empty());
@@ -45,6 +51,7 @@ public class ServerRequestContextStore implements ContextStore {
       .currentRequest()
       .ifPresent(objectHttpRequest -> objectHttpRequest.setAttribute(ATTRIBUTE_NAME, null)
       );
+    discardEvaluationScope();
     return currentContext;
   }
 
@@ -53,6 +60,42 @@ public class ServerRequestContextStore implements ContextStore {
     return getReforgeContextSet().map(ContextSetReadable::readOnlyContextSetView);
   }
 
+  @Override
+  public Optional<Object> getEvaluationScope() {
+    return ServerRequestContext
+      .currentRequest()
+      .map(objectHttpRequest -> {
+        // the threads working on a request have to share one scope, so creating it is
+        // guarded by the request, as is discarding it
+        synchronized (objectHttpRequest) {
+          Optional<Object> existing = objectHttpRequest.getAttribute(
+            EVALUATION_SCOPE_ATTRIBUTE_NAME
+          );
+          if (existing.isPresent()) {
+            return existing.get();
+          }
+          Object evaluationScope = new Object();
+          objectHttpRequest.setAttribute(
+            EVALUATION_SCOPE_ATTRIBUTE_NAME,
+            evaluationScope
+          );
+          return evaluationScope;
+        }
+      });
+  }
+
+  private void discardEvaluationScope() {
+    ServerRequestContext
+      .currentRequest()
+      .ifPresent(ServerRequestContextStore::discardEvaluationScope);
+  }
+
+  private static void discardEvaluationScope(HttpRequest<?> objectHttpRequest) {
+    synchronized (objectHttpRequest) {
+      objectHttpRequest.setAttribute(EVALUATION_SCOPE_ATTRIBUTE_NAME, null);
+    }
+  }
+
   private Optional<ContextSet> getReforgeContextSet() {
     return ServerRequestContext
       .currentRequest()
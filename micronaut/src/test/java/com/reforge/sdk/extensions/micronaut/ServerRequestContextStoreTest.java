@@ -5,8 +5,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.reforge.sdk.context.Context;
 import com.reforge.sdk.context.ContextSet;
 import io.micronaut.http.HttpMethod;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.context.ServerRequestContext;
 import io.micronaut.http.simple.SimpleHttpRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -49,6 +55,11 @@ class ServerRequestContextStoreTest {
       assertThat(reforgeSdkContextStore.clearContext()).isEmpty();
       assertThat(reforgeSdkContextStore.getContext()).isEmpty();
     }
+
+    @Test
+    void getEvaluationScopeReturnsEmpty() {
+      assertThat(reforgeSdkContextStore.getEvaluationScope()).isEmpty();
+    }
   }
 
   @Nested
@@ -87,6 +98,51 @@ class ServerRequestContextStoreTest {
       assertThat(reforgeSdkContextStore.getContext()).isEmpty();
     }
 
+    @Test
+    void evaluationScopeLastsForTheRequest() {
+      Object evaluationScope = reforgeSdkContextStore.getEvaluationScope().get();
+      assertThat(reforgeSdkContextStore.getEvaluationScope())
+        .containsSame(evaluationScope);
+    }
+
+    @Test
+    void threadsWorkingOnTheRequestShareOneEvaluationScope() throws Exception {
+      HttpRequest<Object> request = ServerRequestContext.currentRequest().get();
+      ExecutorService executorService = Executors.newFixedThreadPool(8);
+      try {
+        List<Future<Object>> evaluationScopes = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+          evaluationScopes.add(
+            executorService.submit(() -> {
+              ServerRequestContext.set(request);
+              return reforgeSdkContextStore.getEvaluationScope().get();
+            })
+          );
+        }
+        Object evaluationScope = reforgeSdkContextStore.getEvaluationScope().get();
+        for (Future<Object> future : evaluationScopes) {
+          assertThat(future.get()).isSameAs(evaluationScope);
+        }
+      } finally {
+        executorService.shutdown();
+      }
+    }
+
+    @Test
+    void changingTheContextStartsANewEvaluationScope() {
+      Object evaluationScope = reforgeSdkContextStore.getEvaluationScope().get();
+      reforgeSdkContextStore.addContext(userContext);
+      Object afterAdd = reforgeSdkContextStore.getEvaluationScope().get();
+      reforgeSdkContextStore.setContext(userAndServerContextSet);
+      Object afterSet = reforgeSdkContextStore.getEvaluationScope().get();
+      reforgeSdkContextStore.clearContext();
+      Object afterClear = reforgeSdkContextStore.getEvaluationScope().get();
+
+      assertThat(afterAdd).isNotSameAs(evaluationScope);
+      assertThat(afterSet).isNotSameAs(afterAdd);
+      assertThat(afterClear).isNotSameAs(afterSet);
+    }
+
     @Nested
     class WithPreExistingContext {
 
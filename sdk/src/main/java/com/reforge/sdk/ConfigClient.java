@@ -1,13 +1,18 @@
 package com.reforge.sdk;
 
 import cloud.prefab.domain.Prefab;
+import com.reforge.sdk.config.ConfigChangeDispatchStats;
 import com.reforge.sdk.config.ConfigChangeListener;
+import com.reforge.sdk.config.EvaluationCacheStats;
 import com.reforge.sdk.context.Context;
 import com.reforge.sdk.context.ContextSetReadable;
 import com.reforge.sdk.context.ContextStore;
 import com.reforge.sdk.internal.ConfigClientCore;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 public interface ConfigClient
@@ -32,6 +37,31 @@ public interface ConfigClient
    */
   boolean addConfigChangeListener(ConfigChangeListener configChangeListener);
 
+  /**
+   * Adds a listener to changes of a single config key. Unlike a listener for every key,
+   * it costs nothing when other keys change
+   * @param key the config key
+   * @param configChangeListener
+   * @return true if the listener was not already listening to the key
+   */
+  boolean addConfigChangeListener(String key, ConfigChangeListener configChangeListener);
+
+  /**
+   * Adds a listener to changes of the config keys that start with a prefix
+   * @param keyPrefix the start of the config keys, such as "checkout."
+   * @param configChangeListener
+   * @return true if the listener was not already listening to the prefix
+   */
+  boolean addConfigChangeListenerForPrefix(
+    String keyPrefix,
+    ConfigChangeListener configChangeListener
+  );
+
+  /**
+   * Removes a listener from every key, prefix or all keys it listens to
+   * @param configChangeListener
+   * @return true if the listener was listening to anything
+   */
   boolean removeConfigChangeListener(ConfigChangeListener configChangeListener);
 
   /**
@@ -40,6 +70,43 @@ public interface ConfigClient
    */
   boolean isReady();
 
+  /**
+   * Get a future that completes once the client has initialized, for waiting on startup
+   * without blocking a thread. Completing the returned future has no effect on the client
+   * <p>
+   * Unless overridden, {@link #isReady()} is polled until it returns true or the future
+   * is completed or cancelled
+   * @return the future
+   */
+  default CompletableFuture<Void> whenReady() {
+    CompletableFuture<Void> readyFuture = new CompletableFuture<>();
+    pollUntilReady(this, readyFuture);
+    return readyFuture;
+  }
+
+  private static void pollUntilReady(
+    ConfigClient configClient,
+    CompletableFuture<Void> readyFuture
+  ) {
+    if (configClient.isReady()) {
+      readyFuture.complete(null);
+    } else if (!readyFuture.isDone()) {
+      CompletableFuture.runAsync(
+        () -> pollUntilReady(configClient, readyFuture),
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS)
+      );
+    }
+  }
+
+  /**
+   * Get how many reads returned defaults because the client was not ready yet
+   * See {@link Options#setReturnDefaultsUntilReady(boolean)}
+   * @return the count since the client was created
+   */
+  default long getReadsBeforeReadyCount() {
+    return 0;
+  }
+
   /**
    * Get the configured {@link ContextStore}
    * Can be set using {@link Options#setContextStore(ContextStore)}
@@ -47,6 +114,25 @@ public interface ConfigClient
    */
   ContextStore getContextStore();
 
+  /**
+   * Get the hit and miss counts of the evaluation cache
+   * Enable the cache using {@link Options#setEvaluationCacheSize(int)}
+   * @return the counters, empty if the cache is not enabled
+   */
+  default Optional<EvaluationCacheStats> getEvaluationCacheStats() {
+    return Optional.empty();
+  }
+
+  /**
+   * Get the queue depth, delivery and listener timing counters of config change delivery
+   * Enable asynchronous delivery using
+   * {@link Options#setConfigChangeListenerExecutor(java.util.concurrent.Executor)}
+   * @return the counters, empty if listeners are called synchronously
+   */
+  default Optional<ConfigChangeDispatchStats> getConfigChangeDispatchStats() {
+    return Optional.empty();
+  }
+
   enum Source {
     REMOTE_API,
     REMOTE_API_GRPC,
@@ -58,5 +144,6 @@ public interface ConfigClient
     CLASSPATH,
     LOCAL_OVERRIDE,
     LOCAL_FILE,
+    SNAPSHOT,
   }
 }
@@ -1,5 +1,6 @@
 package com.reforge.sdk;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.reforge.sdk.config.ConfigChangeListener;
 import com.reforge.sdk.context.ContextSetReadable;
@@ -7,12 +8,17 @@ import com.reforge.sdk.context.ContextStore;
 import com.reforge.sdk.internal.Internal;
 import com.reforge.sdk.internal.TelemetryListener;
 import com.reforge.sdk.internal.ThreadLocalContextStore;
+import com.reforge.sdk.util.Cache;
+import com.reforge.sdk.util.ContentCodec;
+import com.reforge.sdk.util.GzipContentCodec;
+import com.reforge.sdk.util.NoopCache;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -62,9 +68,36 @@ public class Options {
 
   private int telemetryUploadIntervalSeconds = 15;
 
+  private int evaluationCacheSize = 0;
+
+  private boolean memoizeRequestEvaluations = false;
+
+  private boolean returnDefaultsUntilReady = false;
+
+  private Cache configSnapshotCache = new NoopCache();
+
+  private List<ContentCodec> configContentCodecs = List.of(new GzipContentCodec());
+
+  private boolean hedgedConfigRequests = false;
+
+  private long hedgeDelayMillis = 500;
+
+  private long streamingBatchWindowMillis = 0;
+
+  private int streamingMaxBatchSize = 100;
+
+  @Nullable
+  private Executor configChangeListenerExecutor;
+
+  private int configChangeListenerQueueSize = 1000;
+
+  private boolean countEvaluationsInPlace = false;
+
   @Nullable
   private String localDatafile;
 
+  private boolean watchLocalDatafile = false;
+
   @Nullable
   private TelemetryListener telemetryListener;
 
@@ -182,6 +215,25 @@ public class Options {
     return this;
   }
 
+  public boolean isReturnDefaultsUntilReady() {
+    return returnDefaultsUntilReady;
+  }
+
+  /**
+   * Configure client to answer reads made before it is ready straight away, with no value
+   * or the default passed to the getter, rather than blocking the calling thread for up
+   * to the initialization timeout. Such reads are counted, see
+   * {@link ConfigClient#getReadsBeforeReadyCount()}, and
+   * {@link ConfigClient#whenReady()} tells when values are available.
+   * Defaults to false
+   * @param returnDefaultsUntilReady
+   * @return Options
+   */
+  public Options setReturnDefaultsUntilReady(boolean returnDefaultsUntilReady) {
+    this.returnDefaultsUntilReady = returnDefaultsUntilReady;
+    return this;
+  }
+
   public CollectContextMode getContextUploadMode() {
     return collectContextMode;
   }
@@ -272,6 +324,15 @@ public class Options {
     return localDatafile;
   }
 
+  /**
+   * Sets a file of configs to use in place of the Reforge APIs, on disk or on the
+   * classpath. The file holds Prefab.Configs as JSON, or serialized as protobuf, which
+   * loads faster; files ending in .pb, .binpb or .bin are read as protobuf, those ending
+   * in .json as JSON, and others by their content.
+   * Can also be specified with system property `REFORGE_DATAFILE`
+   * @param localDatafile the path of the file
+   * @return Options
+   */
   public Options setLocalDatafile(@Nullable String localDatafile) {
     this.localDatafile = localDatafile;
     return this;
@@ -281,6 +342,24 @@ public class Options {
     return localDatafile != null;
   }
 
+  public boolean isWatchLocalDatafile() {
+    return watchLocalDatafile;
+  }
+
+  /**
+   * Configure client to reload the local datafile whenever it changes on disk, notifying
+   * config change listeners of the differences. Has no effect on a datafile loaded from
+   * the classpath. Replace the file by moving a complete copy into place, as a file
+   * written in place may be read before it is finished.
+   * Defaults to false
+   * @param watchLocalDatafile
+   * @return Options
+   */
+  public Options setWatchLocalDatafile(boolean watchLocalDatafile) {
+    this.watchLocalDatafile = watchLocalDatafile;
+    return this;
+  }
+
   public Optional<ContextSetReadable> getGlobalContext() {
     return Optional.ofNullable(globalContext);
   }
@@ -306,6 +385,230 @@ public class Options {
     return this;
   }
 
+  public int getEvaluationCacheSize() {
+    return evaluationCacheSize;
+  }
+
+  /**
+   * Sets how many evaluation results to keep, per config key and context, so that
+   * repeated lookups with the same context skip rule evaluation. Results are dropped
+   * whenever new config data arrives; configs with time based rules or weighted values
+   * that are not hashed on a context property are never cached.
+   * Defaults to 0, which turns the cache off
+   * @param evaluationCacheSize the maximum number of cached results
+   * @return Options
+   */
+  public Options setEvaluationCacheSize(int evaluationCacheSize) {
+    Preconditions.checkArgument(
+      evaluationCacheSize >= 0,
+      "evaluationCacheSize must not be negative"
+    );
+    this.evaluationCacheSize = evaluationCacheSize;
+    return this;
+  }
+
+  public boolean isMemoizeRequestEvaluations() {
+    return memoizeRequestEvaluations;
+  }
+
+  /**
+   * Configure client to remember the first answer for each config evaluated with the
+   * context store's context, for as long as that context is unchanged. Repeated lookups
+   * in a request then skip evaluation and keep their answer even if new config data
+   * arrives mid-request. Lookups that pass their own context are not memoized.
+   * The scope comes from the context store: for the default thread local store it runs
+   * from setting a context to the next set or clear.
+   * Defaults to false
+   * @param memoizeRequestEvaluations
+   * @return Options
+   */
+  public Options setMemoizeRequestEvaluations(boolean memoizeRequestEvaluations) {
+    this.memoizeRequestEvaluations = memoizeRequestEvaluations;
+    return this;
+  }
+
+  public Cache getConfigSnapshotCache() {
+    return configSnapshotCache;
+  }
+
+  /**
+   * Sets where to keep a snapshot of the last configs received from the API, for example
+   * a {@link com.reforge.sdk.util.FileCache} on a local directory. On start the client
+   * loads the snapshot and is ready straight away, then catches up with the API from
+   * where the snapshot left off, so startup does not wait on the network. The snapshot
+   * is rewritten whenever new configs arrive.
+   * Defaults to a {@link NoopCache}, which keeps no snapshot
+   * @param configSnapshotCache the cache to keep the snapshot in
+   * @return Options
+   */
+  public Options setConfigSnapshotCache(Cache configSnapshotCache) {
+    this.configSnapshotCache = Preconditions.checkNotNull(configSnapshotCache);
+    return this;
+  }
+
+  public List<ContentCodec> getConfigContentCodecs() {
+    return configContentCodecs;
+  }
+
+  /**
+   * Sets the compressed encodings to accept when fetching configs, in order of
+   * preference. Each codec's encoding is offered in the Accept-Encoding header and a
+   * response in it is decoded as it streams in. A codec for zstd, or any other encoding
+   * the API serves, can be added by implementing {@link ContentCodec}. An empty list asks
+   * for uncompressed configs.
+   * Defaults to a {@link GzipContentCodec}
+   * @param configContentCodecs the codecs to accept
+   * @return Options
+   */
+  public Options setConfigContentCodecs(List<ContentCodec> configContentCodecs) {
+    this.configContentCodecs = List.copyOf(configContentCodecs);
+    return this;
+  }
+
+  public boolean isHedgedConfigRequests() {
+    return hedgedConfigRequests;
+  }
+
+  /**
+   * Configure client to hedge config fetches across the API hosts rather than retrying
+   * each host in turn. A fetch goes to the host that has been fastest so far, then to the
+   * next whenever the last has failed or is slower than its usual 95th percentile
+   * latency, and takes the first answer. If every host fails, the fetch falls back to
+   * retrying each host in turn. See {@link #setHedgeDelayMillis(long)}.
+   * Defaults to false
+   * @param hedgedConfigRequests
+   * @return Options
+   */
+  public Options setHedgedConfigRequests(boolean hedgedConfigRequests) {
+    this.hedgedConfigRequests = hedgedConfigRequests;
+    return this;
+  }
+
+  public long getHedgeDelayMillis() {
+    return hedgeDelayMillis;
+  }
+
+  /**
+   * Sets how long a hedged config fetch waits on a host with no latency history before
+   * also trying the next host. Once a host has answered, its estimated 95th percentile
+   * latency is used instead.
+   * Defaults to 500
+   * @param hedgeDelayMillis the delay in milliseconds
+   * @return Options
+   */
+  public Options setHedgeDelayMillis(long hedgeDelayMillis) {
+    Preconditions.checkArgument(
+      hedgeDelayMillis >= 0,
+      "hedgeDelayMillis must not be negative"
+    );
+    this.hedgeDelayMillis = hedgeDelayMillis;
+    return this;
+  }
+
+  public long getStreamingBatchWindowMillis() {
+    return streamingBatchWindowMillis;
+  }
+
+  /**
+   * Sets how long to gather config updates arriving on the stream before applying them
+   * together. A burst of updates, as from a bulk edit, is then applied with one rebuild
+   * of the config store and one round of change listener calls, at the cost of updates
+   * being seen up to this much later. See {@link #setStreamingMaxBatchSize(int)}.
+   * Defaults to 0, which applies each update as it arrives
+   * @param streamingBatchWindowMillis the window in milliseconds
+   * @return Options
+   */
+  public Options setStreamingBatchWindowMillis(long streamingBatchWindowMillis) {
+    Preconditions.checkArgument(
+      streamingBatchWindowMillis >= 0,
+      "streamingBatchWindowMillis must not be negative"
+    );
+    this.streamingBatchWindowMillis = streamingBatchWindowMillis;
+    return this;
+  }
+
+  public int getStreamingMaxBatchSize() {
+    return streamingMaxBatchSize;
+  }
+
+  /**
+   * Sets how many streamed updates may be gathered into one batch, which is applied as
+   * soon as it is full rather than at the end of its window.
+   * Defaults to 100
+   * @param streamingMaxBatchSize the maximum number of updates in a batch
+   * @return Options
+   */
+  public Options setStreamingMaxBatchSize(int streamingMaxBatchSize) {
+    Preconditions.checkArgument(
+      streamingMaxBatchSize > 0,
+      "streamingMaxBatchSize must be positive"
+    );
+    this.streamingMaxBatchSize = streamingMaxBatchSize;
+    return this;
+  }
+
+  public Optional<Executor> getConfigChangeListenerExecutor() {
+    return Optional.ofNullable(configChangeListenerExecutor);
+  }
+
+  /**
+   * Sets an executor to call config change listeners on, so that slow listeners do not
+   * hold up config updates. Each listener hears its events in order, one at a time, from
+   * a queue of its own. On Java 21 and later this can be
+   * {@code Executors.newVirtualThreadPerTaskExecutor()}.
+   * See {@link #setConfigChangeListenerQueueSize(int)} and
+   * {@link ConfigClient#getConfigChangeDispatchStats()}.
+   * Defaults to null, which calls listeners synchronously as configs are updated
+   * @param configChangeListenerExecutor the executor
+   * @return Options
+   */
+  public Options setConfigChangeListenerExecutor(
+    @Nullable Executor configChangeListenerExecutor
+  ) {
+    this.configChangeListenerExecutor = configChangeListenerExecutor;
+    return this;
+  }
+
+  public int getConfigChangeListenerQueueSize() {
+    return configChangeListenerQueueSize;
+  }
+
+  /**
+   * Sets how many events may wait for a listener when listeners are called on an
+   * executor. Once a listener falls further behind its waiting events are collapsed to
+   * one per config key, from the oldest waiting value to the latest.
+   * Defaults to 1000
+   * @param configChangeListenerQueueSize the number of events
+   * @return Options
+   */
+  public Options setConfigChangeListenerQueueSize(int configChangeListenerQueueSize) {
+    Preconditions.checkArgument(
+      configChangeListenerQueueSize > 0,
+      "configChangeListenerQueueSize must be positive"
+    );
+    this.configChangeListenerQueueSize = configChangeListenerQueueSize;
+    return this;
+  }
+
+  public boolean isCountEvaluationsInPlace() {
+    return countEvaluationsInPlace;
+  }
+
+  /**
+   * Configure client to count evaluations for the evaluation summaries on the evaluating
+   * thread, in striped counters that are summed at each telemetry upload, rather than
+   * handing every evaluation to the telemetry thread. Evaluations are then only queued
+   * when their context is wanted for context shapes or example contexts, so they are no
+   * longer dropped from the summaries when the queue is full.
+   * Defaults to false
+   * @param countEvaluationsInPlace
+   * @return Options
+   */
+  public Options setCountEvaluationsInPlace(boolean countEvaluationsInPlace) {
+    this.countEvaluationsInPlace = countEvaluationsInPlace;
+    return this;
+  }
+
   private String prefixAndValidate(String uri) {
     String prefixed = httpsPrefix(uri);
     try {
@@ -85,6 +85,9 @@ public class Sdk implements AutoCloseable {
     synchronized (this) {
       if (!closed.get()) {
         closed.set(true);
+        if (configClient != null) {
+          configClient.close();
+        }
       }
     }
   }
@@ -0,0 +1,78 @@
+package com.reforge.sdk.config;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A snapshot of the counters of asynchronous config change delivery, see
+ * {@link com.reforge.sdk.Options#setConfigChangeListenerExecutor(java.util.concurrent.Executor)}
+ */
+public class ConfigChangeDispatchStats {
+
+  private final long queueDepth;
+  private final long deliveredCount;
+  private final long coalescedCount;
+  private final long totalListenerNanos;
+  private final long maxListenerNanos;
+
+  public ConfigChangeDispatchStats(
+    long queueDepth,
+    long deliveredCount,
+    long coalescedCount,
+    long totalListenerNanos,
+    long maxListenerNanos
+  ) {
+    this.queueDepth = queueDepth;
+    this.deliveredCount = deliveredCount;
+    this.coalescedCount = coalescedCount;
+    this.totalListenerNanos = totalListenerNanos;
+    this.maxListenerNanos = maxListenerNanos;
+  }
+
+  /**
+   * @return events waiting to be delivered, across all listeners
+   */
+  public long getQueueDepth() {
+    return queueDepth;
+  }
+
+  /**
+   * @return events delivered to a listener
+   */
+  public long getDeliveredCount() {
+    return deliveredCount;
+  }
+
+  /**
+   * @return events folded into a later change to the same key because a listener's queue
+   * was full
+   */
+  public long getCoalescedCount() {
+    return coalescedCount;
+  }
+
+  /**
+   * @return the time spent in listeners, in nanoseconds
+   */
+  public long getTotalListenerNanos() {
+    return totalListenerNanos;
+  }
+
+  /**
+   * @return the longest a listener took over a single event, in nanoseconds
+   */
+  public long getMaxListenerNanos() {
+    return maxListenerNanos;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects
+      .toStringHelper(this)
+      .add("queueDepth", queueDepth)
+      .add("deliveredCount", deliveredCount)
+      .add("coalescedCount", coalescedCount)
+      .add("totalListenerNanos", totalListenerNanos)
+      .add("maxListenerNanos", maxListenerNanos)
+      .toString();
+  }
+}
@@ -4,21 +4,69 @@ import cloud.prefab.domain.Prefab;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.StringJoiner;
+import javax.annotation.Nullable;
 
 public class ConfigChangeEvent {
 
   private final String key;
   private final Optional<Prefab.Config> oldValue;
+
+  // the new value is either given, or is the config of an added element, which is left
+  // undecoded until a listener asks for it
+  @Nullable
   private final Optional<Prefab.Config> newValue;
 
+  @Nullable
+  private final ConfigElement addedElement;
+
   public ConfigChangeEvent(
     String key,
     Optional<Prefab.Config> oldValue,
     Optional<Prefab.Config> newValue
+  ) {
+    this(key, oldValue, newValue, null);
+  }
+
+  private ConfigChangeEvent(
+    String key,
+    Optional<Prefab.Config> oldValue,
+    @Nullable Optional<Prefab.Config> newValue,
+    @Nullable ConfigElement addedElement
   ) {
     this.key = key;
     this.oldValue = oldValue;
     this.newValue = newValue;
+    this.addedElement = addedElement;
+  }
+
+  /**
+   * The event for a config that was added, which decodes the config only if a listener
+   * asks for it. Comparing, hashing and printing the event leave it undecoded, so it is
+   * only ever equal to another event for the same element.
+   */
+  public static ConfigChangeEvent added(ConfigElement configElement) {
+    return new ConfigChangeEvent(
+      configElement.getKey(),
+      Optional.empty(),
+      null,
+      configElement
+    );
+  }
+
+  /**
+   * The net change of an event followed by a later one for the same key, from the value
+   * before the first to the value after the second
+   */
+  public static ConfigChangeEvent coalesced(
+    ConfigChangeEvent earlier,
+    ConfigChangeEvent later
+  ) {
+    return new ConfigChangeEvent(
+      later.key,
+      earlier.oldValue,
+      later.newValue,
+      later.addedElement
+    );
   }
 
   public String getKey() {
@@ -30,9 +78,23 @@ public class ConfigChangeEvent {
   }
 
   public Optional<Prefab.Config> getNewValue() {
+    if (addedElement != null) {
+      return Optional.of(addedElement.getConfig());
+    }
     return newValue;
   }
 
+  /**
+   * Whether the config is the same after as before, as when it was added then removed.
+   * An added config is only decoded to tell if there was a config before it.
+   */
+  public boolean isUnchanged() {
+    if (addedElement != null && oldValue.isEmpty()) {
+      return false;
+    }
+    return oldValue.equals(getNewValue());
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (this == obj) {
@@ -44,7 +106,8 @@ public class ConfigChangeEvent {
       return (
         Objects.equals(this.key, that.key) &&
         Objects.equals(this.oldValue, that.oldValue) &&
-        Objects.equals(this.newValue, that.newValue)
+        Objects.equals(this.newValue, that.newValue) &&
+        this.addedElement == that.addedElement
       );
     }
 
@@ -53,7 +116,12 @@ public class ConfigChangeEvent {
 
   @Override
   public int hashCode() {
-    return Objects.hash(key, oldValue, newValue);
+    return Objects.hash(
+      key,
+      oldValue,
+      newValue,
+      addedElement == null ? 0 : System.identityHashCode(addedElement)
+    );
   }
 
   @Override
@@ -61,7 +129,14 @@ public class ConfigChangeEvent {
     return new StringJoiner(", ", "ConfigChangeEvent[", "]")
       .add("key='" + key + "'")
       .add("oldValue=" + oldValue)
-      .add("newValue=" + newValue)
+      .add("newValue=" + (addedElement != null ? describeAdded() : newValue))
       .toString();
   }
+
+  private String describeAdded() {
+    if (addedElement.isDecoded()) {
+      return String.valueOf(getNewValue());
+    }
+    return "Optional[undecoded config " + addedElement.getId() + "]";
+  }
 }
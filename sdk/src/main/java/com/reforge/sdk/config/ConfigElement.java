@@ -1,47 +1,172 @@
 package com.reforge.sdk.config;
 
 import cloud.prefab.domain.Prefab;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 
 public class ConfigElement {
 
-  private Prefab.Config config;
-  private Provenance provenance;
+  private final Provenance provenance;
+  private final String key;
+  private final long id;
+  private final Prefab.ConfigType configType;
 
-  private ConcurrentHashMap<Long, List<Prefab.ConfigRow>> preProcessedRows = new ConcurrentHashMap<>();
+  // the serialized config of an element made from encoded bytes, until first decoded
+  @Nullable
+  private volatile ByteString encodedConfig;
+
+  @Nullable
+  private volatile Decoded decoded;
 
   public ConfigElement(Prefab.Config config, Provenance provenance) {
-    this.config = config;
     this.provenance = provenance;
+    this.key = config.getKey();
+    this.id = config.getId();
+    this.configType = config.getConfigType();
+    this.encodedConfig = null;
+    this.decoded = new Decoded(config);
+  }
+
+  private ConfigElement(
+    String key,
+    long id,
+    Prefab.ConfigType configType,
+    ByteString encodedConfig,
+    Provenance provenance
+  ) {
+    this.provenance = provenance;
+    this.key = key;
+    this.id = id;
+    this.configType = configType;
+    this.encodedConfig = encodedConfig;
+    this.decoded = null;
+  }
+
+  /**
+   * An element for a serialized config with rows, such as one read from a snapshot, that
+   * is only decoded when something first needs more than its key, id and type
+   */
+  public static ConfigElement encoded(
+    String key,
+    long id,
+    Prefab.ConfigType configType,
+    ByteString encodedConfig,
+    Provenance provenance
+  ) {
+    return new ConfigElement(key, id, configType, encodedConfig, provenance);
   }
 
   public Prefab.Config getConfig() {
-    return config;
+    return decoded().config;
   }
 
   public Provenance getProvenance() {
     return provenance;
   }
 
+  public String getKey() {
+    return key;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public Prefab.ConfigType getConfigType() {
+    return configType;
+  }
+
+  public boolean hasRows() {
+    Decoded decoded = this.decoded;
+    return decoded == null || decoded.config.getRowsCount() > 0;
+  }
+
+  public boolean isDecoded() {
+    return decoded != null;
+  }
+
+  /**
+   * @return the serialized config, without decoding it if it hasn't been
+   */
+  public ByteString toByteString() {
+    ByteString encodedConfig = this.encodedConfig;
+    if (encodedConfig != null) {
+      return encodedConfig;
+    }
+    return decoded().config.toByteString();
+  }
+
   public Stream<Prefab.ConfigRow> getRowsProjEnvFirst(long projectEnvId) {
-    List<Prefab.ConfigRow> configRows = preProcessedRows.get(projectEnvId);
-    if (configRows != null) {
-      return configRows.stream();
+    return getRowListProjEnvFirst(projectEnvId).stream();
+  }
+
+  /**
+   * @return the rows that apply to the project environment, those specific to it ahead of
+   * those for every environment, each in their original order
+   */
+  public List<Prefab.ConfigRow> getRowListProjEnvFirst(long projectEnvId) {
+    Decoded decoded = decoded();
+    if (decoded.projectEnvRows.isEmpty()) {
+      return decoded.defaultRows;
+    }
+    ImmutableList.Builder<Prefab.ConfigRow> rows = ImmutableList.builder();
+    for (Prefab.ConfigRow configRow : decoded.projectEnvRows) {
+      if (configRow.getProjectEnvId() == projectEnvId) {
+        rows.add(configRow);
+      }
+    }
+    return rows.addAll(decoded.defaultRows).build();
+  }
+
+  private Decoded decoded() {
+    Decoded decoded = this.decoded;
+    if (decoded == null) {
+      synchronized (this) {
+        decoded = this.decoded;
+        if (decoded == null) {
+          try {
+            decoded = new Decoded(Prefab.Config.parseFrom(encodedConfig));
+          } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException(
+              String.format("Unable to decode config '%s' from %s", key, provenance),
+              e
+            );
+          }
+          this.decoded = decoded;
+          // from here on the decoded config is what's kept
+          encodedConfig = null;
+        }
+      }
+    }
+    return decoded;
+  }
+
+  private static final class Decoded {
+
+    private final Prefab.Config config;
+
+    // the rows split once, in their original order, into those for a particular project
+    // environment and those for every environment
+    private final List<Prefab.ConfigRow> projectEnvRows;
+    private final List<Prefab.ConfigRow> defaultRows;
+
+    private Decoded(Prefab.Config config) {
+      this.config = config;
+      ImmutableList.Builder<Prefab.ConfigRow> projectEnvRows = ImmutableList.builder();
+      ImmutableList.Builder<Prefab.ConfigRow> defaultRows = ImmutableList.builder();
+      for (Prefab.ConfigRow configRow : config.getRowsList()) {
+        if (configRow.hasProjectEnvId()) {
+          projectEnvRows.add(configRow);
+        } else {
+          defaultRows.add(configRow);
+        }
+      }
+      this.projectEnvRows = projectEnvRows.build();
+      this.defaultRows = defaultRows.build();
     }
-    return preProcessedRows
-      .computeIfAbsent(
-        projectEnvId,
-        key ->
-          config
-            .getRowsList()
-            .stream()
-            .filter(cr -> !cr.hasProjectEnvId() || cr.getProjectEnvId() == projectEnvId)
-            .sorted((o1, o2) -> o1.hasProjectEnvId() ? -1 : 1)
-            .collect(Collectors.toList())
-      )
-      .stream();
   }
 }
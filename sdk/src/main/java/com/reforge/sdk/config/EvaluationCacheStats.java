@@ -0,0 +1,67 @@
+package com.reforge.sdk.config;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A snapshot of the evaluation cache counters, see
+ * {@link com.reforge.sdk.Options#setEvaluationCacheSize(int)}
+ */
+public class EvaluationCacheStats {
+
+  private final long hitCount;
+  private final long missCount;
+  private final long bypassCount;
+  private final long size;
+
+  public EvaluationCacheStats(
+    long hitCount,
+    long missCount,
+    long bypassCount,
+    long size
+  ) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.bypassCount = bypassCount;
+    this.size = size;
+  }
+
+  /**
+   * @return lookups answered from the cache
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return lookups that were evaluated and then cached
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return lookups of configs that can't be cached, because their value depends on the
+   * time or on a random draw
+   */
+  public long getBypassCount() {
+    return bypassCount;
+  }
+
+  /**
+   * @return the number of results currently cached
+   */
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects
+      .toStringHelper(this)
+      .add("hitCount", hitCount)
+      .add("missCount", missCount)
+      .add("bypassCount", bypassCount)
+      .add("size", size)
+      .toString();
+  }
+}
@@ -39,6 +39,11 @@ public class CompositeContextStore implements ContextStore {
     return getValidStore().flatMap(ContextStore::getContext);
   }
 
+  @Override
+  public Optional<Object> getEvaluationScope() {
+    return getValidStore().flatMap(ContextStore::getEvaluationScope);
+  }
+
   Optional<ContextStore> getValidStore() {
     return contextStores.stream().filter(ContextStore::isAvailable).findFirst();
   }
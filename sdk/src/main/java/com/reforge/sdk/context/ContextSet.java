@@ -10,9 +10,15 @@ public class ContextSet implements ContextSetReadable {
 
   private final ConcurrentSkipListMap<String, Context> contextByNameMap = new ConcurrentSkipListMap<>();
 
+  // replaced, never modified, whenever a context is added
+  private volatile ImmutableList<Context> contexts = ImmutableList.of();
+
   public ContextSet addContext(Context context) {
     if (context != null) {
-      contextByNameMap.put(context.getName().toLowerCase(), context);
+      synchronized (contextByNameMap) {
+        contextByNameMap.put(context.getName().toLowerCase(), context);
+        contexts = ImmutableList.copyOf(contextByNameMap.values());
+      }
     }
     return this;
   }
@@ -26,9 +32,13 @@ public class ContextSet implements ContextSetReadable {
     return Optional.ofNullable(contextByNameMap.get(contextType.toLowerCase()));
   }
 
+  /**
+   * @return an immutable snapshot of the contexts. The same instance is returned until a
+   * context is added
+   */
   @Override
   public Iterable<Context> getContexts() {
-    return ImmutableList.copyOf(contextByNameMap.values());
+    return contexts;
   }
 
   public static ContextSet from(Context... contexts) {
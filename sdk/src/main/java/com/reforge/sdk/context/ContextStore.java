@@ -39,4 +39,17 @@ public interface ContextStore {
   default boolean isAvailable() {
     return true;
   }
+
+  /**
+   * An object standing for the current context-session scope, which evaluations made with
+   * its context are remembered against when
+   * {@link com.reforge.sdk.Options#setMemoizeRequestEvaluations(boolean)} is on. The
+   * remembered evaluations last as long as the object is in use.
+   * Implementations should return the same object until the context is set, added to or
+   * cleared, and a new one after.
+   * @return the scope, empty if there is no scope to remember evaluations in
+   */
+  default Optional<Object> getEvaluationScope() {
+    return Optional.empty();
+  }
 }
@@ -0,0 +1,119 @@
+package com.reforge.sdk.internal;
+
+import cloud.prefab.domain.Prefab;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gathers the config payloads that arrive within a short window into one, so that a
+ * burst of streamed updates is applied as a single store swap and listener broadcast
+ * rather than one per payload. A batch is passed on when its window has passed since its
+ * first payload, or as soon as it holds the maximum number of payloads.
+ * <p>
+ * Within a batch each config key keeps only its highest id, the same config that applying
+ * the payloads one by one would have left in place, and the pointer and default context
+ * are those of the last payload. Batches are passed on in the order they were gathered.
+ */
+class CoalescingConfigsConsumer implements Consumer<Prefab.Configs> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    CoalescingConfigsConsumer.class
+  );
+
+  private final Consumer<Prefab.Configs> downstream;
+  private final ScheduledExecutorService scheduledExecutorService;
+  private final long windowMillis;
+  private final int maxBatchSize;
+
+  // held while a batch is taken and passed on, to keep batches in order
+  private final Object flushLock = new Object();
+
+  private final Map<String, Prefab.Config> pendingConfigs = new LinkedHashMap<>();
+
+  @Nullable
+  private Prefab.Configs lastPayload;
+
+  private int pendingPayloadCount;
+
+  CoalescingConfigsConsumer(
+    Consumer<Prefab.Configs> downstream,
+    ScheduledExecutorService scheduledExecutorService,
+    long windowMillis,
+    int maxBatchSize
+  ) {
+    this.downstream = downstream;
+    this.scheduledExecutorService = scheduledExecutorService;
+    this.windowMillis = windowMillis;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  @Override
+  public void accept(Prefab.Configs configs) {
+    boolean full;
+    synchronized (this) {
+      for (Prefab.Config config : configs.getConfigsList()) {
+        pendingConfigs.merge(
+          config.getKey(),
+          config,
+          (pending, next) -> next.getId() >= pending.getId() ? next : pending
+        );
+      }
+      lastPayload = configs;
+      pendingPayloadCount++;
+      full = pendingPayloadCount >= maxBatchSize;
+      if (!full && pendingPayloadCount == 1) {
+        scheduledExecutorService.schedule(
+          this::flush,
+          windowMillis,
+          TimeUnit.MILLISECONDS
+        );
+      }
+    }
+    if (full) {
+      flush();
+    }
+  }
+
+  /**
+   * Passes on whatever has been gathered so far, if anything. A batch that fails to apply
+   * is logged here, as nothing waits on the scheduled flush to hear of it
+   */
+  void flush() {
+    synchronized (flushLock) {
+      Prefab.Configs batch = takeBatch();
+      if (batch != null) {
+        try {
+          downstream.accept(batch);
+        } catch (RuntimeException e) {
+          LOG.warn(
+            "Unexpected exception applying {} coalesced configs",
+            batch.getConfigsCount(),
+            e
+          );
+        }
+      }
+    }
+  }
+
+  @Nullable
+  private synchronized Prefab.Configs takeBatch() {
+    if (lastPayload == null) {
+      return null;
+    }
+    Prefab.Configs batch = lastPayload
+      .toBuilder()
+      .clearConfigs()
+      .addAllConfigs(pendingConfigs.values())
+      .build();
+    pendingConfigs.clear();
+    lastPayload = null;
+    pendingPayloadCount = 0;
+    return batch;
+  }
+}
@@ -0,0 +1,211 @@
+package com.reforge.sdk.internal;
+
+import cloud.prefab.domain.Prefab;
+import com.reforge.sdk.config.ConfigElement;
+import com.reforge.sdk.config.EvaluatedCriterion;
+import com.reforge.sdk.config.Match;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * The evaluation plan for a single ConfigElement in a given project environment: the rows
+ * that apply to the environment (env-specific row first) with their criteria compiled.
+ */
+public class CompiledConfig {
+
+  private final ConfigElement configElement;
+  private final long projectEnvId;
+  private final Row[] rows;
+  private final Optional<Match> constantMatch;
+  private final boolean repeatable;
+  private final String[] hashPropertyNames;
+  private final String[] segmentKeys;
+
+  private CompiledConfig(ConfigElement configElement, long projectEnvId, Row[] rows) {
+    this.configElement = configElement;
+    this.projectEnvId = projectEnvId;
+    this.rows = rows;
+    this.constantMatch =
+      rows.length == 0 ? Optional.empty() : rows[0].constantMatch(configElement);
+    boolean repeatable = true;
+    Set<String> hashPropertyNames = new LinkedHashSet<>();
+    Set<String> segmentKeys = new LinkedHashSet<>();
+    for (Row row : rows) {
+      for (ConditionalValue conditionalValue : row.conditionalValues) {
+        for (CompiledCriterion criterion : conditionalValue.criteria) {
+          repeatable &= !criterion.isTimeDependent();
+          if (criterion.getSegmentKey() != null) {
+            segmentKeys.add(criterion.getSegmentKey());
+          }
+        }
+        Prefab.ConfigValue value = conditionalValue.conditionalValue.getValue();
+        if (value.hasWeightedValues()) {
+          if (value.getWeightedValues().hasHashByPropertyName()) {
+            hashPropertyNames.add(value.getWeightedValues().getHashByPropertyName());
+          } else {
+            repeatable = false;
+          }
+        }
+      }
+    }
+    this.repeatable = repeatable;
+    this.hashPropertyNames = hashPropertyNames.toArray(new String[0]);
+    this.segmentKeys = segmentKeys.toArray(new String[0]);
+  }
+
+  public static CompiledConfig compile(ConfigElement configElement, long projectEnvId) {
+    List<Prefab.ConfigRow> configRows = configElement.getRowListProjEnvFirst(
+      projectEnvId
+    );
+    Row[] rows = new Row[configRows.size()];
+    for (int rowIndex = 0; rowIndex < rows.length; rowIndex++) {
+      rows[rowIndex] = new Row(configRows.get(rowIndex), rowIndex);
+    }
+    return new CompiledConfig(configElement, projectEnvId, rows);
+  }
+
+  public ConfigElement getConfigElement() {
+    return configElement;
+  }
+
+  public long getProjectEnvId() {
+    return projectEnvId;
+  }
+
+  Row[] getRows() {
+    return rows;
+  }
+
+  /**
+   * The match for a config whose value does not depend on the context: the first
+   * conditional value of its first row has no criteria other than ALWAYS_TRUE and is not
+   * a weighted value. Provided and encrypted values still have to be resolved.
+   */
+  public Optional<Match> getConstantMatch() {
+    return constantMatch;
+  }
+
+  boolean isConstant() {
+    return constantMatch.isPresent();
+  }
+
+  /**
+   * Whether the resolved value is the same for every context. An encrypted value is not,
+   * as its decryption key is a config in its own right.
+   */
+  public boolean isContextFree() {
+    return (
+      constantMatch.isPresent() && !constantMatch.get().getConfigValue().hasDecryptWith()
+    );
+  }
+
+  /**
+   * Whether evaluating the config again with the same context is bound to give the same
+   * match: none of its criteria look at the current time, and its weighted values are
+   * hashed on a property of the context (which the context has to supply, see
+   * {@link #getHashPropertyNames()}) rather than picked at random
+   */
+  boolean isRepeatable() {
+    return repeatable;
+  }
+
+  /**
+   * @return the context properties the config's weighted values are hashed on
+   */
+  String[] getHashPropertyNames() {
+    return hashPropertyNames;
+  }
+
+  /**
+   * @return the keys of the segments the config's criteria evaluate
+   */
+  String[] getSegmentKeys() {
+    return segmentKeys;
+  }
+
+  static class Row {
+
+    final Prefab.ConfigRow configRow;
+    final int rowIndex;
+    final Optional<Long> envId;
+
+    @Nullable
+    final Map<String, Prefab.ConfigValue> properties;
+
+    final ConditionalValue[] conditionalValues;
+
+    Row(Prefab.ConfigRow configRow, int rowIndex) {
+      this.configRow = configRow;
+      this.rowIndex = rowIndex;
+      this.envId =
+        configRow.hasProjectEnvId()
+          ? Optional.of(configRow.getProjectEnvId())
+          : Optional.empty();
+      this.properties =
+        configRow.getPropertiesMap().isEmpty() ? null : configRow.getPropertiesMap();
+      this.conditionalValues = new ConditionalValue[configRow.getValuesCount()];
+      for (int index = 0; index < conditionalValues.length; index++) {
+        conditionalValues[index] =
+          new ConditionalValue(this, configRow.getValues(index), index);
+      }
+    }
+
+    private Optional<Match> constantMatch(ConfigElement configElement) {
+      // row properties are left in scope for the rest of a segment's evaluation, so rows
+      // that have them are always walked
+      if (properties != null || conditionalValues.length == 0) {
+        return Optional.empty();
+      }
+      ConditionalValue first = conditionalValues[0];
+      Prefab.ConfigValue value = first.conditionalValue.getValue();
+      if (value.hasWeightedValues()) {
+        return Optional.empty();
+      }
+      List<EvaluatedCriterion> evaluatedCriteria = new ArrayList<>();
+      for (CompiledCriterion criterion : first.criteria) {
+        if (!(criterion instanceof CompiledCriterion.AlwaysTrue)) {
+          return Optional.empty();
+        }
+        evaluatedCriteria.add(new EvaluatedCriterion(criterion.criterion, true));
+      }
+      return Optional.of(
+        new Match(
+          value,
+          configElement,
+          evaluatedCriteria,
+          rowIndex,
+          first.conditionalValueIndex,
+          Optional.empty(),
+          envId
+        )
+      );
+    }
+  }
+
+  static class ConditionalValue {
+
+    final Row row;
+    final Prefab.ConditionalValue conditionalValue;
+    final int conditionalValueIndex;
+    final CompiledCriterion[] criteria;
+
+    ConditionalValue(
+      Row row,
+      Prefab.ConditionalValue conditionalValue,
+      int conditionalValueIndex
+    ) {
+      this.row = row;
+      this.conditionalValue = conditionalValue;
+      this.conditionalValueIndex = conditionalValueIndex;
+      this.criteria = new CompiledCriterion[conditionalValue.getCriteriaCount()];
+      for (int index = 0; index < criteria.length; index++) {
+        criteria[index] = CompiledCriterion.compile(conditionalValue.getCriteria(index));
+      }
+    }
+  }
+}
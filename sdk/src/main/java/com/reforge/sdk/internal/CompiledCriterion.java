@@ -0,0 +1,790 @@
+package com.reforge.sdk.internal;
+
+import cloud.prefab.domain.Prefab;
+import com.google.common.collect.ImmutableMap;
+import com.reforge.sdk.config.ConfigValueUtils;
+import com.reforge.sdk.config.EvaluatedCriterion;
+import com.reforge.sdk.config.Match;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Prefab.Criterion with everything that can be derived from the criterion alone
+ * (value sets, patterns, versions, dates, the property keys to look up) worked out once
+ * when the config is loaded, so that evaluation only has to look at the context.
+ */
+abstract class CompiledCriterion {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CompiledCriterion.class);
+
+  private static final Map<Prefab.Criterion.CriterionOperator, IntPredicate> NUMERIC_COMPARE_TO_EVAL = ImmutableMap.of(
+    Prefab.Criterion.CriterionOperator.PROP_GREATER_THAN,
+    v -> v > 0,
+    Prefab.Criterion.CriterionOperator.PROP_GREATER_THAN_OR_EQUAL,
+    v -> v >= 0,
+    Prefab.Criterion.CriterionOperator.PROP_LESS_THAN,
+    v -> v < 0,
+    Prefab.Criterion.CriterionOperator.PROP_LESS_THAN_OR_EQUAL,
+    v -> v <= 0
+  );
+
+  private static final Map<Prefab.Criterion.CriterionOperator, IntPredicate> SEMVER_COMPARE_TO_EVAL = ImmutableMap.of(
+    Prefab.Criterion.CriterionOperator.PROP_SEMVER_GREATER_THAN,
+    v -> v > 0,
+    Prefab.Criterion.CriterionOperator.PROP_SEMVER_EQUAL,
+    v -> v == 0,
+    Prefab.Criterion.CriterionOperator.PROP_SEMVER_LESS_THAN,
+    v -> v < 0
+  );
+
+  private static final IntPredicate NEVER = v -> false;
+
+  final Prefab.Criterion criterion;
+  private final String propertyName;
+
+  @Nullable
+  private final String lowerCasedPropertyName;
+
+  private final boolean currentTimeProperty;
+
+  private CompiledCriterion(Prefab.Criterion criterion) {
+    this.criterion = criterion;
+    this.propertyName = criterion.getPropertyName();
+    String lowerCased = propertyName.toLowerCase();
+    this.lowerCasedPropertyName = lowerCased.equals(propertyName) ? null : lowerCased;
+    this.currentTimeProperty =
+      ConfigRuleEvaluator.CURRENT_TIME_KEY.equals(propertyName) ||
+      ConfigRuleEvaluator.REFORGE_CURRENT_TIME_KEY.equals(propertyName);
+  }
+
+  static CompiledCriterion compile(Prefab.Criterion criterion) {
+    switch (criterion.getOperator()) {
+      case ALWAYS_TRUE:
+        return new AlwaysTrue(criterion);
+      case HIERARCHICAL_MATCH:
+        return new HierarchicalMatch(criterion);
+      case IN_SEG:
+        return new InSegment(criterion);
+      case NOT_IN_SEG:
+        return new NotInSegment(criterion);
+      case PROP_IS_ONE_OF:
+      // fall through
+      case PROP_IS_NOT_ONE_OF:
+        return new OneOf(criterion);
+      case PROP_ENDS_WITH_ONE_OF:
+      // fall through
+      case PROP_DOES_NOT_END_WITH_ONE_OF:
+        return new StringOperation(
+          criterion,
+          criterion.getOperator() ==
+          Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_END_WITH_ONE_OF,
+          MultiPatternMatcher::endsWithAny
+        );
+      case PROP_CONTAINS_ONE_OF:
+      // fall through
+      case PROP_DOES_NOT_CONTAIN_ONE_OF:
+        return new StringOperation(
+          criterion,
+          criterion.getOperator() ==
+          Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_CONTAIN_ONE_OF,
+          MultiPatternMatcher::containsAny
+        );
+      case PROP_STARTS_WITH_ONE_OF:
+      // fall through
+      case PROP_DOES_NOT_START_WITH_ONE_OF:
+        return new StringOperation(
+          criterion,
+          criterion.getOperator() ==
+          Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_START_WITH_ONE_OF,
+          MultiPatternMatcher::startsWithAny
+        );
+      case IN_INT_RANGE:
+        return new InIntRange(criterion);
+      case PROP_GREATER_THAN:
+      // fall through
+      case PROP_GREATER_THAN_OR_EQUAL:
+      // fall through
+      case PROP_LESS_THAN:
+      // fall through
+      case PROP_LESS_THAN_OR_EQUAL:
+        return new NumericComparison(criterion);
+      case PROP_AFTER:
+      // fall through
+      case PROP_BEFORE:
+        return new DateComparison(criterion);
+      case PROP_MATCHES:
+      // fall through
+      case PROP_DOES_NOT_MATCH:
+        return new RegexMatch(criterion);
+      case PROP_SEMVER_LESS_THAN:
+      // fall through
+      case PROP_SEMVER_EQUAL:
+      // fall through
+      case PROP_SEMVER_GREATER_THAN:
+        return new SemverComparison(criterion);
+      default:
+        LOG.debug(
+          "Unexpected operator {} found in criterion {}",
+          criterion.getOperator(),
+          criterion
+        );
+        return new Constant(criterion, false);
+    }
+  }
+
+  abstract List<EvaluatedCriterion> evaluate(
+    ConfigRuleEvaluator evaluator,
+    LookupContext lookupContext,
+    RowPropertiesStack rowProperties
+  );
+
+  /**
+   * Whether every criterion {@link #evaluate} would return is a match, worked out without
+   * building them
+   */
+  abstract boolean matches(
+    ConfigRuleEvaluator evaluator,
+    LookupContext lookupContext,
+    RowPropertiesStack rowProperties
+  );
+
+  /**
+   * Row properties take precedence over the context, the exact-case property name over
+   * the lower-cased one
+   */
+  @Nullable
+  Prefab.ConfigValue prop(LookupContext lookupContext, RowPropertiesStack rowProperties) {
+    Prefab.ConfigValue rowPropValue = rowProperties.lookup(
+      propertyName,
+      lowerCasedPropertyName
+    );
+    if (rowPropValue != null) {
+      return rowPropValue;
+    }
+    Map<String, Prefab.ConfigValue> properties = lookupContext.getExpandedProperties();
+    Prefab.ConfigValue valueFromLookupContext = properties.get(propertyName);
+    if (valueFromLookupContext == null && lowerCasedPropertyName != null) {
+      valueFromLookupContext = properties.get(lowerCasedPropertyName);
+    }
+    if (valueFromLookupContext != null) {
+      return valueFromLookupContext;
+    }
+    //TODO: move this current time injection into a ContextResolver class?
+    if (currentTimeProperty) {
+      return Prefab.ConfigValue.newBuilder().setInt(System.currentTimeMillis()).build();
+    }
+    return null;
+  }
+
+  /**
+   * Whether the criterion can decide differently for the same context from one moment to
+   * the next
+   */
+  boolean isTimeDependent() {
+    return currentTimeProperty;
+  }
+
+  /**
+   * @return the key of the segment the criterion evaluates, or null if it is not a
+   * segment criterion
+   */
+  @Nullable
+  String getSegmentKey() {
+    return null;
+  }
+
+  /**
+   * a.b.c match a.b -> true
+   * a.b match a.b.c -> false
+   */
+  static boolean hierarchicalMatch(String propertyString, String valueToMatch) {
+    return propertyString.startsWith(valueToMatch);
+  }
+
+  private static boolean negate(boolean result, boolean negate) {
+    return negate != result;
+  }
+
+  @Nullable
+  private static Prefab.ConfigValue valueToMatch(Prefab.Criterion criterion) {
+    return criterion.hasValueToMatch() ? criterion.getValueToMatch() : null;
+  }
+
+  /**
+   * A criterion decided by a single property of the context
+   */
+  abstract static class PropertyCriterion extends CompiledCriterion {
+
+    private PropertyCriterion(Prefab.Criterion criterion) {
+      super(criterion);
+    }
+
+    abstract boolean test(@Nullable Prefab.ConfigValue prop, LookupContext lookupContext);
+
+    abstract List<EvaluatedCriterion> toEvaluated(
+      @Nullable Prefab.ConfigValue prop,
+      boolean match
+    );
+
+    @Override
+    final List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      RowPropertiesStack rowProperties
+    ) {
+      Prefab.ConfigValue prop = prop(lookupContext, rowProperties);
+      return toEvaluated(prop, test(prop, lookupContext));
+    }
+
+    @Override
+    final boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      RowPropertiesStack rowProperties
+    ) {
+      return test(prop(lookupContext, rowProperties), lookupContext);
+    }
+  }
+
+  static class Constant extends CompiledCriterion {
+
+    private final boolean match;
+    private final List<EvaluatedCriterion> result;
+
+    Constant(Prefab.Criterion criterion, boolean match) {
+      super(criterion);
+      this.match = match;
+      this.result = List.of(new EvaluatedCriterion(criterion, match));
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      RowPropertiesStack rowProperties
+    ) {
+      return result;
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      RowPropertiesStack rowProperties
+    ) {
+      return match;
+    }
+  }
+
+  static class AlwaysTrue extends Constant {
+
+    AlwaysTrue(Prefab.Criterion criterion) {
+      super(criterion, true);
+    }
+  }
+
+  static class HierarchicalMatch extends PropertyCriterion {
+
+    @Nullable
+    private final String valueToMatch;
+
+    private final List<EvaluatedCriterion> matched;
+    private final List<EvaluatedCriterion> noMatch;
+
+    HierarchicalMatch(Prefab.Criterion criterion) {
+      super(criterion);
+      this.valueToMatch =
+        criterion.getValueToMatch().hasString()
+          ? criterion.getValueToMatch().getString()
+          : null;
+      this.matched =
+        List.of(new EvaluatedCriterion(criterion, criterion.getValueToMatch(), true));
+      this.noMatch =
+        List.of(new EvaluatedCriterion(criterion, criterion.getValueToMatch(), false));
+    }
+
+    @Override
+    boolean test(@Nullable Prefab.ConfigValue prop, LookupContext lookupContext) {
+      return (
+        valueToMatch != null &&
+        prop != null &&
+        prop.hasString() &&
+        hierarchicalMatch(prop.getString(), valueToMatch)
+      );
+    }
+
+    @Override
+    List<EvaluatedCriterion> toEvaluated(
+      @Nullable Prefab.ConfigValue prop,
+      boolean match
+    ) {
+      return match ? matched : noMatch;
+    }
+  }
+
+  static class InSegment extends CompiledCriterion {
+
+    // The string here is the key of the Segment
+    private final String segmentKey;
+    private final List<EvaluatedCriterion> missingSegment;
+
+    InSegment(Prefab.Criterion criterion) {
+      super(criterion);
+      this.segmentKey = criterion.getValueToMatch().getString();
+      this.missingSegment =
+        List.of(
+          new EvaluatedCriterion(criterion, "Missing Segment " + segmentKey, false)
+        );
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      RowPropertiesStack rowProperties
+    ) {
+      final Optional<Match> evaluatedSegment = evaluator.getSegmentMatch(
+        segmentKey,
+        lookupContext,
+        rowProperties
+      );
+
+      if (
+        evaluatedSegment.isPresent() &&
+        evaluatedSegment.get().getConfigValue().hasBool() &&
+        evaluatedSegment.get().getConfigValue().getBool()
+      ) {
+        return evaluatedSegment.get().getEvaluatedCriterion();
+      }
+      return missingSegment;
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      RowPropertiesStack rowProperties
+    ) {
+      Prefab.ConfigValue segmentValue = evaluator.evaluateSegmentValue(
+        segmentKey,
+        lookupContext,
+        rowProperties
+      );
+      return segmentValue != null && segmentValue.hasBool() && segmentValue.getBool();
+    }
+
+    @Override
+    String getSegmentKey() {
+      return segmentKey;
+    }
+  }
+
+  static class NotInSegment extends CompiledCriterion {
+
+    private final String segmentKey;
+    private final List<EvaluatedCriterion> inSegment;
+    private final List<EvaluatedCriterion> notInSegment;
+    private final List<EvaluatedCriterion> missingSegment;
+
+    NotInSegment(Prefab.Criterion criterion) {
+      super(criterion);
+      this.segmentKey = criterion.getValueToMatch().getString();
+      this.inSegment =
+        List.of(new EvaluatedCriterion(criterion, criterion.getValueToMatch(), false));
+      this.notInSegment =
+        List.of(new EvaluatedCriterion(criterion, criterion.getValueToMatch(), true));
+      this.missingSegment =
+        List.of(
+          new EvaluatedCriterion(criterion, "Missing Segment " + segmentKey, true)
+        );
+    }
+
+    @Override
+    List<EvaluatedCriterion> evaluate(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      RowPropertiesStack rowProperties
+    ) {
+      final Optional<Match> evaluatedSegment = evaluator.getSegmentMatch(
+        segmentKey,
+        lookupContext
+      );
+      if (
+        evaluatedSegment.isPresent() && evaluatedSegment.get().getConfigValue().hasBool()
+      ) {
+        return evaluatedSegment.get().getConfigValue().getBool()
+          ? inSegment
+          : notInSegment;
+      }
+      return missingSegment;
+    }
+
+    @Override
+    boolean matches(
+      ConfigRuleEvaluator evaluator,
+      LookupContext lookupContext,
+      RowPropertiesStack rowProperties
+    ) {
+      Prefab.ConfigValue segmentValue = evaluator.evaluateSegmentValue(
+        segmentKey,
+        lookupContext
+      );
+      if (segmentValue != null && segmentValue.hasBool()) {
+        return !segmentValue.getBool();
+      }
+      return true;
+    }
+
+    @Override
+    String getSegmentKey() {
+      return segmentKey;
+    }
+  }
+
+  static class OneOf extends PropertyCriterion {
+
+    private final StringSet values;
+    private final boolean negated;
+    private final List<EvaluatedCriterion> emptyContextValue;
+
+    OneOf(Prefab.Criterion criterion) {
+      super(criterion);
+      this.values =
+        StringSet.of(criterion.getValueToMatch().getStringList().getValuesList());
+      this.negated =
+        criterion.getOperator() == Prefab.Criterion.CriterionOperator.PROP_IS_NOT_ONE_OF;
+      this.emptyContextValue = List.of(new EvaluatedCriterion(criterion, negated));
+    }
+
+    // this is actually going to function as intersection -- true if there is non-empty overlap between the collection value on the left or on the right
+    @Override
+    boolean test(@Nullable Prefab.ConfigValue prop, LookupContext lookupContext) {
+      if (prop == null) {
+        return negated;
+      }
+      if (prop.hasString()) {
+        return values.contains(prop.getString()) != negated;
+      }
+      if (prop.getTypeCase() == Prefab.ConfigValue.TypeCase.STRING_LIST) {
+        List<String> contextValues = prop.getStringList().getValuesList();
+        if (contextValues.isEmpty()) {
+          return negated;
+        }
+        return containsAny(contextValues) != negated;
+      }
+      Optional<String> contextValue = ConfigValueUtils.coerceToString(prop);
+      if (contextValue.isEmpty()) {
+        return negated;
+      }
+      return values.contains(contextValue.get()) != negated;
+    }
+
+    @Override
+    List<EvaluatedCriterion> toEvaluated(
+      @Nullable Prefab.ConfigValue prop,
+      boolean match
+    ) {
+      if (
+        prop == null ||
+        (
+          prop.getTypeCase() == Prefab.ConfigValue.TypeCase.STRING_LIST &&
+          prop.getStringList().getValuesCount() == 0
+        )
+      ) {
+        return emptyContextValue;
+      }
+      Optional<String> contextValue = ConfigValueUtils.coerceToString(prop);
+      if (contextValue.isEmpty()) {
+        return emptyContextValue;
+      }
+      // assumption that property is a String
+      return List.of(new EvaluatedCriterion(criterion, contextValue.get(), match));
+    }
+
+    private boolean containsAny(List<String> contextValues) {
+      for (int index = 0; index < contextValues.size(); index++) {
+        if (values.contains(contextValues.get(index))) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  static class StringOperation extends PropertyCriterion {
+
+    private final MultiPatternMatcher matcher;
+    private final boolean negated;
+    private final List<EvaluatedCriterion> noStringValue;
+
+    StringOperation(
+      Prefab.Criterion criterion,
+      boolean negated,
+      Function<List<String>, MultiPatternMatcher> matcherFactory
+    ) {
+      super(criterion);
+      this.matcher =
+        matcherFactory.apply(criterion.getValueToMatch().getStringList().getValuesList());
+      this.negated = negated;
+      this.noStringValue = List.of(new EvaluatedCriterion(criterion, negated));
+    }
+
+    @Override
+    boolean test(@Nullable Prefab.ConfigValue prop, LookupContext lookupContext) {
+      if (prop == null || !prop.hasString()) {
+        return negated;
+      }
+      return negate(matcher.matches(prop.getString()), negated);
+    }
+
+    @Override
+    List<EvaluatedCriterion> toEvaluated(
+      @Nullable Prefab.ConfigValue prop,
+      boolean match
+    ) {
+      if (prop != null && prop.hasString()) {
+        return List.of(new EvaluatedCriterion(criterion, prop, match));
+      }
+      return noStringValue;
+    }
+  }
+
+  static class InIntRange extends PropertyCriterion {
+
+    @Nullable
+    private final IntRangeWrapper intRange;
+
+    private final List<EvaluatedCriterion> inRange;
+    private final List<EvaluatedCriterion> outOfRange;
+
+    InIntRange(Prefab.Criterion criterion) {
+      super(criterion);
+      this.intRange =
+        criterion.getValueToMatch().hasIntRange()
+          ? IntRangeWrapper.of(criterion.getValueToMatch().getIntRange())
+          : null;
+      this.inRange = List.of(new EvaluatedCriterion(criterion, true));
+      this.outOfRange = List.of(new EvaluatedCriterion(criterion, false));
+    }
+
+    @Override
+    boolean test(@Nullable Prefab.ConfigValue prop, LookupContext lookupContext) {
+      return (
+        intRange != null &&
+        prop != null &&
+        prop.hasInt() &&
+        intRange.contains(prop.getInt())
+      );
+    }
+
+    @Override
+    List<EvaluatedCriterion> toEvaluated(
+      @Nullable Prefab.ConfigValue prop,
+      boolean match
+    ) {
+      if (intRange != null && prop != null && prop.hasInt()) {
+        return match ? inRange : outOfRange;
+      }
+      return List.of(new EvaluatedCriterion(criterion, Optional.ofNullable(prop), false));
+    }
+  }
+
+  static class NumericComparison extends PropertyCriterion {
+
+    private final boolean hasNumberToMatch;
+    private final double numberToMatch;
+    private final IntPredicate comparisonPredicate;
+
+    NumericComparison(Prefab.Criterion criterion) {
+      super(criterion);
+      Prefab.ConfigValue valueToMatch = valueToMatch(criterion);
+      this.hasNumberToMatch =
+        valueToMatch != null && ConfigValueUtils.isNumber(valueToMatch);
+      this.numberToMatch = hasNumberToMatch ? asDouble(valueToMatch) : 0;
+      this.comparisonPredicate =
+        NUMERIC_COMPARE_TO_EVAL.getOrDefault(criterion.getOperator(), NEVER);
+    }
+
+    @Override
+    boolean test(@Nullable Prefab.ConfigValue prop, LookupContext lookupContext) {
+      if (!hasNumberToMatch || prop == null || !ConfigValueUtils.isNumber(prop)) {
+        return false;
+      }
+      return comparisonPredicate.test(Double.compare(asDouble(prop), numberToMatch));
+    }
+
+    @Override
+    List<EvaluatedCriterion> toEvaluated(
+      @Nullable Prefab.ConfigValue prop,
+      boolean match
+    ) {
+      return List.of(new EvaluatedCriterion(criterion, Optional.ofNullable(prop), match));
+    }
+
+    private static double asDouble(Prefab.ConfigValue configValue) {
+      return configValue.hasInt() ? configValue.getInt() : configValue.getDouble();
+    }
+  }
+
+  static class DateComparison extends PropertyCriterion {
+
+    @Nullable
+    private final Instant dateToMatch;
+
+    private final boolean before;
+    private final List<EvaluatedCriterion> matched;
+    private final List<EvaluatedCriterion> notMatched;
+
+    DateComparison(Prefab.Criterion criterion) {
+      super(criterion);
+      Prefab.ConfigValue valueToMatch = valueToMatch(criterion);
+      this.dateToMatch =
+        valueToMatch == null ? null : ConfigValueUtils.asDate(valueToMatch).orElse(null);
+      this.before =
+        criterion.getOperator() == Prefab.Criterion.CriterionOperator.PROP_BEFORE;
+      this.matched = List.of(new EvaluatedCriterion(criterion, true));
+      this.notMatched = List.of(new EvaluatedCriterion(criterion, false));
+    }
+
+    @Override
+    boolean test(@Nullable Prefab.ConfigValue prop, LookupContext lookupContext) {
+      if (dateToMatch == null || prop == null) {
+        return false;
+      }
+      Instant dateFromContext = lookupContext.getInstant(prop);
+      if (dateFromContext == null) {
+        return false;
+      }
+      return before
+        ? dateFromContext.isBefore(dateToMatch)
+        : dateFromContext.isAfter(dateToMatch);
+    }
+
+    @Override
+    boolean isTimeDependent() {
+      return true;
+    }
+
+    @Override
+    List<EvaluatedCriterion> toEvaluated(
+      @Nullable Prefab.ConfigValue prop,
+      boolean match
+    ) {
+      return match ? matched : notMatched;
+    }
+  }
+
+  /**
+   * The pattern is compiled once per version of the config; one that doesn't compile
+   * never matches. Each thread resets its own Matcher rather than creating one per
+   * evaluation.
+   */
+  static class RegexMatch extends PropertyCriterion {
+
+    @Nullable
+    private final Pattern pattern;
+
+    @Nullable
+    private final ThreadLocal<Matcher> matchers;
+
+    private final boolean negated;
+    private final List<EvaluatedCriterion> matched;
+    private final List<EvaluatedCriterion> notMatched;
+
+    RegexMatch(Prefab.Criterion criterion) {
+      super(criterion);
+      Prefab.ConfigValue valueToMatch = valueToMatch(criterion);
+      this.pattern =
+        valueToMatch == null ? null : compilePattern(criterion, valueToMatch);
+      this.matchers =
+        pattern == null ? null : ThreadLocal.withInitial(() -> pattern.matcher(""));
+      this.negated =
+        criterion.getOperator() == Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_MATCH;
+      this.matched = List.of(new EvaluatedCriterion(criterion, true));
+      this.notMatched = List.of(new EvaluatedCriterion(criterion, false));
+    }
+
+    @Override
+    boolean test(@Nullable Prefab.ConfigValue prop, LookupContext lookupContext) {
+      if (matchers == null || prop == null) {
+        return false;
+      }
+      return negate(matchers.get().reset(prop.getString()).matches(), negated);
+    }
+
+    @Override
+    List<EvaluatedCriterion> toEvaluated(
+      @Nullable Prefab.ConfigValue prop,
+      boolean match
+    ) {
+      return match ? matched : notMatched;
+    }
+
+    @Nullable
+    private static Pattern compilePattern(
+      Prefab.Criterion criterion,
+      Prefab.ConfigValue configValue
+    ) {
+      try {
+        return Pattern.compile(configValue.getString());
+      } catch (PatternSyntaxException e) {
+        LOG.debug(
+          "Invalid pattern {} in criterion {} will never match",
+          configValue.getString(),
+          criterion,
+          e
+        );
+        return null;
+      }
+    }
+  }
+
+  static class SemverComparison extends PropertyCriterion {
+
+    @Nullable
+    private final SemanticVersion versionToMatch;
+
+    private final IntPredicate comparisonPredicate;
+
+    SemverComparison(Prefab.Criterion criterion) {
+      super(criterion);
+      Prefab.ConfigValue valueToMatch = valueToMatch(criterion);
+      this.versionToMatch =
+        valueToMatch == null
+          ? null
+          : SemanticVersion.parseQuietly(valueToMatch.getString());
+      this.comparisonPredicate =
+        SEMVER_COMPARE_TO_EVAL.getOrDefault(criterion.getOperator(), NEVER);
+    }
+
+    @Override
+    boolean test(@Nullable Prefab.ConfigValue prop, LookupContext lookupContext) {
+      if (versionToMatch == null || prop == null) {
+        return false;
+      }
+      SemanticVersion versionFromContext = lookupContext.getSemanticVersion(prop);
+      return (
+        versionFromContext != null &&
+        comparisonPredicate.test(versionFromContext.compareTo(versionToMatch))
+      );
+    }
+
+    @Override
+    List<EvaluatedCriterion> toEvaluated(
+      @Nullable Prefab.ConfigValue prop,
+      boolean match
+    ) {
+      return List.of(new EvaluatedCriterion(criterion, Optional.ofNullable(prop), match));
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package com.reforge.sdk.internal;
+
+import com.reforge.sdk.config.ConfigChangeDispatchStats;
+import com.reforge.sdk.config.ConfigChangeEvent;
+import com.reforge.sdk.config.ConfigChangeListener;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers config change events to listeners on an executor, so that a slow listener
+ * holds up neither config updates nor the other listeners. Each listener has a queue of
+ * its own that is drained by one task at a time, so it hears events in the order they
+ * happened.
+ * <p>
+ * When a listener falls more than the queue capacity behind, its queue is collapsed to
+ * one event per key, running from the oldest pending value to the latest, which bounds
+ * the queue by the number of config keys. Keys whose value ends up where it started are
+ * left out.
+ */
+class ConfigChangeDispatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConfigChangeDispatcher.class);
+
+  private final Executor executor;
+  private final int queueCapacity;
+  private final ConcurrentMap<ConfigChangeListener, ListenerQueue> listenerQueues = new ConcurrentHashMap<>();
+
+  private final AtomicLong queueDepth = new AtomicLong();
+  private final LongAdder deliveredCount = new LongAdder();
+  private final LongAdder coalescedCount = new LongAdder();
+  private final LongAdder totalListenerNanos = new LongAdder();
+  private final LongAccumulator maxListenerNanos = new LongAccumulator(Math::max, 0);
+
+  ConfigChangeDispatcher(Executor executor, int queueCapacity) {
+    this.executor = executor;
+    this.queueCapacity = queueCapacity;
+  }
+
+  void dispatch(
+    Collection<ConfigChangeListener> listeners,
+    List<ConfigChangeEvent> changeEvents
+  ) {
+    if (changeEvents.isEmpty()) {
+      return;
+    }
+    for (ConfigChangeListener listener : listeners) {
+      // a listener without a queue has been removed, or was never added
+      ListenerQueue listenerQueue = listenerQueues.get(listener);
+      if (listenerQueue != null) {
+        listenerQueue.enqueue(changeEvents);
+      }
+    }
+  }
+
+  /**
+   * Gives the listener its queue, if it doesn't have one already. Only listeners that
+   * have been added are dispatched to.
+   */
+  void add(ConfigChangeListener listener) {
+    listenerQueues.computeIfAbsent(listener, ListenerQueue::new);
+  }
+
+  /**
+   * Drops the listener's queue, along with any events it has yet to hear
+   */
+  void remove(ConfigChangeListener listener) {
+    ListenerQueue listenerQueue = listenerQueues.remove(listener);
+    if (listenerQueue != null) {
+      listenerQueue.close();
+    }
+  }
+
+  ConfigChangeDispatchStats getStats() {
+    return new ConfigChangeDispatchStats(
+      queueDepth.get(),
+      deliveredCount.sum(),
+      coalescedCount.sum(),
+      totalListenerNanos.sum(),
+      maxListenerNanos.get()
+    );
+  }
+
+  private class ListenerQueue implements Runnable {
+
+    private final ConfigChangeListener listener;
+    private final ArrayDeque<ConfigChangeEvent> events = new ArrayDeque<>();
+
+    // whether a task to drain the queue is on the executor or running
+    private boolean draining = false;
+    private boolean closed = false;
+
+    ListenerQueue(ConfigChangeListener listener) {
+      this.listener = listener;
+    }
+
+    void enqueue(List<ConfigChangeEvent> changeEvents) {
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        events.addAll(changeEvents);
+        queueDepth.addAndGet(changeEvents.size());
+        if (events.size() > queueCapacity) {
+          coalesce();
+        }
+        if (draining) {
+          return;
+        }
+        draining = true;
+      }
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException e) {
+        LOG.warn("Unable to deliver config changes to {}", listener, e);
+        synchronized (this) {
+          draining = false;
+        }
+      }
+    }
+
+    private void coalesce() {
+      Map<String, ConfigChangeEvent> latestByKey = new LinkedHashMap<>();
+      for (ConfigChangeEvent event : events) {
+        latestByKey.merge(event.getKey(), event, ConfigChangeEvent::coalesced);
+      }
+      int queued = events.size();
+      events.clear();
+      for (ConfigChangeEvent event : latestByKey.values()) {
+        // changes that cancel out, such as a config added then removed, are dropped
+        if (!event.isUnchanged()) {
+          events.add(event);
+        }
+      }
+      int coalesced = queued - events.size();
+      queueDepth.addAndGet(-coalesced);
+      coalescedCount.add(coalesced);
+    }
+
+    synchronized void close() {
+      closed = true;
+      queueDepth.addAndGet(-events.size());
+      events.clear();
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        ConfigChangeEvent changeEvent;
+        synchronized (this) {
+          changeEvent = events.poll();
+          if (changeEvent == null) {
+            draining = false;
+            return;
+          }
+        }
+        queueDepth.decrementAndGet();
+        long startNanos = System.nanoTime();
+        try {
+          listener.onChange(changeEvent);
+        } catch (Exception e) {
+          LOG.debug("Exception in config change listener", e);
+        }
+        long listenerNanos = System.nanoTime() - startNanos;
+        deliveredCount.increment();
+        totalListenerNanos.add(listenerNanos);
+        maxListenerNanos.accumulate(listenerNanos);
+      }
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package com.reforge.sdk.internal;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.reforge.sdk.config.ConfigChangeEvent;
+import com.reforge.sdk.config.ConfigChangeListener;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The config change listeners, indexed by what they listen to: every key, a single key,
+ * or the keys starting with a prefix. Prefixes are held in a trie, so routing an event
+ * costs the length of its key rather than a pass over every listener.
+ * <p>
+ * Listeners are added and removed under the index's lock, and each one's keys and
+ * prefixes are kept so that removing it prunes what it leaves empty. Routing takes no
+ * lock.
+ */
+class ConfigChangeListenerIndex {
+
+  private final Set<ConfigChangeListener> allKeysListeners = Sets.newConcurrentHashSet();
+  private final ConcurrentMap<String, Set<ConfigChangeListener>> keyListeners = new ConcurrentHashMap<>();
+  private final PrefixNode prefixRoot = new PrefixNode();
+
+  // what each listener listens to beyond every key, guarded by the index's lock
+  private final SetMultimap<ConfigChangeListener, String> listenerKeys = HashMultimap.create();
+  private final SetMultimap<ConfigChangeListener, String> listenerPrefixes = HashMultimap.create();
+
+  boolean add(ConfigChangeListener listener) {
+    return allKeysListeners.add(listener);
+  }
+
+  synchronized boolean addForKey(String key, ConfigChangeListener listener) {
+    listenerKeys.put(listener, key);
+    return keyListeners
+      .computeIfAbsent(key, ignored -> Sets.newConcurrentHashSet())
+      .add(listener);
+  }
+
+  synchronized boolean addForPrefix(String keyPrefix, ConfigChangeListener listener) {
+    PrefixNode node = prefixRoot;
+    for (int index = 0; index < keyPrefix.length(); index++) {
+      node =
+        node.children.computeIfAbsent(
+          keyPrefix.charAt(index),
+          ignored -> new PrefixNode()
+        );
+    }
+    listenerPrefixes.put(listener, keyPrefix);
+    return node.listeners.add(listener);
+  }
+
+  /**
+   * Removes the listener from everything it listens to
+   * @return true if it was listening to anything
+   */
+  synchronized boolean remove(ConfigChangeListener listener) {
+    boolean removed = allKeysListeners.remove(listener);
+    for (String key : listenerKeys.removeAll(listener)) {
+      Set<ConfigChangeListener> listeners = keyListeners.get(key);
+      listeners.remove(listener);
+      if (listeners.isEmpty()) {
+        keyListeners.remove(key);
+      }
+      removed = true;
+    }
+    for (String keyPrefix : listenerPrefixes.removeAll(listener)) {
+      prefixRoot.remove(keyPrefix, 0, listener);
+      removed = true;
+    }
+    return removed;
+  }
+
+  /**
+   * @return whether no listener listens to anything
+   */
+  synchronized boolean isEmpty() {
+    return allKeysListeners.isEmpty() && keyListeners.isEmpty() && prefixRoot.isEmpty();
+  }
+
+  /**
+   * @return each listener interested in any of the events along with those events, in the
+   * order they happened. A listener matching an event in several ways hears it once
+   */
+  Map<ConfigChangeListener, List<ConfigChangeEvent>> route(
+    List<ConfigChangeEvent> changeEvents
+  ) {
+    Map<ConfigChangeListener, List<ConfigChangeEvent>> routed = new LinkedHashMap<>();
+    if (changeEvents.isEmpty()) {
+      return routed;
+    }
+    List<ConfigChangeEvent> allEvents = List.copyOf(changeEvents);
+    for (ConfigChangeListener listener : allKeysListeners) {
+      routed.put(listener, allEvents);
+    }
+    for (ConfigChangeEvent changeEvent : changeEvents) {
+      String key = changeEvent.getKey();
+      Set<ConfigChangeListener> listeners = keyListeners.get(key);
+      if (listeners != null) {
+        for (ConfigChangeListener listener : listeners) {
+          addTo(routed, listener, changeEvent, allEvents);
+        }
+      }
+      PrefixNode node = prefixRoot;
+      for (int index = 0; node != null; index++) {
+        for (ConfigChangeListener listener : node.listeners) {
+          addTo(routed, listener, changeEvent, allEvents);
+        }
+        node = index < key.length() ? node.children.get(key.charAt(index)) : null;
+      }
+    }
+    return routed;
+  }
+
+  private static void addTo(
+    Map<ConfigChangeListener, List<ConfigChangeEvent>> routed,
+    ConfigChangeListener listener,
+    ConfigChangeEvent changeEvent,
+    List<ConfigChangeEvent> allEvents
+  ) {
+    List<ConfigChangeEvent> events = routed.computeIfAbsent(
+      listener,
+      ignored -> new ArrayList<>()
+    );
+    // events are routed one at a time, so a repeat can only be the last one added
+    if (
+      events != allEvents &&
+      (events.isEmpty() || events.get(events.size() - 1) != changeEvent)
+    ) {
+      events.add(changeEvent);
+    }
+  }
+
+  private static class PrefixNode {
+
+    private final ConcurrentMap<Character, PrefixNode> children = new ConcurrentHashMap<>();
+    private final Set<ConfigChangeListener> listeners = Sets.newConcurrentHashSet();
+
+    // removes the listener from the node for the prefix, and any nodes left empty
+    void remove(String keyPrefix, int index, ConfigChangeListener listener) {
+      if (index == keyPrefix.length()) {
+        listeners.remove(listener);
+        return;
+      }
+      char next = keyPrefix.charAt(index);
+      PrefixNode child = children.get(next);
+      child.remove(keyPrefix, index + 1, listener);
+      if (child.isEmpty()) {
+        children.remove(next);
+      }
+    }
+
+    boolean isEmpty() {
+      return listeners.isEmpty() && children.isEmpty();
+    }
+  }
+}
@@ -2,16 +2,19 @@ package com.reforge.sdk.internal;
 
 import cloud.prefab.domain.Prefab;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Sets;
+import com.google.common.collect.MapMaker;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.reforge.sdk.ConfigClient;
 import com.reforge.sdk.Options;
 import com.reforge.sdk.Sdk;
 import com.reforge.sdk.SdkInitializationTimeoutException;
+import com.reforge.sdk.config.ConfigChangeDispatchStats;
 import com.reforge.sdk.config.ConfigChangeEvent;
 import com.reforge.sdk.config.ConfigChangeListener;
+import com.reforge.sdk.config.EvaluationCacheStats;
 import com.reforge.sdk.config.Match;
 import com.reforge.sdk.context.Context;
 import com.reforge.sdk.context.ContextSetReadable;
@@ -23,33 +26,39 @@ import com.reforge.sdk.value.LiveLong;
 import com.reforge.sdk.value.LiveString;
 import com.reforge.sdk.value.LiveStringList;
 import com.reforge.sdk.value.Value;
+import java.io.IOException;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Clock;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ConfigClientImpl implements ConfigClient {
+public class ConfigClientImpl implements ConfigClient, ConfigValueLookup {
 
   private static final Logger LOG = LoggerFactory.getLogger(ConfigClientImpl.class);
 
@@ -59,8 +68,11 @@ public class ConfigClientImpl implements ConfigClient {
 
   private final UpdatingConfigResolver updatingConfigResolver;
 
-  private final CountDownLatch initializedLatch = new CountDownLatch(1);
-  private final Set<ConfigChangeListener> configChangeListeners = Sets.newConcurrentHashSet();
+  // the flag is all that reads check once initialized, the future is for waiting on
+  private volatile boolean ready = false;
+  private final CompletableFuture<Void> readyFuture = new CompletableFuture<>();
+  private final LongAdder readsBeforeReady = new LongAdder();
+  private final ConfigChangeListenerIndex configChangeListeners = new ConfigChangeListenerIndex();
 
   private final String uniqueClientId;
 
@@ -68,17 +80,40 @@ public class ConfigClientImpl implements ConfigClient {
 
   private final HttpClient prefabHttpClient;
 
+  @Nullable
+  private final ConfigSnapshot configSnapshot;
+
+  // set when listeners are called on an executor rather than as configs are loaded
+  @Nullable
+  private final ConfigChangeDispatcher configChangeDispatcher;
+
+  @Nullable
+  private final LocalDatafileWatcher localDatafileWatcher;
+
+  // whether the snapshot cache holds a snapshot, guarded by loadConfigs
+  private boolean hasSnapshot = false;
+
   private final ContextStore contextStore;
   private final TelemetryManager telemetryManager;
   private final TypedConfigClientImpl typedConfigImpl;
 
+  // the memo of each context store scope, kept for as long as the scope is in use
+  private final ConcurrentMap<Object, EvaluationMemo> evaluationMemos = new MapMaker()
+    .weakKeys()
+    .makeMap();
+
+  private final ThreadLocal<LookupScratch> lookupScratch = ThreadLocal.withInitial(
+    LookupScratch::new
+  );
+
   public ConfigClientImpl(Sdk baseClient, ConfigChangeListener... listeners) {
     this(
       baseClient,
       new UpdatingConfigResolver(
         new ConfigLoader(baseClient.getOptions()),
         new WeightedValueEvaluator(),
-        new ConfigStoreConfigValueDeltaCalculator()
+        new ConfigStoreConfigValueDeltaCalculator(),
+        baseClient.getOptions().getEvaluationCacheSize()
       ),
       listeners
     );
@@ -93,21 +128,34 @@ public class ConfigClientImpl implements ConfigClient {
     this.uniqueClientId = UUID.randomUUID().toString();
     this.options = baseClient.getOptions();
     this.updatingConfigResolver = updatingConfigResolver;
-    configChangeListeners.add(
-      new LoggingConfigListener(() -> initializedLatch.getCount() == 0)
-    );
-    configChangeListeners.addAll(baseClient.getOptions().getChangeListeners());
-    configChangeListeners.addAll(Arrays.asList(listeners));
+    this.configChangeDispatcher =
+      options
+        .getConfigChangeListenerExecutor()
+        .map(executor ->
+          new ConfigChangeDispatcher(executor, options.getConfigChangeListenerQueueSize())
+        )
+        .orElse(null);
+    configChangeListeners.add(prepareDelivery(new LoggingConfigListener(() -> ready)));
+    for (ConfigChangeListener listener : baseClient.getOptions().getChangeListeners()) {
+      configChangeListeners.add(prepareDelivery(listener));
+    }
+    for (ConfigChangeListener listener : listeners) {
+      configChangeListeners.add(prepareDelivery(listener));
+    }
     contextStore = options.getContextStore();
     typedConfigImpl = new TypedConfigClientImpl(this);
     if (options.isLocalOnly()) {
       finishInit(Source.LOCAL_ONLY);
+      localDatafileWatcher = null;
       prefabHttpClient = null;
+      configSnapshot = null;
       telemetryManager = null;
     } else if (options.isLocalDatafileMode()) {
       updatingConfigResolver.loadConfigsFromLocalFile();
       finishInit(Source.LOCAL_FILE);
+      localDatafileWatcher = options.isWatchLocalDatafile() ? watchLocalDatafile() : null;
       prefabHttpClient = null;
+      configSnapshot = null;
       telemetryManager = null;
     } else {
       java.net.http.HttpClient httpClient = java.net.http.HttpClient
@@ -123,7 +171,13 @@ public class ConfigClientImpl implements ConfigClient {
           )
         )
         .build();
+      localDatafileWatcher = null;
       prefabHttpClient = new HttpClient(httpClient, options);
+      configSnapshot =
+        new ConfigSnapshot(
+          options.getConfigSnapshotCache(),
+          Strings.nullToEmpty(options.getSdkKey())
+        );
       Executors.newSingleThreadExecutor().submit(this::startConnections);
       telemetryManager =
         new TelemetryManager(
@@ -138,17 +192,19 @@ public class ConfigClientImpl implements ConfigClient {
     }
   }
 
+  /**
+   * A snapshot from an earlier run makes the client ready before any request is made, and
+   * holds every config up to its highwater mark, so only newer configs are asked for
+   */
   private void startConnections() {
-    Optional<Prefab.Configs> configsMaybe = loadConfigs();
-    configsMaybe.ifPresent(configs -> {
-      long maxId = configs
-        .getConfigsList()
-        .stream()
-        .mapToLong(Prefab.Config::getId)
-        .max()
-        .orElse(0);
-      startStreaming(maxId);
-    });
+    Optional<ConfigSnapshot.Contents> snapshot = configSnapshot.load();
+    snapshot.ifPresent(this::loadSnapshot);
+    Optional<Prefab.Configs> configsMaybe = loadConfigs(
+      updatingConfigResolver.getHighwaterMark()
+    );
+    if (snapshot.isPresent() || configsMaybe.isPresent()) {
+      startStreaming(updatingConfigResolver.getHighwaterMark());
+    }
   }
 
   @Override
@@ -260,7 +316,9 @@ public class ConfigClientImpl implements ConfigClient {
   public Map<String, Prefab.ConfigValue> getAll(
     @Nullable ContextSetReadable prefabContext
   ) {
-    waitForInitialization();
+    if (!awaitReady()) {
+      return Map.of();
+    }
     LookupContext lookupContext = new LookupContext(resolveContext(prefabContext));
     ImmutableMap.Builder<String, Prefab.ConfigValue> bldr = ImmutableMap.builder();
     for (String key : getAllKeys()) {
@@ -273,7 +331,9 @@ public class ConfigClientImpl implements ConfigClient {
 
   @Override
   public Collection<String> getAllKeys() {
-    waitForInitialization();
+    if (!awaitReady()) {
+      return List.of();
+    }
     return updatingConfigResolver.getResolver().getKeys();
   }
 
@@ -281,7 +341,22 @@ public class ConfigClientImpl implements ConfigClient {
     String configKey,
     ContextSetReadable passedContext
   ) {
-    waitForInitialization();
+    if (!awaitReady()) {
+      return Optional.empty();
+    }
+    EvaluationMemo evaluationMemo = getEvaluationMemo(passedContext);
+    if (evaluationMemo != null) {
+      return getMemoized(configKey, evaluationMemo);
+    }
+    if (!isContextNeededForTelemetry()) {
+      Optional<Match> contextFreeMatch = updatingConfigResolver.getContextFreeMatch(
+        configKey
+      );
+      if (contextFreeMatch.isPresent()) {
+        reportMatchResult(configKey, contextFreeMatch.get(), LookupContext.EMPTY);
+        return contextFreeMatch.map(Match::getConfigValue);
+      }
+    }
     ContextSetReadable resolvedContext = resolveContext(passedContext);
     LookupContext lookupContext = new LookupContext(resolvedContext);
     Optional<Match> matchMaybe = getMatchInternal(configKey, lookupContext);
@@ -293,12 +368,154 @@ public class ConfigClientImpl implements ConfigClient {
     String configKey,
     LookupContext lookupContext
   ) {
-    waitForInitialization();
+    if (!awaitReady()) {
+      return Optional.empty();
+    }
     Optional<Match> matchMaybe = getMatchInternal(configKey, lookupContext);
     reportMatchResult(configKey, matchMaybe.orElse(null), lookupContext);
     return matchMaybe.map(Match::getConfigValue);
   }
 
+  /**
+   * The typed getters' path: the merged context is reused while the contexts it came from
+   * are unchanged and the value is evaluated into per-thread scratch, so a lookup without
+   * telemetry allocates nothing once warmed up
+   */
+  @Override
+  @Nullable
+  public Prefab.ConfigValue lookup(
+    String configKey,
+    @Nullable ContextSetReadable context
+  ) {
+    return lookup(configKey, null, context);
+  }
+
+  @Override
+  @Nullable
+  public Prefab.ConfigValue lookup(
+    ConfigKey configKey,
+    @Nullable ContextSetReadable context
+  ) {
+    return lookup(configKey.getKey(), configKey, context);
+  }
+
+  @Nullable
+  private Prefab.ConfigValue lookup(
+    String configKey,
+    @Nullable ConfigKey resolvedKey,
+    @Nullable ContextSetReadable context
+  ) {
+    if (!awaitReady()) {
+      return null;
+    }
+    LookupScratch scratch = lookupScratch.get();
+    LookupContext lookupContext = scratch.lookupContextCache.get(
+      updatingConfigResolver.getGlobalContext(),
+      updatingConfigResolver.getApiDefaultContext(),
+      getContextStoreContext(),
+      context
+    );
+    Evaluation evaluation = scratch.evaluation;
+    EvaluationMemo evaluationMemo = getEvaluationMemo(context);
+    if (evaluationMemo != null) {
+      Optional<Match> matchMaybe = evaluationMemo.get(configKey);
+      if (matchMaybe == null) {
+        matchMaybe =
+          evaluationMemo.remember(
+            configKey,
+            evaluate(configKey, resolvedKey, lookupContext, evaluation)
+              ? Optional.of(evaluation.toMatch())
+              : Optional.empty()
+          );
+      }
+      reportMatchResult(configKey, matchMaybe.orElse(null), lookupContext);
+      return matchMaybe.map(Match::getConfigValue).orElse(null);
+    }
+    if (!evaluate(configKey, resolvedKey, lookupContext, evaluation)) {
+      reportMatchResult(configKey, null, lookupContext);
+      return null;
+    }
+    if (telemetryManager != null) {
+      telemetryManager.reportEvaluation(configKey, evaluation, lookupContext);
+    }
+    return evaluation.getConfigValue();
+  }
+
+  private boolean evaluate(
+    String configKey,
+    @Nullable ConfigKey resolvedKey,
+    LookupContext lookupContext,
+    Evaluation evaluation
+  ) {
+    return resolvedKey != null
+      ? updatingConfigResolver.evaluate(resolvedKey, lookupContext, evaluation)
+      : updatingConfigResolver.evaluate(configKey, lookupContext, evaluation);
+  }
+
+  /**
+   * The first lookup of a config with the ambient context decides its answer for the rest
+   * of the context store's scope; every lookup is still reported
+   */
+  private Optional<Prefab.ConfigValue> getMemoized(
+    String configKey,
+    EvaluationMemo evaluationMemo
+  ) {
+    LookupContext lookupContext = lookupScratch.get().lookupContextCache.get(
+      updatingConfigResolver.getGlobalContext(),
+      updatingConfigResolver.getApiDefaultContext(),
+      getContextStoreContext(),
+      null
+    );
+    Optional<Match> matchMaybe = evaluationMemo.get(configKey);
+    if (matchMaybe == null) {
+      matchMaybe =
+        evaluationMemo.remember(configKey, getMatchInternal(configKey, lookupContext));
+    }
+    reportMatchResult(configKey, matchMaybe.orElse(null), lookupContext);
+    return matchMaybe.map(Match::getConfigValue);
+  }
+
+  /**
+   * @return the memo of the context store's scope if memoizing is on and the lookup uses
+   * the ambient context alone, otherwise null
+   */
+  @Nullable
+  private EvaluationMemo getEvaluationMemo(@Nullable ContextSetReadable passedContext) {
+    if (
+      !options.isMemoizeRequestEvaluations() ||
+      (passedContext != null && !passedContext.isEmpty())
+    ) {
+      return null;
+    }
+    Object evaluationScope = contextStore.getEvaluationScope().orElse(null);
+    if (evaluationScope == null) {
+      return null;
+    }
+    return evaluationMemos.computeIfAbsent(
+      evaluationScope,
+      ignored -> new EvaluationMemo()
+    );
+  }
+
+  @Nullable
+  private ContextSetReadable getContextStoreContext() {
+    if (contextStore == ThreadLocalContextStore.INSTANCE) {
+      return ThreadLocalContextStore.INSTANCE.getCurrentContextSet();
+    }
+    return contextStore.getContext().orElse(null);
+  }
+
+  /**
+   * Context shapes and examples are collected from every evaluation, so the context has
+   * to be resolved even for configs that do not depend on it
+   */
+  private boolean isContextNeededForTelemetry() {
+    return (
+      telemetryManager != null &&
+      (options.isCollectContextShapeEnabled() || options.isCollectExampleContextEnabled())
+    );
+  }
+
   private void reportMatchResult(
     String configKey,
     @Nullable Match match,
@@ -313,18 +530,61 @@ public class ConfigClientImpl implements ConfigClient {
     String configKey,
     LookupContext lookupContext
   ) {
-    waitForInitialization();
     return updatingConfigResolver.getMatch(configKey, lookupContext);
   }
 
   @Override
   public boolean addConfigChangeListener(ConfigChangeListener configChangeListener) {
-    return configChangeListeners.add(configChangeListener);
+    return configChangeListeners.add(prepareDelivery(configChangeListener));
+  }
+
+  @Override
+  public boolean addConfigChangeListener(
+    String key,
+    ConfigChangeListener configChangeListener
+  ) {
+    return configChangeListeners.addForKey(key, prepareDelivery(configChangeListener));
+  }
+
+  @Override
+  public boolean addConfigChangeListenerForPrefix(
+    String keyPrefix,
+    ConfigChangeListener configChangeListener
+  ) {
+    return configChangeListeners.addForPrefix(
+      keyPrefix,
+      prepareDelivery(configChangeListener)
+    );
   }
 
   @Override
   public boolean removeConfigChangeListener(ConfigChangeListener configChangeListener) {
-    return configChangeListeners.remove(configChangeListener);
+    // out of the index first, so no later change is routed to the queue being dropped
+    boolean removed = configChangeListeners.remove(configChangeListener);
+    if (configChangeDispatcher != null) {
+      configChangeDispatcher.remove(configChangeListener);
+    }
+    return removed;
+  }
+
+  /**
+   * Gives the listener a queue when listeners are called on an executor, which has to be
+   * in place before the index routes any change to it
+   */
+  private ConfigChangeListener prepareDelivery(
+    ConfigChangeListener configChangeListener
+  ) {
+    if (configChangeDispatcher != null) {
+      configChangeDispatcher.add(configChangeListener);
+    }
+    return configChangeListener;
+  }
+
+  @Override
+  public Optional<ConfigChangeDispatchStats> getConfigChangeDispatchStats() {
+    return Optional
+      .ofNullable(configChangeDispatcher)
+      .map(ConfigChangeDispatcher::getStats);
   }
 
   private ContextSetReadable resolveContext(
@@ -346,7 +606,17 @@ public class ConfigClientImpl implements ConfigClient {
 
   @Override
   public boolean isReady() {
-    return initializedLatch.getCount() == 0;
+    return ready;
+  }
+
+  @Override
+  public CompletableFuture<Void> whenReady() {
+    return readyFuture.copy();
+  }
+
+  @Override
+  public long getReadsBeforeReadyCount() {
+    return readsBeforeReady.sum();
   }
 
   @Override
@@ -354,10 +624,15 @@ public class ConfigClientImpl implements ConfigClient {
     return contextStore;
   }
 
-  Optional<Prefab.Configs> loadConfigs() {
+  @Override
+  public Optional<EvaluationCacheStats> getEvaluationCacheStats() {
+    return updatingConfigResolver.getResolver().getEvaluationCacheStats();
+  }
+
+  Optional<Prefab.Configs> loadConfigs(long highwaterMark) {
     try {
       HttpResponse<Supplier<Prefab.Configs>> response = prefabHttpClient
-        .requestConfigs(0)
+        .requestConfigs(highwaterMark)
         .get(5, TimeUnit.SECONDS);
       LOG.info(
         "Got {} loading configs from API url {}",
@@ -397,10 +672,21 @@ public class ConfigClientImpl implements ConfigClient {
     ScheduledExecutorService scheduledExecutorService = startStreamingExecutor();
 
     LOG.info("Starting SSE config subscriber");
+    Consumer<Prefab.Configs> configsConsumer = configs ->
+      loadConfigs(configs, Source.STREAMING);
+    if (options.getStreamingBatchWindowMillis() > 0) {
+      configsConsumer =
+        new CoalescingConfigsConsumer(
+          configsConsumer,
+          scheduledExecutorService,
+          options.getStreamingBatchWindowMillis(),
+          options.getStreamingMaxBatchSize()
+        );
+    }
     SseConfigStreamingSubscriber sseConfigStreamingSubscriber = new SseConfigStreamingSubscriber(
       prefabHttpClient,
       updatingConfigResolver::getHighwaterMark,
-      configs -> loadConfigs(configs, Source.STREAMING),
+      configsConsumer,
       scheduledExecutorService
     );
     sseConfigStreamingSubscriber.start();
@@ -409,8 +695,9 @@ public class ConfigClientImpl implements ConfigClient {
   private void finishInit(Source source) {
     final UpdatingConfigResolver.ChangeLists changes = updatingConfigResolver.update();
     broadcastChanges(changes.getConfigChangeEvents());
-    if (initializedLatch.getCount() > 0) {
-      initializedLatch.countDown();
+    // set first, as whenReady() dependents run while the future completes
+    ready = true;
+    if (readyFuture.complete(null)) {
       try {
         LOG.info(
           "Initialized Prefab from {} at highwater {} with currently known configs\n{}",
@@ -434,13 +721,70 @@ public class ConfigClientImpl implements ConfigClient {
     updatingConfigResolver.loadConfigs(configs, source);
 
     finishInit(source);
+    // a payload without configs changes nothing that a snapshot would hold
+    if (configSnapshot != null && (!hasSnapshot || configs.getConfigsCount() > 0)) {
+      configSnapshot.saveLater(updatingConfigResolver::getSnapshot);
+      hasSnapshot = true;
+    }
+  }
+
+  @Nullable
+  private LocalDatafileWatcher watchLocalDatafile() {
+    Path datafile = Paths.get(options.getLocalDatafile());
+    if (!Files.exists(datafile)) {
+      LOG.warn("Not watching local datafile {} as it is not on disk", datafile);
+      return null;
+    }
+    try {
+      LocalDatafileWatcher watcher = new LocalDatafileWatcher(
+        datafile,
+        this::reloadLocalDatafile
+      );
+      watcher.start();
+      return watcher;
+    } catch (IOException e) {
+      LOG.warn("Unable to watch local datafile {}", datafile, e);
+      return null;
+    }
+  }
+
+  private synchronized void reloadLocalDatafile() {
+    updatingConfigResolver.reloadConfigsFromLocalFile();
+    finishInit(Source.LOCAL_FILE);
+  }
+
+  /**
+   * Stops watching the local datafile, if it is watched
+   */
+  public void close() {
+    if (localDatafileWatcher != null) {
+      try {
+        localDatafileWatcher.close();
+      } catch (IOException e) {
+        LOG.debug("Error closing local datafile watcher", e);
+      }
+    }
+  }
+
+  private synchronized void loadSnapshot(ConfigSnapshot.Contents snapshot) {
+    updatingConfigResolver.loadSnapshot(snapshot);
+    finishInit(Source.SNAPSHOT);
+    hasSnapshot = true;
   }
 
   private void broadcastChanges(List<ConfigChangeEvent> changeEvents) {
-    List<ConfigChangeListener> listeners = new ArrayList<>(configChangeListeners);
+    Map<ConfigChangeListener, List<ConfigChangeEvent>> routed = configChangeListeners.route(
+      changeEvents
+    );
+    if (configChangeDispatcher != null) {
+      routed.forEach((listener, events) ->
+        configChangeDispatcher.dispatch(List.of(listener), events)
+      );
+      return;
+    }
 
-    for (ConfigChangeListener listener : listeners) {
-      for (ConfigChangeEvent changeEvent : changeEvents) {
+    for (ConfigChangeListener listener : routed.keySet()) {
+      for (ConfigChangeEvent changeEvent : routed.get(listener)) {
         LOG.debug("Broadcasting change {} to {}", changeEvent, listener);
         try {
           listener.onChange(changeEvent);
@@ -451,23 +795,43 @@ public class ConfigClientImpl implements ConfigClient {
     }
   }
 
-  private void waitForInitialization() {
+  /**
+   * @return true once the client is ready, or false if it isn't and reads are to return
+   * defaults until it is
+   */
+  private boolean awaitReady() {
+    return ready || awaitReadySlowly();
+  }
+
+  private boolean awaitReadySlowly() {
+    if (readyFuture.isDone()) {
+      return true;
+    }
+    if (options.isReturnDefaultsUntilReady()) {
+      readsBeforeReady.increment();
+      return false;
+    }
     try {
+      readyFuture.get(options.getInitializationTimeoutSec(), TimeUnit.SECONDS);
+    } catch (TimeoutException e) {
       if (
-        !initializedLatch.await(options.getInitializationTimeoutSec(), TimeUnit.SECONDS)
+        options.getOnInitializationFailure() == Options.OnInitializationFailure.UNLOCK
       ) {
-        if (
-          options.getOnInitializationFailure() == Options.OnInitializationFailure.UNLOCK
-        ) {
-          finishInit(Source.INIT_TIMEOUT);
-        } else {
-          throw new SdkInitializationTimeoutException(
-            options.getInitializationTimeoutSec()
-          );
-        }
+        finishInit(Source.INIT_TIMEOUT);
+      } else {
+        throw new SdkInitializationTimeoutException(
+          options.getInitializationTimeoutSec()
+        );
       }
-    } catch (InterruptedException e) {
+    } catch (InterruptedException | ExecutionException e) {
       throw new RuntimeException(e);
     }
+    return true;
+  }
+
+  private static class LookupScratch {
+
+    final LookupContextCache lookupContextCache = new LookupContextCache();
+    final Evaluation evaluation = new Evaluation();
   }
 }
@@ -0,0 +1,85 @@
+package com.reforge.sdk.internal;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import javax.annotation.Nullable;
+
+/**
+ * A config key resolved ahead of time, for callers that look the same key up over and
+ * over such as live values and the logging filters. The handle remembers which compiled
+ * config the key resolved to in the current config data, so a lookup through it is a
+ * version check rather than hashing the key into the store's maps. New data is picked up
+ * on the first lookup after it is installed.
+ * <p>
+ * Handles are interned while in use, so every holder of a key shares one resolution.
+ */
+@Internal
+public final class ConfigKey {
+
+  private static final Interner<ConfigKey> INTERNER = Interners.newWeakInterner();
+
+  private final String key;
+
+  @Nullable
+  private volatile Resolution resolution = null;
+
+  private ConfigKey(String key) {
+    this.key = key;
+  }
+
+  public static ConfigKey of(String key) {
+    return INTERNER.intern(new ConfigKey(key));
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @param version the store version, read before the data so that a resolution is never
+   * filed under a newer version than the data it came from
+   */
+  @Nullable
+  CompiledConfig getCompiledConfig(long version, MergedConfigData data) {
+    Resolution resolution = this.resolution;
+    if (resolution == null || resolution.version != version) {
+      resolution = new Resolution(version, data.getCompiledConfig(key));
+      this.resolution = resolution;
+    }
+    return resolution.compiledConfig;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return key.equals(((ConfigKey) o).key);
+  }
+
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+
+  private static final class Resolution {
+
+    private final long version;
+
+    @Nullable
+    private final CompiledConfig compiledConfig;
+
+    private Resolution(long version, @Nullable CompiledConfig compiledConfig) {
+      this.version = version;
+      this.compiledConfig = compiledConfig;
+    }
+  }
+}
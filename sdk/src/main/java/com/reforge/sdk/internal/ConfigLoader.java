@@ -3,8 +3,10 @@ package com.reforge.sdk.internal;
 import cloud.prefab.domain.Prefab;
 import cloud.prefab.domain.Prefab.LogLevel;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.protobuf.util.JsonFormat;
 import com.reforge.sdk.ConfigClient;
@@ -13,18 +15,20 @@ import com.reforge.sdk.config.ConfigElement;
 import com.reforge.sdk.config.Provenance;
 import com.reforge.sdk.context.ContextSet;
 import com.reforge.sdk.context.ContextSetReadable;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -45,14 +49,31 @@ public class ConfigLoader {
     Prefab.Criterion.CriterionOperator.PROP_ENDS_WITH_ONE_OF
   );
 
+  private static final Set<String> BINARY_DATAFILE_EXTENSIONS = Set.of(
+    ".pb",
+    ".binpb",
+    ".bin"
+  );
+
+  // some editors start JSON files with a UTF-8 byte order mark
+  private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
   private final Options options;
   private final ConcurrentMap<String, ConfigElement> apiConfig;
   private final AtomicLong highwaterMark;
   private final ImmutableMap<String, ConfigElement> classPathConfig;
   private final ImmutableMap<String, ConfigElement> overrideConfig;
 
+  // the merged configs handed out by the last calcConfig, and the keys set since then
+  private PatchedMap<ConfigElement> mergedConfig;
+  private final Set<String> changedKeys = new HashSet<>();
+
   private final AtomicLong projectEnvId = new AtomicLong(0);
 
+  // as last received, to hand back out with the API configs
+  private Prefab.ConfigServicePointer configServicePointer = Prefab.ConfigServicePointer.getDefaultInstance();
+  private Prefab.ContextSet defaultContext = Prefab.ContextSet.getDefaultInstance();
+
   private final AtomicReference<ContextSetReadable> configIncludedContext = new AtomicReference<>(
     ContextSetReadable.EMPTY
   );
@@ -64,6 +85,14 @@ public class ConfigLoader {
     this.highwaterMark = new AtomicLong(0);
     this.classPathConfig = loadClasspathConfig();
     this.overrideConfig = loadOverrideConfig();
+    this.mergedConfig =
+      PatchedMap.of(
+        ImmutableMap
+          .<String, ConfigElement>builder()
+          .putAll(classPathConfig)
+          .putAll(overrideConfig)
+          .buildKeepingLast()
+      );
     this.globalContext =
       options
         .getGlobalContext()
@@ -76,53 +105,125 @@ public class ConfigLoader {
    * merge the live API configs on next
    * layer the overrides on last
    */
-  public MergedConfigData calcConfig() {
-    ImmutableMap.Builder<String, ConfigElement> builder = ImmutableMap.builder();
-    builder.putAll(classPathConfig);
-    builder.putAll(apiConfig);
-    builder.putAll(overrideConfig);
+  public synchronized MergedConfigData calcConfig() {
+    // only the keys set since the last call can have changed, so patch those
+    Map<String, ConfigElement> changes = Maps.newHashMapWithExpectedSize(
+      changedKeys.size()
+    );
+    for (String key : changedKeys) {
+      ConfigElement configElement = overrideConfig.get(key);
+      if (configElement == null) {
+        configElement = apiConfig.get(key);
+      }
+      if (configElement == null) {
+        configElement = classPathConfig.get(key);
+      }
+      changes.put(key, configElement);
+    }
+    changedKeys.clear();
+    PatchedMap<ConfigElement> previousConfig = mergedConfig;
+    mergedConfig = previousConfig.with(changes);
     return new MergedConfigData(
-      builder.buildKeepingLast(),
+      mergedConfig,
       projectEnvId.get(),
       globalContext,
-      configIncludedContext.get()
+      configIncludedContext.get(),
+      previousConfig,
+      ImmutableSet.copyOf(changes.keySet())
     );
   }
 
-  private ContextSetReadable getConfigIncludedContext(Prefab.Configs configs) {
-    return ContextSet.from(configs.getDefaultContext());
-  }
-
   public synchronized void setConfigs(Prefab.Configs configs, Provenance provenance) {
+    boolean highwaterMarkRemoved = false;
     for (Prefab.Config config : configs.getConfigsList()) {
-      set(new ConfigElement(config, provenance), false);
+      highwaterMarkRemoved |= apply(new ConfigElement(config, provenance));
     }
-    recomputeHighWaterMark();
-    projectEnvId.set(configs.getConfigServicePointer().getProjectEnvId());
-    configIncludedContext.set(getConfigIncludedContext(configs));
+    setPointerAndDefaultContext(
+      highwaterMarkRemoved,
+      configs.getConfigServicePointer(),
+      configs.getDefaultContext()
+    );
   }
 
-  @VisibleForTesting
-  void set(ConfigElement configElement) {
-    set(configElement, true);
+  /**
+   * Replaces every config set so far with those given, for sources like the local
+   * datafile that always hold every config. Configs left out are removed, whatever their
+   * ids.
+   */
+  public synchronized void replaceConfigs(Prefab.Configs configs, Provenance provenance) {
+    changedKeys.addAll(apiConfig.keySet());
+    apiConfig.clear();
+    highwaterMark.set(0);
+    setConfigs(configs, provenance);
   }
 
-  private void set(ConfigElement configElement, boolean calculateHighWaterMark) {
-    final Prefab.Config config = configElement.getConfig();
-    final ConfigElement existing = apiConfig.get(config.getKey());
+  synchronized void setSnapshot(ConfigSnapshot.Contents snapshot) {
+    boolean highwaterMarkRemoved = false;
+    for (ConfigElement configElement : snapshot.getConfigElements()) {
+      highwaterMarkRemoved |= apply(configElement);
+    }
+    setPointerAndDefaultContext(
+      highwaterMarkRemoved,
+      snapshot.getConfigServicePointer(),
+      snapshot.getDefaultContext()
+    );
+  }
 
-    if (existing == null || existing.getConfig().getId() <= config.getId()) {
-      if (config.getRowsList().isEmpty()) {
-        apiConfig.remove(config.getKey());
-      } else {
-        apiConfig.put(config.getKey(), configElement);
-      }
+  private void setPointerAndDefaultContext(
+    boolean highwaterMarkRemoved,
+    Prefab.ConfigServicePointer configServicePointer,
+    Prefab.ContextSet defaultContext
+  ) {
+    if (highwaterMarkRemoved) {
+      recomputeHighWaterMark();
     }
-    if (calculateHighWaterMark) {
+    projectEnvId.set(configServicePointer.getProjectEnvId());
+    configIncludedContext.set(ContextSet.from(defaultContext));
+    this.configServicePointer = configServicePointer;
+    this.defaultContext = defaultContext;
+  }
+
+  /**
+   * @return the configs set so far, as a snapshot that sets the same state when loaded
+   * into a new loader
+   */
+  synchronized ConfigSnapshot.Contents getSnapshot() {
+    return new ConfigSnapshot.Contents(
+      configServicePointer,
+      defaultContext,
+      ImmutableList.copyOf(apiConfig.values())
+    );
+  }
+
+  @VisibleForTesting
+  synchronized void set(ConfigElement configElement) {
+    if (apply(configElement)) {
       recomputeHighWaterMark();
     }
   }
 
+  /**
+   * Keeps the highwater mark as a running max of the stored ids
+   * @return true if the config holding the highwater mark was removed, in which case it
+   * has to be recomputed
+   */
+  private boolean apply(ConfigElement configElement) {
+    final String key = configElement.getKey();
+    final ConfigElement existing = apiConfig.get(key);
+
+    if (existing == null || existing.getId() <= configElement.getId()) {
+      changedKeys.add(key);
+      if (!configElement.hasRows()) {
+        ConfigElement removed = apiConfig.remove(key);
+        return removed != null && removed.getId() >= highwaterMark.get();
+      } else {
+        apiConfig.put(key, configElement);
+        highwaterMark.accumulateAndGet(configElement.getId(), Math::max);
+      }
+    }
+    return false;
+  }
+
   private InputStream loadFileFromDiskOrResources(String filename) throws IOException {
     Path path = Paths.get(filename);
     if (Files.exists(path)) {
@@ -135,29 +236,62 @@ public class ConfigLoader {
     return streamFromResources;
   }
 
-  public Prefab.Configs loadFromJsonFile() {
+  /**
+   * Reads the local datafile, which holds Prefab.Configs either as JSON or serialized as
+   * protobuf. The format is told by the file's extension, or failing that by whether the
+   * file starts with a JSON object.
+   */
+  public Prefab.Configs loadFromDatafile() {
     if (!options.isLocalDatafileMode()) {
       throw new IllegalStateException("no local data file specified");
     }
-    LOG.info("Loading configs from {}", options.getLocalDatafile());
-    try (
-      InputStream inputStream = loadFileFromDiskOrResources(options.getLocalDatafile());
-      Reader reader = new BufferedReader(new InputStreamReader(inputStream))
-    ) {
+    String datafile = options.getLocalDatafile();
+    LOG.info("Loading configs from {}", datafile);
+    try (InputStream inputStream = loadFileFromDiskOrResources(datafile)) {
+      byte[] bytes = inputStream.readAllBytes();
+      if (!isJson(datafile, bytes)) {
+        return Prefab.Configs.parseFrom(bytes);
+      }
       Prefab.Configs.Builder builder = Prefab.Configs.newBuilder();
-      JsonFormat.parser().merge(reader, builder);
+      JsonFormat.parser().merge(new String(bytes, StandardCharsets.UTF_8), builder);
       return builder.build();
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
+  private static boolean isJson(String filename, byte[] bytes) {
+    String lowerCaseFilename = filename.toLowerCase(Locale.ROOT);
+    if (lowerCaseFilename.endsWith(".json")) {
+      return true;
+    }
+    if (BINARY_DATAFILE_EXTENSIONS.stream().anyMatch(lowerCaseFilename::endsWith)) {
+      return false;
+    }
+    // a serialized Configs starts with a field tag, never with whitespace or a brace
+    int start = 0;
+    if (
+      bytes.length >= UTF8_BOM.length &&
+      Arrays.equals(bytes, 0, UTF8_BOM.length, UTF8_BOM, 0, UTF8_BOM.length)
+    ) {
+      start = UTF8_BOM.length;
+    }
+    for (int index = start; index < bytes.length; index++) {
+      if (bytes[index] == '{') {
+        return true;
+      }
+      if (!Character.isWhitespace(bytes[index])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private void recomputeHighWaterMark() {
     long highwaterMarkDelta = apiConfig
       .values()
       .stream()
-      .map(ConfigElement::getConfig)
-      .mapToLong(Prefab.Config::getId)
+      .mapToLong(ConfigElement::getId)
       .max()
       .orElse(0L);
 
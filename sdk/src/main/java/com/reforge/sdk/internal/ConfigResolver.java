@@ -3,9 +3,9 @@ package com.reforge.sdk.internal;
 import cloud.prefab.domain.Prefab;
 import com.google.common.base.Enums;
 import com.google.common.collect.ImmutableMap;
-import com.reforge.sdk.ConfigStore;
 import com.reforge.sdk.config.ConfigElement;
 import com.reforge.sdk.config.ConfigValueUtils;
+import com.reforge.sdk.config.EvaluationCacheStats;
 import com.reforge.sdk.config.Match;
 import com.reforge.sdk.exceptions.ConfigValueDecryptionException;
 import com.reforge.sdk.exceptions.ConfigValueException;
@@ -19,6 +19,7 @@ import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.Yaml;
@@ -28,20 +29,39 @@ public class ConfigResolver {
 
   private static final Logger LOG = LoggerFactory.getLogger(ConfigResolver.class);
 
-  private final ConfigStore configStore;
+  private final InternalConfigStore configStore;
   private final EnvironmentVariableLookup environmentVariableLookup;
   private final ConfigRuleEvaluator configRuleEvaluator;
 
+  @Nullable
+  private final EvaluationCache evaluationCache;
+
   private AtomicReference<Yaml> yamlAtomicReference = new AtomicReference<>();
 
   public ConfigResolver(
-    ConfigStore configStoreImpl,
+    InternalConfigStore configStoreImpl,
     ConfigRuleEvaluator configRuleEvaluator,
     EnvironmentVariableLookup environmentVariableLookup
+  ) {
+    this(configStoreImpl, configRuleEvaluator, environmentVariableLookup, 0);
+  }
+
+  /**
+   * @param evaluationCacheSize how many matches to cache, 0 for no cache
+   */
+  public ConfigResolver(
+    InternalConfigStore configStoreImpl,
+    ConfigRuleEvaluator configRuleEvaluator,
+    EnvironmentVariableLookup environmentVariableLookup,
+    int evaluationCacheSize
   ) {
     this.configRuleEvaluator = configRuleEvaluator;
     this.configStore = configStoreImpl;
     this.environmentVariableLookup = environmentVariableLookup;
+    this.evaluationCache =
+      evaluationCacheSize > 0
+        ? new EvaluationCache(configStoreImpl, evaluationCacheSize, this::resolveMatch)
+        : null;
   }
 
   public Optional<Prefab.ConfigValue> getConfigValue(String key) {
@@ -56,6 +76,13 @@ public class ConfigResolver {
   }
 
   public Optional<Match> getMatch(String key, LookupContext lookupContext) {
+    if (evaluationCache != null) {
+      return evaluationCache.getMatch(key, lookupContext);
+    }
+    return resolveMatch(key, lookupContext);
+  }
+
+  private Optional<Match> resolveMatch(String key, LookupContext lookupContext) {
     return getRawMatch(key, lookupContext).map(match -> reify(match, lookupContext));
   }
 
@@ -63,6 +90,84 @@ public class ConfigResolver {
     return configRuleEvaluator.getMatch(key, lookupContext);
   }
 
+  /**
+   * The match for a config whose value is the same whatever the context, so callers can
+   * skip building one
+   *
+   * @return empty if there is no such config or its value depends on the context
+   */
+  public Optional<Match> getContextFreeMatch(String key) {
+    CompiledConfig compiledConfig = configStore.getCompiledConfig(key);
+    if (compiledConfig == null || !compiledConfig.isContextFree()) {
+      return Optional.empty();
+    }
+    return compiledConfig
+      .getConstantMatch()
+      .map(match -> reify(match, LookupContext.EMPTY));
+  }
+
+  /**
+   * Like {@link #getMatch(String, LookupContext)} but fills in the evaluation rather than
+   * building a Match
+   *
+   * @return false if there is no value for the key
+   */
+  boolean evaluate(String key, LookupContext lookupContext, Evaluation evaluation) {
+    if (evaluationCache != null) {
+      return evaluateCached(key, lookupContext, evaluation);
+    }
+    if (!configRuleEvaluator.evaluate(key, lookupContext, evaluation)) {
+      return false;
+    }
+    reify(evaluation, lookupContext);
+    return true;
+  }
+
+  /**
+   * Like {@link #evaluate(String, LookupContext, Evaluation)}, for a resolved key
+   */
+  boolean evaluate(
+    ConfigKey configKey,
+    LookupContext lookupContext,
+    Evaluation evaluation
+  ) {
+    if (evaluationCache != null) {
+      return evaluateCached(configKey.getKey(), lookupContext, evaluation);
+    }
+    if (!configRuleEvaluator.evaluate(configKey, lookupContext, evaluation)) {
+      return false;
+    }
+    reify(evaluation, lookupContext);
+    return true;
+  }
+
+  private boolean evaluateCached(
+    String key,
+    LookupContext lookupContext,
+    Evaluation evaluation
+  ) {
+    Optional<Match> match = evaluationCache.getMatch(key, lookupContext);
+    match.ifPresent(evaluation::set);
+    return match.isPresent();
+  }
+
+  private void reify(Evaluation evaluation, LookupContext lookupContext) {
+    evaluation.setConfigValue(
+      reify(
+        evaluation.getConfigElement().getConfig(),
+        evaluation.getConfigValue(),
+        lookupContext
+      )
+    );
+  }
+
+  /**
+   * @return the evaluation cache counters, empty if the cache is off
+   */
+  public Optional<EvaluationCacheStats> getEvaluationCacheStats() {
+    return Optional.ofNullable(evaluationCache).map(EvaluationCache::getStats);
+  }
+
   /**
    * Get all currently known parameter-less config values.
    * ConfigValues that are not visible unless passed an appropriate map of parameters are not here
@@ -83,6 +188,9 @@ public class ConfigResolver {
       match.getConfigValue(),
       lookupContext
     );
+    if (updatedConfigValue == match.getConfigValue()) {
+      return match;
+    }
     return new Match(
       updatedConfigValue,
       match.getConfigElement(),
@@ -284,7 +392,7 @@ public class ConfigResolver {
       ConfigElement configElement = configStore.getElement(key);
       try {
         sb.append(padded(key, 45));
-        sb.append(padded(configElement.getConfig().getConfigType().name(), 40));
+        sb.append(padded(configElement.getConfigType().name(), 40));
         sb.append(padded(configElement.getProvenance().toString(), 40));
         sb.append("\n");
       } catch (ConfigValueException configValueException) {
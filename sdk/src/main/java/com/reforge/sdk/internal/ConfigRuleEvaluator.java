@@ -1,30 +1,15 @@
 package com.reforge.sdk.internal;
 
 import cloud.prefab.domain.Prefab;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Sets;
-import com.google.common.collect.Streams;
-import com.reforge.sdk.ConfigStore;
 import com.reforge.sdk.config.ConfigElement;
-import com.reforge.sdk.config.ConfigValueUtils;
 import com.reforge.sdk.config.EvaluatedCriterion;
 import com.reforge.sdk.config.Match;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
-import java.util.function.BiPredicate;
-import java.util.function.Predicate;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,11 +19,11 @@ public class ConfigRuleEvaluator {
   public static final String REFORGE_CURRENT_TIME_KEY = "reforge.current-time";
   private static final Logger LOG = LoggerFactory.getLogger(ConfigRuleEvaluator.class);
 
-  private final ConfigStore configStore;
+  private final InternalConfigStore configStore;
   private final WeightedValueEvaluator weightedValueEvaluator;
 
   public ConfigRuleEvaluator(
-    ConfigStore configStoreImpl,
+    InternalConfigStore configStoreImpl,
     WeightedValueEvaluator weightedValueEvaluator
   ) {
     this.weightedValueEvaluator = weightedValueEvaluator;
@@ -46,16 +31,13 @@ public class ConfigRuleEvaluator {
   }
 
   public Optional<Match> getMatch(String key, LookupContext lookupContext) {
-    final ConfigElement configElement = configStore.getElement(key);
-    if (configElement == null) {
-      // logging lookups generate a lot of misses so skip those
-      if (!key.startsWith("log-level")) {
-        LOG.trace("No config value found for key {}", key);
-      }
-      return Optional.empty();
+    RowPropertiesStack rowProperties = RowPropertiesStack.forCurrentThread();
+    int previousFloor = rowProperties.enter();
+    try {
+      return getMatch(key, lookupContext, rowProperties);
+    } finally {
+      rowProperties.exit(previousFloor);
     }
-
-    return getMatch(configElement, lookupContext);
   }
 
   /**
@@ -69,90 +51,351 @@ public class ConfigRuleEvaluator {
     ConfigElement configElement,
     LookupContext lookupContext
   ) {
-    return getMatch(configElement, lookupContext, new LinkedList<>());
+    CompiledConfig compiledConfig = configStore.getCompiledConfig(
+      configElement.getConfig().getKey()
+    );
+    if (
+      compiledConfig == null ||
+      compiledConfig.getConfigElement() != configElement ||
+      compiledConfig.getProjectEnvId() != configStore.getProjectEnvironmentId()
+    ) {
+      compiledConfig =
+        CompiledConfig.compile(configElement, configStore.getProjectEnvironmentId());
+    }
+    RowPropertiesStack rowProperties = RowPropertiesStack.forCurrentThread();
+    int previousFloor = rowProperties.enter();
+    try {
+      return getMatch(compiledConfig, lookupContext, rowProperties);
+    } finally {
+      rowProperties.exit(previousFloor);
+    }
   }
 
-  private Optional<Match> getMatch(
+  Optional<Match> getMatch(
+    String key,
+    LookupContext lookupContext,
+    RowPropertiesStack rowProperties
+  ) {
+    CompiledConfig compiledConfig = getCompiledConfig(key);
+    if (compiledConfig == null) {
+      return Optional.empty();
+    }
+
+    return getMatch(compiledConfig, lookupContext, rowProperties);
+  }
+
+  /**
+   * Evaluates the config without building a Match, filling in the evaluation instead.
+   *
+   * @return false if there is no such config or none of its rows matched
+   */
+  boolean evaluate(String key, LookupContext lookupContext, Evaluation evaluation) {
+    return evaluate(getCompiledConfig(key), lookupContext, evaluation);
+  }
+
+  /**
+   * Like {@link #evaluate(String, LookupContext, Evaluation)}, for a resolved key
+   */
+  boolean evaluate(
+    ConfigKey configKey,
+    LookupContext lookupContext,
+    Evaluation evaluation
+  ) {
+    CompiledConfig compiledConfig = configStore.getCompiledConfig(configKey);
+    if (compiledConfig == null) {
+      compiledConfig = getCompiledConfig(configKey.getKey());
+    }
+    return evaluate(compiledConfig, lookupContext, evaluation);
+  }
+
+  private boolean evaluate(
+    @Nullable CompiledConfig compiledConfig,
+    LookupContext lookupContext,
+    Evaluation evaluation
+  ) {
+    if (compiledConfig == null) {
+      return false;
+    }
+    RowPropertiesStack rowProperties = RowPropertiesStack.forCurrentThread();
+    int previousFloor = rowProperties.enter();
+    try {
+      CompiledConfig.ConditionalValue conditionalValue = findConditionalValue(
+        compiledConfig,
+        lookupContext,
+        rowProperties
+      );
+      if (conditionalValue == null) {
+        return false;
+      }
+      Prefab.ConfigValue selectedValue = conditionalValue.conditionalValue.getValue();
+      if (selectedValue.hasWeightedValues()) {
+        Prefab.WeightedValues weightedValues = selectedValue.getWeightedValues();
+        int weightedValueIndex = weightedValueEvaluator.toIndex(
+          weightedValues,
+          compiledConfig.getConfigElement().getConfig().getKey(),
+          lookupContext
+        );
+        evaluation.set(
+          conditionalValue,
+          compiledConfig.getConfigElement(),
+          weightedValues.getWeightedValues(weightedValueIndex).getValue(),
+          weightedValueIndex
+        );
+      } else {
+        evaluation.set(
+          conditionalValue,
+          compiledConfig.getConfigElement(),
+          selectedValue,
+          -1
+        );
+      }
+      return true;
+    } finally {
+      rowProperties.exit(previousFloor);
+    }
+  }
+
+  @Nullable
+  Prefab.ConfigValue evaluateValue(
     String key,
     LookupContext lookupContext,
-    Deque<Map<String, Prefab.ConfigValue>> rowPropertiesStack
+    RowPropertiesStack rowProperties
   ) {
-    if (!configStore.containsKey(key)) {
+    CompiledConfig compiledConfig = getCompiledConfig(key);
+    if (compiledConfig == null) {
+      return null;
+    }
+    CompiledConfig.ConditionalValue conditionalValue = findConditionalValue(
+      compiledConfig,
+      lookupContext,
+      rowProperties
+    );
+    if (conditionalValue == null) {
+      return null;
+    }
+    Prefab.ConfigValue selectedValue = conditionalValue.conditionalValue.getValue();
+    if (selectedValue.hasWeightedValues()) {
+      Prefab.WeightedValues weightedValues = selectedValue.getWeightedValues();
+      int weightedValueIndex = weightedValueEvaluator.toIndex(
+        weightedValues,
+        compiledConfig.getConfigElement().getConfig().getKey(),
+        lookupContext
+      );
+      return weightedValues.getWeightedValues(weightedValueIndex).getValue();
+    }
+    return selectedValue;
+  }
+
+  /**
+   * The match of a segment referenced by a criterion, without the row properties of
+   * whoever is asking
+   */
+  Optional<Match> getSegmentMatch(String segmentKey, LookupContext lookupContext) {
+    RowPropertiesStack rowProperties = RowPropertiesStack.forCurrentThread();
+    int previousFloor = rowProperties.enter();
+    try {
+      return getSegmentMatch(segmentKey, lookupContext, rowProperties);
+    } finally {
+      rowProperties.exit(previousFloor);
+    }
+  }
+
+  /**
+   * The match of a segment referenced by a criterion, remembered in the context's
+   * {@link SegmentMemo} when no row properties are in scope and the segment gives the
+   * same result every time
+   */
+  Optional<Match> getSegmentMatch(
+    String segmentKey,
+    LookupContext lookupContext,
+    RowPropertiesStack rowProperties
+  ) {
+    if (!rowProperties.isEmpty()) {
+      return getMatch(segmentKey, lookupContext, rowProperties);
+    }
+    SegmentMemo segmentMemo = lookupContext.getSegmentMemo(configStore.getVersion());
+    Optional<Match> match = segmentMemo.getMatch(segmentKey);
+    if (match == null) {
+      match = getMatch(segmentKey, lookupContext, rowProperties);
+      if (isRepeatable(segmentMemo, segmentKey, lookupContext)) {
+        segmentMemo.rememberMatch(segmentKey, match);
+      }
+    }
+    return match;
+  }
+
+  /**
+   * The value of a segment referenced by a criterion, without the row properties of
+   * whoever is asking
+   */
+  @Nullable
+  Prefab.ConfigValue evaluateSegmentValue(
+    String segmentKey,
+    LookupContext lookupContext
+  ) {
+    RowPropertiesStack rowProperties = RowPropertiesStack.forCurrentThread();
+    int previousFloor = rowProperties.enter();
+    try {
+      return evaluateSegmentValue(segmentKey, lookupContext, rowProperties);
+    } finally {
+      rowProperties.exit(previousFloor);
+    }
+  }
+
+  /**
+   * The value of a segment referenced by a criterion, remembered like
+   * {@link #getSegmentMatch(String, LookupContext, RowPropertiesStack)}
+   */
+  @Nullable
+  Prefab.ConfigValue evaluateSegmentValue(
+    String segmentKey,
+    LookupContext lookupContext,
+    RowPropertiesStack rowProperties
+  ) {
+    if (!rowProperties.isEmpty()) {
+      return evaluateValue(segmentKey, lookupContext, rowProperties);
+    }
+    SegmentMemo segmentMemo = lookupContext.getSegmentMemo(configStore.getVersion());
+    Optional<Prefab.ConfigValue> value = segmentMemo.getValue(segmentKey);
+    if (value == null) {
+      value =
+        Optional.ofNullable(evaluateValue(segmentKey, lookupContext, rowProperties));
+      if (isRepeatable(segmentMemo, segmentKey, lookupContext)) {
+        segmentMemo.rememberValue(segmentKey, value);
+      }
+    }
+    return value.orElse(null);
+  }
+
+  private boolean isRepeatable(
+    SegmentMemo segmentMemo,
+    String segmentKey,
+    LookupContext lookupContext
+  ) {
+    Boolean repeatable = segmentMemo.isRepeatable(segmentKey);
+    if (repeatable == null) {
+      repeatable = EvaluationCache.isRepeatable(configStore, segmentKey, lookupContext);
+      segmentMemo.setRepeatable(segmentKey, repeatable);
+    }
+    return repeatable;
+  }
+
+  /**
+   * Configs in the store are compiled when loaded, anything else is compiled here
+   */
+  @Nullable
+  private CompiledConfig getCompiledConfig(String key) {
+    CompiledConfig compiledConfig = configStore.getCompiledConfig(key);
+    if (compiledConfig != null) {
+      return compiledConfig;
+    }
+    ConfigElement configElement = configStore.getElement(key);
+    if (configElement == null) {
       // logging lookups generate a lot of misses so skip those
       if (!key.startsWith("log-level")) {
         LOG.trace("No config value found for key {}", key);
       }
-      return Optional.empty();
+      return null;
     }
-    final ConfigElement configElement = configStore.getElement(key);
-
-    return getMatch(configElement, lookupContext, rowPropertiesStack);
+    return CompiledConfig.compile(configElement, configStore.getProjectEnvironmentId());
   }
 
   private Optional<Match> getMatch(
-    ConfigElement configElement,
+    CompiledConfig compiledConfig,
     LookupContext lookupContext,
-    Deque<Map<String, Prefab.ConfigValue>> rowPropertiesStack
+    RowPropertiesStack rowProperties
   ) {
-    // Prefer rows that have a projEnvId to ones that don't
+    if (compiledConfig.isConstant()) {
+      return compiledConfig.getConstantMatch();
+    }
+    // Rows are already ordered with the projEnvId row ahead of the default row
     // There will be 0-1 rows with projenv and 0-1 rows without (the default row)
+    for (CompiledConfig.Row row : compiledConfig.getRows()) {
+      if (row.properties != null) {
+        rowProperties.push(row.properties);
+      }
+      // Return the value of the first matching set of criteria
+      for (CompiledConfig.ConditionalValue conditionalValue : row.conditionalValues) {
+        Optional<Match> optionalMatch = evaluateConditionalValue(
+          row,
+          conditionalValue,
+          lookupContext,
+          rowProperties,
+          compiledConfig.getConfigElement()
+        );
 
-    return Streams
-      .mapWithIndex(
-        configElement.getRowsProjEnvFirst(configStore.getProjectEnvironmentId()),
-        (configRow, rowIndex) -> {
-          if (!configRow.getPropertiesMap().isEmpty()) {
-            rowPropertiesStack.push(configRow.getPropertiesMap());
-          }
-          // Return the value of the first matching set of criteria
-          int conditionalValueIndex = 0;
-          for (Prefab.ConditionalValue conditionalValue : configRow.getValuesList()) {
-            Optional<Match> optionalMatch = evaluateConditionalValue(
-              rowIndex,
-              conditionalValue,
-              conditionalValueIndex,
-              lookupContext,
-              rowPropertiesStack,
-              configElement,
-              configRow
-            );
-
-            if (optionalMatch.isPresent()) {
-              return optionalMatch.get();
-            }
-            conditionalValueIndex++;
-          }
-          if (!configRow.getPropertiesMap().isEmpty()) {
-            rowPropertiesStack.pop();
-          }
-          return null;
+        if (optionalMatch.isPresent()) {
+          return optionalMatch;
         }
-      )
-      .filter(Objects::nonNull)
-      .findFirst();
+      }
+      if (row.properties != null) {
+        rowProperties.pop();
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * The first conditional value whose criteria all match, as {@link #getMatch} would pick
+   */
+  @Nullable
+  private CompiledConfig.ConditionalValue findConditionalValue(
+    CompiledConfig compiledConfig,
+    LookupContext lookupContext,
+    RowPropertiesStack rowProperties
+  ) {
+    if (compiledConfig.isConstant()) {
+      return compiledConfig.getRows()[0].conditionalValues[0];
+    }
+    for (CompiledConfig.Row row : compiledConfig.getRows()) {
+      if (row.properties != null) {
+        rowProperties.push(row.properties);
+      }
+      for (CompiledConfig.ConditionalValue conditionalValue : row.conditionalValues) {
+        if (allCriteriaMatch(conditionalValue, lookupContext, rowProperties)) {
+          return conditionalValue;
+        }
+      }
+      if (row.properties != null) {
+        rowProperties.pop();
+      }
+    }
+    return null;
+  }
+
+  private boolean allCriteriaMatch(
+    CompiledConfig.ConditionalValue conditionalValue,
+    LookupContext lookupContext,
+    RowPropertiesStack rowProperties
+  ) {
+    for (CompiledCriterion criterion : conditionalValue.criteria) {
+      if (!criterion.matches(this, lookupContext, rowProperties)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
    * If all of the conditions match, return a true match
    *
+   * @param row
    * @param conditionalValue
    * @param rowProperties
    * @param configElement
    * @return
    */
   private Optional<Match> evaluateConditionalValue(
-    long rowIndex,
-    Prefab.ConditionalValue conditionalValue,
-    int conditionalValueIndex,
+    CompiledConfig.Row row,
+    CompiledConfig.ConditionalValue conditionalValue,
     LookupContext lookupContext,
-    Deque<Map<String, Prefab.ConfigValue>> rowProperties,
-    ConfigElement configElement,
-    Prefab.ConfigRow configRow
+    RowPropertiesStack rowProperties,
+    ConfigElement configElement
   ) {
     List<EvaluatedCriterion> evaluatedCriteria = new ArrayList<>();
-    for (Prefab.Criterion criterion : conditionalValue.getCriteriaList()) {
-      for (EvaluatedCriterion evaluateCriterion : evaluateCriterionMatch(
-        criterion,
+    for (CompiledCriterion criterion : conditionalValue.criteria) {
+      for (EvaluatedCriterion evaluateCriterion : criterion.evaluate(
+        this,
         lookupContext,
         rowProperties
       )) {
@@ -164,13 +407,11 @@ public class ConfigRuleEvaluator {
     }
     return Optional.of(
       simplifyToMatch(
-        rowIndex,
+        row,
         conditionalValue,
-        conditionalValueIndex,
         configElement,
         lookupContext,
-        evaluatedCriteria,
-        configRow
+        evaluatedCriteria
       )
     );
   }
@@ -179,21 +420,17 @@ public class ConfigRuleEvaluator {
    * A ConfigValue may be a WeightedValue. If so break it down so we can return a simpler form.
    */
   private Match simplifyToMatch(
-    long rowIndex,
-    Prefab.ConditionalValue selectedConditionalValue,
-    int conditionalValueIndex,
+    CompiledConfig.Row row,
+    CompiledConfig.ConditionalValue selectedConditionalValue,
     ConfigElement configElement,
     LookupContext lookupContext,
-    List<EvaluatedCriterion> evaluatedCriteria,
-    Prefab.ConfigRow configRow
+    List<EvaluatedCriterion> evaluatedCriteria
   ) {
-    Optional<Long> envId = configRow.hasProjectEnvId()
-      ? Optional.of(configRow.getProjectEnvId())
-      : Optional.empty();
-
-    if (selectedConditionalValue.getValue().hasWeightedValues()) {
+    Prefab.ConfigValue selectedValue = selectedConditionalValue.conditionalValue
+      .getValue();
+    if (selectedValue.hasWeightedValues()) {
       WeightedValueEvaluator.Result result = weightedValueEvaluator.toResult(
-        selectedConditionalValue.getValue().getWeightedValues(),
+        selectedValue.getWeightedValues(),
         configElement.getConfig().getKey(),
         lookupContext
       );
@@ -201,85 +438,29 @@ public class ConfigRuleEvaluator {
         result.getValue(),
         configElement,
         evaluatedCriteria,
-        (int) rowIndex,
-        conditionalValueIndex,
+        row.rowIndex,
+        selectedConditionalValue.conditionalValueIndex,
         Optional.of(result.getIndex()),
-        envId
+        row.envId
       );
     } else {
       return new Match(
-        selectedConditionalValue.getValue(),
+        selectedValue,
         configElement,
         evaluatedCriteria,
-        (int) rowIndex,
-        conditionalValueIndex,
+        row.rowIndex,
+        selectedConditionalValue.conditionalValueIndex,
         Optional.empty(),
-        envId
+        row.envId
       );
     }
   }
 
-  private List<String> keyAndLowerCasedKey(String key) {
-    String lowerCased = key.toLowerCase();
-    if (lowerCased.equals(key)) {
-      return Collections.singletonList(key);
-    }
-    return List.of(key, lowerCased);
-  }
-
-  private Optional<Prefab.ConfigValue> prop(
-    String key,
-    LookupContext lookupContext,
-    Deque<Map<String, Prefab.ConfigValue>> rowPropertiesStack
-  ) {
-    List<String> keysToLookup = keyAndLowerCasedKey(key);
-
-    for (Map<String, Prefab.ConfigValue> rowProperties : rowPropertiesStack) {
-      for (String keyToLookup : keysToLookup) {
-        Prefab.ConfigValue rowPropValue = rowProperties.get(keyToLookup);
-        if (rowPropValue != null) {
-          return Optional.of(rowPropValue);
-        }
-      }
-    }
-
-    for (String keyToLookup : keysToLookup) {
-      Prefab.ConfigValue valueFromLookupContext = lookupContext
-        .getExpandedProperties()
-        .get(keyToLookup);
-      if (valueFromLookupContext != null) {
-        return Optional.of(valueFromLookupContext);
-      }
-    }
-    //TODO: move this current time injection into a ContextResolver class?
-    if (CURRENT_TIME_KEY.equals(key) || REFORGE_CURRENT_TIME_KEY.equals(key)) {
-      return Optional.of(
-        Prefab.ConfigValue.newBuilder().setInt(System.currentTimeMillis()).build()
-      );
-    }
-    return Optional.empty();
-  }
-
-  private Optional<Prefab.ConfigValue> getPropFromContextWrapper(
-    List<String> keysToLookup,
-    ContextWrapper contextWrapper
-  ) {
-    for (String keyToLookup : keysToLookup) {
-      Prefab.ConfigValue configValue = contextWrapper
-        .getConfigValueMap()
-        .get(keyToLookup);
-      if (configValue != null) {
-        return Optional.of(configValue);
-      }
-    }
-    return Optional.empty();
-  }
-
   List<EvaluatedCriterion> evaluateCriterionMatch(
     Prefab.Criterion criterion,
     LookupContext lookupContext
   ) {
-    return evaluateCriterionMatch(criterion, lookupContext, new LinkedList<>());
+    return evaluateCriterionMatch(criterion, lookupContext, new RowPropertiesStack());
   }
 
   /**
@@ -291,362 +472,11 @@ public class ConfigRuleEvaluator {
   List<EvaluatedCriterion> evaluateCriterionMatch(
     Prefab.Criterion criterion,
     LookupContext lookupContext,
-    Deque<Map<String, Prefab.ConfigValue>> rowPropertiesStack
-  ) {
-    final Optional<Prefab.ConfigValue> prop = prop(
-      criterion.getPropertyName(),
-      lookupContext,
-      rowPropertiesStack
-    );
-    Optional<String> propStringValue = prop.flatMap(ConfigValueUtils::coerceToString);
-
-    switch (criterion.getOperator()) {
-      case ALWAYS_TRUE:
-        return List.of(new EvaluatedCriterion(criterion, true));
-      case HIERARCHICAL_MATCH:
-        if (prop.isPresent()) {
-          if (prop.get().hasString() && criterion.getValueToMatch().hasString()) {
-            final String propertyString = prop.get().getString();
-            return List.of(
-              new EvaluatedCriterion(
-                criterion,
-                criterion.getValueToMatch(),
-                hierarchicalMatch(propertyString, criterion.getValueToMatch().getString())
-              )
-            );
-          }
-        }
-        return List.of(
-          new EvaluatedCriterion(criterion, criterion.getValueToMatch(), false)
-        );
-      // The string here is the key of the Segment
-      case IN_SEG:
-        final Optional<Match> evaluatedSegment = getMatch(
-          criterion.getValueToMatch().getString(),
-          lookupContext,
-          rowPropertiesStack
-        );
-
-        if (
-          evaluatedSegment.isPresent() &&
-          evaluatedSegment.get().getConfigValue().hasBool() &&
-          evaluatedSegment.get().getConfigValue().getBool()
-        ) {
-          return evaluatedSegment.get().getEvaluatedCriterion();
-        } else {
-          return List.of(
-            new EvaluatedCriterion(
-              criterion,
-              "Missing Segment " + criterion.getValueToMatch().getString(),
-              false
-            )
-          );
-        }
-      case NOT_IN_SEG:
-        final Optional<Prefab.ConfigValue> evaluatedNotSegment = getMatch(
-          criterion.getValueToMatch().getString(),
-          lookupContext
-        )
-          .map(Match::getConfigValue);
-
-        if (evaluatedNotSegment.isPresent() && evaluatedNotSegment.get().hasBool()) {
-          return List.of(
-            new EvaluatedCriterion(
-              criterion,
-              criterion.getValueToMatch(),
-              !evaluatedNotSegment.get().getBool()
-            )
-          );
-        } else {
-          return List.of(
-            new EvaluatedCriterion(
-              criterion,
-              "Missing Segment " + criterion.getValueToMatch().getString(),
-              true
-            )
-          );
-        }
-      case PROP_IS_ONE_OF:
-      // fall through
-      case PROP_IS_NOT_ONE_OF:
-        // this is actually going to function as intersection -- true if there is non-empty overlap between the collection value on the left or on the right
-        Set<String> contextValueSet = prop
-          .map(ConfigRuleEvaluator::coerceToStringList)
-          .orElseGet(Collections::emptySet);
-        if (contextValueSet.isEmpty()) {
-          return List.of(
-            new EvaluatedCriterion(
-              criterion,
-              criterion.getOperator() ==
-              Prefab.Criterion.CriterionOperator.PROP_IS_NOT_ONE_OF
-            )
-          );
-        }
-        boolean nonEmptyIntersection = !Sets
-          .intersection(
-            contextValueSet,
-            Set.copyOf(criterion.getValueToMatch().getStringList().getValuesList())
-          )
-          .isEmpty();
-
-        // assumption that property is a String
-        return List.of(
-          new EvaluatedCriterion(
-            criterion,
-            propStringValue.get(),
-            nonEmptyIntersection ==
-            (criterion.getOperator() == Prefab.Criterion.CriterionOperator.PROP_IS_ONE_OF)
-          )
-        );
-      case PROP_ENDS_WITH_ONE_OF:
-      // fall through
-      case PROP_DOES_NOT_END_WITH_ONE_OF:
-        return evaluateStringOperation(
-          criterion,
-          criterion.getOperator() ==
-          Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_END_WITH_ONE_OF,
-          String::endsWith,
-          prop
-        );
-      case PROP_CONTAINS_ONE_OF:
-      // fall through
-      case PROP_DOES_NOT_CONTAIN_ONE_OF:
-        return evaluateStringOperation(
-          criterion,
-          criterion.getOperator() ==
-          Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_CONTAIN_ONE_OF,
-          String::contains,
-          prop
-        );
-      case PROP_STARTS_WITH_ONE_OF:
-      // fall through
-      case PROP_DOES_NOT_START_WITH_ONE_OF:
-        return evaluateStringOperation(
-          criterion,
-          criterion.getOperator() ==
-          Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_START_WITH_ONE_OF,
-          String::startsWith,
-          prop
-        );
-      case IN_INT_RANGE:
-        if (
-          prop.isPresent() &&
-          prop.get().hasInt() &&
-          criterion.getValueToMatch().hasIntRange()
-        ) {
-          return List.of(
-            new EvaluatedCriterion(
-              criterion,
-              IntRangeWrapper
-                .of(criterion.getValueToMatch().getIntRange())
-                .contains(prop.get().getInt())
-            )
-          );
-        }
-      case PROP_GREATER_THAN:
-      // fall through
-      case PROP_GREATER_THAN_OR_EQUAL:
-      // fall through
-      case PROP_LESS_THAN:
-      // fall through
-      case PROP_LESS_THAN_OR_EQUAL:
-        return evaluateNumericComparison(criterion, prop);
-      case PROP_AFTER:
-      // fall through
-      case PROP_BEFORE:
-        return evaluateDateComparison(criterion, prop);
-      case PROP_MATCHES:
-      // fall through
-      case PROP_DOES_NOT_MATCH:
-        return evaluateRegexMatch(criterion, prop);
-      case PROP_SEMVER_LESS_THAN:
-      // fall through
-      case PROP_SEMVER_EQUAL:
-      // fall through
-      case PROP_SEMVER_GREATER_THAN:
-        return evaluateSemverComparison(criterion, prop);
-      default:
-        LOG.debug(
-          "Unexpected operator {} found in criterion {}",
-          criterion.getOperator(),
-          criterion
-        );
-    }
-    // Unknown Operator
-    return List.of(new EvaluatedCriterion(criterion, false));
-  }
-
-  private List<EvaluatedCriterion> evaluateSemverComparison(
-    Prefab.Criterion criterion,
-    Optional<Prefab.ConfigValue> valueFromContext
+    RowPropertiesStack rowProperties
   ) {
-    boolean comparison = false;
-
-    Optional<SemanticVersion> semVerToMatch = getCriterionValueToMatch(criterion)
-      .flatMap(this::getSemanticVersion);
-    Optional<SemanticVersion> semVerFromContext = valueFromContext.flatMap(
-      this::getSemanticVersion
-    );
-
-    if (semVerFromContext.isPresent() && semVerToMatch.isPresent()) {
-      comparison =
-        Optional
-          .ofNullable(SEMVER_COMPARE_TO_EVAL.get(criterion.getOperator()))
-          .orElse(v -> false)
-          .test(semVerFromContext.get().compareTo(semVerToMatch.get()));
-    }
-
-    return List.of(new EvaluatedCriterion(criterion, valueFromContext, comparison));
-  }
-
-  private List<EvaluatedCriterion> evaluateRegexMatch(
-    Prefab.Criterion criterion,
-    Optional<Prefab.ConfigValue> valueFromContext
-  ) {
-    boolean comparison = false;
-    Optional<Pattern> patternToMatchMaybe = getCriterionValueToMatch(criterion)
-      .flatMap(this::getCompiledPattern);
-    if (patternToMatchMaybe.isPresent() && valueFromContext.isPresent()) {
-      boolean matches = patternToMatchMaybe
-        .get()
-        .matcher(valueFromContext.get().getString())
-        .matches();
-      comparison =
-        negate(
-          matches,
-          criterion.getOperator() ==
-          Prefab.Criterion.CriterionOperator.PROP_DOES_NOT_MATCH
-        );
-    }
-    return List.of(new EvaluatedCriterion(criterion, comparison));
-  }
-
-  private List<EvaluatedCriterion> evaluateDateComparison(
-    Prefab.Criterion criterion,
-    Optional<Prefab.ConfigValue> valueFromContext
-  ) {
-    boolean comparison = false;
-    Optional<Instant> dateToCompare = getCriterionValueToMatch(criterion)
-      .flatMap(ConfigValueUtils::asDate);
-
-    Optional<Instant> dateFromContext = valueFromContext.flatMap(
-      ConfigValueUtils::asDate
-    );
-
-    if (dateToCompare.isPresent() && dateFromContext.isPresent()) {
-      if (criterion.getOperator() == Prefab.Criterion.CriterionOperator.PROP_BEFORE) {
-        comparison = dateFromContext.get().isBefore(dateToCompare.get());
-      }
-      if (criterion.getOperator() == Prefab.Criterion.CriterionOperator.PROP_AFTER) {
-        comparison = dateFromContext.get().isAfter(dateToCompare.get());
-      }
-    }
-    return List.of(new EvaluatedCriterion(criterion, comparison));
-  }
-
-  private List<EvaluatedCriterion> evaluateNumericComparison(
-    Prefab.Criterion criterion,
-    Optional<Prefab.ConfigValue> valueFromContext
-  ) {
-    boolean comparison = false;
-
-    Optional<Number> numberToMatch = getCriterionValueToMatch(criterion)
-      .flatMap(this::getNumber);
-    Optional<Number> numberFromContext = valueFromContext.flatMap(this::getNumber);
-
-    if (numberToMatch.isPresent() && numberFromContext.isPresent()) {
-      comparison =
-        Optional
-          .ofNullable(NUMERIC_COMPARE_TO_EVAL.get(criterion.getOperator()))
-          .orElse(v -> false)
-          .test(compareTo(numberFromContext.get(), numberToMatch.get()));
-    }
-
-    return List.of(new EvaluatedCriterion(criterion, valueFromContext, comparison));
-  }
-
-  private int compareTo(Number number1, Number number2) {
-    return Double.compare(number1.doubleValue(), number2.doubleValue());
-  }
-
-  Map<Prefab.Criterion.CriterionOperator, Predicate<Integer>> NUMERIC_COMPARE_TO_EVAL = ImmutableMap.of(
-    Prefab.Criterion.CriterionOperator.PROP_GREATER_THAN,
-    v -> v > 0,
-    Prefab.Criterion.CriterionOperator.PROP_GREATER_THAN_OR_EQUAL,
-    v -> v >= 0,
-    Prefab.Criterion.CriterionOperator.PROP_LESS_THAN,
-    v -> v < 0,
-    Prefab.Criterion.CriterionOperator.PROP_LESS_THAN_OR_EQUAL,
-    v -> v <= 0
-  );
-
-  Map<Prefab.Criterion.CriterionOperator, Predicate<Integer>> SEMVER_COMPARE_TO_EVAL = ImmutableMap.of(
-    Prefab.Criterion.CriterionOperator.PROP_SEMVER_GREATER_THAN,
-    v -> v > 0,
-    Prefab.Criterion.CriterionOperator.PROP_SEMVER_EQUAL,
-    v -> v == 0,
-    Prefab.Criterion.CriterionOperator.PROP_SEMVER_LESS_THAN,
-    v -> v < 0
-  );
-
-  private Optional<Prefab.ConfigValue> getCriterionValueToMatch(
-    Prefab.Criterion criterion
-  ) {
-    if (criterion.hasValueToMatch()) {
-      return Optional.of(criterion.getValueToMatch());
-    }
-    return Optional.empty();
-  }
-
-  private Optional<SemanticVersion> getSemanticVersion(Prefab.ConfigValue configValue) {
-    return Optional.ofNullable(SemanticVersion.parseQuietly(configValue.getString()));
-  }
-
-  private Optional<Pattern> getCompiledPattern(Prefab.ConfigValue configValue) {
-    try {
-      return Optional.of(Pattern.compile(configValue.getString()));
-    } catch (PatternSyntaxException e) {
-      return Optional.empty();
-    }
-  }
-
-  private Optional<Number> getNumber(Prefab.ConfigValue configValue) {
-    if (configValue.hasInt()) {
-      return Optional.of(configValue.getInt());
-    }
-    if (configValue.hasDouble()) {
-      return Optional.of(configValue.getDouble());
-    }
-    return Optional.empty();
-  }
-
-  static boolean negate(boolean result, boolean negate) {
-    if (negate) {
-      return !result;
-    }
-    return result;
-  }
-
-  List<EvaluatedCriterion> evaluateStringOperation(
-    Prefab.Criterion criterion,
-    boolean negated,
-    BiPredicate<String, String> predicate,
-    Optional<Prefab.ConfigValue> prop
-  ) {
-    if (prop.isPresent() && prop.get().hasString()) {
-      final boolean matched = criterion
-        .getValueToMatch()
-        .getStringList()
-        .getValuesList()
-        .stream()
-        .anyMatch(value -> predicate.test(prop.get().getString(), value));
-
-      return List.of(
-        new EvaluatedCriterion(criterion, prop.get(), negate(matched, negated))
-      );
-    } else {
-      return List.of(new EvaluatedCriterion(criterion, negated));
-    }
+    return CompiledCriterion
+      .compile(criterion)
+      .evaluate(this, lookupContext, rowProperties);
   }
 
   /**
@@ -658,7 +488,7 @@ public class ConfigRuleEvaluator {
    * @return
    */
   boolean hierarchicalMatch(String propertyString, String valueToMatch) {
-    return propertyString.startsWith(valueToMatch);
+    return CompiledCriterion.hierarchicalMatch(propertyString, valueToMatch);
   }
 
   public Collection<String> getKeys() {
@@ -682,14 +512,4 @@ public class ConfigRuleEvaluator {
   public boolean containsKey(String key) {
     return configStore.containsKey(key);
   }
-
-  private static Set<String> coerceToStringList(Prefab.ConfigValue configValue) {
-    if (configValue.getTypeCase() == Prefab.ConfigValue.TypeCase.STRING_LIST) {
-      return Set.copyOf(configValue.getStringList().getValuesList());
-    }
-    return ConfigValueUtils
-      .coerceToString(configValue)
-      .map(Collections::singleton)
-      .orElseGet(Collections::emptySet);
-  }
 }
@@ -0,0 +1,244 @@
+package com.reforge.sdk.internal;
+
+import cloud.prefab.domain.Prefab;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import com.reforge.sdk.ConfigClient;
+import com.reforge.sdk.config.ConfigElement;
+import com.reforge.sdk.config.Provenance;
+import com.reforge.sdk.util.Cache;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the last configs received from the API in the snapshot cache from the options, so
+ * that a restarting client can start from them rather than wait on the network. The
+ * snapshot is filed under a hash of the SDK key, so clients for different environments
+ * sharing a cache keep apart and the key itself is never written out.
+ * <p>
+ * A snapshot starts with an index of the key, id, type and size of each config, followed
+ * by the serialized configs. Loading reads only the index: each config becomes an
+ * element over its bytes in the cache's buffer, mapped from disk by a
+ * {@link com.reforge.sdk.util.FileCache}, and is decoded the first time it is used.
+ */
+class ConfigSnapshot {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConfigSnapshot.class);
+
+  private static final int MAGIC = 0x52464353;
+  private static final int FORMAT_VERSION = 1;
+  private static final int UNRECOGNIZED_CONFIG_TYPE = -1;
+
+  private static final long SAVE_DELAY_MILLIS = 2000;
+
+  // one thread for the snapshots of every client, which still saves anything pending as
+  // the JVM exits
+  private static final ScheduledExecutorService SAVE_EXECUTOR = MoreExecutors.getExitingScheduledExecutorService(
+    new ScheduledThreadPoolExecutor(
+      1,
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("prefab-config-snapshot-writer-%d")
+        .build()
+    ),
+    5,
+    TimeUnit.SECONDS
+  );
+
+  private final Cache cache;
+  private final String key;
+  private final long saveDelayMillis;
+  private final AtomicReference<Supplier<Contents>> pendingSave = new AtomicReference<>();
+
+  ConfigSnapshot(Cache cache, String sdkKey) {
+    this(cache, sdkKey, SAVE_DELAY_MILLIS);
+  }
+
+  ConfigSnapshot(Cache cache, String sdkKey, long saveDelayMillis) {
+    this.cache = cache;
+    this.key =
+      "reforge-configs-" + Hashing.sha256().hashString(sdkKey, StandardCharsets.UTF_8);
+    this.saveDelayMillis = saveDelayMillis;
+  }
+
+  Optional<Contents> load() {
+    try {
+      ByteBuffer buffer = cache.getBuffer(key);
+      if (buffer == null) {
+        return Optional.empty();
+      }
+      return Optional.of(read(buffer));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      LOG.warn("Unable to load config snapshot, starting without it", e);
+    }
+    return Optional.empty();
+  }
+
+  void save(Contents contents) {
+    try {
+      cache.set(key, 0, write(contents));
+    } catch (Exception e) {
+      LOG.warn("Unable to save config snapshot", e);
+    }
+  }
+
+  /**
+   * Saves the contents on a background thread once the save delay has passed, taking them
+   * from the supplier only then. Calls made in the meantime are folded into that save, so
+   * a burst of updates is written once and none of them wait on the write.
+   */
+  void saveLater(Supplier<Contents> contents) {
+    if (pendingSave.getAndSet(contents) == null) {
+      SAVE_EXECUTOR.schedule(this::savePending, saveDelayMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void savePending() {
+    Supplier<Contents> contents = pendingSave.getAndSet(null);
+    if (contents != null) {
+      try {
+        save(contents.get());
+      } catch (Exception e) {
+        LOG.warn("Unable to save config snapshot", e);
+      }
+    }
+  }
+
+  private static Contents read(ByteBuffer buffer) throws IOException {
+    if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+      throw new IOException("not a config snapshot this version can read");
+    }
+    Prefab.ConfigServicePointer configServicePointer = Prefab.ConfigServicePointer.parseFrom(
+      slice(buffer, buffer.getInt())
+    );
+    Prefab.ContextSet defaultContext = Prefab.ContextSet.parseFrom(
+      slice(buffer, buffer.getInt())
+    );
+    int count = buffer.getInt();
+    List<String> keys = new ArrayList<>(count);
+    long[] ids = new long[count];
+    Prefab.ConfigType[] configTypes = new Prefab.ConfigType[count];
+    int[] sizes = new int[count];
+    for (int index = 0; index < count; index++) {
+      byte[] keyBytes = new byte[buffer.getInt()];
+      buffer.get(keyBytes);
+      keys.add(new String(keyBytes, StandardCharsets.UTF_8));
+      ids[index] = buffer.getLong();
+      configTypes[index] = Prefab.ConfigType.forNumber(buffer.getInt());
+      sizes[index] = buffer.getInt();
+    }
+    Provenance provenance = new Provenance(ConfigClient.Source.SNAPSHOT);
+    ImmutableList.Builder<ConfigElement> configElements = ImmutableList.builderWithExpectedSize(
+      count
+    );
+    for (int index = 0; index < count; index++) {
+      configElements.add(
+        ConfigElement.encoded(
+          keys.get(index),
+          ids[index],
+          configTypes[index] == null
+            ? Prefab.ConfigType.UNRECOGNIZED
+            : configTypes[index],
+          UnsafeByteOperations.unsafeWrap(slice(buffer, sizes[index])),
+          provenance
+        )
+      );
+    }
+    return new Contents(configServicePointer, defaultContext, configElements.build());
+  }
+
+  // the next size bytes of the buffer, which it then moves past
+  private static ByteBuffer slice(ByteBuffer buffer, int size) {
+    ByteBuffer slice = buffer.slice();
+    slice.limit(size);
+    buffer.position(buffer.position() + size);
+    return slice;
+  }
+
+  private static byte[] write(Contents contents) throws IOException {
+    List<ByteString> encodedConfigs = new ArrayList<>(contents.configElements.size());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(MAGIC);
+    output.writeInt(FORMAT_VERSION);
+    writeBytes(output, contents.configServicePointer.toByteString());
+    writeBytes(output, contents.defaultContext.toByteString());
+    output.writeInt(contents.configElements.size());
+    for (ConfigElement configElement : contents.configElements) {
+      ByteString encodedConfig = configElement.toByteString();
+      encodedConfigs.add(encodedConfig);
+      writeBytes(output, ByteString.copyFromUtf8(configElement.getKey()));
+      output.writeLong(configElement.getId());
+      output.writeInt(
+        configElement.getConfigType() == Prefab.ConfigType.UNRECOGNIZED
+          ? UNRECOGNIZED_CONFIG_TYPE
+          : configElement.getConfigType().getNumber()
+      );
+      output.writeInt(encodedConfig.size());
+    }
+    for (ByteString encodedConfig : encodedConfigs) {
+      encodedConfig.writeTo(output);
+    }
+    output.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void writeBytes(DataOutputStream output, ByteString bytes)
+    throws IOException {
+    output.writeInt(bytes.size());
+    bytes.writeTo(output);
+  }
+
+  /**
+   * The API configs, along with the config service pointer and default context that came
+   * with them
+   */
+  static final class Contents {
+
+    private final Prefab.ConfigServicePointer configServicePointer;
+    private final Prefab.ContextSet defaultContext;
+    private final Collection<ConfigElement> configElements;
+
+    Contents(
+      Prefab.ConfigServicePointer configServicePointer,
+      Prefab.ContextSet defaultContext,
+      Collection<ConfigElement> configElements
+    ) {
+      this.configServicePointer = configServicePointer;
+      this.defaultContext = defaultContext;
+      this.configElements = configElements;
+    }
+
+    Prefab.ConfigServicePointer getConfigServicePointer() {
+      return configServicePointer;
+    }
+
+    Prefab.ContextSet getDefaultContext() {
+      return defaultContext;
+    }
+
+    Collection<ConfigElement> getConfigElements() {
+      return configElements;
+    }
+  }
+}
@@ -1,19 +1,25 @@
 package com.reforge.sdk.internal;
 
-import com.reforge.sdk.ConfigStore;
 import com.reforge.sdk.config.ConfigElement;
 import com.reforge.sdk.context.ContextSetReadable;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
-public class ConfigStoreImpl implements ConfigStore {
+public class ConfigStoreImpl implements InternalConfigStore {
 
   private final AtomicReference<MergedConfigData> data = new AtomicReference<>(
     new MergedConfigData(Map.of(), 0, ContextSetReadable.EMPTY, ContextSetReadable.EMPTY)
   );
 
+  // drawn from one sequence for every store, so that a version also identifies the store
+  // to anything shared between clients, like interned ConfigKeys
+  private static final AtomicLong VERSIONS = new AtomicLong();
+
+  private volatile long version = 0;
+
   @Override
   public Collection<String> getKeys() {
     return data.get().getConfigs().keySet();
@@ -30,6 +36,11 @@ public class ConfigStoreImpl implements ConfigStore {
 
   public void set(MergedConfigData mergedConfigData) {
     data.set(mergedConfigData);
+    version = VERSIONS.incrementAndGet();
+  }
+
+  MergedConfigData get() {
+    return data.get();
   }
 
   @Override
@@ -37,6 +48,18 @@ public class ConfigStoreImpl implements ConfigStore {
     return data.get().getConfigs().get(key);
   }
 
+  @Override
+  public CompiledConfig getCompiledConfig(String key) {
+    return data.get().getCompiledConfig(key);
+  }
+
+  @Override
+  public CompiledConfig getCompiledConfig(ConfigKey configKey) {
+    // the version first, see ConfigKey
+    long version = this.version;
+    return configKey.getCompiledConfig(version, data.get());
+  }
+
   @Override
   public boolean containsKey(String key) {
     return data.get().getConfigs().containsKey(key);
@@ -47,6 +70,11 @@ public class ConfigStoreImpl implements ConfigStore {
     return data.get().getEnvId();
   }
 
+  @Override
+  public long getVersion() {
+    return version;
+  }
+
   @Override
   public ContextSetReadable getConfigIncludedContext() {
     return data.get().getConfigIncludedContext();
@@ -0,0 +1,30 @@
+package com.reforge.sdk.internal;
+
+import cloud.prefab.domain.Prefab;
+import com.reforge.sdk.context.ContextSetReadable;
+import javax.annotation.Nullable;
+
+/**
+ * Evaluates a config without wrapping the answer, for the typed getters, live values and
+ * logging filters
+ */
+@Internal
+public interface ConfigValueLookup {
+  /**
+   * @return the value, or null if there is none
+   * @see ConfigClientCore#get(String, ContextSetReadable)
+   */
+  @Nullable
+  Prefab.ConfigValue lookup(String configKey, @Nullable ContextSetReadable context);
+
+  /**
+   * Like {@link #lookup(String, ContextSetReadable)}, for callers holding a resolved key
+   */
+  @Nullable
+  default Prefab.ConfigValue lookup(
+    ConfigKey configKey,
+    @Nullable ContextSetReadable context
+  ) {
+    return lookup(configKey.getKey(), context);
+  }
+}
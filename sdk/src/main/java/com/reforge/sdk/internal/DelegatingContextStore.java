@@ -28,4 +28,9 @@ public abstract class DelegatingContextStore implements ContextStore {
   public Optional<ContextSetReadable> getContext() {
     return getContextStore().getContext();
   }
+
+  @Override
+  public Optional<Object> getEvaluationScope() {
+    return getContextStore().getEvaluationScope();
+  }
 }
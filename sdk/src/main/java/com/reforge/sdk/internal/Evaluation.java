@@ -0,0 +1,106 @@
+package com.reforge.sdk.internal;
+
+import cloud.prefab.domain.Prefab;
+import com.reforge.sdk.config.ConfigElement;
+import com.reforge.sdk.config.Match;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The outcome of evaluating a config, filled in place so that the typed getters can read
+ * the value without a Match being built. Instances are reused, one per thread, so nothing
+ * here may be held on to past the lookup that filled it.
+ */
+final class Evaluation {
+
+  private ConfigElement configElement;
+  private Prefab.ConfigValue configValue;
+  private int rowIndex;
+  private int conditionalValueIndex;
+  private int weightedValueIndex;
+  private Optional<Long> envId = Optional.empty();
+
+  void set(
+    CompiledConfig.ConditionalValue conditionalValue,
+    ConfigElement configElement,
+    Prefab.ConfigValue configValue,
+    int weightedValueIndex
+  ) {
+    this.configElement = configElement;
+    this.configValue = configValue;
+    this.rowIndex = conditionalValue.row.rowIndex;
+    this.conditionalValueIndex = conditionalValue.conditionalValueIndex;
+    this.weightedValueIndex = weightedValueIndex;
+    this.envId = conditionalValue.row.envId;
+  }
+
+  /**
+   * Fills in what telemetry looks at, leaving out the environment
+   */
+  void set(
+    ConfigElement configElement,
+    Prefab.ConfigValue configValue,
+    int rowIndex,
+    int conditionalValueIndex,
+    int weightedValueIndex
+  ) {
+    this.configElement = configElement;
+    this.configValue = configValue;
+    this.rowIndex = rowIndex;
+    this.conditionalValueIndex = conditionalValueIndex;
+    this.weightedValueIndex = weightedValueIndex;
+    this.envId = Optional.empty();
+  }
+
+  void set(Match match) {
+    this.configElement = match.getConfigElement();
+    this.configValue = match.getConfigValue();
+    this.rowIndex = match.getRowIndex();
+    this.conditionalValueIndex = match.getConditionalValueIndex();
+    this.weightedValueIndex = match.getWeightedValueIndex().orElse(-1);
+    this.envId = match.getEnvId();
+  }
+
+  ConfigElement getConfigElement() {
+    return configElement;
+  }
+
+  Prefab.ConfigValue getConfigValue() {
+    return configValue;
+  }
+
+  int getRowIndex() {
+    return rowIndex;
+  }
+
+  int getConditionalValueIndex() {
+    return conditionalValueIndex;
+  }
+
+  /**
+   * @return the index of the weighted value chosen, or -1 if the value wasn't weighted
+   */
+  int getWeightedValueIndex() {
+    return weightedValueIndex;
+  }
+
+  void setConfigValue(Prefab.ConfigValue configValue) {
+    this.configValue = configValue;
+  }
+
+  /**
+   * A Match for telemetry, which only looks at the value and where it came from, so the
+   * evaluated criteria are left empty
+   */
+  Match toMatch() {
+    return new Match(
+      configValue,
+      configElement,
+      List.of(),
+      rowIndex,
+      conditionalValueIndex,
+      weightedValueIndex < 0 ? Optional.empty() : Optional.of(weightedValueIndex),
+      envId
+    );
+  }
+}
@@ -0,0 +1,166 @@
+package com.reforge.sdk.internal;
+
+import cloud.prefab.domain.Prefab;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.reforge.sdk.config.ConfigValueUtils;
+import com.reforge.sdk.config.EvaluationCacheStats;
+import com.reforge.sdk.config.Match;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * A bounded cache of matches keyed by config key, context and store version, for
+ * services that look the same configs up for the same contexts over and over.
+ * <p>
+ * Everything is dropped as soon as the store installs new data. Configs whose match can
+ * change for an unchanged context are evaluated every time: those with criteria on the
+ * current time, weighted values picked at random rather than hashed on a context
+ * property, or segments that do either.
+ */
+class EvaluationCache {
+
+  // segments referencing segments deeper than this are not worth following
+  private static final int MAX_SEGMENT_DEPTH = 8;
+
+  private final InternalConfigStore configStore;
+  private final BiFunction<String, LookupContext, Optional<Match>> matchResolver;
+  private final Cache<Key, Optional<Match>> cache;
+  private final AtomicLong cachedVersion = new AtomicLong(Long.MIN_VALUE);
+  private final LongAdder bypassCount = new LongAdder();
+
+  EvaluationCache(
+    InternalConfigStore configStore,
+    int maximumSize,
+    BiFunction<String, LookupContext, Optional<Match>> matchResolver
+  ) {
+    this.configStore = configStore;
+    this.matchResolver = matchResolver;
+    this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+  }
+
+  Optional<Match> getMatch(String key, LookupContext lookupContext) {
+    // read the version before evaluating, so a result computed from newer data is at
+    // worst filed under an older version that is never looked up again
+    long version = configStore.getVersion();
+    if (cachedVersion.getAndAccumulate(version, Math::max) < version) {
+      cache.invalidateAll();
+    }
+    if (!isRepeatable(configStore, key, lookupContext)) {
+      bypassCount.increment();
+      return matchResolver.apply(key, lookupContext);
+    }
+    Key cacheKey = new Key(key, lookupContext.getExpandedProperties(), version);
+    Optional<Match> match = cache.getIfPresent(cacheKey);
+    if (match == null) {
+      match = matchResolver.apply(key, lookupContext);
+      cache.put(cacheKey, match);
+    }
+    return match;
+  }
+
+  EvaluationCacheStats getStats() {
+    CacheStats stats = cache.stats();
+    return new EvaluationCacheStats(
+      stats.hitCount(),
+      stats.missCount(),
+      bypassCount.sum(),
+      cache.size()
+    );
+  }
+
+  /**
+   * @return whether evaluating the config for the context gives the same result every
+   * time, for as long as the store version stays the same
+   */
+  static boolean isRepeatable(
+    InternalConfigStore configStore,
+    String key,
+    LookupContext lookupContext
+  ) {
+    return isRepeatable(configStore, key, lookupContext, 0);
+  }
+
+  private static boolean isRepeatable(
+    InternalConfigStore configStore,
+    String key,
+    LookupContext lookupContext,
+    int depth
+  ) {
+    CompiledConfig compiledConfig = configStore.getCompiledConfig(key);
+    if (compiledConfig == null) {
+      // a missing config stays missing until the version changes, anything else would be
+      // compiled on the fly and is left alone
+      return configStore.getElement(key) == null;
+    }
+    if (!compiledConfig.isRepeatable()) {
+      return false;
+    }
+    Map<String, Prefab.ConfigValue> properties = lookupContext.getExpandedProperties();
+    for (String hashPropertyName : compiledConfig.getHashPropertyNames()) {
+      Prefab.ConfigValue hashPropertyValue = properties.get(hashPropertyName);
+      if (
+        hashPropertyValue == null ||
+        ConfigValueUtils.coerceToString(hashPropertyValue).isEmpty()
+      ) {
+        return false;
+      }
+    }
+    String[] segmentKeys = compiledConfig.getSegmentKeys();
+    if (segmentKeys.length > 0 && depth >= MAX_SEGMENT_DEPTH) {
+      return false;
+    }
+    for (String segmentKey : segmentKeys) {
+      if (!isRepeatable(configStore, segmentKey, lookupContext, depth + 1)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The expanded properties stand in for the context: they are all evaluation looks at,
+   * and unlike the context they are immutable
+   */
+  private static final class Key {
+
+    private final String configKey;
+    private final Map<String, Prefab.ConfigValue> properties;
+    private final long version;
+    private final int hashCode;
+
+    Key(String configKey, Map<String, Prefab.ConfigValue> properties, long version) {
+      this.configKey = configKey;
+      this.properties = properties;
+      this.version = version;
+      this.hashCode =
+        31 * (31 * configKey.hashCode() + properties.hashCode()) + Long.hashCode(version);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return (
+        hashCode == that.hashCode &&
+        version == that.version &&
+        configKey.equals(that.configKey) &&
+        properties.equals(that.properties)
+      );
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
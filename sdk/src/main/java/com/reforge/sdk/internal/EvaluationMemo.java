@@ -0,0 +1,37 @@
+package com.reforge.sdk.internal;
+
+import com.reforge.sdk.config.Match;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * The first match of each config evaluated with the ambient context of a request, so the
+ * rest of the request gets the same answer without evaluating again, even if new config
+ * data arrives in the meantime. There is one for each scope a ContextStore gives, see
+ * {@link com.reforge.sdk.context.ContextStore#getEvaluationScope()}.
+ * <p>
+ * Safe to share between the threads handling a request.
+ */
+final class EvaluationMemo {
+
+  private final ConcurrentHashMap<String, Optional<Match>> matches = new ConcurrentHashMap<>();
+
+  /**
+   * @return the remembered match, empty if the config had no value, or null if the config
+   * has not been evaluated yet
+   */
+  @Nullable
+  Optional<Match> get(String configKey) {
+    return matches.get(configKey);
+  }
+
+  /**
+   * @return the match now remembered for the key, which is the given one unless another
+   * thread got there first
+   */
+  Optional<Match> remember(String configKey, Optional<Match> match) {
+    Optional<Match> remembered = matches.putIfAbsent(configKey, match);
+    return remembered == null ? match : remembered;
+  }
+}
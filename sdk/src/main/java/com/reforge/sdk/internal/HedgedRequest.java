@@ -0,0 +1,133 @@
+package com.reforge.sdk.internal;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Sends a request to the fastest known host, and to each next host in turn whenever the
+ * last one has failed or hasn't answered within its estimated 95th percentile latency.
+ * The first good result wins and the requests still outstanding are cancelled, so the
+ * operation should abort its work when its future is cancelled. If every host fails the
+ * result is the last failure.
+ */
+class HedgedRequest<T> {
+
+  private final Function<String, CompletableFuture<T>> operation;
+  private final Predicate<T> isFailure;
+  private final HostLatencyTracker hostLatencyTracker;
+  private final long defaultHedgeDelayMillis;
+  private final List<String> hosts;
+
+  private final CompletableFuture<T> result = new CompletableFuture<>();
+  private final List<CompletableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+  private final AtomicInteger launched = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+
+  private HedgedRequest(
+    Function<String, CompletableFuture<T>> operation,
+    Predicate<T> isFailure,
+    HostLatencyTracker hostLatencyTracker,
+    long defaultHedgeDelayMillis,
+    List<String> hosts
+  ) {
+    this.operation = operation;
+    this.isFailure = isFailure;
+    this.hostLatencyTracker = hostLatencyTracker;
+    this.defaultHedgeDelayMillis = defaultHedgeDelayMillis;
+    this.hosts = hostLatencyTracker.fastestFirst(hosts);
+  }
+
+  /**
+   * @param isFailure whether a result, such as a server error response, counts as failed
+   * @param defaultHedgeDelayMillis how long to wait on a host that has no latency history
+   */
+  static <T> CompletableFuture<T> execute(
+    Function<String, CompletableFuture<T>> operation,
+    Predicate<T> isFailure,
+    HostLatencyTracker hostLatencyTracker,
+    long defaultHedgeDelayMillis,
+    List<String> hosts
+  ) {
+    if (hosts.isEmpty()) {
+      return CompletableFuture.failedFuture(
+        new IllegalArgumentException("There are no hosts to send the request to")
+      );
+    }
+    HedgedRequest<T> hedgedRequest = new HedgedRequest<>(
+      operation,
+      isFailure,
+      hostLatencyTracker,
+      defaultHedgeDelayMillis,
+      hosts
+    );
+    hedgedRequest.launch(0);
+    return hedgedRequest.result;
+  }
+
+  // sends to the host at the index, unless a later host has been sent to already
+  private void launch(int index) {
+    if (
+      index >= hosts.size() ||
+      result.isDone() ||
+      !launched.compareAndSet(index, index + 1)
+    ) {
+      return;
+    }
+    String host = hosts.get(index);
+    long startNanos = System.nanoTime();
+    CompletableFuture<T> attempt;
+    try {
+      attempt = operation.apply(host);
+    } catch (RuntimeException e) {
+      attempt = CompletableFuture.failedFuture(e);
+    }
+    attempts.add(attempt);
+    attempt.whenComplete((value, throwable) -> {
+      if (throwable instanceof CancellationException) {
+        // cancelled as another host answered first
+        return;
+      }
+      long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      if (throwable == null && !isFailure.test(value)) {
+        hostLatencyTracker.recordSuccess(host, latencyMillis);
+        if (result.complete(value)) {
+          cancelOutstanding();
+        }
+        return;
+      }
+      hostLatencyTracker.recordFailure(host);
+      if (failed.incrementAndGet() == hosts.size()) {
+        if (throwable == null) {
+          result.complete(value);
+        } else {
+          result.completeExceptionally(throwable);
+        }
+      } else {
+        launch(launched.get());
+      }
+    });
+    if (!attempt.isDone()) {
+      CompletableFuture.runAsync(
+        () -> launch(index + 1),
+        CompletableFuture.delayedExecutor(
+          hostLatencyTracker.p95Millis(host, defaultHedgeDelayMillis),
+          TimeUnit.MILLISECONDS
+        )
+      );
+    }
+  }
+
+  private void cancelOutstanding() {
+    for (CompletableFuture<T> attempt : attempts) {
+      if (!attempt.isDone()) {
+        attempt.cancel(true);
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.reforge.sdk.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps an exponentially weighted moving average of the latency of requests to each host,
+ * along with one of its variance, to order hosts fastest first and to estimate how long
+ * a request to a host should take before it's worth trying another.
+ */
+class HostLatencyTracker {
+
+  private static final double ALPHA = 0.2;
+
+  // a normal distribution's 95th percentile lies this many deviations above its mean
+  private static final double P95_DEVIATIONS = 1.645;
+
+  private final ConcurrentMap<String, Estimate> estimates = new ConcurrentHashMap<>();
+  private final long failurePenaltyMillis;
+
+  /**
+   * @param failurePenaltyMillis the latency a failed request counts as, so that a failing
+   * host falls behind those that answer
+   */
+  HostLatencyTracker(long failurePenaltyMillis) {
+    this.failurePenaltyMillis = failurePenaltyMillis;
+  }
+
+  void recordSuccess(String host, long latencyMillis) {
+    estimates.computeIfAbsent(host, ignored -> new Estimate()).add(latencyMillis);
+  }
+
+  void recordFailure(String host) {
+    recordSuccess(host, failurePenaltyMillis);
+  }
+
+  /**
+   * @return the hosts fastest first. Hosts with no requests yet keep their given order,
+   * after those that have been measured
+   */
+  List<String> fastestFirst(List<String> hosts) {
+    List<String> ordered = new ArrayList<>(hosts);
+    ordered.sort(Comparator.comparingDouble(this::meanOrMax));
+    return ordered;
+  }
+
+  /**
+   * @return the estimated 95th percentile latency of the host, or the default if there
+   * have been no requests to it yet
+   */
+  long p95Millis(String host, long defaultMillis) {
+    Estimate estimate = estimates.get(host);
+    if (estimate == null) {
+      return defaultMillis;
+    }
+    return estimate.p95Millis();
+  }
+
+  private double meanOrMax(String host) {
+    Estimate estimate = estimates.get(host);
+    return estimate == null ? Double.MAX_VALUE : estimate.mean();
+  }
+
+  private static class Estimate {
+
+    private double mean;
+    private double variance;
+    private boolean hasSamples;
+
+    synchronized void add(long latencyMillis) {
+      if (!hasSamples) {
+        mean = latencyMillis;
+        hasSamples = true;
+        return;
+      }
+      double difference = latencyMillis - mean;
+      double increment = ALPHA * difference;
+      mean += increment;
+      variance = (1 - ALPHA) * (variance + difference * increment);
+    }
+
+    synchronized double mean() {
+      return mean;
+    }
+
+    synchronized long p95Millis() {
+      return Math.max(1, Math.round(mean + P95_DEVIATIONS * Math.sqrt(variance)));
+    }
+  }
+}
@@ -3,11 +3,12 @@ package com.reforge.sdk.internal;
 import cloud.prefab.domain.Prefab;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.CodedInputStream;
 import com.reforge.sdk.Options;
+import com.reforge.sdk.util.ContentCodec;
 import com.reforge.sdk.util.MavenInfo;
 import dev.failsafe.Failsafe;
 import dev.failsafe.RetryPolicy;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
@@ -18,16 +19,21 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Flow;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 import javax.net.ssl.SSLSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,12 +56,20 @@ public class HttpClient {
   private static final String PROTO_MEDIA_TYPE = "application/x-protobuf";
   private static final String EVENT_STREAM_MEDIA_TYPE = "text/event-stream";
   private static final String START_AT_HEADER = "Last-Event-ID";
+  private static final int CONFIGS_READ_BUFFER_SIZE = 64 * 1024;
+  private static final Duration MAX_FAILOVER_DURATION = Duration.ofSeconds(5);
 
   private final Options options;
   private final java.net.http.HttpClient httpClient;
   private final URI telemetryUrl;
   private final List<String> apiHosts;
   private final List<String> streamHosts;
+  private final Map<String, ContentCodec> contentCodecs;
+  private final HostLatencyTracker hostLatencyTracker = new HostLatencyTracker(
+    MAX_FAILOVER_DURATION.toMillis()
+  );
+  @Nullable
+  private final String acceptEncoding;
 
   // Use Guava's cache with maximum size of 2 entries.
   // (The cache respects HTTP cache-control expiry values provided by the server.)
@@ -64,15 +78,16 @@ public class HttpClient {
     .maximumSize(2)
     .build();
 
-  // Cache entry definition.
+  // Cache entry definition. The configs are kept as parsed from the response, rather than
+  // as the payload bytes, so that a cached payload is held in memory only once.
   static class CacheEntry {
 
-    final byte[] data;
+    final Prefab.Configs configs;
     final String etag;
     final long expiresAt; // timestamp in millis
 
-    CacheEntry(byte[] data, String etag, long expiresAt) {
-      this.data = data;
+    CacheEntry(Prefab.Configs configs, String etag, long expiresAt) {
+      this.configs = configs;
       this.etag = etag;
       this.expiresAt = expiresAt;
     }
@@ -146,6 +161,15 @@ public class HttpClient {
     this.telemetryUrl = URI.create(options.getTelemetryHost() + "/api/v1/telemetry");
     this.apiHosts = options.getApiHosts();
     this.streamHosts = options.getStreamHosts();
+    this.contentCodecs = new LinkedHashMap<>();
+    for (ContentCodec contentCodec : options.getConfigContentCodecs()) {
+      contentCodecs.putIfAbsent(
+        contentCodec.getEncoding().toLowerCase(Locale.ROOT),
+        contentCodec
+      );
+    }
+    this.acceptEncoding =
+      contentCodecs.isEmpty() ? null : String.join(", ", contentCodecs.keySet());
 
     LOG.info("Will send telemetry to {}", telemetryUrl);
   }
@@ -209,13 +233,26 @@ public class HttpClient {
   public CompletableFuture<HttpResponse<Supplier<Prefab.Configs>>> requestConfigs(
     long offset
   ) {
-    return executeWithFailover(
-      host -> {
-        URI uri = URI.create(host + "/api/v2/configs/" + offset);
-        return requestConfigsFromURI(uri);
-      },
-      apiHosts
-    );
+    Function<String, CompletableFuture<HttpResponse<Supplier<Prefab.Configs>>>> operation = host ->
+      requestConfigsFromURI(URI.create(host + "/api/v2/configs/" + offset));
+    if (options.isHedgedConfigRequests()) {
+      // hedging makes one attempt at each host, leaving the retries for when all fail
+      return HedgedRequest
+        .execute(
+          operation,
+          HttpClient::isServerError,
+          hostLatencyTracker,
+          options.getHedgeDelayMillis(),
+          apiHosts
+        )
+        .handle((response, throwable) ->
+          throwable == null && !isServerError(response)
+            ? CompletableFuture.completedFuture(response)
+            : executeWithFailover(operation, apiHosts)
+        )
+        .thenCompose(Function.identity());
+    }
+    return executeWithFailover(operation, apiHosts);
   }
 
   private CompletableFuture<HttpResponse<Supplier<Prefab.Configs>>> requestConfigsFromURI(
@@ -233,20 +270,37 @@ public class HttpClient {
       .header("Accept", PROTO_MEDIA_TYPE)
       .timeout(Duration.ofSeconds(5))
       .uri(uri);
+    if (acceptEncoding != null) {
+      requestBuilder.header("Accept-Encoding", acceptEncoding);
+    }
     // If there's any cached entry (even if stale) with an ETag, add a conditional GET header.
     if (cachedEntry != null && cachedEntry.etag != null) {
       requestBuilder.header("If-None-Match", cachedEntry.etag);
     }
     HttpRequest request = requestBuilder.build();
 
-    return httpClient
-      .sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+    CompletableFuture<HttpResponse<InputStream>> send = httpClient.sendAsync(
+      request,
+      HttpResponse.BodyHandlers.ofInputStream()
+    );
+    CompletableFuture<HttpResponse<Supplier<Prefab.Configs>>> result = send
       .thenApply(response -> {
         if (response.statusCode() == 304 && cachedEntry != null) {
           // 304: Not Modified—return a synthetic response built from the cached data.
           return createCachedHitResponse(uri, cachedEntry);
         } else if (response.statusCode() == 200) {
-          byte[] bodyBytes = response.body();
+          Prefab.Configs configs;
+          try {
+            configs = parseConfigs(response);
+          } catch (RuntimeException e) {
+            // nothing is cached, the failure surfaces when the body is read
+            return createResponse(
+              uri,
+              response.statusCode(),
+              failingSupplier(e),
+              response.headers().map()
+            );
+          }
           String cacheControl = response.headers().firstValue("Cache-Control").orElse("");
           String etag = response.headers().firstValue("ETag").orElse(null);
           long expiresAt = 0;
@@ -257,7 +311,7 @@ public class HttpClient {
               // "no-cache": cache the response but mark it as immediately expired
               expiresAt = now; // or now - 1L to ensure expiration.
               if (etag != null) {
-                configCache.put(uri, new CacheEntry(bodyBytes, etag, expiresAt));
+                configCache.put(uri, new CacheEntry(configs, etag, expiresAt));
               }
             } else {
               // Normal caching: look for max-age (assumed in seconds)
@@ -268,38 +322,23 @@ public class HttpClient {
                 expiresAt = now + maxAge * 1000L;
               }
               if (expiresAt > now) {
-                configCache.put(uri, new CacheEntry(bodyBytes, etag, expiresAt));
+                configCache.put(uri, new CacheEntry(configs, etag, expiresAt));
               }
             }
           }
           // Build a synthetic response for the 200 case.
-          Supplier<Prefab.Configs> supplier = () -> {
-            try {
-              if (bodyBytes.length == 0) {
-                LOG.warn("Rejecting zero-byte config data from HTTP response");
-                throw new IllegalArgumentException("Zero-byte config data is not valid");
-              }
-              return Prefab.Configs.parseFrom(bodyBytes);
-            } catch (IOException e) {
-              throw new UncheckedIOException(e);
-            }
-          };
           Map<String, List<String>> headerMap = new HashMap<>(response.headers().map());
           headerMap.put("X-Cache", List.of("MISS"));
-          return createResponse(uri, response.statusCode(), supplier, headerMap);
+          return createResponse(uri, response.statusCode(), () -> configs, headerMap);
         } else {
           // For other status codes, simply wrap the response.
-          Supplier<Prefab.Configs> supplier = () -> {
-            try (ByteArrayInputStream bais = new ByteArrayInputStream(response.body())) {
-              if (response.body().length == 0) {
-                LOG.warn("Rejecting zero-byte config data from HTTP response");
-                throw new IllegalArgumentException("Zero-byte config data is not valid");
-              }
-              return Prefab.Configs.parseFrom(bais);
-            } catch (IOException e) {
-              throw new UncheckedIOException(e);
-            }
-          };
+          Supplier<Prefab.Configs> supplier;
+          try {
+            Prefab.Configs configs = parseConfigs(response);
+            supplier = () -> configs;
+          } catch (RuntimeException e) {
+            supplier = failingSupplier(e);
+          }
           return createResponse(
             uri,
             response.statusCode(),
@@ -309,6 +348,63 @@ public class HttpClient {
         }
       })
       .whenCompleteAsync(this::checkForAuthFailure);
+    // cancelling doesn't reach back up the chain by itself, so a hedged request that no
+    // longer wants the answer would leave the exchange running
+    result.whenComplete((response, throwable) -> {
+      if (throwable instanceof CancellationException) {
+        send.cancel(true);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Parses configs as the response body streams in, decoding it first if it was
+   * compressed, so that the payload is never held whole in a byte array alongside the
+   * parsed configs. The body is always consumed and closed, releasing the connection.
+   */
+  private Prefab.Configs parseConfigs(HttpResponse<InputStream> response) {
+    try (
+      InputStream body = response.body();
+      InputStream stream = decode(response, body)
+    ) {
+      CodedInputStream input = CodedInputStream.newInstance(
+        stream,
+        CONFIGS_READ_BUFFER_SIZE
+      );
+      if (input.isAtEnd()) {
+        LOG.warn("Rejecting zero-byte config data from HTTP response");
+        throw new IllegalArgumentException("Zero-byte config data is not valid");
+      }
+      // payloads may be larger than the default limit for a single message
+      input.setSizeLimit(Integer.MAX_VALUE);
+      return Prefab.Configs.parseFrom(input);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private InputStream decode(HttpResponse<?> response, InputStream body)
+    throws IOException {
+    String contentEncoding = response
+      .headers()
+      .firstValue("Content-Encoding")
+      .map(encoding -> encoding.trim().toLowerCase(Locale.ROOT))
+      .orElse("identity");
+    if (contentEncoding.isEmpty() || contentEncoding.equals("identity")) {
+      return body;
+    }
+    ContentCodec contentCodec = contentCodecs.get(contentEncoding);
+    if (contentCodec == null) {
+      throw new IOException("Unsupported Content-Encoding " + contentEncoding);
+    }
+    return contentCodec.decode(body);
+  }
+
+  private static Supplier<Prefab.Configs> failingSupplier(RuntimeException e) {
+    return () -> {
+      throw e;
+    };
   }
 
   /**
@@ -330,17 +426,7 @@ public class HttpClient {
     URI uri,
     CacheEntry entry
   ) {
-    Supplier<Prefab.Configs> supplier = () -> {
-      try {
-        if (entry.data.length == 0) {
-          LOG.warn("Rejecting zero-byte config data from cache");
-          throw new IllegalArgumentException("Zero-byte config data is not valid");
-        }
-        return Prefab.Configs.parseFrom(entry.data);
-      } catch (IOException e) {
-        throw new UncheckedIOException(e);
-      }
-    };
+    Supplier<Prefab.Configs> supplier = () -> entry.configs;
     Map<String, List<String>> headerMap = Map.of(
       "ETag",
       List.of(entry.etag),
@@ -383,8 +469,16 @@ public class HttpClient {
     }
   }
 
+  private static boolean isServerError(Object result) {
+    if (result instanceof HttpResponse) {
+      int statusCode = ((HttpResponse<?>) result).statusCode();
+      return statusCode >= 500 && statusCode < 600;
+    }
+    return false;
+  }
+
   private <T> CompletableFuture<T> executeWithFailover(
-    java.util.function.Function<String, CompletableFuture<T>> operation,
+    Function<String, CompletableFuture<T>> operation,
     List<String> hostList
   ) {
     long maxRetriesPerHost = 2;
@@ -393,16 +487,10 @@ public class HttpClient {
     RetryPolicy<T> retryPolicy = RetryPolicy
       .<T>builder()
       .handle(IOException.class, RuntimeException.class)
-      .handleResultIf(result -> {
-        if (result instanceof HttpResponse) {
-          int statusCode = ((HttpResponse<?>) result).statusCode();
-          return statusCode >= 500 && statusCode < 600;
-        }
-        return false;
-      })
+      .handleResultIf(HttpClient::isServerError)
       .withBackoff(Duration.ofMillis(10), Duration.ofMillis(2000))
       .withDelay(Duration.ofMillis(500))
-      .withMaxDuration(Duration.ofSeconds(5))
+      .withMaxDuration(MAX_FAILOVER_DURATION)
       .withMaxRetries(Integer.MAX_VALUE)
       .onFailedAttempt(executionAttemptedEvent -> {
         if (executionAttemptedEvent.getAttemptCount() % maxRetriesPerHost == 0) {
@@ -6,6 +6,8 @@ import java.util.Optional;
 public class IntRangeWrapper {
 
   private final Prefab.IntRange intRange;
+  private final long start;
+  private final long end;
 
   public static IntRangeWrapper of(Prefab.IntRange intRange) {
     return new IntRangeWrapper(intRange);
@@ -13,6 +15,8 @@ public class IntRangeWrapper {
 
   private IntRangeWrapper(Prefab.IntRange intRange) {
     this.intRange = intRange;
+    this.start = intRange.hasStart() ? intRange.getStart() : Long.MIN_VALUE;
+    this.end = intRange.hasEnd() ? intRange.getEnd() : Long.MAX_VALUE;
   }
 
   public Optional<Long> getStart() {
@@ -30,9 +34,6 @@ public class IntRangeWrapper {
   }
 
   public boolean contains(long value) {
-    return (
-      value >= getStart().orElse(Long.MIN_VALUE) &&
-      value < getEnd().orElse(Long.MAX_VALUE)
-    );
+    return value >= start && value < end;
   }
 }
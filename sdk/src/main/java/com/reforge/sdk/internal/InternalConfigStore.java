@@ -0,0 +1,34 @@
+package com.reforge.sdk.internal;
+
+import com.reforge.sdk.ConfigStore;
+import javax.annotation.Nullable;
+
+/**
+ * What the evaluators need from a store beyond the public {@link ConfigStore}
+ */
+public interface InternalConfigStore extends ConfigStore {
+  /**
+   *
+   * @return the precompiled evaluation plan for the key, or null if none was compiled
+   */
+  @Nullable
+  CompiledConfig getCompiledConfig(String key);
+
+  /**
+   *
+   * @return the precompiled evaluation plan for the resolved key, or null if none was
+   * compiled
+   */
+  @Nullable
+  default CompiledConfig getCompiledConfig(ConfigKey configKey) {
+    return getCompiledConfig(configKey.getKey());
+  }
+
+  /**
+   *
+   * @return a number that changes every time new config data is installed, so anything
+   * derived from the data can tell when it is stale. Stores share one sequence, so two
+   * installs never get the same number.
+   */
+  long getVersion();
+}
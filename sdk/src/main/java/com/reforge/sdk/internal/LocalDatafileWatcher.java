@@ -0,0 +1,135 @@
+package com.reforge.sdk.internal;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the local datafile's directory and runs a reload when the file is written or
+ * replaced. Editors and deploy tools often write a file in several steps, so events are
+ * let settle for a moment and then handled with a single reload. A file is best replaced
+ * by moving a complete copy into place, since one written in place may be read part way.
+ * <p>
+ * The datafile may also be a link that is repointed without the file itself changing, as
+ * Kubernetes does when it swaps the {@code ..data} link of a mounted ConfigMap, so any
+ * other entry changing in the directory has the file checked for a new version.
+ */
+class LocalDatafileWatcher implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalDatafileWatcher.class);
+
+  static final long SETTLE_MILLIS = 100;
+
+  private final Path datafile;
+  private final Runnable reload;
+  private final WatchService watchService;
+
+  // the version of the file last loaded, only used by the watching thread
+  @Nullable
+  private Object datafileVersion;
+
+  LocalDatafileWatcher(Path datafile, Runnable reload) throws IOException {
+    this.datafile = datafile.toAbsolutePath();
+    this.reload = reload;
+    this.watchService = FileSystems.getDefault().newWatchService();
+    this.datafileVersion = readDatafileVersion();
+    Path directory = this.datafile.getParent();
+    directory.register(
+      watchService,
+      StandardWatchEventKinds.ENTRY_CREATE,
+      StandardWatchEventKinds.ENTRY_MODIFY
+    );
+  }
+
+  void start() {
+    Thread thread = new Thread(this::watch, "reforge-datafile-watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        if (!isDatafileChanged(watchService.take())) {
+          continue;
+        }
+        WatchKey watchKey = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+        while (watchKey != null) {
+          isDatafileChanged(watchKey);
+          watchKey = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        datafileVersion = readDatafileVersion();
+        try {
+          reload.run();
+        } catch (RuntimeException e) {
+          LOG.warn(
+            "Unable to reload local datafile {}, keeping its last contents",
+            datafile,
+            e
+          );
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      LOG.debug("Stopped watching local datafile {}", datafile);
+    }
+  }
+
+  private boolean isDatafileChanged(WatchKey watchKey) {
+    boolean changed = false;
+    boolean otherEntryChanged = false;
+    for (WatchEvent<?> event : watchKey.pollEvents()) {
+      if (
+        event.kind() == StandardWatchEventKinds.OVERFLOW ||
+        datafile.getFileName().equals(event.context())
+      ) {
+        changed = true;
+      } else {
+        otherEntryChanged = true;
+      }
+    }
+    watchKey.reset();
+    return (
+      changed ||
+      (otherEntryChanged && !Objects.equals(readDatafileVersion(), datafileVersion))
+    );
+  }
+
+  /**
+   * @return what tells one version of the file, through any links, from another, or null
+   * if it can't be read
+   */
+  @Nullable
+  private Object readDatafileVersion() {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(
+        datafile,
+        BasicFileAttributes.class
+      );
+      return List.of(
+        Objects.requireNonNullElse(attributes.fileKey(), ""),
+        attributes.lastModifiedTime(),
+        attributes.size()
+      );
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
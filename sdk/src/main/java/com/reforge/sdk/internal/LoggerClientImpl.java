@@ -21,9 +21,20 @@ public class LoggerClientImpl implements LoggerClient {
   private final ConfigClient configClient;
   private final String loggerKey;
 
+  // the logger key resolved once, for clients that can look values up by a resolved key
+  @Nullable
+  private final ConfigValueLookup configValueLookup;
+
+  @Nullable
+  private final ConfigKey resolvedLoggerKey;
+
   public LoggerClientImpl(ConfigClient configClient, @Nullable String loggerKey) {
     this.configClient = configClient;
     this.loggerKey = loggerKey;
+    this.configValueLookup =
+      configClient instanceof ConfigValueLookup ? (ConfigValueLookup) configClient : null;
+    this.resolvedLoggerKey =
+      loggerKey == null || loggerKey.isEmpty() ? null : ConfigKey.of(loggerKey);
   }
 
   @Override
@@ -40,10 +51,9 @@ public class LoggerClientImpl implements LoggerClient {
         .put(LOGGER_PATH_KEY, loggerName)
         .build();
 
-      Optional<Prefab.ConfigValue> configValueMaybe = configClient.get(
-        loggerKey,
-        loggingContext
-      );
+      Optional<Prefab.ConfigValue> configValueMaybe = configValueLookup != null
+        ? Optional.ofNullable(configValueLookup.lookup(resolvedLoggerKey, loggingContext))
+        : configClient.get(loggerKey, loggingContext);
 
       if (!configValueMaybe.isPresent()) {
         LOG.debug(
@@ -3,13 +3,17 @@ package com.reforge.sdk.internal;
 import cloud.prefab.domain.Prefab;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.reforge.sdk.config.ConfigValueUtils;
 import com.reforge.sdk.context.Context;
 import com.reforge.sdk.context.ContextSet;
 import com.reforge.sdk.context.ContextSetReadable;
+import java.time.Instant;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
 
 public class LookupContext {
 
@@ -17,8 +21,18 @@ public class LookupContext {
 
   private final ContextSet prefabContextSet;
 
+  // stands in for a property value that doesn't parse
+  private static final Object UNPARSEABLE = new Object();
+
   private Map<String, Prefab.ConfigValue> expandedProperties = null;
 
+  // many flags compare the same app-version or signup-date property, so each value is
+  // parsed once per context rather than once per criterion
+  private volatile Map<Prefab.ConfigValue, Object> semanticVersions = null;
+  private volatile Map<Prefab.ConfigValue, Object> instants = null;
+
+  private volatile SegmentMemo segmentMemo = null;
+
   public LookupContext(ContextSetReadable contextSetReadable) {
     this.prefabContextSet = ContextSet.convert(contextSetReadable);
   }
@@ -75,4 +89,59 @@ public class LookupContext {
     }
     return this.expandedProperties;
   }
+
+  /**
+   * @return the segment results for this context, starting over whenever the store
+   * version moves on
+   */
+  SegmentMemo getSegmentMemo(long version) {
+    SegmentMemo segmentMemo = this.segmentMemo;
+    if (segmentMemo == null || segmentMemo.getVersion() != version) {
+      segmentMemo = new SegmentMemo(version);
+      this.segmentMemo = segmentMemo;
+    }
+    return segmentMemo;
+  }
+
+  @Nullable
+  SemanticVersion getSemanticVersion(Prefab.ConfigValue configValue) {
+    if (this == EMPTY) {
+      // shared by every lookup without a context, so it keeps nothing
+      return SemanticVersion.parseQuietly(configValue.getString());
+    }
+    Map<Prefab.ConfigValue, Object> semanticVersions = this.semanticVersions;
+    if (semanticVersions == null) {
+      semanticVersions = new ConcurrentHashMap<>();
+      this.semanticVersions = semanticVersions;
+    }
+    Object version = semanticVersions.computeIfAbsent(
+      configValue,
+      value -> {
+        SemanticVersion parsed = SemanticVersion.parseQuietly(value.getString());
+        return parsed == null ? UNPARSEABLE : parsed;
+      }
+    );
+    return version == UNPARSEABLE ? null : (SemanticVersion) version;
+  }
+
+  @Nullable
+  Instant getInstant(Prefab.ConfigValue configValue) {
+    if (this == EMPTY || !configValue.hasString()) {
+      // epoch millis, including the current time, are cheaper to convert than to look up
+      return ConfigValueUtils.asDate(configValue).orElse(null);
+    }
+    Map<Prefab.ConfigValue, Object> instants = this.instants;
+    if (instants == null) {
+      instants = new ConcurrentHashMap<>();
+      this.instants = instants;
+    }
+    Object instant = instants.computeIfAbsent(
+      configValue,
+      value -> {
+        Optional<Instant> parsed = ConfigValueUtils.asDate(value);
+        return parsed.isPresent() ? parsed.get() : UNPARSEABLE;
+      }
+    );
+    return instant == UNPARSEABLE ? null : (Instant) instant;
+  }
 }
@@ -0,0 +1,93 @@
+package com.reforge.sdk.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.reforge.sdk.context.Context;
+import com.reforge.sdk.context.ContextSetReadable;
+import javax.annotation.Nullable;
+
+/**
+ * Remembers the last few LookupContexts merged on a thread along with what they were
+ * merged from. Repeated lookups with unchanged contexts get the same LookupContext back,
+ * skipping the merge and keeping its expanded properties.
+ * <p>
+ * A context is known to be unchanged when it is the same Context instance (contexts are
+ * immutable) or returns the same immutable snapshot from getContexts(), as ContextSet
+ * does.
+ * Anything else is merged afresh every time.
+ */
+final class LookupContextCache {
+
+  private static final int SIZE = 4;
+
+  private static final Object UNCACHEABLE = new Object();
+
+  // per entry, the identities of the global, api default, context store and passed
+  // contexts it was merged from
+  private final Object[][] identities = new Object[SIZE][4];
+  private final LookupContext[] lookupContexts = new LookupContext[SIZE];
+  private int nextReplaced = 0;
+
+  LookupContext get(
+    @Nullable ContextSetReadable globalContext,
+    @Nullable ContextSetReadable apiDefaultContext,
+    @Nullable ContextSetReadable contextStoreContext,
+    @Nullable ContextSetReadable passedContext
+  ) {
+    Object globalIdentity = identityOf(globalContext);
+    Object apiDefaultIdentity = identityOf(apiDefaultContext);
+    Object contextStoreIdentity = identityOf(contextStoreContext);
+    Object passedIdentity = identityOf(passedContext);
+    boolean cacheable =
+      globalIdentity != UNCACHEABLE &&
+      apiDefaultIdentity != UNCACHEABLE &&
+      contextStoreIdentity != UNCACHEABLE &&
+      passedIdentity != UNCACHEABLE;
+    if (cacheable) {
+      for (int index = 0; index < SIZE; index++) {
+        Object[] entryIdentities = identities[index];
+        if (
+          lookupContexts[index] != null &&
+          entryIdentities[0] == globalIdentity &&
+          entryIdentities[1] == apiDefaultIdentity &&
+          entryIdentities[2] == contextStoreIdentity &&
+          entryIdentities[3] == passedIdentity
+        ) {
+          return lookupContexts[index];
+        }
+      }
+    }
+    LookupContext lookupContext = new LookupContext(
+      ContextMerger.merge(
+        globalContext,
+        apiDefaultContext,
+        contextStoreContext,
+        passedContext
+      )
+    );
+    if (cacheable) {
+      int index = nextReplaced;
+      nextReplaced = (nextReplaced + 1) % SIZE;
+      identities[index][0] = globalIdentity;
+      identities[index][1] = apiDefaultIdentity;
+      identities[index][2] = contextStoreIdentity;
+      identities[index][3] = passedIdentity;
+      lookupContexts[index] = lookupContext;
+    }
+    return lookupContext;
+  }
+
+  @Nullable
+  private static Object identityOf(@Nullable ContextSetReadable contextSetReadable) {
+    if (contextSetReadable == null || contextSetReadable == ContextSetReadable.EMPTY) {
+      return null;
+    }
+    if (contextSetReadable instanceof Context) {
+      return contextSetReadable;
+    }
+    Iterable<Context> contexts = contextSetReadable.getContexts();
+    if (contexts instanceof ImmutableList) {
+      return contexts;
+    }
+    return UNCACHEABLE;
+  }
+}
@@ -0,0 +1,133 @@
+package com.reforge.sdk.internal;
+
+import cloud.prefab.domain.Prefab;
+import com.google.common.base.Preconditions;
+import com.reforge.sdk.config.ConfigElement;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded queue of match events for many producing threads and one consuming thread,
+ * after Dmitry Vyukov's bounded queue. The slots are preallocated as parallel arrays and
+ * the evaluation's fields are copied into them, so offering an event takes a single
+ * compare-and-set and allocates nothing, and a full buffer refuses the event rather than
+ * making the producer wait.
+ * <p>
+ * Each slot has a sequence number saying whose turn it is: a producer may fill the slot
+ * for position p when its sequence is p, and marks it p + 1 once filled; the consumer
+ * takes it then, and hands it on to position p + capacity.
+ */
+class MatchEventRingBuffer {
+
+  interface Handler {
+    /**
+     * @param evaluation only valid for the duration of the call
+     */
+    void handle(long timestamp, Evaluation evaluation, LookupContext lookupContext);
+  }
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicLongArray sequences;
+  private final long[] timestamps;
+  private final ConfigElement[] configElements;
+  private final Prefab.ConfigValue[] configValues;
+  private final int[] rowIndexes;
+  private final int[] conditionalValueIndexes;
+  private final int[] weightedValueIndexes;
+  private final LookupContext[] lookupContexts;
+
+  // the next position to fill, claimed by producers
+  private final AtomicLong tail = new AtomicLong();
+
+  // the next position to take, only touched by the consumer
+  private long head = 0;
+  // refilled from each slot the consumer takes
+  private final Evaluation drainedEvaluation = new Evaluation();
+
+  /**
+   * @param capacity the number of slots, a power of two
+   */
+  MatchEventRingBuffer(int capacity) {
+    Preconditions.checkArgument(
+      capacity > 0 && Integer.bitCount(capacity) == 1,
+      "capacity must be a power of two"
+    );
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.sequences = new AtomicLongArray(capacity);
+    for (int index = 0; index < capacity; index++) {
+      sequences.set(index, index);
+    }
+    this.timestamps = new long[capacity];
+    this.configElements = new ConfigElement[capacity];
+    this.configValues = new Prefab.ConfigValue[capacity];
+    this.rowIndexes = new int[capacity];
+    this.conditionalValueIndexes = new int[capacity];
+    this.weightedValueIndexes = new int[capacity];
+    this.lookupContexts = new LookupContext[capacity];
+  }
+
+  /**
+   * @return false, leaving the event out, if the buffer is full
+   */
+  boolean offer(long timestamp, Evaluation evaluation, LookupContext lookupContext) {
+    long position = tail.get();
+    while (true) {
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          timestamps[index] = timestamp;
+          configElements[index] = evaluation.getConfigElement();
+          configValues[index] = evaluation.getConfigValue();
+          rowIndexes[index] = evaluation.getRowIndex();
+          conditionalValueIndexes[index] = evaluation.getConditionalValueIndex();
+          weightedValueIndexes[index] = evaluation.getWeightedValueIndex();
+          lookupContexts[index] = lookupContext;
+          sequences.lazySet(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        // the slot still holds the event from a lap ago
+        return false;
+      } else {
+        // another producer took this position
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Hands events to the handler, oldest first, until the buffer is empty or the limit is
+   * reached. Only to be called from the consuming thread
+   * @return the number of events handled
+   */
+  int drain(Handler handler, int limit) {
+    int drained = 0;
+    while (drained < limit) {
+      int index = (int) head & mask;
+      if (sequences.get(index) != head + 1) {
+        break;
+      }
+      long timestamp = timestamps[index];
+      drainedEvaluation.set(
+        configElements[index],
+        configValues[index],
+        rowIndexes[index],
+        conditionalValueIndexes[index],
+        weightedValueIndexes[index]
+      );
+      LookupContext lookupContext = lookupContexts[index];
+      configElements[index] = null;
+      configValues[index] = null;
+      lookupContexts[index] = null;
+      sequences.lazySet(index, head + capacity);
+      head++;
+      drained++;
+      handler.handle(timestamp, drainedEvaluation, lookupContext);
+    }
+    return drained;
+  }
+}
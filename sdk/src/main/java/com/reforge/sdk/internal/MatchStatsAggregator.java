@@ -3,13 +3,19 @@ package com.reforge.sdk.internal;
 import cloud.prefab.domain.Prefab;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.Sets;
-import com.reforge.sdk.config.Match;
+import com.reforge.sdk.config.ConfigElement;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
 
 public class MatchStatsAggregator {
 
@@ -17,8 +23,22 @@ public class MatchStatsAggregator {
     Prefab.ConfigType.CONFIG,
     Prefab.ConfigType.FEATURE_FLAG
   );
+  // the most counters laid out for one config, beyond which the rest share a map
+  private static final int MAX_DENSE_COUNTERS = 4096;
+
   private StatsAggregate statsAggregate = new StatsAggregate();
 
+  // matches counted in place by the evaluating threads, which the telemetry thread sums
+  // into the aggregate as it takes it
+  private final ConcurrentHashMap<ConfigElement, ElementCounters> elementCounters = new ConcurrentHashMap<>();
+  private final LongAccumulator countedMinTime = new LongAccumulator(
+    Math::min,
+    Long.MAX_VALUE
+  );
+  private final LongAccumulator countedMaxTime = new LongAccumulator(Math::max, 0);
+  // only used by the telemetry thread
+  private long lastCountedTime;
+
   void setStatsAggregate(StatsAggregate statsAggregate) {
     this.statsAggregate = statsAggregate;
   }
@@ -30,16 +50,93 @@ public class MatchStatsAggregator {
   StatsAggregate getAndResetStatsAggregate() {
     StatsAggregate currentStatsAggregate = statsAggregate;
     statsAggregate = new StatsAggregate();
+    addCountedMatches(currentStatsAggregate);
     return currentStatsAggregate;
   }
 
-  void recordMatch(Match match, long timeStamp) {
+  void recordEvaluation(Evaluation evaluation, long timeStamp) {
     if (
       SUPPORTED_CONFIG_TYPES.contains(
-        match.getConfigElement().getConfig().getConfigType()
+        evaluation.getConfigElement().getConfig().getConfigType()
       )
     ) {
-      statsAggregate.recordMatch(match, timeStamp);
+      statsAggregate.recordEvaluation(evaluation, timeStamp);
+    }
+  }
+
+  /**
+   * Counts an evaluation on the calling thread, which may be any thread, in counters
+   * striped to keep evaluating threads from contending. The counts join the aggregate
+   * when it is next taken. Nothing is allocated once the evaluation's place has a
+   * counter.
+   */
+  void countEvaluation(Evaluation evaluation, long timeStamp) {
+    ConfigElement configElement = evaluation.getConfigElement();
+    if (SUPPORTED_CONFIG_TYPES.contains(configElement.getConfigType())) {
+      ElementCounters counters = elementCounters.get(configElement);
+      if (counters == null) {
+        counters = elementCounters.computeIfAbsent(configElement, ElementCounters::new);
+      }
+      // the time goes in first so that a count taken at a flush always has its time
+      countedMinTime.accumulate(timeStamp);
+      countedMaxTime.accumulate(timeStamp);
+      LongAdder count = counters.counterFor(evaluation);
+      count.increment();
+      if (counters.retired) {
+        recount(evaluation, count.sumThenReset());
+      }
+    }
+  }
+
+  /**
+   * Moves counts off counters the telemetry thread took out while they were being made.
+   * Whatever its last sweep of them missed is left to be moved, and each count is reset
+   * by exactly one of the two.
+   */
+  private void recount(Evaluation evaluation, long count) {
+    while (count > 0) {
+      ElementCounters counters = elementCounters.computeIfAbsent(
+        evaluation.getConfigElement(),
+        ElementCounters::new
+      );
+      LongAdder adder = counters.counterFor(evaluation);
+      adder.add(count);
+      count = counters.retired ? adder.sumThenReset() : 0;
+    }
+  }
+
+  private void addCountedMatches(StatsAggregate aggregate) {
+    boolean counted = false;
+    Iterator<ElementCounters> iterator = elementCounters.values().iterator();
+    while (iterator.hasNext()) {
+      ElementCounters counters = iterator.next();
+      if (counters.addTo(aggregate)) {
+        counted = true;
+        counters.idle = false;
+      } else if (counters.idle) {
+        // uncounted for two flushes in a row, as when the config has since changed. A
+        // thread may still be counting on them, so they are retired before the last sweep
+        counters.retired = true;
+        iterator.remove();
+        counted |= counters.addTo(aggregate);
+      } else {
+        counters.idle = true;
+      }
+    }
+    long minTime = countedMinTime.getThenReset();
+    long maxTime = countedMaxTime.getThenReset();
+    if (maxTime < minTime) {
+      // a count can miss the flush that took its time, or be taken between its two times,
+      // so the times are missing or unpaired. The match was made by the last time seen
+      long time = maxTime > 0
+        ? maxTime
+        : minTime < Long.MAX_VALUE ? minTime : lastCountedTime;
+      minTime = time;
+      maxTime = time;
+    }
+    lastCountedTime = maxTime;
+    if (counted && maxTime > 0) {
+      aggregate.recordTimeRange(minTime, maxTime);
     }
   }
 
@@ -61,17 +158,12 @@ public class MatchStatsAggregator {
       return counterData;
     }
 
-    void recordMatch(Match match, long timeStamp) {
-      if (minTime == 0 || timeStamp < minTime) {
-        minTime = timeStamp;
-      }
-      if (timeStamp > maxTime) {
-        maxTime = timeStamp;
-      }
+    void recordEvaluation(Evaluation evaluation, long timeStamp) {
+      recordTimeRange(timeStamp, timeStamp);
 
       ConfigKeyAndTypeKey configKeyAndTypeKey = new ConfigKeyAndTypeKey(
-        match.getConfigElement().getConfig().getKey(),
-        match.getConfigElement().getConfig().getConfigType()
+        evaluation.getConfigElement().getConfig().getKey(),
+        evaluation.getConfigElement().getConfig().getConfigType()
       );
 
       Map<CountKey, Counter> innerMap = counterData.computeIfAbsent(
@@ -79,21 +171,45 @@ public class MatchStatsAggregator {
         ignored -> new HashMap<>()
       );
 
-      CountKey countKey = new CountKey(
-        match.getConfigElement().getConfig().getId(),
-        match.getConfigValue(),
+      innerMap.computeIfAbsent(countKey(evaluation), c -> new Counter(0)).inc();
+    }
+
+    void addCount(
+      ConfigKeyAndTypeKey configKeyAndTypeKey,
+      CountKey countKey,
+      long count
+    ) {
+      Counter counter = counterData
+        .computeIfAbsent(configKeyAndTypeKey, ignored -> new HashMap<>())
+        .computeIfAbsent(countKey, c -> new Counter(0));
+      counter.count += count;
+    }
+
+    void recordTimeRange(long startTime, long endTime) {
+      if (minTime == 0 || startTime < minTime) {
+        minTime = startTime;
+      }
+      if (endTime > maxTime) {
+        maxTime = endTime;
+      }
+    }
+
+    static CountKey countKey(Evaluation evaluation) {
+      int weightedValueIndex = evaluation.getWeightedValueIndex();
+      return new CountKey(
+        evaluation.getConfigElement().getConfig().getId(),
+        evaluation.getConfigValue(),
         indexOfMatch(
-          match.getConfigValue(),
-          match.getConfigElement().getConfig().getAllowableValuesList()
+          evaluation.getConfigValue(),
+          evaluation.getConfigElement().getConfig().getAllowableValuesList()
         ),
-        match.getRowIndex(),
-        match.getConditionalValueIndex(),
-        match.getWeightedValueIndex()
+        evaluation.getRowIndex(),
+        evaluation.getConditionalValueIndex(),
+        weightedValueIndex < 0 ? Optional.empty() : Optional.of(weightedValueIndex)
       );
-      innerMap.computeIfAbsent(countKey, c -> new Counter(0)).inc();
     }
 
-    private int indexOfMatch(
+    private static int indexOfMatch(
       Prefab.ConfigValue configValue,
       List<Prefab.ConfigValue> allowableValuesList
     ) {
@@ -142,6 +258,143 @@ public class MatchStatsAggregator {
     }
   }
 
+  /**
+   * The counters for one version of a config. The places a match can come from, its row,
+   * conditional value and weighted value, are numbered densely from the shape of the
+   * config, and each number has a counter for the value first seen there.
+   */
+  static class ElementCounters {
+
+    private final ConfigKeyAndTypeKey configKeyAndTypeKey;
+    private final int conditionalValueStride;
+    private final int weightedValueStride;
+
+    @Nullable
+    private final AtomicReferenceArray<ValueCounter> denseCounters;
+
+    // matches from places beyond the dense counters, or with a value other than the one
+    // first seen at their place, such as a provided value that has since changed
+    private final ConcurrentHashMap<CountKey, LongAdder> otherCounters = new ConcurrentHashMap<>();
+
+    // only used by the telemetry thread
+    private boolean idle;
+    // set by the telemetry thread as it takes the counters out of the map
+    private volatile boolean retired;
+
+    ElementCounters(ConfigElement configElement) {
+      Prefab.Config config = configElement.getConfig();
+      this.configKeyAndTypeKey =
+        new ConfigKeyAndTypeKey(config.getKey(), config.getConfigType());
+      int maxConditionalValues = 0;
+      int maxWeightedValues = 0;
+      for (Prefab.ConfigRow configRow : config.getRowsList()) {
+        maxConditionalValues = Math.max(maxConditionalValues, configRow.getValuesCount());
+        for (Prefab.ConditionalValue conditionalValue : configRow.getValuesList()) {
+          maxWeightedValues =
+            Math.max(
+              maxWeightedValues,
+              conditionalValue.getValue().getWeightedValues().getWeightedValuesCount()
+            );
+        }
+      }
+      this.conditionalValueStride = maxConditionalValues;
+      // the first slot of each conditional value is for its unweighted value
+      this.weightedValueStride = maxWeightedValues + 1;
+      long size =
+        (long) config.getRowsCount() * conditionalValueStride * weightedValueStride;
+      this.denseCounters =
+        size > 0 && size <= MAX_DENSE_COUNTERS
+          ? new AtomicReferenceArray<>((int) size)
+          : null;
+    }
+
+    LongAdder counterFor(Evaluation evaluation) {
+      int index = denseIndex(evaluation);
+      if (index >= 0) {
+        ValueCounter counter = denseCounters.get(index);
+        if (counter == null) {
+          denseCounters.compareAndSet(
+            index,
+            null,
+            new ValueCounter(StatsAggregate.countKey(evaluation))
+          );
+          counter = denseCounters.get(index);
+        }
+        if (counter.countKey.configValue.equals(evaluation.getConfigValue())) {
+          return counter.count;
+        }
+      }
+      return otherCounters.computeIfAbsent(
+        StatsAggregate.countKey(evaluation),
+        ignored -> new LongAdder()
+      );
+    }
+
+    private int denseIndex(Evaluation evaluation) {
+      if (denseCounters == null) {
+        return -1;
+      }
+      int rowIndex = evaluation.getRowIndex();
+      int conditionalValueIndex = evaluation.getConditionalValueIndex();
+      // a weighted value's slot follows the one for the unweighted value
+      int weightedValueSlot = evaluation.getWeightedValueIndex() + 1;
+      if (
+        rowIndex < 0 ||
+        rowIndex >= denseCounters.length() ||
+        conditionalValueIndex < 0 ||
+        conditionalValueIndex >= conditionalValueStride ||
+        weightedValueSlot < 0 ||
+        weightedValueSlot >= weightedValueStride
+      ) {
+        return -1;
+      }
+      int index =
+        (rowIndex * conditionalValueStride + conditionalValueIndex) *
+        weightedValueStride +
+        weightedValueSlot;
+      return index < denseCounters.length() ? index : -1;
+    }
+
+    /**
+     * Moves the counts so far into the aggregate
+     * @return whether there were any
+     */
+    boolean addTo(StatsAggregate aggregate) {
+      boolean counted = false;
+      if (denseCounters != null) {
+        for (int index = 0; index < denseCounters.length(); index++) {
+          ValueCounter counter = denseCounters.get(index);
+          if (counter != null) {
+            counted |= addTo(aggregate, counter.countKey, counter.count);
+          }
+        }
+      }
+      for (Map.Entry<CountKey, LongAdder> entry : otherCounters.entrySet()) {
+        counted |= addTo(aggregate, entry.getKey(), entry.getValue());
+      }
+      return counted;
+    }
+
+    private boolean addTo(StatsAggregate aggregate, CountKey countKey, LongAdder count) {
+      long sum = count.sumThenReset();
+      if (sum > 0) {
+        aggregate.addCount(configKeyAndTypeKey, countKey, sum);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static class ValueCounter {
+
+    private final CountKey countKey;
+    private final LongAdder count = new LongAdder();
+
+    private ValueCounter(CountKey countKey) {
+      this.countKey = countKey;
+    }
+  }
+
   static class ConfigKeyAndTypeKey {
 
     final String key;
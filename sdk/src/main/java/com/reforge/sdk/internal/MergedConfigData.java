@@ -1,8 +1,14 @@
 package com.reforge.sdk.internal;
 
+import com.google.common.collect.ImmutableMap;
 import com.reforge.sdk.config.ConfigElement;
 import com.reforge.sdk.context.ContextSetReadable;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
 
 public class MergedConfigData {
 
@@ -10,23 +16,202 @@ public class MergedConfigData {
   private final long envId;
   private final ContextSetReadable globalContextSet;
   private final ContextSetReadable configIncludedContextSet;
+  private final PatchedMap<CompiledConfig> compiledConfigs;
+  private final boolean compiled;
+
+  // plans for the elements that were not yet decoded when this data was compiled, made as
+  // they are first looked up
+  private final ConcurrentHashMap<String, CompiledConfig> lazilyCompiledConfigs;
+
+  // the configs this data was derived from and the keys that differ from them, when known
+  @Nullable
+  private final Map<String, ConfigElement> previousConfigs;
+
+  private final Set<String> changedKeys;
 
   MergedConfigData(
     Map<String, ConfigElement> configs,
     long envId,
     ContextSetReadable globalContextSet,
     ContextSetReadable configIncludedContextSet
+  ) {
+    this(configs, envId, globalContextSet, configIncludedContextSet, null, Set.of());
+  }
+
+  /**
+   * @param previousConfigs the configs that these were made from by changing only
+   * changedKeys
+   */
+  MergedConfigData(
+    Map<String, ConfigElement> configs,
+    long envId,
+    ContextSetReadable globalContextSet,
+    ContextSetReadable configIncludedContextSet,
+    @Nullable Map<String, ConfigElement> previousConfigs,
+    Set<String> changedKeys
+  ) {
+    this(
+      configs,
+      envId,
+      globalContextSet,
+      configIncludedContextSet,
+      PatchedMap.of(Map.of()),
+      false,
+      new ConcurrentHashMap<>(),
+      previousConfigs,
+      changedKeys
+    );
+  }
+
+  private MergedConfigData(
+    Map<String, ConfigElement> configs,
+    long envId,
+    ContextSetReadable globalContextSet,
+    ContextSetReadable configIncludedContextSet,
+    PatchedMap<CompiledConfig> compiledConfigs,
+    boolean compiled,
+    ConcurrentHashMap<String, CompiledConfig> lazilyCompiledConfigs,
+    @Nullable Map<String, ConfigElement> previousConfigs,
+    Set<String> changedKeys
   ) {
     this.configs = configs;
     this.envId = envId;
     this.globalContextSet = globalContextSet;
     this.configIncludedContextSet = configIncludedContextSet;
+    this.compiledConfigs = compiledConfigs;
+    this.compiled = compiled;
+    this.lazilyCompiledConfigs = lazilyCompiledConfigs;
+    this.previousConfigs = previousConfigs;
+    this.changedKeys = changedKeys;
+  }
+
+  /**
+   * Builds the evaluation plan for every config. Plans from the previous data are reused
+   * for config elements that have not changed; when this data was derived from the
+   * previous one only the changed keys are looked at. Elements that haven't been decoded,
+   * such as those loaded from a snapshot, are left to be compiled when first looked up.
+   */
+  MergedConfigData compile(MergedConfigData previous) {
+    ConcurrentHashMap<String, CompiledConfig> lazilyCompiled = new ConcurrentHashMap<>();
+    PatchedMap<CompiledConfig> compiled;
+    if (isPatchable(previous)) {
+      compiled = compileChanged(previous);
+      previous.lazilyCompiledConfigs.forEach((key, compiledConfig) -> {
+        if (!changedKeys.contains(key)) {
+          lazilyCompiled.put(key, compiledConfig);
+        }
+      });
+    } else {
+      compiled = compileAll(previous);
+    }
+    return new MergedConfigData(
+      configs,
+      envId,
+      globalContextSet,
+      configIncludedContextSet,
+      compiled,
+      true,
+      lazilyCompiled,
+      previousConfigs,
+      changedKeys
+    );
+  }
+
+  private boolean isPatchable(MergedConfigData previous) {
+    return (
+      getChangedKeysSince(previous).isPresent() &&
+      previous.envId == envId &&
+      previous.compiled
+    );
+  }
+
+  private PatchedMap<CompiledConfig> compileAll(MergedConfigData previous) {
+    ImmutableMap.Builder<String, CompiledConfig> builder = ImmutableMap.builderWithExpectedSize(
+      configs.size()
+    );
+    for (Map.Entry<String, ConfigElement> entry : configs.entrySet()) {
+      CompiledConfig compiledConfig = compile(previous, entry.getKey(), entry.getValue());
+      if (compiledConfig != null) {
+        builder.put(entry.getKey(), compiledConfig);
+      }
+    }
+    return PatchedMap.of(builder.build());
+  }
+
+  private PatchedMap<CompiledConfig> compileChanged(MergedConfigData previous) {
+    Map<String, CompiledConfig> changes = new HashMap<>();
+    for (String key : changedKeys) {
+      ConfigElement configElement = configs.get(key);
+      changes.put(
+        key,
+        configElement == null ? null : compile(previous, key, configElement)
+      );
+    }
+    return previous.compiledConfigs.with(changes);
+  }
+
+  /**
+   * @return the plan for the element, or null if it is left to be compiled on lookup
+   */
+  @Nullable
+  private CompiledConfig compile(
+    MergedConfigData previous,
+    String key,
+    ConfigElement configElement
+  ) {
+    CompiledConfig previouslyCompiled = previous.compiledConfigs.get(key);
+    if (previouslyCompiled == null) {
+      previouslyCompiled = previous.lazilyCompiledConfigs.get(key);
+    }
+    if (
+      previouslyCompiled != null &&
+      previouslyCompiled.getConfigElement() == configElement &&
+      previouslyCompiled.getProjectEnvId() == envId
+    ) {
+      return previouslyCompiled;
+    }
+    if (!configElement.isDecoded()) {
+      return null;
+    }
+    return CompiledConfig.compile(configElement, envId);
+  }
+
+  /**
+   * @return the keys whose config may differ from the previous data, or empty if this
+   * data wasn't derived from it and any key may have changed
+   */
+  Optional<Set<String>> getChangedKeysSince(MergedConfigData previous) {
+    if (previousConfigs != null && previousConfigs == previous.configs) {
+      return Optional.of(changedKeys);
+    }
+    return Optional.empty();
   }
 
   public Map<String, ConfigElement> getConfigs() {
     return configs;
   }
 
+  @Nullable
+  public CompiledConfig getCompiledConfig(String key) {
+    CompiledConfig compiledConfig = compiledConfigs.get(key);
+    if (compiledConfig != null || !compiled) {
+      return compiledConfig;
+    }
+    compiledConfig = lazilyCompiledConfigs.get(key);
+    if (compiledConfig == null) {
+      ConfigElement configElement = configs.get(key);
+      if (configElement == null) {
+        return null;
+      }
+      compiledConfig =
+        lazilyCompiledConfigs.computeIfAbsent(
+          key,
+          k -> CompiledConfig.compile(configElement, envId)
+        );
+    }
+    return compiledConfig;
+  }
+
   public ContextSetReadable getConfigIncludedContext() {
     return configIncludedContextSet;
   }
@@ -0,0 +1,256 @@
+package com.reforge.sdk.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+
+/**
+ * Tests a string against a list of prefixes, suffixes or substrings at once, built when
+ * configs load for the value lists of criteria. Short lists are checked one pattern at a
+ * time; longer ones, like domain block lists, are compiled so that a test costs time in
+ * the length of the input rather than the number of patterns: a trie of the prefixes, a
+ * trie of the reversed suffixes walked from the end of the input, or an Aho-Corasick
+ * automaton of the substrings.
+ */
+abstract class MultiPatternMatcher {
+
+  // up to this many patterns checking each in turn is as quick as walking a trie
+  static final int MAX_SCANNED_SIZE = 8;
+
+  static MultiPatternMatcher startsWithAny(List<String> patterns) {
+    if (patterns.size() <= MAX_SCANNED_SIZE) {
+      return new Scanned(patterns, String::startsWith);
+    }
+    return new Prefixes(Trie.of(patterns, false));
+  }
+
+  static MultiPatternMatcher endsWithAny(List<String> patterns) {
+    if (patterns.size() <= MAX_SCANNED_SIZE) {
+      return new Scanned(patterns, String::endsWith);
+    }
+    return new Suffixes(Trie.of(patterns, true));
+  }
+
+  static MultiPatternMatcher containsAny(List<String> patterns) {
+    if (patterns.size() <= MAX_SCANNED_SIZE) {
+      return new Scanned(patterns, String::contains);
+    }
+    return new Substrings(Trie.of(patterns, false));
+  }
+
+  /**
+   * @return whether any of the patterns is a prefix, suffix or substring of the input
+   */
+  abstract boolean matches(String input);
+
+  static final class Scanned extends MultiPatternMatcher {
+
+    private final String[] patterns;
+    private final BiPredicate<String, String> predicate;
+
+    private Scanned(List<String> patterns, BiPredicate<String, String> predicate) {
+      this.patterns = patterns.toArray(new String[0]);
+      this.predicate = predicate;
+    }
+
+    @Override
+    boolean matches(String input) {
+      for (String pattern : patterns) {
+        if (predicate.test(input, pattern)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  static final class Prefixes extends MultiPatternMatcher {
+
+    private final Trie trie;
+
+    private Prefixes(Trie trie) {
+      this.trie = trie;
+    }
+
+    @Override
+    boolean matches(String input) {
+      int node = Trie.ROOT;
+      for (int index = 0; !trie.terminal[node]; index++) {
+        if (index == input.length()) {
+          return false;
+        }
+        node = trie.child(node, input.charAt(index));
+        if (node == Trie.NONE) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  static final class Suffixes extends MultiPatternMatcher {
+
+    private final Trie reversedTrie;
+
+    private Suffixes(Trie reversedTrie) {
+      this.reversedTrie = reversedTrie;
+    }
+
+    @Override
+    boolean matches(String input) {
+      int node = Trie.ROOT;
+      for (int index = input.length() - 1; !reversedTrie.terminal[node]; index--) {
+        if (index < 0) {
+          return false;
+        }
+        node = reversedTrie.child(node, input.charAt(index));
+        if (node == Trie.NONE) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Aho-Corasick: the trie plus, for each node, the node for the longest proper suffix of
+   * its path that is also in the trie, which is where matching resumes when the next
+   * character has no child
+   */
+  static final class Substrings extends MultiPatternMatcher {
+
+    private final Trie trie;
+    private final int[] failure;
+    // whether a pattern ends at the node or at any node on its failure chain
+    private final boolean[] output;
+
+    private Substrings(Trie trie) {
+      this.trie = trie;
+      int nodeCount = trie.terminal.length;
+      this.failure = new int[nodeCount];
+      this.output = Arrays.copyOf(trie.terminal, nodeCount);
+      Deque<Integer> queue = new ArrayDeque<>();
+      for (int child : trie.children[Trie.ROOT]) {
+        failure[child] = Trie.ROOT;
+        queue.add(child);
+      }
+      // breadth first, so failure links always point at nodes already done
+      while (!queue.isEmpty()) {
+        int node = queue.remove();
+        for (int index = 0; index < trie.labels[node].length; index++) {
+          char label = trie.labels[node][index];
+          int child = trie.children[node][index];
+          int fallback = failure[node];
+          while (fallback != Trie.ROOT && trie.child(fallback, label) == Trie.NONE) {
+            fallback = failure[fallback];
+          }
+          int target = trie.child(fallback, label);
+          failure[child] = target == Trie.NONE ? Trie.ROOT : target;
+          output[child] |= output[failure[child]];
+          queue.add(child);
+        }
+      }
+    }
+
+    @Override
+    boolean matches(String input) {
+      if (output[Trie.ROOT]) {
+        return true;
+      }
+      int node = Trie.ROOT;
+      for (int index = 0; index < input.length(); index++) {
+        char c = input.charAt(index);
+        int next = trie.child(node, c);
+        while (next == Trie.NONE && node != Trie.ROOT) {
+          node = failure[node];
+          next = trie.child(node, c);
+        }
+        node = next == Trie.NONE ? Trie.ROOT : next;
+        if (output[node]) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * A character trie frozen into arrays, each node's children sorted by label
+   */
+  static final class Trie {
+
+    static final int ROOT = 0;
+    static final int NONE = -1;
+
+    // up to this many children a node is scanned rather than binary searched
+    private static final int MAX_SCANNED_CHILDREN = 8;
+
+    final char[][] labels;
+    final int[][] children;
+    final boolean[] terminal;
+
+    private Trie(char[][] labels, int[][] children, boolean[] terminal) {
+      this.labels = labels;
+      this.children = children;
+      this.terminal = terminal;
+    }
+
+    static Trie of(List<String> patterns, boolean reversed) {
+      List<TreeMap<Character, Integer>> edges = new ArrayList<>();
+      List<Boolean> terminal = new ArrayList<>();
+      edges.add(new TreeMap<>());
+      terminal.add(false);
+      for (String pattern : patterns) {
+        int node = ROOT;
+        for (int index = 0; index < pattern.length(); index++) {
+          char c = pattern.charAt(reversed ? pattern.length() - 1 - index : index);
+          Integer child = edges.get(node).get(c);
+          if (child == null) {
+            child = edges.size();
+            edges.get(node).put(c, child);
+            edges.add(new TreeMap<>());
+            terminal.add(false);
+          }
+          node = child;
+        }
+        terminal.set(node, true);
+      }
+      int nodeCount = edges.size();
+      char[][] labels = new char[nodeCount][];
+      int[][] children = new int[nodeCount][];
+      boolean[] terminalNodes = new boolean[nodeCount];
+      for (int node = 0; node < nodeCount; node++) {
+        TreeMap<Character, Integer> nodeEdges = edges.get(node);
+        labels[node] = new char[nodeEdges.size()];
+        children[node] = new int[nodeEdges.size()];
+        int index = 0;
+        for (Map.Entry<Character, Integer> edge : nodeEdges.entrySet()) {
+          labels[node][index] = edge.getKey();
+          children[node][index] = edge.getValue();
+          index++;
+        }
+        terminalNodes[node] = terminal.get(node);
+      }
+      return new Trie(labels, children, terminalNodes);
+    }
+
+    int child(int node, char c) {
+      char[] nodeLabels = labels[node];
+      if (nodeLabels.length <= MAX_SCANNED_CHILDREN) {
+        for (int index = 0; index < nodeLabels.length; index++) {
+          if (nodeLabels[index] == c) {
+            return children[node][index];
+          }
+        }
+        return NONE;
+      }
+      int index = Arrays.binarySearch(nodeLabels, c);
+      return index < 0 ? NONE : children[node][index];
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package com.reforge.sdk.internal;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable map made of a base map with patches of changed keys on top, so that
+ * applying a few changes to a map of tens of thousands of configs costs time and memory
+ * in the number of changes rather than the size of the map. Each change copies only a
+ * small patch of recent changes. Once that fills it is merged into the older patch
+ * beneath, and once the older patch outgrows a fraction of the base it is folded into a
+ * new base. The larger copies are so spread over many changes, and lookups take at most
+ * three probes.
+ */
+final class PatchedMap<V> extends AbstractMap<String, V> {
+
+  // the most keys the recent patch holds before it is merged into the older one
+  static final int MAX_RECENT_PATCH_SIZE = 64;
+
+  // older patches up to this size are never folded, however small the base
+  static final int MIN_FOLDED_PATCH_SIZE = 64;
+
+  // beyond that the older patch is folded once it holds more than base size / FOLD_RATIO
+  // keys
+  private static final int FOLD_RATIO = 8;
+
+  // marks keys of the layers beneath that a patch removes
+  private static final Object REMOVED = new Object();
+
+  private final ImmutableMap<String, V> base;
+  private final Map<String, Object> patch;
+  private final Map<String, Object> recentPatch;
+  private final int size;
+
+  @Nullable
+  private Set<Entry<String, V>> entrySet = null;
+
+  private PatchedMap(
+    ImmutableMap<String, V> base,
+    Map<String, Object> patch,
+    Map<String, Object> recentPatch,
+    int size
+  ) {
+    this.base = base;
+    this.patch = patch;
+    this.recentPatch = recentPatch;
+    this.size = size;
+  }
+
+  static <V> PatchedMap<V> of(Map<String, V> map) {
+    ImmutableMap<String, V> base = ImmutableMap.copyOf(map);
+    return new PatchedMap<>(base, Map.of(), Map.of(), base.size());
+  }
+
+  /**
+   * @param changes the new value of each changed key, or null for removed keys
+   * @return a map with the changes applied, sharing everything else with this one
+   */
+  PatchedMap<V> with(Map<String, V> changes) {
+    if (changes.isEmpty()) {
+      return this;
+    }
+    Map<String, Object> newRecentPatch = new HashMap<>(recentPatch);
+    int newSize = size;
+    for (Map.Entry<String, V> change : changes.entrySet()) {
+      String key = change.getKey();
+      boolean present = containsKey(key);
+      if (change.getValue() != null) {
+        newRecentPatch.put(key, change.getValue());
+        if (!present) {
+          newSize++;
+        }
+      } else if (present) {
+        if (isBeneathRecentPatch(key)) {
+          newRecentPatch.put(key, REMOVED);
+        } else {
+          newRecentPatch.remove(key);
+        }
+        newSize--;
+      }
+    }
+    if (newRecentPatch.size() <= MAX_RECENT_PATCH_SIZE) {
+      return new PatchedMap<>(base, patch, newRecentPatch, newSize);
+    }
+    Map<String, Object> newPatch = new HashMap<>(patch);
+    for (Map.Entry<String, Object> entry : newRecentPatch.entrySet()) {
+      if (entry.getValue() != REMOVED || base.containsKey(entry.getKey())) {
+        newPatch.put(entry.getKey(), entry.getValue());
+      } else {
+        newPatch.remove(entry.getKey());
+      }
+    }
+    if (newPatch.size() > Math.max(MIN_FOLDED_PATCH_SIZE, base.size() / FOLD_RATIO)) {
+      return fold(newPatch, newSize);
+    }
+    return new PatchedMap<>(base, newPatch, Map.of(), newSize);
+  }
+
+  boolean isFolded() {
+    return patch.isEmpty() && recentPatch.isEmpty();
+  }
+
+  private boolean isBeneathRecentPatch(String key) {
+    Object patched = patch.get(key);
+    if (patched == null) {
+      return base.containsKey(key);
+    }
+    return patched != REMOVED;
+  }
+
+  @SuppressWarnings("unchecked")
+  private PatchedMap<V> fold(Map<String, Object> newPatch, int newSize) {
+    ImmutableMap.Builder<String, V> builder = ImmutableMap.builderWithExpectedSize(
+      newSize
+    );
+    for (Map.Entry<String, V> entry : base.entrySet()) {
+      Object patched = newPatch.get(entry.getKey());
+      if (patched == null) {
+        builder.put(entry);
+      } else if (patched != REMOVED) {
+        builder.put(entry.getKey(), (V) patched);
+      }
+    }
+    for (Map.Entry<String, Object> entry : newPatch.entrySet()) {
+      if (!base.containsKey(entry.getKey())) {
+        builder.put(entry.getKey(), (V) entry.getValue());
+      }
+    }
+    ImmutableMap<String, V> newBase = builder.build();
+    return new PatchedMap<>(newBase, Map.of(), Map.of(), newBase.size());
+  }
+
+  @Override
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    Object patched = recentPatch.get(key);
+    if (patched == null) {
+      patched = patch.get(key);
+    }
+    if (patched == null) {
+      return base.get(key);
+    }
+    return patched == REMOVED ? null : (V) patched;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    Object patched = recentPatch.get(key);
+    if (patched == null) {
+      patched = patch.get(key);
+    }
+    if (patched == null) {
+      return base.containsKey(key);
+    }
+    return patched != REMOVED;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Set<Entry<String, V>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  private final class EntrySet extends AbstractSet<Entry<String, V>> {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<Entry<String, V>> iterator() {
+      Iterator<Entry<String, Object>> recent = recentPatch.entrySet().iterator();
+      Iterator<Entry<String, Object>> older = Iterators.filter(
+        patch.entrySet().iterator(),
+        entry -> !recentPatch.containsKey(entry.getKey())
+      );
+      Iterator<Entry<String, Object>> kept = Iterators.filter(
+        Iterators.concat(recent, older),
+        entry -> entry.getValue() != REMOVED
+      );
+      Iterator<Entry<String, V>> patched = Iterators.transform(
+        kept,
+        entry -> Maps.immutableEntry(entry.getKey(), (V) entry.getValue())
+      );
+      Iterator<Entry<String, V>> unpatched = Iterators.filter(
+        base.entrySet().iterator(),
+        entry ->
+          !recentPatch.containsKey(entry.getKey()) && !patch.containsKey(entry.getKey())
+      );
+      return Iterators.concat(patched, unpatched);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.reforge.sdk.internal;
+
+import cloud.prefab.domain.Prefab;
+import java.util.Arrays;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * The properties of the config rows being evaluated, innermost row first. Segments are
+ * evaluated on top of the properties of the rows that reference them.
+ * <p>
+ * One instance is reused per thread; each top level evaluation calls {@link #enter()} to
+ * start from an empty stack and {@link #exit(int)} to drop whatever it left behind.
+ */
+final class RowPropertiesStack {
+
+  private static final ThreadLocal<RowPropertiesStack> THREAD_LOCAL = ThreadLocal.withInitial(
+    RowPropertiesStack::new
+  );
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Map<String, Prefab.ConfigValue>[] entries = new Map[4];
+
+  private int size = 0;
+  private int floor = 0;
+
+  static RowPropertiesStack forCurrentThread() {
+    return THREAD_LOCAL.get();
+  }
+
+  /**
+   * Hides everything currently on the stack
+   * @return the token to pass to {@link #exit(int)}
+   */
+  int enter() {
+    int previousFloor = floor;
+    floor = size;
+    return previousFloor;
+  }
+
+  void exit(int previousFloor) {
+    Arrays.fill(entries, floor, size, null);
+    size = floor;
+    floor = previousFloor;
+  }
+
+  void push(Map<String, Prefab.ConfigValue> properties) {
+    if (size == entries.length) {
+      entries = Arrays.copyOf(entries, size * 2);
+    }
+    entries[size++] = properties;
+  }
+
+  void pop() {
+    if (size > floor) {
+      entries[--size] = null;
+    }
+  }
+
+  /**
+   * @return whether no row properties are visible
+   */
+  boolean isEmpty() {
+    return size == floor;
+  }
+
+  /**
+   * Looks the property up from the innermost row outwards, trying the exact name before
+   * the lower-cased one in each row
+   */
+  @Nullable
+  Prefab.ConfigValue lookup(
+    String propertyName,
+    @Nullable String lowerCasedPropertyName
+  ) {
+    for (int index = size - 1; index >= floor; index--) {
+      Prefab.ConfigValue configValue = entries[index].get(propertyName);
+      if (configValue == null && lowerCasedPropertyName != null) {
+        configValue = entries[index].get(lowerCasedPropertyName);
+      }
+      if (configValue != null) {
+        return configValue;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,72 @@
+package com.reforge.sdk.internal;
+
+import cloud.prefab.domain.Prefab;
+import com.reforge.sdk.config.Match;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * The results of the segments referenced while evaluating configs for one context, valid
+ * for one version of the config store. A segment shared by many flags is then evaluated
+ * once per context, including across a whole getAll. See
+ * {@link LookupContext#getSegmentMemo(long)}.
+ * <p>
+ * Segments are evaluated recursively, so entries are filled in with putIfAbsent after
+ * evaluating rather than with computeIfAbsent.
+ */
+final class SegmentMemo {
+
+  private final long version;
+  private final ConcurrentHashMap<String, Boolean> repeatable = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Optional<Match>> matches = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Optional<Prefab.ConfigValue>> values =
+    new ConcurrentHashMap<>();
+
+  SegmentMemo(long version) {
+    this.version = version;
+  }
+
+  long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return whether the segment was found to give the same result every time for this
+   * context, or null if that hasn't been worked out yet
+   */
+  @Nullable
+  Boolean isRepeatable(String segmentKey) {
+    return repeatable.get(segmentKey);
+  }
+
+  void setRepeatable(String segmentKey, boolean isRepeatable) {
+    repeatable.putIfAbsent(segmentKey, isRepeatable);
+  }
+
+  /**
+   * @return the remembered match, empty if the segment had no value, or null if the
+   * segment has not been evaluated yet
+   */
+  @Nullable
+  Optional<Match> getMatch(String segmentKey) {
+    return matches.get(segmentKey);
+  }
+
+  void rememberMatch(String segmentKey, Optional<Match> match) {
+    matches.putIfAbsent(segmentKey, match);
+  }
+
+  /**
+   * @return the remembered value, empty if the segment had no value, or null if the
+   * segment has not been evaluated yet
+   */
+  @Nullable
+  Optional<Prefab.ConfigValue> getValue(String segmentKey) {
+    return values.get(segmentKey);
+  }
+
+  void rememberValue(String segmentKey, Optional<Prefab.ConfigValue> value) {
+    values.putIfAbsent(segmentKey, value);
+  }
+}
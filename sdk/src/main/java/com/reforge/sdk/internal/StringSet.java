@@ -0,0 +1,114 @@
+package com.reforge.sdk.internal;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * An immutable set of strings that only answers membership, built when configs load for
+ * the value lists of criteria. Tiny lists are scanned in place; larger ones (allow-lists
+ * can run to tens of thousands of ids) get an open-addressing table. Neither allocates on
+ * lookup.
+ */
+abstract class StringSet {
+
+  // up to this many values a scan comparing cached hash codes beats hashing into a table
+  static final int MAX_SCANNED_SIZE = 8;
+
+  static StringSet of(Collection<String> values) {
+    Set<String> distinct = new LinkedHashSet<>(values);
+    String[] strings = distinct.toArray(new String[0]);
+    if (strings.length <= MAX_SCANNED_SIZE) {
+      return new Scanned(strings);
+    }
+    return new Hashed(strings);
+  }
+
+  abstract boolean contains(String value);
+
+  abstract int size();
+
+  static final class Scanned extends StringSet {
+
+    private final String[] values;
+    private final int[] hashes;
+
+    private Scanned(String[] values) {
+      this.values = values;
+      this.hashes = new int[values.length];
+      for (int index = 0; index < values.length; index++) {
+        hashes[index] = values[index].hashCode();
+      }
+    }
+
+    @Override
+    boolean contains(String value) {
+      int hash = value.hashCode();
+      for (int index = 0; index < values.length; index++) {
+        if (hashes[index] == hash && values[index].equals(value)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    int size() {
+      return values.length;
+    }
+  }
+
+  /**
+   * Linear probing over a power-of-two table kept at most half full, with the hash codes
+   * stored alongside so that most probes don't touch the strings
+   */
+  static final class Hashed extends StringSet {
+
+    private final String[] slots;
+    private final int[] hashes;
+    private final int mask;
+    private final int size;
+
+    private Hashed(String[] values) {
+      int capacity = Integer.highestOneBit(values.length * 2 - 1) << 1;
+      this.slots = new String[capacity];
+      this.hashes = new int[capacity];
+      this.mask = capacity - 1;
+      this.size = values.length;
+      for (String value : values) {
+        int hash = value.hashCode();
+        int slot = spread(hash) & mask;
+        while (slots[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        hashes[slot] = hash;
+      }
+    }
+
+    @Override
+    boolean contains(String value) {
+      int hash = value.hashCode();
+      int slot = spread(hash) & mask;
+      String candidate;
+      while ((candidate = slots[slot]) != null) {
+        if (hashes[slot] == hash && candidate.equals(value)) {
+          return true;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return false;
+    }
+
+    @Override
+    int size() {
+      return size;
+    }
+
+    // user ids often differ only in their last characters, so mix the high bits in
+    private static int spread(int hash) {
+      int mixed = hash * 0x9E3779B9;
+      return mixed ^ (mixed >>> 16);
+    }
+  }
+}
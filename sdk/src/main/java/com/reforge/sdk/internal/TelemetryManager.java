@@ -6,12 +6,12 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.reforge.sdk.Options;
 import com.reforge.sdk.config.Match;
 import java.time.Clock;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -20,6 +20,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.LockSupport;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,10 +30,13 @@ public class TelemetryManager implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(TelemetryManager.class);
 
   static final int OUTPUT_QUEUE_SIZE = 10;
-  static final int INPUT_QUEUE_SIZE = 1_000_000;
+  // preallocated, so sized to ride out a burst while the event loop catches up
+  static final int INPUT_QUEUE_SIZE = 1 << 16;
 
   private static final int DRAIN_SIZE = 25_000;
-  private final List<IncomingTelemetryEvent> drain = new ArrayList<>(DRAIN_SIZE); // don't allocate a new one every run
+  // an idle event loop parks for the least of these, doubling while it stays idle
+  private static final long MIN_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
   private final LongAccumulator droppedEventCount = new LongAccumulator(Long::sum, 0);
 
   /*
@@ -49,9 +53,21 @@ public class TelemetryManager implements AutoCloseable {
   private final LinkedBlockingQueue<OutputBuffer> outputQueue = new LinkedBlockingQueue<>(
     TelemetryManager.OUTPUT_QUEUE_SIZE
   );
-  private final LinkedBlockingQueue<IncomingTelemetryEvent> inputQueue = new LinkedBlockingQueue<>(
+  private final MatchEventRingBuffer inputQueue = new MatchEventRingBuffer(
     TelemetryManager.INPUT_QUEUE_SIZE
   );
+  private final Queue<FlushEvent> flushRequests = new ConcurrentLinkedQueue<>();
+  // matches reported by a thread are copied into its evaluation to be reported
+  private final ThreadLocal<Evaluation> matchEvaluation = ThreadLocal.withInitial(
+    Evaluation::new
+  );
+
+  @Nullable
+  private volatile Thread eventLoopThread;
+
+  // set while the event loop is parked, for producers to wake it
+  private volatile boolean eventLoopParked = false;
+
   private final Clock clock;
 
   private final AtomicBoolean running = new AtomicBoolean(false);
@@ -127,39 +143,73 @@ public class TelemetryManager implements AutoCloseable {
     if (match == null) {
       return;
     }
+    Evaluation evaluation = matchEvaluation.get();
+    evaluation.set(match);
+    reportEvaluation(configKey, evaluation, lookupContext);
+  }
+
+  /**
+   * Reports an evaluation without a Match being built for it. Its fields are copied, so
+   * it may be reused as soon as this returns
+   */
+  void reportEvaluation(
+    String configKey,
+    Evaluation evaluation,
+    LookupContext lookupContext
+  ) {
     long now = clock.millis();
-    if (!inputQueue.offer(new MatchEvent(now, configKey, match, lookupContext))) {
+    if (options.isCountEvaluationsInPlace()) {
+      if (isSummarized(evaluation)) {
+        matchStatsAggregator.countEvaluation(evaluation, now);
+      }
+      // only the context is left for the event loop, if it's wanted
+      if (
+        lookupContext.getPrefabContextSet().isEmpty() ||
+        !(
+          options.isCollectContextShapeEnabled() ||
+          options.isCollectExampleContextEnabled()
+        )
+      ) {
+        return;
+      }
+    }
+    if (!inputQueue.offer(now, evaluation, lookupContext)) {
       droppedEventCount.accumulate(1);
+    } else if (eventLoopParked) {
+      wakeEventLoop();
     }
   }
 
-  private void handleMatchEvent(IncomingTelemetryEvent telemetryEvent) {
-    MatchEvent matchEvent = (MatchEvent) telemetryEvent;
-    if (!matchEvent.lookupContext.getPrefabContextSet().isEmpty()) {
+  private boolean isSummarized(Evaluation evaluation) {
+    return (
+      options.isCollectEvaluationSummaries() &&
+      !evaluation.getConfigValue().getConfidential()
+    );
+  }
+
+  private void handleMatchEvent(
+    long timestamp,
+    Evaluation evaluation,
+    LookupContext lookupContext
+  ) {
+    if (!lookupContext.getPrefabContextSet().isEmpty()) {
       if (options.isCollectContextShapeEnabled()) {
-        contextShapeAggregator.reportContextUsage(
-          matchEvent.lookupContext.getPrefabContextSet()
-        );
+        contextShapeAggregator.reportContextUsage(lookupContext.getPrefabContextSet());
       }
       if (options.isCollectExampleContextEnabled()) {
         exampleContextBuffer.recordContext(
-          matchEvent.timestamp,
-          matchEvent.lookupContext.getPrefabContextSet()
+          timestamp,
+          lookupContext.getPrefabContextSet()
         );
       }
     }
 
-    if (
-      matchEvent.match != null &&
-      options.isCollectEvaluationSummaries() &&
-      !matchEvent.match.getConfigValue().getConfidential()
-    ) {
-      matchStatsAggregator.recordMatch(matchEvent.match, matchEvent.timestamp);
+    if (!options.isCountEvaluationsInPlace() && isSummarized(evaluation)) {
+      matchStatsAggregator.recordEvaluation(evaluation, timestamp);
     }
   }
 
-  private void handleFlush(IncomingTelemetryEvent telemetryEvent) {
-    FlushEvent flushEvent = (FlushEvent) telemetryEvent;
+  private void handleFlush(FlushEvent flushEvent) {
     // build an output buffer by retrieving data from all the aggregators/buffers
     MatchStatsAggregator.StatsAggregate matchStats = matchStatsAggregator.getAndResetStatsAggregate();
     Set<Prefab.ExampleContext> exampleContexts = exampleContextBuffer.getAndResetContexts();
@@ -195,36 +245,44 @@ public class TelemetryManager implements AutoCloseable {
 
   CompletableFuture<Boolean> requestFlush() {
     FlushEvent flushEvent = new FlushEvent(clock.millis());
-    if (!inputQueue.offer(flushEvent)) {
-      return CompletableFuture.completedFuture(false);
-    }
+    flushRequests.offer(flushEvent);
+    wakeEventLoop();
     return flushEvent.future;
   }
 
+  private void wakeEventLoop() {
+    Thread eventLoopThread = this.eventLoopThread;
+    if (eventLoopThread != null) {
+      LockSupport.unpark(eventLoopThread);
+    }
+  }
+
   void eventLoop() {
+    eventLoopThread = Thread.currentThread();
+    long idleParkNanos = MIN_IDLE_PARK_NANOS;
     do {
-      try {
-        IncomingTelemetryEvent incomingTelemetryEvent = inputQueue.poll(
-          500,
-          TimeUnit.MILLISECONDS
-        );
-        if (incomingTelemetryEvent != null) {
-          drain.add(incomingTelemetryEvent);
-          inputQueue.drainTo(drain, DRAIN_SIZE - 1);
-          for (IncomingTelemetryEvent telemetryEvent : drain) {
-            switch (telemetryEvent.eventType) {
-              case MATCH:
-                handleMatchEvent(telemetryEvent);
-                break;
-              case FLUSH:
-                handleFlush(telemetryEvent);
-                break;
-            }
-          }
-          drain.clear();
+      int drained = inputQueue.drain(this::handleMatchEvent, DRAIN_SIZE);
+      FlushEvent flushEvent = flushRequests.poll();
+      if (flushEvent != null) {
+        // take in the events reported before the flush was asked for
+        inputQueue.drain(this::handleMatchEvent, INPUT_QUEUE_SIZE);
+        handleFlush(flushEvent);
+      } else if (drained > 0) {
+        idleParkNanos = MIN_IDLE_PARK_NANOS;
+      } else {
+        eventLoopParked = true;
+        // events offered before the flag was set didn't wake the loop, so look again
+        if (
+          inputQueue.drain(this::handleMatchEvent, DRAIN_SIZE) == 0 &&
+          flushRequests.isEmpty() &&
+          running.get()
+        ) {
+          LockSupport.parkNanos(idleParkNanos);
+          idleParkNanos = Math.min(idleParkNanos * 2, MAX_IDLE_PARK_NANOS);
+        } else {
+          idleParkNanos = MIN_IDLE_PARK_NANOS;
         }
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
+        eventLoopParked = false;
       }
     } while (running.get());
   }
@@ -232,6 +290,7 @@ public class TelemetryManager implements AutoCloseable {
   @Override
   public void close() throws Exception {
     running.set(false);
+    wakeEventLoop();
   }
 
   static class OutputBuffer {
@@ -335,50 +394,13 @@ public class TelemetryManager implements AutoCloseable {
     }
   }
 
-  static class IncomingTelemetryEvent {
-
-    enum EventType {
-      MATCH,
-      FLUSH,
-    }
-
-    EventType eventType;
-    long timestamp;
-
-    IncomingTelemetryEvent(EventType eventType, long timestamp) {
-      this.eventType = eventType;
-      this.timestamp = timestamp;
-    }
-  }
-
-  static class MatchEvent extends IncomingTelemetryEvent {
-
-    private final String configKey;
-
-    @Nullable
-    Match match;
-
-    LookupContext lookupContext;
-
-    MatchEvent(
-      long timestamp,
-      String configKey,
-      @Nullable Match match,
-      LookupContext lookupContext
-    ) {
-      super(EventType.MATCH, timestamp);
-      this.configKey = configKey;
-      this.match = match;
-      this.lookupContext = lookupContext;
-    }
-  }
-
-  static class FlushEvent extends IncomingTelemetryEvent {
+  static class FlushEvent {
 
+    private final long timestamp;
     private final CompletableFuture<Boolean> future;
 
     FlushEvent(long timestamp) {
-      super(EventType.FLUSH, timestamp);
+      this.timestamp = timestamp;
       this.future = new CompletableFuture<Boolean>();
     }
   }
@@ -11,6 +11,7 @@ public class ThreadLocalContextStore implements ContextStore {
   static final ThreadLocal<ContextSet> PREFAB_CONTEXT_SET_THREAD_LOCAL = ThreadLocal.withInitial(
     ContextSet::new
   );
+  static final ThreadLocal<Object> EVALUATION_SCOPE_THREAD_LOCAL = new ThreadLocal<>();
   public static final ThreadLocalContextStore INSTANCE = new ThreadLocalContextStore();
 
   private ThreadLocalContextStore() {}
@@ -18,12 +19,22 @@ public class ThreadLocalContextStore implements ContextStore {
   @Override
   public void addContext(Context context) {
     PREFAB_CONTEXT_SET_THREAD_LOCAL.get().addContext(context);
+    if (EVALUATION_SCOPE_THREAD_LOCAL.get() != null) {
+      EVALUATION_SCOPE_THREAD_LOCAL.set(new Object());
+    }
   }
 
   @Override
   public Optional<ContextSetReadable> setContext(ContextSetReadable contextSetReadable) {
     Optional<ContextSet> previousContext = getStoredContextSet();
     PREFAB_CONTEXT_SET_THREAD_LOCAL.set(ContextSet.convert(contextSetReadable));
+    // restoring an empty context ends the scope rather than starting one, so threads
+    // outside of a request never hold on to remembered evaluations
+    if (contextSetReadable.isEmpty()) {
+      EVALUATION_SCOPE_THREAD_LOCAL.remove();
+    } else {
+      EVALUATION_SCOPE_THREAD_LOCAL.set(new Object());
+    }
     return previousContext.map(ContextSetReadable::readOnlyContextSetView);
   }
 
@@ -31,6 +42,7 @@ public class ThreadLocalContextStore implements ContextStore {
   public Optional<ContextSetReadable> clearContext() {
     Optional<ContextSet> previousContext = getStoredContextSet();
     PREFAB_CONTEXT_SET_THREAD_LOCAL.remove();
+    EVALUATION_SCOPE_THREAD_LOCAL.remove();
     return previousContext.map(ContextSetReadable::readOnlyContextSetView);
   }
 
@@ -39,6 +51,22 @@ public class ThreadLocalContextStore implements ContextStore {
     return getStoredContextSet().map(ContextSetReadable::readOnlyContextSetView);
   }
 
+  /**
+   * The scope lasts from a {@link #setContext} with a non-empty context until the context
+   * is next set or cleared, and is replaced whenever a context is added
+   */
+  @Override
+  public Optional<Object> getEvaluationScope() {
+    return Optional.ofNullable(EVALUATION_SCOPE_THREAD_LOCAL.get());
+  }
+
+  /**
+   * The context set of the current thread itself rather than a read-only view of it
+   */
+  ContextSet getCurrentContextSet() {
+    return PREFAB_CONTEXT_SET_THREAD_LOCAL.get();
+  }
+
   private Optional<ContextSet> getStoredContextSet() {
     return Optional.ofNullable(PREFAB_CONTEXT_SET_THREAD_LOCAL.get());
   }
@@ -15,9 +15,14 @@ class TypedConfigClientImpl implements TypedConfigClient {
   private static final Logger LOG = LoggerFactory.getLogger(TypedConfigClientImpl.class);
 
   private final ConfigClientCore configClientCore;
+  private final ConfigValueLookup configValueLookup;
 
   TypedConfigClientImpl(ConfigClientCore configClient) {
     this.configClientCore = configClient;
+    this.configValueLookup =
+      configClient instanceof ConfigValueLookup
+        ? (ConfigValueLookup) configClient
+        : (key, context) -> configClient.get(key, context).orElse(null);
   }
 
   @Override
@@ -27,11 +32,14 @@ class TypedConfigClientImpl implements TypedConfigClient {
     @Nullable ContextSetReadable context
   ) {
     try {
-      return configClientCore
-        .get(key, context)
-        .filter(cv -> cv.getTypeCase() == Prefab.ConfigValue.TypeCase.BOOL)
-        .map(Prefab.ConfigValue::getBool)
-        .orElse(defaultValue);
+      Prefab.ConfigValue configValue = configValueLookup.lookup(key, context);
+      if (
+        configValue != null &&
+        configValue.getTypeCase() == Prefab.ConfigValue.TypeCase.BOOL
+      ) {
+        return configValue.getBool();
+      }
+      return defaultValue;
     } catch (Throwable t) {
       LOG.debug("Error processing config {} [boolean] returning default value", key, t);
       return defaultValue;
@@ -45,11 +53,14 @@ class TypedConfigClientImpl implements TypedConfigClient {
     @Nullable ContextSetReadable context
   ) {
     try {
-      return configClientCore
-        .get(key, context)
-        .filter(cv -> cv.getTypeCase() == Prefab.ConfigValue.TypeCase.INT)
-        .map(Prefab.ConfigValue::getInt)
-        .orElse(defaultValue);
+      Prefab.ConfigValue configValue = configValueLookup.lookup(key, context);
+      if (
+        configValue != null &&
+        configValue.getTypeCase() == Prefab.ConfigValue.TypeCase.INT
+      ) {
+        return configValue.getInt();
+      }
+      return defaultValue;
     } catch (Throwable t) {
       LOG.debug("Error processing config {} [long] returning default value", key, t);
       return defaultValue;
@@ -63,11 +74,14 @@ class TypedConfigClientImpl implements TypedConfigClient {
     @Nullable ContextSetReadable context
   ) {
     try {
-      return configClientCore
-        .get(key, context)
-        .filter(cv -> cv.getTypeCase() == Prefab.ConfigValue.TypeCase.DOUBLE)
-        .map(Prefab.ConfigValue::getDouble)
-        .orElse(defaultValue);
+      Prefab.ConfigValue configValue = configValueLookup.lookup(key, context);
+      if (
+        configValue != null &&
+        configValue.getTypeCase() == Prefab.ConfigValue.TypeCase.DOUBLE
+      ) {
+        return configValue.getDouble();
+      }
+      return defaultValue;
     } catch (Throwable t) {
       LOG.debug("Error processing config {} [double] returning default value", key, t);
       return defaultValue;
@@ -81,11 +95,14 @@ class TypedConfigClientImpl implements TypedConfigClient {
     @Nullable ContextSetReadable context
   ) {
     try {
-      return configClientCore
-        .get(key, context)
-        .filter(cv -> cv.getTypeCase() == Prefab.ConfigValue.TypeCase.STRING)
-        .map(Prefab.ConfigValue::getString)
-        .orElse(defaultValue);
+      Prefab.ConfigValue configValue = configValueLookup.lookup(key, context);
+      if (
+        configValue != null &&
+        configValue.getTypeCase() == Prefab.ConfigValue.TypeCase.STRING
+      ) {
+        return configValue.getString();
+      }
+      return defaultValue;
     } catch (Throwable t) {
       LOG.debug("Error processing config {} [String] returning default value", key, t);
       return defaultValue;
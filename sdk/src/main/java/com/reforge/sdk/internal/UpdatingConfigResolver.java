@@ -1,18 +1,23 @@
 package com.reforge.sdk.internal;
 
 import cloud.prefab.domain.Prefab;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.reforge.sdk.ConfigClient;
 import com.reforge.sdk.config.ConfigChangeEvent;
+import com.reforge.sdk.config.ConfigElement;
 import com.reforge.sdk.config.Match;
 import com.reforge.sdk.config.Provenance;
 import com.reforge.sdk.context.ContextSetReadable;
 import com.reforge.sdk.exceptions.ConfigValueException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +35,15 @@ public class UpdatingConfigResolver {
     ConfigLoader configLoader,
     WeightedValueEvaluator weightedValueEvaluator,
     ConfigStoreConfigValueDeltaCalculator configStoreConfigValueDeltaCalculator
+  ) {
+    this(configLoader, weightedValueEvaluator, configStoreConfigValueDeltaCalculator, 0);
+  }
+
+  public UpdatingConfigResolver(
+    ConfigLoader configLoader,
+    WeightedValueEvaluator weightedValueEvaluator,
+    ConfigStoreConfigValueDeltaCalculator configStoreConfigValueDeltaCalculator,
+    int evaluationCacheSize
   ) {
     this.configLoader = configLoader;
     this.configStoreConfigValueDeltaCalculator = configStoreConfigValueDeltaCalculator;
@@ -39,7 +53,12 @@ public class UpdatingConfigResolver {
       weightedValueEvaluator
     );
     this.configResolver =
-      new ConfigResolver(configStore, configRuleEvaluator, new SystemEnvVarLookup());
+      new ConfigResolver(
+        configStore,
+        configRuleEvaluator,
+        new SystemEnvVarLookup(),
+        evaluationCacheSize
+      );
   }
 
   /**
@@ -60,27 +79,59 @@ public class UpdatingConfigResolver {
   }
 
   public ChangeLists update() {
-    // catch exceptions resolving, treat as absent
-    // store the old map
-    Map<String, Prefab.Config> before = buildConfigByNameMap();
+    MergedConfigData previous = configStore.get();
     // load the new map
     makeLocal();
+    MergedConfigData current = configStore.get();
 
-    // build the new map
-    Map<String, Prefab.Config> after = buildConfigByNameMap();
+    // compare only the keys that were set since the last update, when that is known
+    Optional<Set<String>> changedKeys = current.getChangedKeysSince(previous);
+    Collection<String> keys = changedKeys.isPresent()
+      ? changedKeys.get()
+      : Sets.union(previous.getConfigs().keySet(), current.getConfigs().keySet());
+    Map<String, Prefab.Config> before = Maps.newHashMapWithExpectedSize(keys.size());
+    Map<String, Prefab.Config> after = Maps.newHashMapWithExpectedSize(keys.size());
+    List<ConfigChangeEvent> undecodedAdditions = new ArrayList<>();
+    for (String key : keys) {
+      ConfigElement previousElement = withRows(previous.getConfigs().get(key));
+      ConfigElement currentElement = withRows(current.getConfigs().get(key));
+      if (previousElement == currentElement) {
+        continue;
+      }
+      // configs from a snapshot are only decoded for listeners that look at them
+      if (
+        previousElement == null && currentElement != null && !currentElement.isDecoded()
+      ) {
+        undecodedAdditions.add(ConfigChangeEvent.added(currentElement));
+        continue;
+      }
+      if (previousElement != null) {
+        before.put(key, previousElement.getConfig());
+      }
+      if (currentElement != null) {
+        after.put(key, currentElement.getConfig());
+      }
+    }
 
+    List<ConfigChangeEvent> changeEvents = configStoreConfigValueDeltaCalculator.computeChangeEvents(
+      before,
+      after
+    );
+    if (undecodedAdditions.isEmpty()) {
+      return new ChangeLists(changeEvents);
+    }
     return new ChangeLists(
-      configStoreConfigValueDeltaCalculator.computeChangeEvents(before, after)
+      ImmutableList
+        .<ConfigChangeEvent>builder()
+        .addAll(changeEvents)
+        .addAll(undecodedAdditions)
+        .build()
     );
   }
 
-  private Map<String, Prefab.Config> buildConfigByNameMap() {
-    return configStore
-      .entrySet()
-      .stream()
-      .map(entry -> Maps.immutableEntry(entry.getKey(), entry.getValue().getConfig()))
-      .filter(entry -> entry.getValue().getRowsCount() > 0)
-      .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+  @Nullable
+  private static ConfigElement withRows(@Nullable ConfigElement configElement) {
+    return configElement != null && configElement.hasRows() ? configElement : null;
   }
 
   private Optional<Prefab.ConfigValue> safeResolve(String key) {
@@ -96,8 +147,56 @@ public class UpdatingConfigResolver {
     return configLoader.getHighwaterMark();
   }
 
+  ConfigSnapshot.Contents getSnapshot() {
+    return configLoader.getSnapshot();
+  }
+
+  /**
+   * Loads the local datafile in place of whatever was loaded from it before, so configs
+   * taken out of the file are removed
+   */
   public synchronized void loadConfigsFromLocalFile() {
-    loadConfigs(configLoader.loadFromJsonFile(), ConfigClient.Source.LOCAL_FILE);
+    replaceConfigsFromLocalFile(configLoader.loadFromDatafile());
+  }
+
+  /**
+   * Loads the local datafile again as it has changed on disk. A file found empty, as when
+   * it is caught being rewritten in place, is rejected rather than taken to remove every
+   * config
+   */
+  public synchronized void reloadConfigsFromLocalFile() {
+    Prefab.Configs configs = configLoader.loadFromDatafile();
+    if (configs.equals(Prefab.Configs.getDefaultInstance())) {
+      throw new IllegalArgumentException("Empty local datafile is not valid");
+    }
+    replaceConfigsFromLocalFile(configs);
+  }
+
+  private void replaceConfigsFromLocalFile(Prefab.Configs configs) {
+    configLoader.replaceConfigs(
+      configs,
+      new Provenance(ConfigClient.Source.LOCAL_FILE)
+    );
+    LOG.info(
+      "Loaded local datafile with highwater id {} with {} configs",
+      configLoader.getHighwaterMark(),
+      configs.getConfigsCount()
+    );
+  }
+
+  /**
+   * Loads configs from a snapshot without decoding them, so they are each decoded and
+   * compiled when first looked up
+   */
+  synchronized void loadSnapshot(ConfigSnapshot.Contents snapshot) {
+    configLoader.setSnapshot(snapshot);
+    LOG.info(
+      "Loaded snapshot with highwater id {} in project {} environment: {} with {} configs",
+      configLoader.getHighwaterMark(),
+      snapshot.getConfigServicePointer().getProjectId(),
+      snapshot.getConfigServicePointer().getProjectEnvId(),
+      snapshot.getConfigElements().size()
+    );
   }
 
   public synchronized void loadConfigs(
@@ -126,10 +225,10 @@ public class UpdatingConfigResolver {
   }
 
   /**
-   * set the localMap
+   * set the localMap, compiling the rules of new or changed configs
    */
   private void makeLocal() {
-    configStore.set(configLoader.calcConfig());
+    configStore.set(configLoader.calcConfig().compile(configStore.get()));
   }
 
   public String contentsString() {
@@ -167,6 +266,22 @@ public class UpdatingConfigResolver {
     return configResolver.getRawMatch(key, lookupContext);
   }
 
+  public Optional<Match> getContextFreeMatch(String key) {
+    return configResolver.getContextFreeMatch(key);
+  }
+
+  boolean evaluate(String key, LookupContext lookupContext, Evaluation evaluation) {
+    return configResolver.evaluate(key, lookupContext, evaluation);
+  }
+
+  boolean evaluate(
+    ConfigKey configKey,
+    LookupContext lookupContext,
+    Evaluation evaluation
+  ) {
+    return configResolver.evaluate(configKey, lookupContext, evaluation);
+  }
+
   public ContextSetReadable getApiDefaultContext() {
     return configStore.getConfigIncludedContext();
   }
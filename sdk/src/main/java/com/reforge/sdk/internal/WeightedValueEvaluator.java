@@ -7,6 +7,7 @@ import com.reforge.sdk.util.RandomProvider;
 import com.reforge.sdk.util.RandomProviderIF;
 import java.util.List;
 import java.util.Optional;
+import javax.annotation.Nullable;
 
 public class WeightedValueEvaluator {
 
@@ -37,53 +38,67 @@ public class WeightedValueEvaluator {
     String featureName,
     LookupContext lookupContext
   ) {
-    Optional<String> hashPropertyValue = getHashPropertyValue(
+    int index = toIndex(weightedValues, featureName, lookupContext);
+    return Result.of(weightedValues.getWeightedValues(index).getValue(), index);
+  }
+
+  /**
+   * The index of the weighted value selected for this context
+   */
+  int toIndex(
+    Prefab.WeightedValues weightedValues,
+    String featureName,
+    LookupContext lookupContext
+  ) {
+    Prefab.ConfigValue hashPropertyValue = getHashPropertyValue(
       weightedValues,
       lookupContext
-    )
-      .flatMap(ConfigValueUtils::coerceToString);
-
-    double pctThroughDistribution = hashPropertyValue
-      .map(s -> getUserPct(featureName, s))
-      .orElseGet(randomProvider::random);
-    return getValueFromWeightsAndPercent(
+    );
+    Optional<String> hashPropertyString = hashPropertyValue == null
+      ? Optional.empty()
+      : ConfigValueUtils.coerceToString(hashPropertyValue);
+
+    double pctThroughDistribution = hashPropertyString.isPresent()
+      ? getUserPct(featureName, hashPropertyString.get())
+      : randomProvider.random();
+    return getIndexFromWeightsAndPercent(
       weightedValues.getWeightedValuesList(),
       pctThroughDistribution
     );
   }
 
-  private Optional<Prefab.ConfigValue> getHashPropertyValue(
+  @Nullable
+  private Prefab.ConfigValue getHashPropertyValue(
     Prefab.WeightedValues weightedValues,
     LookupContext lookupContext
   ) {
     if (weightedValues.hasHashByPropertyName()) {
-      return lookupContext.getValue(weightedValues.getHashByPropertyName());
+      return lookupContext
+        .getExpandedProperties()
+        .get(weightedValues.getHashByPropertyName());
     }
 
-    return Optional.empty();
+    return null;
   }
 
-  private Result getValueFromWeightsAndPercent(
+  private int getIndexFromWeightsAndPercent(
     List<Prefab.WeightedValue> weightedValues,
     double targetPctThroughDistribution
   ) {
-    int distributionSpace = weightedValues
-      .stream()
-      .map(Prefab.WeightedValue::getWeight)
-      .reduce(Integer::sum)
-      .orElse(1);
+    int distributionSpace = weightedValues.isEmpty() ? 1 : 0;
+    for (int index = 0; index < weightedValues.size(); index++) {
+      distributionSpace += weightedValues.get(index).getWeight();
+    }
     int sum = 0;
-    int index = 0;
-    for (Prefab.WeightedValue weightedValue : weightedValues) {
-      sum += weightedValue.getWeight();
+    for (int index = 0; index < weightedValues.size(); index++) {
+      sum += weightedValues.get(index).getWeight();
       double percentThroughDistribution = sum / (double) distributionSpace;
       if (targetPctThroughDistribution <= percentThroughDistribution) {
-        return Result.of(weightedValue.getValue(), index);
+        return index;
       }
-      index++;
     }
     // variants didn't add up to 100%
-    return Result.of(weightedValues.get(0).getValue(), 0);
+    return 0;
   }
 
   private double getUserPct(String featureName, String configValue) {
@@ -1,9 +1,20 @@
 package com.reforge.sdk.util;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutionException;
 
 public interface Cache {
   byte[] get(String s) throws ExecutionException, InterruptedException;
 
   void set(String key, int expiryInSeconds, byte[] bytes);
+
+  /**
+   * @return the bytes of the entry, or null if there is none. Caches that can hand out an
+   * entry without copying it onto the heap, such as by mapping a file, override this
+   */
+  default ByteBuffer getBuffer(String key)
+    throws ExecutionException, InterruptedException {
+    byte[] bytes = get(key);
+    return bytes == null ? null : ByteBuffer.wrap(bytes);
+  }
 }
@@ -0,0 +1,22 @@
+package com.reforge.sdk.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes a compressed HTTP response body, for a content encoding such as gzip or zstd
+ * that the client offers the API when fetching configs
+ */
+public interface ContentCodec {
+  /**
+   * @return the content coding this codec decodes, as it appears in the Accept-Encoding
+   * and Content-Encoding headers
+   */
+  String getEncoding();
+
+  /**
+   * @return a stream of the decoded body, decoding as it is read rather than all at once.
+   * Closing it closes the encoded stream
+   */
+  InputStream decode(InputStream encoded) throws IOException;
+}
@@ -0,0 +1,134 @@
+package com.reforge.sdk.util;
+
+import com.google.common.hash.Hashing;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A cache keeping each entry in a file of its own in a directory, so that entries survive
+ * restarts. Entries are written to a temporary file that is then moved over the old one,
+ * so a reader, or a process that crashes mid-write, never sees a partly written entry.
+ * An expiry of 0 or less keeps the entry until it is overwritten.
+ * <p>
+ * {@link #getBuffer(String)} maps the entry's file rather than reading it, so only the
+ * parts of a large entry that are used are paged in. A mapping stays valid when the entry
+ * is overwritten, as the new file replaces the old one rather than writing into it.
+ */
+public class FileCache implements Cache {
+
+  private static final String SUFFIX = ".cache";
+
+  private final Path directory;
+  private final Clock clock;
+
+  public FileCache(Path directory) {
+    this(directory, Clock.systemUTC());
+  }
+
+  FileCache(Path directory, Clock clock) {
+    this.directory = directory;
+    this.clock = clock;
+  }
+
+  @Override
+  public byte[] get(String key) throws ExecutionException {
+    try (
+      InputStream inputStream = Files.newInputStream(pathFor(key));
+      DataInputStream dataInputStream = new DataInputStream(inputStream)
+    ) {
+      long expiresAt = dataInputStream.readLong();
+      if (expiresAt > 0 && expiresAt <= clock.millis()) {
+        return null;
+      }
+      return dataInputStream.readAllBytes();
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      throw new ExecutionException(e);
+    }
+  }
+
+  @Override
+  public ByteBuffer getBuffer(String key) throws ExecutionException {
+    try (FileChannel channel = FileChannel.open(pathFor(key), StandardOpenOption.READ)) {
+      MappedByteBuffer mapped = channel.map(
+        FileChannel.MapMode.READ_ONLY,
+        0,
+        channel.size()
+      );
+      long expiresAt = mapped.getLong();
+      if (expiresAt > 0 && expiresAt <= clock.millis()) {
+        return null;
+      }
+      return mapped.slice();
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | BufferUnderflowException e) {
+      throw new ExecutionException(e);
+    }
+  }
+
+  @Override
+  public void set(String key, int expiryInSeconds, byte[] bytes) {
+    long expiresAt = expiryInSeconds > 0 ? clock.millis() + expiryInSeconds * 1000L : 0;
+    Path tempFile = null;
+    try {
+      Files.createDirectories(directory);
+      tempFile = Files.createTempFile(directory, ".", SUFFIX);
+      try (
+        OutputStream outputStream = Files.newOutputStream(tempFile);
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream)
+      ) {
+        dataOutputStream.writeLong(expiresAt);
+        dataOutputStream.write(bytes);
+      }
+      move(tempFile, pathFor(key));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      if (tempFile != null) {
+        try {
+          Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+          // the entry was written, only a stray temporary file is left behind
+        }
+      }
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(
+        source,
+        target,
+        StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING
+      );
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  // keys may hold characters that are not allowed in file names
+  private Path pathFor(String key) {
+    return directory.resolve(
+      Hashing.sha256().hashString(key, StandardCharsets.UTF_8) + SUFFIX
+    );
+  }
+}
@@ -0,0 +1,20 @@
+package com.reforge.sdk.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+public class GzipContentCodec implements ContentCodec {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  @Override
+  public String getEncoding() {
+    return "gzip";
+  }
+
+  @Override
+  public InputStream decode(InputStream encoded) throws IOException {
+    return new GZIPInputStream(encoded, BUFFER_SIZE);
+  }
+}
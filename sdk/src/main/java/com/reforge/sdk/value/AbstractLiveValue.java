@@ -2,8 +2,11 @@ package com.reforge.sdk.value;
 
 import cloud.prefab.domain.Prefab;
 import com.reforge.sdk.ConfigClient;
+import com.reforge.sdk.internal.ConfigKey;
+import com.reforge.sdk.internal.ConfigValueLookup;
 import java.util.Optional;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,9 +17,18 @@ public abstract class AbstractLiveValue<T> implements Value<T> {
   private final ConfigClient configClient;
   protected final String key;
 
+  // the key resolved once, for clients that can look values up by a resolved key
+  @Nullable
+  private final ConfigValueLookup configValueLookup;
+
+  private final ConfigKey configKey;
+
   public AbstractLiveValue(ConfigClient configClient, String key) {
     this.configClient = configClient;
     this.key = key;
+    this.configValueLookup =
+      configClient instanceof ConfigValueLookup ? (ConfigValueLookup) configClient : null;
+    this.configKey = ConfigKey.of(key);
   }
 
   /**
@@ -89,7 +101,9 @@ public abstract class AbstractLiveValue<T> implements Value<T> {
   public abstract Optional<T> resolve(Prefab.ConfigValue value);
 
   private Optional<T> getFromConfig() {
-    final Optional<Prefab.ConfigValue> configValue = configClient.get(key);
+    final Optional<Prefab.ConfigValue> configValue = configValueLookup != null
+      ? Optional.ofNullable(configValueLookup.lookup(configKey, null))
+      : configClient.get(key);
     if (configValue.isPresent()) {
       final Optional<T> resolve = resolve(configValue.get());
       if (resolve.isPresent()) {
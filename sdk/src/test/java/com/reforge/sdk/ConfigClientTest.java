@@ -0,0 +1,33 @@
+package com.reforge.sdk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class ConfigClientTest {
+
+  private final ConfigClient configClient = mock(ConfigClient.class);
+
+  @Test
+  void whenReadyIsCompleteForAReadyClient() {
+    when(configClient.whenReady()).thenCallRealMethod();
+    when(configClient.isReady()).thenReturn(true);
+
+    assertThat(configClient.whenReady()).isCompleted();
+  }
+
+  @Test
+  void whenReadyCompletesOnceTheClientIsReady() {
+    when(configClient.whenReady()).thenCallRealMethod();
+    when(configClient.isReady()).thenReturn(false, false, true);
+
+    CompletableFuture<Void> readyFuture = configClient.whenReady();
+
+    assertThat(readyFuture).isNotDone();
+    assertThat(readyFuture).succeedsWithin(Duration.ofSeconds(5));
+  }
+}
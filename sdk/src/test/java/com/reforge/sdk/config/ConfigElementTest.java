@@ -0,0 +1,67 @@
+package com.reforge.sdk.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.prefab.domain.Prefab;
+import com.reforge.sdk.ConfigClient;
+import org.junit.jupiter.api.Test;
+
+class ConfigElementTest {
+
+  @Test
+  void itPutsTheProjectEnvRowsFirstKeepingTheirOrder() {
+    Prefab.ConfigRow defaultRow = row("default", null);
+    Prefab.ConfigRow otherEnvRow = row("other env", 1L);
+    Prefab.ConfigRow envRow = row("env", 2L);
+    Prefab.ConfigRow secondDefaultRow = row("second default", null);
+    Prefab.ConfigRow secondEnvRow = row("second env", 2L);
+    ConfigElement configElement = element(
+      defaultRow,
+      otherEnvRow,
+      envRow,
+      secondDefaultRow,
+      secondEnvRow
+    );
+
+    assertThat(configElement.getRowListProjEnvFirst(2))
+      .containsExactly(envRow, secondEnvRow, defaultRow, secondDefaultRow);
+    assertThat(configElement.getRowListProjEnvFirst(1))
+      .containsExactly(otherEnvRow, defaultRow, secondDefaultRow);
+    assertThat(configElement.getRowListProjEnvFirst(3))
+      .containsExactly(defaultRow, secondDefaultRow);
+    assertThat(configElement.getRowsProjEnvFirst(2))
+      .containsExactly(envRow, secondEnvRow, defaultRow, secondDefaultRow);
+  }
+
+  @Test
+  void itSharesTheRowsOfConfigsWithoutProjectEnvRows() {
+    ConfigElement configElement = element(row("a", null), row("b", null));
+
+    assertThat(configElement.getRowListProjEnvFirst(2))
+      .isSameAs(configElement.getRowListProjEnvFirst(3))
+      .hasSize(2);
+  }
+
+  private static ConfigElement element(Prefab.ConfigRow... rows) {
+    Prefab.Config.Builder config = Prefab.Config.newBuilder().setKey("key");
+    for (Prefab.ConfigRow row : rows) {
+      config.addRows(row);
+    }
+    return new ConfigElement(
+      config.build(),
+      new Provenance(ConfigClient.Source.LOCAL_ONLY, "unit test")
+    );
+  }
+
+  private static Prefab.ConfigRow row(String value, Long projectEnvId) {
+    Prefab.ConfigRow.Builder row = Prefab.ConfigRow
+      .newBuilder()
+      .addValues(
+        Prefab.ConditionalValue.newBuilder().setValue(ConfigValueUtils.from(value))
+      );
+    if (projectEnvId != null) {
+      row.setProjectEnvId(projectEnvId);
+    }
+    return row.build();
+  }
+}
@@ -0,0 +1,71 @@
+package com.reforge.sdk.context;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class CompositeContextStoreTest {
+
+  @Test
+  void itTakesTheEvaluationScopeFromTheFirstAvailableStore() {
+    ScopeStore unavailableStore = new ScopeStore(false);
+    ScopeStore availableStore = new ScopeStore(true);
+    CompositeContextStore compositeContextStore = new CompositeContextStore(
+      unavailableStore,
+      availableStore
+    );
+
+    assertThat(compositeContextStore.getEvaluationScope())
+      .containsSame(availableStore.evaluationScope);
+  }
+
+  @Test
+  void itHasNoEvaluationScopeWithoutAnAvailableStore() {
+    CompositeContextStore compositeContextStore = new CompositeContextStore(
+      new ScopeStore(false)
+    );
+
+    assertThat(compositeContextStore.getEvaluationScope()).isEmpty();
+  }
+
+  private static class ScopeStore implements ContextStore {
+
+    private final boolean available;
+    private final Object evaluationScope = new Object();
+
+    ScopeStore(boolean available) {
+      this.available = available;
+    }
+
+    @Override
+    public void addContext(Context context) {}
+
+    @Override
+    public Optional<ContextSetReadable> setContext(
+      ContextSetReadable contextSetReadable
+    ) {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<ContextSetReadable> clearContext() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<ContextSetReadable> getContext() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<Object> getEvaluationScope() {
+      return Optional.of(evaluationScope);
+    }
+
+    @Override
+    public boolean isAvailable() {
+      return available;
+    }
+  }
+}
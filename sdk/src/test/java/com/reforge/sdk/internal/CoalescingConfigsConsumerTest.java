@@ -0,0 +1,144 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import cloud.prefab.domain.Prefab;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CoalescingConfigsConsumerTest {
+
+  @Mock
+  ScheduledExecutorService mockScheduledExecutorService;
+
+  private final List<Prefab.Configs> batches = new ArrayList<>();
+
+  private CoalescingConfigsConsumer coalescer(int maxBatchSize) {
+    return new CoalescingConfigsConsumer(
+      batches::add,
+      mockScheduledExecutorService,
+      50,
+      maxBatchSize
+    );
+  }
+
+  @Test
+  void payloadsWithinTheWindowAreAppliedTogether() {
+    CoalescingConfigsConsumer coalescer = coalescer(100);
+
+    coalescer.accept(payload(1, config("a", 1), config("b", 2)));
+    coalescer.accept(payload(2, config("a", 3)));
+    coalescer.accept(payload(3, config("c", 4)));
+    assertThat(batches).isEmpty();
+
+    ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+    verify(mockScheduledExecutorService, times(1))
+      .schedule(flush.capture(), eq(50L), eq(TimeUnit.MILLISECONDS));
+    flush.getValue().run();
+
+    assertThat(batches).hasSize(1);
+    Prefab.Configs batch = batches.get(0);
+    assertThat(batch.getConfigsList())
+      .extracting(Prefab.Config::getKey, Prefab.Config::getId)
+      .containsExactly(
+        tuple("a", 3L),
+        tuple("b", 2L),
+        tuple("c", 4L)
+      );
+    assertThat(batch.getConfigServicePointer().getProjectEnvId()).isEqualTo(3);
+  }
+
+  @Test
+  void aLowerIdDoesNotReplaceAHigherOne() {
+    CoalescingConfigsConsumer coalescer = coalescer(100);
+
+    coalescer.accept(payload(1, config("a", 5)));
+    coalescer.accept(payload(1, config("a", 4)));
+    coalescer.flush();
+
+    assertThat(batches.get(0).getConfigsList())
+      .extracting(Prefab.Config::getId)
+      .containsExactly(5L);
+  }
+
+  @Test
+  void aFullBatchIsAppliedStraightAway() {
+    CoalescingConfigsConsumer coalescer = coalescer(2);
+
+    coalescer.accept(payload(1, config("a", 1)));
+    coalescer.accept(payload(1, config("b", 2)));
+    assertThat(batches).hasSize(1);
+    assertThat(batches.get(0).getConfigsCount()).isEqualTo(2);
+
+    coalescer.accept(payload(1, config("c", 3)));
+    verify(mockScheduledExecutorService, times(2))
+      .schedule(any(Runnable.class), anyLong(), any());
+    coalescer.flush();
+    assertThat(batches).hasSize(2);
+    assertThat(batches.get(1).getConfigsList())
+      .extracting(Prefab.Config::getKey)
+      .containsExactly("c");
+  }
+
+  @Test
+  void flushingWithNothingGatheredDoesNothing() {
+    CoalescingConfigsConsumer coalescer = coalescer(100);
+
+    coalescer.flush();
+
+    assertThat(batches).isEmpty();
+  }
+
+  @Test
+  void aBatchThatFailsToApplyDoesNotStopTheNext() {
+    CoalescingConfigsConsumer coalescer = new CoalescingConfigsConsumer(
+      configs -> {
+        if (batches.isEmpty()) {
+          batches.add(configs);
+          throw new IllegalStateException("failed to apply");
+        }
+        batches.add(configs);
+      },
+      mockScheduledExecutorService,
+      50,
+      100
+    );
+
+    coalescer.accept(payload(1, config("a", 1)));
+    coalescer.flush();
+    coalescer.accept(payload(1, config("b", 2)));
+    coalescer.flush();
+
+    assertThat(batches)
+      .extracting(batch -> batch.getConfigs(0).getKey())
+      .containsExactly("a", "b");
+  }
+
+  private static Prefab.Configs payload(long projectEnvId, Prefab.Config... configs) {
+    return Prefab.Configs
+      .newBuilder()
+      .setConfigServicePointer(
+        Prefab.ConfigServicePointer.newBuilder().setProjectEnvId(projectEnvId)
+      )
+      .addAllConfigs(List.of(configs))
+      .build();
+  }
+
+  private static Prefab.Config config(String key, long id) {
+    return Prefab.Config.newBuilder().setKey(key).setId(id).build();
+  }
+}
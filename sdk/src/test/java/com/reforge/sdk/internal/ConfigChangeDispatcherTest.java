@@ -0,0 +1,160 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.prefab.domain.Prefab;
+import com.reforge.sdk.ConfigClient;
+import com.reforge.sdk.config.ConfigChangeDispatchStats;
+import com.reforge.sdk.config.ConfigChangeEvent;
+import com.reforge.sdk.config.ConfigChangeListener;
+import com.reforge.sdk.config.ConfigElement;
+import com.reforge.sdk.config.Provenance;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.Test;
+
+class ConfigChangeDispatcherTest {
+
+  // runs tasks only when asked, to control when listeners are called
+  private final Queue<Runnable> tasks = new ArrayDeque<>();
+  private final Executor executor = tasks::add;
+
+  private final List<ConfigChangeEvent> heard = new ArrayList<>();
+  private final ConfigChangeListener listener = heard::add;
+
+  @Test
+  void eventsAreHeardInOrderOnTheExecutor() {
+    ConfigChangeDispatcher dispatcher = new ConfigChangeDispatcher(executor, 10);
+    dispatcher.add(listener);
+
+    dispatcher.dispatch(List.of(listener), List.of(change("a", 1, 2), change("b", 1, 2)));
+    dispatcher.dispatch(List.of(listener), List.of(change("a", 2, 3)));
+    assertThat(heard).isEmpty();
+    assertThat(dispatcher.getStats().getQueueDepth()).isEqualTo(3);
+    // one drain task covers everything queued while it waits
+    assertThat(tasks).hasSize(1);
+
+    runTasks();
+
+    assertThat(heard)
+      .containsExactly(change("a", 1, 2), change("b", 1, 2), change("a", 2, 3));
+    ConfigChangeDispatchStats stats = dispatcher.getStats();
+    assertThat(stats.getQueueDepth()).isZero();
+    assertThat(stats.getDeliveredCount()).isEqualTo(3);
+    assertThat(stats.getTotalListenerNanos()).isGreaterThanOrEqualTo(0);
+  }
+
+  @Test
+  void aFullQueueIsCoalescedToTheLatestChangePerKey() {
+    ConfigChangeDispatcher dispatcher = new ConfigChangeDispatcher(executor, 2);
+    dispatcher.add(listener);
+
+    dispatcher.dispatch(List.of(listener), List.of(change("a", 1, 2)));
+    dispatcher.dispatch(List.of(listener), List.of(change("b", 1, 2)));
+    dispatcher.dispatch(List.of(listener), List.of(change("a", 2, 3)));
+    runTasks();
+
+    assertThat(heard).containsExactly(change("a", 1, 3), change("b", 1, 2));
+    assertThat(dispatcher.getStats().getCoalescedCount()).isEqualTo(1);
+    assertThat(dispatcher.getStats().getQueueDepth()).isZero();
+  }
+
+  @Test
+  void changesThatCancelOutAreDroppedWhenCoalescing() {
+    ConfigChangeDispatcher dispatcher = new ConfigChangeDispatcher(executor, 2);
+    dispatcher.add(listener);
+
+    dispatcher.dispatch(List.of(listener), List.of(change("a", 1, 2)));
+    dispatcher.dispatch(List.of(listener), List.of(change("a", 2, 1)));
+    dispatcher.dispatch(
+      List.of(listener),
+      List.of(
+        new ConfigChangeEvent("b", Optional.empty(), config("b", 1)),
+        new ConfigChangeEvent("b", config("b", 1), Optional.empty())
+      )
+    );
+    runTasks();
+
+    assertThat(heard).isEmpty();
+    assertThat(dispatcher.getStats().getCoalescedCount()).isEqualTo(4);
+    assertThat(dispatcher.getStats().getQueueDepth()).isZero();
+  }
+
+  @Test
+  void addedConfigsStayUndecodedWhenCoalescedComparedAndLogged() {
+    Prefab.Config config = config("c", 1).get();
+    ConfigElement encoded = ConfigElement.encoded(
+      "c",
+      config.getId(),
+      config.getConfigType(),
+      config.toByteString(),
+      new Provenance(ConfigClient.Source.SNAPSHOT)
+    );
+    ConfigChangeEvent added = ConfigChangeEvent.added(encoded);
+    ConfigChangeDispatcher dispatcher = new ConfigChangeDispatcher(executor, 1);
+    dispatcher.add(listener);
+
+    dispatcher.dispatch(List.of(listener), List.of(added));
+    dispatcher.dispatch(List.of(listener), List.of(change("a", 1, 2)));
+    runTasks();
+
+    assertThat(dispatcher.getStats().getCoalescedCount()).isZero();
+    assertThat(heard).containsExactly(added, change("a", 1, 2));
+    assertThat(new HashSet<>(heard)).contains(ConfigChangeEvent.added(encoded));
+    assertThat(added.toString()).contains("undecoded config 1");
+    assertThat(encoded.isDecoded()).isFalse();
+
+    assertThat(added.getNewValue()).contains(config);
+    assertThat(encoded.isDecoded()).isTrue();
+  }
+
+  @Test
+  void aFailingListenerDoesNotStopTheOthers() {
+    ConfigChangeDispatcher dispatcher = new ConfigChangeDispatcher(executor, 10);
+    ConfigChangeListener failingListener = changeEvent -> {
+      throw new IllegalStateException("bad listener");
+    };
+    dispatcher.add(failingListener);
+    dispatcher.add(listener);
+
+    dispatcher.dispatch(List.of(failingListener, listener), List.of(change("a", 1, 2)));
+    runTasks();
+
+    assertThat(heard).containsExactly(change("a", 1, 2));
+  }
+
+  @Test
+  void aRemovedListenerHearsNothingMore() {
+    ConfigChangeDispatcher dispatcher = new ConfigChangeDispatcher(executor, 10);
+    dispatcher.add(listener);
+
+    dispatcher.dispatch(List.of(listener), List.of(change("a", 1, 2)));
+    dispatcher.remove(listener);
+    // as from a broadcast routed before the listener was removed
+    dispatcher.dispatch(List.of(listener), List.of(change("a", 2, 3)));
+    runTasks();
+
+    assertThat(heard).isEmpty();
+    assertThat(dispatcher.getStats().getQueueDepth()).isZero();
+  }
+
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  private static ConfigChangeEvent change(String key, long oldId, long newId) {
+    return new ConfigChangeEvent(key, config(key, oldId), config(key, newId));
+  }
+
+  private static Optional<Prefab.Config> config(String key, long id) {
+    return Optional.of(Prefab.Config.newBuilder().setKey(key).setId(id).build());
+  }
+}
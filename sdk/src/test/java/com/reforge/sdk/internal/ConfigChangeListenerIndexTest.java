@@ -0,0 +1,101 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.reforge.sdk.config.ConfigChangeEvent;
+import com.reforge.sdk.config.ConfigChangeListener;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class ConfigChangeListenerIndexTest {
+
+  private final ConfigChangeListenerIndex index = new ConfigChangeListenerIndex();
+
+  private final ConfigChangeListener allKeys = changeEvent -> {};
+  private final ConfigChangeListener keyListener = changeEvent -> {};
+  private final ConfigChangeListener prefixListener = changeEvent -> {};
+
+  private final ConfigChangeEvent checkoutEnabled = change("checkout.enabled");
+  private final ConfigChangeEvent checkoutLimit = change("checkout.limit");
+  private final ConfigChangeEvent search = change("search");
+
+  @Test
+  void eachListenerHearsOnlyTheKeysItListensTo() {
+    index.add(allKeys);
+    index.addForKey("checkout.limit", keyListener);
+    index.addForPrefix("checkout.", prefixListener);
+
+    Map<ConfigChangeListener, List<ConfigChangeEvent>> routed = index.route(
+      List.of(checkoutEnabled, search, checkoutLimit)
+    );
+
+    assertThat(routed.get(allKeys))
+      .containsExactly(checkoutEnabled, search, checkoutLimit);
+    assertThat(routed.get(keyListener)).containsExactly(checkoutLimit);
+    assertThat(routed.get(prefixListener))
+      .containsExactly(checkoutEnabled, checkoutLimit);
+  }
+
+  @Test
+  void listenersWithNothingToHearAreLeftOut() {
+    index.addForKey("checkout.limit", keyListener);
+    index.addForPrefix("checkout.", prefixListener);
+
+    assertThat(index.route(List.of(search))).isEmpty();
+  }
+
+  @Test
+  void aListenerMatchingSeveralWaysHearsAnEventOnce() {
+    index.addForKey("checkout.limit", keyListener);
+    index.addForPrefix("check", keyListener);
+    index.addForPrefix("checkout.", keyListener);
+
+    assertThat(index.route(List.of(checkoutLimit, checkoutEnabled)).get(keyListener))
+      .containsExactly(checkoutLimit, checkoutEnabled);
+
+    index.add(keyListener);
+    assertThat(index.route(List.of(checkoutLimit, search)).get(keyListener))
+      .containsExactly(checkoutLimit, search);
+  }
+
+  @Test
+  void anEmptyPrefixMatchesEveryKey() {
+    index.addForPrefix("", prefixListener);
+
+    assertThat(index.route(List.of(search)).get(prefixListener)).containsExactly(search);
+  }
+
+  @Test
+  void removingAListenerRemovesItEverywhere() {
+    index.add(keyListener);
+    index.addForKey("checkout.limit", keyListener);
+    index.addForPrefix("checkout.", keyListener);
+
+    assertThat(index.remove(keyListener)).isTrue();
+    assertThat(index.remove(keyListener)).isFalse();
+    assertThat(index.route(List.of(checkoutLimit))).isEmpty();
+    assertThat(index.isEmpty()).isTrue();
+  }
+
+  @Test
+  void removingAListenerKeepsWhatOthersListenTo() {
+    index.addForKey("checkout.limit", keyListener);
+    index.addForKey("checkout.limit", allKeys);
+    index.addForPrefix("checkout.", prefixListener);
+    index.addForPrefix("checkout.lim", keyListener);
+
+    index.remove(keyListener);
+
+    assertThat(index.route(List.of(checkoutLimit)))
+      .containsOnlyKeys(allKeys, prefixListener);
+    index.remove(allKeys);
+    index.remove(prefixListener);
+    assertThat(index.isEmpty()).isTrue();
+  }
+
+  private static ConfigChangeEvent change(String key) {
+    return new ConfigChangeEvent(key, Optional.empty(), Optional.empty());
+  }
+}
@@ -1,6 +1,7 @@
 package com.reforge.sdk.internal;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
@@ -11,16 +12,32 @@ import com.reforge.sdk.ConfigClient;
 import com.reforge.sdk.Options;
 import com.reforge.sdk.Sdk;
 import com.reforge.sdk.SdkInitializationTimeoutException;
+import com.reforge.sdk.config.ConfigChangeEvent;
+import com.reforge.sdk.config.ConfigValueUtils;
+import com.reforge.sdk.config.Provenance;
 import com.reforge.sdk.context.Context;
 import com.reforge.sdk.context.ContextHelper;
 import com.reforge.sdk.context.ContextSet;
 import com.reforge.sdk.context.ContextSetReadable;
+import com.reforge.sdk.util.FileCache;
+import com.sun.management.ThreadMXBean;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
@@ -66,6 +83,56 @@ class ConfigClientImplTest {
     assertThat(configClient.get("key")).isNotPresent();
   }
 
+  @Test
+  void whenReadyCompletesOnceInitialized() {
+    final Sdk baseClient = new Sdk(
+      new Options().setDatasource(Options.Datasources.LOCAL_ONLY)
+    );
+    ConfigClient configClient = new ConfigClientImpl(baseClient);
+
+    assertThat(configClient.whenReady()).succeedsWithin(Duration.ofSeconds(5));
+    assertThat(configClient.isReady()).isTrue();
+  }
+
+  @Test
+  void whenReadyDependentsSeeTheClientReady() {
+    final Sdk baseClient = new Sdk(
+      new Options()
+        .setSdkKey("0-P1-E1-SDK-1234-123-23")
+        .setApiHosts(List.of("http://localhost:1"))
+        .setStreamHosts(List.of("http://localhost:1"))
+        .setInitializationTimeoutSec(1)
+        .setOnInitializationFailure(Options.OnInitializationFailure.UNLOCK)
+    );
+    ConfigClient configClient = new ConfigClientImpl(baseClient);
+    AtomicBoolean readyInDependent = new AtomicBoolean();
+    configClient.whenReady().thenRun(() -> readyInDependent.set(configClient.isReady()));
+
+    assertThat(configClient.get("key")).isNotPresent();
+    assertThat(readyInDependent).isTrue();
+  }
+
+  @Test
+  void returnsDefaultsUntilReady() {
+    final Sdk baseClient = new Sdk(
+      new Options()
+        .setSdkKey("0-P1-E1-SDK-1234-123-23")
+        .setApiHosts(List.of("http://localhost:1"))
+        .setStreamHosts(List.of("http://localhost:1"))
+        .setInitializationTimeoutSec(30)
+        .setOnInitializationFailure(Options.OnInitializationFailure.RAISE)
+        .setReturnDefaultsUntilReady(true)
+    );
+    ConfigClient configClient = new ConfigClientImpl(baseClient);
+
+    assertThat(configClient.get("key")).isNotPresent();
+    assertThat(configClient.getString("key", "default", null)).isEqualTo("default");
+    assertThat(configClient.getAllKeys()).isEmpty();
+    assertThat(configClient.isReady()).isFalse();
+    assertThat(configClient.whenReady()).isNotDone();
+    assertThat(configClient.getReadsBeforeReadyCount()).isEqualTo(3);
+  }
+
   @Test
   void localDataFileMode() {
     final Sdk baseClient = new Sdk(
@@ -77,6 +144,185 @@ class ConfigClientImplTest {
     assertThat(key).isPresent();
   }
 
+  @Test
+  void snapshotMakesTheClientReadyWithoutTheApi(@TempDir Path snapshotDirectory) {
+    String sdkKey = "0-P1-E1-SDK-1234-123-23";
+    ConfigLoader configLoader = new ConfigLoader(new Options());
+    configLoader.setConfigs(
+      Prefab.Configs
+        .newBuilder()
+        .addConfigs(
+          Prefab.Config
+            .newBuilder()
+            .setId(1)
+            .setKey("key")
+            .addRows(
+              Prefab.ConfigRow
+                .newBuilder()
+                .addValues(
+                  Prefab.ConditionalValue
+                    .newBuilder()
+                    .setValue(ConfigValueUtils.from("from snapshot"))
+                )
+            )
+        )
+        .build(),
+      new Provenance(ConfigClient.Source.REMOTE_API)
+    );
+    new ConfigSnapshot(new FileCache(snapshotDirectory), sdkKey)
+      .save(configLoader.getSnapshot());
+    final Sdk baseClient = new Sdk(
+      new Options()
+        .setSdkKey(sdkKey)
+        .setInitializationTimeoutSec(1)
+        .setOnInitializationFailure(Options.OnInitializationFailure.RAISE)
+        .setConfigSnapshotCache(new FileCache(snapshotDirectory))
+    );
+
+    ConfigClient configClient = new ConfigClientImpl(baseClient);
+    assertThat(configClient.get("key")).contains(ConfigValueUtils.from("from snapshot"));
+  }
+
+  @Test
+  void watchedDatafileChangesAreReloaded(@TempDir Path directory) throws IOException {
+    Path datafile = directory.resolve("configs.pb");
+    Files.write(datafile, datafileWith("key", "first").toByteArray());
+    List<ConfigChangeEvent> changeEvents = new CopyOnWriteArrayList<>();
+    final Sdk baseClient = new Sdk(
+      new Options()
+        .setLocalDatafile(datafile.toString())
+        .setWatchLocalDatafile(true)
+        .addConfigChangeListener(changeEvents::add)
+    );
+    ConfigClient configClient = new ConfigClientImpl(baseClient);
+    assertThat(configClient.get("key")).contains(ConfigValueUtils.from("first"));
+    changeEvents.clear();
+
+    Files.write(datafile, datafileWith("key", "second").toByteArray());
+
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        assertThat(configClient.get("key")).contains(ConfigValueUtils.from("second"));
+        // listeners hear of the change after the configs are loaded
+        assertThat(changeEvents)
+          .extracting(ConfigChangeEvent::getKey)
+          .containsOnly("key");
+      });
+  }
+
+  @Test
+  void aWatchedDatafileIsReloadedWhenItsLinkIsSwapped(@TempDir Path directory)
+    throws IOException {
+    // laid out as Kubernetes mounts a ConfigMap, with the file reached through ..data
+    Path firstVersion = Files.createDirectory(directory.resolve("..first"));
+    Files.write(
+      firstVersion.resolve("configs.pb"),
+      datafileWith("key", "first").toByteArray()
+    );
+    Files.createSymbolicLink(directory.resolve("..data"), Paths.get("..first"));
+    Path datafile = Files.createSymbolicLink(
+      directory.resolve("configs.pb"),
+      Paths.get("..data", "configs.pb")
+    );
+    final Sdk baseClient = new Sdk(
+      new Options().setLocalDatafile(datafile.toString()).setWatchLocalDatafile(true)
+    );
+    ConfigClient configClient = new ConfigClientImpl(baseClient);
+    assertThat(configClient.get("key")).contains(ConfigValueUtils.from("first"));
+
+    Path secondVersion = Files.createDirectory(directory.resolve("..second"));
+    Files.write(
+      secondVersion.resolve("configs.pb"),
+      datafileWith("key", "second").toByteArray()
+    );
+    Path newLink = Files.createSymbolicLink(
+      directory.resolve("..data_tmp"),
+      Paths.get("..second")
+    );
+    Files.move(
+      newLink,
+      directory.resolve("..data"),
+      StandardCopyOption.ATOMIC_MOVE,
+      StandardCopyOption.REPLACE_EXISTING
+    );
+
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() ->
+        assertThat(configClient.get("key")).contains(ConfigValueUtils.from("second"))
+      );
+  }
+
+  @Test
+  void aWatchedDatafileFoundEmptyIsNotLoaded(@TempDir Path directory)
+    throws IOException {
+    Path datafile = directory.resolve("configs.pb");
+    Files.write(datafile, datafileWith("key", "first").toByteArray());
+    final Sdk baseClient = new Sdk(
+      new Options().setLocalDatafile(datafile.toString()).setWatchLocalDatafile(true)
+    );
+    ConfigClient configClient = new ConfigClientImpl(baseClient);
+
+    Files.write(datafile, new byte[0]);
+
+    await()
+      .during(Duration.ofMillis(500))
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() ->
+        assertThat(configClient.get("key")).contains(ConfigValueUtils.from("first"))
+      );
+
+    Files.write(datafile, datafileWith("key", "second").toByteArray());
+
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() ->
+        assertThat(configClient.get("key")).contains(ConfigValueUtils.from("second"))
+      );
+  }
+
+  @Test
+  void aClosedClientStopsWatchingTheDatafile(@TempDir Path directory)
+    throws IOException {
+    Path datafile = directory.resolve("configs.pb");
+    Files.write(datafile, datafileWith("key", "first").toByteArray());
+    final Sdk baseClient = new Sdk(
+      new Options().setLocalDatafile(datafile.toString()).setWatchLocalDatafile(true)
+    );
+    ConfigClientImpl configClient = new ConfigClientImpl(baseClient);
+
+    configClient.close();
+    Files.write(datafile, datafileWith("key", "second").toByteArray());
+
+    await()
+      .during(Duration.ofMillis(500))
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() ->
+        assertThat(configClient.get("key")).contains(ConfigValueUtils.from("first"))
+      );
+  }
+
+  private static Prefab.Configs datafileWith(String key, String value) {
+    return Prefab.Configs
+      .newBuilder()
+      .addConfigs(
+        Prefab.Config
+          .newBuilder()
+          .setKey(key)
+          .addRows(
+            Prefab.ConfigRow
+              .newBuilder()
+              .addValues(
+                Prefab.ConditionalValue
+                  .newBuilder()
+                  .setValue(ConfigValueUtils.from(value))
+              )
+          )
+      )
+      .build();
+  }
+
   @Nested
   class ContextTests {
 
@@ -185,4 +431,270 @@ class ConfigClientImplTest {
       assertThat(lookupContext).usingRecursiveComparison().isEqualTo(expected);
     }
   }
+
+  @Nested
+  class TypedLookupTests {
+
+    private static final int ITERATIONS = 100_000;
+
+    ConfigClientImpl configClient;
+
+    @BeforeEach
+    void beforeEach() {
+      configClient =
+        newConfigClient(new Options().setDatasource(Options.Datasources.LOCAL_ONLY));
+    }
+
+    private ConfigClientImpl newConfigClient(Options options) {
+      UpdatingConfigResolver updatingConfigResolver = new UpdatingConfigResolver(
+        new ConfigLoader(options),
+        new WeightedValueEvaluator(),
+        new ConfigStoreConfigValueDeltaCalculator()
+      );
+      updatingConfigResolver.loadConfigs(
+        Prefab.Configs
+          .newBuilder()
+          .addConfigs(targetedFlag(1, "u-1", "u-2"))
+          .addConfigs(config(2, "limit", ConfigValueUtils.from(42)))
+          .addConfigs(config(3, "greeting", ConfigValueUtils.from("hello")))
+          .build(),
+        ConfigClient.Source.STREAMING
+      );
+      return new ConfigClientImpl(new Sdk(options), updatingConfigResolver);
+    }
+
+    @Test
+    void typedGettersAgreeWithGet() {
+      Context matching = Context.newBuilder("user").put("key", "u-1").build();
+      Context other = Context.newBuilder("user").put("key", "u-3").build();
+
+      assertThat(configClient.getBoolean("flag", false, matching)).isTrue();
+      assertThat(configClient.get("flag", matching))
+        .contains(ConfigValueUtils.from(true));
+      assertThat(configClient.getBoolean("flag", true, other)).isFalse();
+      assertThat(configClient.get("flag", other)).contains(ConfigValueUtils.from(false));
+      assertThat(configClient.getLong("limit", 0, null)).isEqualTo(42);
+      assertThat(configClient.getString("greeting", "", null)).isEqualTo("hello");
+      assertThat(configClient.getString("limit", "default", null)).isEqualTo("default");
+      assertThat(configClient.getLong("missing", 7, null)).isEqualTo(7);
+    }
+
+    @Test
+    void typedGettersSeeContextStoreChanges() {
+      try (
+        ContextHelper.PrefabContextScope ignored = new ContextHelper(configClient)
+          .performWorkWithAutoClosingContext(
+            Context.newBuilder("user").put("key", "u-3").build()
+          )
+      ) {
+        assertThat(configClient.getBoolean("flag", true, null)).isFalse();
+        configClient
+          .getContextStore()
+          .addContext(Context.newBuilder("user").put("key", "u-2").build());
+        assertThat(configClient.getBoolean("flag", false, null)).isTrue();
+      }
+    }
+
+    @Test
+    void typedGettersDoNotAllocateOnceWarmedUp() {
+      assertLookupsDoNotAllocateOnceWarmedUp();
+    }
+
+    @Test
+    void typedGettersDoNotAllocateWithTheDefaultTelemetry() {
+      // evaluation summaries and example contexts are collected by default, so every
+      // lookup is handed to the telemetry thread
+      configClient =
+        newConfigClient(
+          new Options()
+            .setSdkKey("0-P1-E1-SDK-1234-123-23")
+            .setApiHosts(List.of("http://localhost:1"))
+            .setStreamHosts(List.of("http://localhost:1"))
+            .setTelemetryHost("http://localhost:1")
+            .setInitializationTimeoutSec(1)
+            .setOnInitializationFailure(Options.OnInitializationFailure.UNLOCK)
+        );
+
+      assertLookupsDoNotAllocateOnceWarmedUp();
+    }
+
+    private void assertLookupsDoNotAllocateOnceWarmedUp() {
+      ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+      Context context = Context.newBuilder("user").put("key", "u-2").build();
+      try (
+        ContextHelper.PrefabContextScope ignored = new ContextHelper(configClient)
+          .performWorkWithAutoClosingContext(
+            Context.newBuilder("device").put("mobile", true).build()
+          )
+      ) {
+        long results = lookups(context);
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        results += lookups(context);
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(results).isEqualTo(2L * ITERATIONS * 44);
+        // allow for a few stray objects from the JIT or the measurement itself
+        assertThat(allocated).isLessThan(ITERATIONS);
+      }
+    }
+
+    private long lookups(Context context) {
+      long results = 0;
+      for (int i = 0; i < ITERATIONS; i++) {
+        results += configClient.getBoolean("flag", false, context) ? 1 : 0;
+        results += configClient.getLong("limit", 0, context);
+        results += configClient.getString("greeting", "", context).length() - 5;
+        results += configClient.getLong("missing", 1, null);
+      }
+      return results;
+    }
+  }
+
+  @Nested
+  class EvaluationMemoTests {
+
+    UpdatingConfigResolver updatingConfigResolver;
+    ConfigClientImpl configClient;
+    FeatureFlagClientImpl featureFlagClient;
+    ContextHelper contextHelper;
+
+    Context u1 = Context.newBuilder("user").put("key", "u-1").build();
+    Context u2 = Context.newBuilder("user").put("key", "u-2").build();
+
+    @BeforeEach
+    void beforeEach() {
+      Options options = new Options()
+        .setDatasource(Options.Datasources.LOCAL_ONLY)
+        .setMemoizeRequestEvaluations(true);
+      updatingConfigResolver =
+        new UpdatingConfigResolver(
+          new ConfigLoader(options),
+          new WeightedValueEvaluator(),
+          new ConfigStoreConfigValueDeltaCalculator()
+        );
+      load(targetedFlag(1, "u-1"));
+      configClient = new ConfigClientImpl(new Sdk(options), updatingConfigResolver);
+      featureFlagClient = new FeatureFlagClientImpl(configClient);
+      contextHelper = new ContextHelper(configClient);
+    }
+
+    @Test
+    void answersStayTheSameWhenConfigsChangeMidRequest() {
+      try (
+        ContextHelper.PrefabContextScope ignored = contextHelper.performWorkWithAutoClosingContext(
+          u1
+        )
+      ) {
+        assertThat(featureFlagClient.featureIsOn("flag")).isTrue();
+        load(targetedFlag(2, "u-2"));
+        assertThat(featureFlagClient.featureIsOn("flag")).isTrue();
+        assertThat(configClient.getBoolean("flag", false, null)).isTrue();
+      }
+      try (
+        ContextHelper.PrefabContextScope ignored = contextHelper.performWorkWithAutoClosingContext(
+          u1
+        )
+      ) {
+        assertThat(featureFlagClient.featureIsOn("flag")).isFalse();
+      }
+    }
+
+    @Test
+    void typedAndOptionalLookupsShareTheMemo() {
+      try (
+        ContextHelper.PrefabContextScope ignored = contextHelper.performWorkWithAutoClosingContext(
+          u1
+        )
+      ) {
+        assertThat(configClient.getBoolean("flag", false, null)).isTrue();
+        load(targetedFlag(2, "u-2"));
+        assertThat(configClient.get("flag")).contains(ConfigValueUtils.from(true));
+      }
+    }
+
+    @Test
+    void addingAContextStartsAFreshMemo() {
+      try (
+        ContextHelper.PrefabContextScope ignored = contextHelper.performWorkWithAutoClosingContext(
+          u2
+        )
+      ) {
+        assertThat(featureFlagClient.featureIsOn("flag")).isFalse();
+        configClient.getContextStore().addContext(u1);
+        assertThat(featureFlagClient.featureIsOn("flag")).isTrue();
+      }
+    }
+
+    @Test
+    void lookupsWithAPassedContextAreNotMemoized() {
+      try (
+        ContextHelper.PrefabContextScope ignored = contextHelper.performWorkWithAutoClosingContext(
+          u1
+        )
+      ) {
+        assertThat(featureFlagClient.featureIsOn("flag")).isTrue();
+        assertThat(featureFlagClient.featureIsOn("flag", u2)).isFalse();
+        assertThat(configClient.getBoolean("flag", true, u2)).isFalse();
+      }
+    }
+
+    @Test
+    void nothingIsMemoizedOutsideAScope() {
+      assertThat(configClient.getContextStore().getEvaluationScope()).isEmpty();
+      assertThat(featureFlagClient.featureIsOn("flag", u1)).isTrue();
+      load(targetedFlag(2, "u-2"));
+      assertThat(featureFlagClient.featureIsOn("flag", u1)).isFalse();
+    }
+
+    private void load(Prefab.Config config) {
+      updatingConfigResolver.loadConfigs(
+        Prefab.Configs.newBuilder().addConfigs(config).build(),
+        ConfigClient.Source.STREAMING
+      );
+      updatingConfigResolver.update();
+    }
+  }
+
+  private static Prefab.Config targetedFlag(long id, String... userKeys) {
+    return Prefab.Config
+      .newBuilder()
+      .setId(id)
+      .setKey("flag")
+      .addRows(
+        Prefab.ConfigRow
+          .newBuilder()
+          .addValues(
+            Prefab.ConditionalValue
+              .newBuilder()
+              .addCriteria(
+                Prefab.Criterion
+                  .newBuilder()
+                  .setPropertyName("user.key")
+                  .setOperator(Prefab.Criterion.CriterionOperator.PROP_IS_ONE_OF)
+                  .setValueToMatch(ConfigValueUtils.from(List.of(userKeys)))
+              )
+              .setValue(ConfigValueUtils.from(true))
+          )
+          .addValues(
+            Prefab.ConditionalValue
+              .newBuilder()
+              .setValue(ConfigValueUtils.from(false))
+          )
+      )
+      .build();
+  }
+
+  private static Prefab.Config config(long id, String key, Prefab.ConfigValue value) {
+    return Prefab.Config
+      .newBuilder()
+      .setId(id)
+      .setKey(key)
+      .addRows(
+        Prefab.ConfigRow
+          .newBuilder()
+          .addValues(Prefab.ConditionalValue.newBuilder().setValue(value))
+      )
+      .build();
+  }
 }
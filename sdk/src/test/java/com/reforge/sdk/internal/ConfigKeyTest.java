@@ -0,0 +1,83 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.prefab.domain.Prefab;
+import com.reforge.sdk.ConfigClient;
+import com.reforge.sdk.config.ConfigElement;
+import com.reforge.sdk.config.ConfigValueUtils;
+import com.reforge.sdk.config.Provenance;
+import com.reforge.sdk.context.ContextSetReadable;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ConfigKeyTest {
+
+  @Test
+  void itInternsHandles() {
+    ConfigKey configKey = ConfigKey.of("key1");
+
+    assertThat(ConfigKey.of(new String("key1"))).isSameAs(configKey);
+    assertThat(ConfigKey.of("key2")).isNotSameAs(configKey);
+  }
+
+  @Test
+  void itFollowsNewData() {
+    ConfigStoreImpl configStore = new ConfigStoreImpl();
+    ConfigKey configKey = ConfigKey.of("key1");
+    assertThat(configStore.getCompiledConfig(configKey)).isNull();
+
+    load(configStore, element("key1", "a"));
+    CompiledConfig first = configStore.getCompiledConfig(configKey);
+    assertThat(first).isSameAs(configStore.getCompiledConfig("key1"));
+    assertThat(configStore.getCompiledConfig(configKey)).isSameAs(first);
+
+    load(configStore, element("key1", "b"));
+    assertThat(configStore.getCompiledConfig(configKey))
+      .isNotSameAs(first)
+      .isSameAs(configStore.getCompiledConfig("key1"));
+  }
+
+  @Test
+  void itDoesNotMixUpStores() {
+    ConfigStoreImpl storeA = new ConfigStoreImpl();
+    ConfigStoreImpl storeB = new ConfigStoreImpl();
+    load(storeA, element("key1", "a"));
+    load(storeB, element("key1", "b"));
+    ConfigKey configKey = ConfigKey.of("key1");
+
+    assertThat(storeA.getCompiledConfig(configKey))
+      .isSameAs(storeA.getCompiledConfig("key1"));
+    assertThat(storeB.getCompiledConfig(configKey))
+      .isSameAs(storeB.getCompiledConfig("key1"));
+  }
+
+  private static void load(ConfigStoreImpl configStore, ConfigElement configElement) {
+    configStore.set(
+      new MergedConfigData(
+        Map.of(configElement.getConfig().getKey(), configElement),
+        0,
+        ContextSetReadable.EMPTY,
+        ContextSetReadable.EMPTY
+      )
+        .compile(configStore.get())
+    );
+  }
+
+  private static ConfigElement element(String key, String value) {
+    return new ConfigElement(
+      Prefab.Config
+        .newBuilder()
+        .setKey(key)
+        .addRows(
+          Prefab.ConfigRow
+            .newBuilder()
+            .addValues(
+              Prefab.ConditionalValue.newBuilder().setValue(ConfigValueUtils.from(value))
+            )
+        )
+        .build(),
+      new Provenance(ConfigClient.Source.LOCAL_ONLY, "unit test")
+    );
+  }
+}
@@ -9,11 +9,18 @@ import com.reforge.sdk.config.ConfigElement;
 import com.reforge.sdk.config.Provenance;
 import com.reforge.sdk.context.Context;
 import com.reforge.sdk.context.ContextSet;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 public class ConfigLoaderTest {
 
@@ -37,7 +44,7 @@ public class ConfigLoaderTest {
     @Test
     void itIgnoresOverrides() {
       configLoader.setConfigs(
-        configLoader.loadFromJsonFile(),
+        configLoader.loadFromDatafile(),
         new Provenance(ConfigClient.Source.LOCAL_FILE)
       );
       Optional<Prefab.Config> configFromJsonFileMaybe = getConfig("cool.bool.enabled");
@@ -46,6 +53,41 @@ public class ConfigLoaderTest {
     }
   }
 
+  @Nested
+  class BinaryDatafileTests {
+
+    private static final String JSON_DATAFILE =
+      "src/test/resources/prefab.Development.5.config.json";
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(strings = { "configs.pb", "configs" })
+    void itLoadsProtobufDatafiles(String filename) throws IOException {
+      Prefab.Configs fromJson = new ConfigLoader(
+        new Options().setLocalDatafile(JSON_DATAFILE)
+      )
+        .loadFromDatafile();
+      Path datafile = directory.resolve(filename);
+      Files.write(datafile, fromJson.toByteArray());
+
+      buildLoaderWithOptions(new Options().setLocalDatafile(datafile.toString()));
+
+      assertThat(configLoader.loadFromDatafile()).isEqualTo(fromJson);
+    }
+
+    @Test
+    void itReadsJsonDatafilesWithoutAJsonExtension() throws IOException {
+      Path datafile = directory.resolve("configs.txt");
+      Files.write(datafile, Files.readAllBytes(Path.of(JSON_DATAFILE)));
+
+      buildLoaderWithOptions(new Options().setLocalDatafile(datafile.toString()));
+
+      assertThat(configLoader.loadFromDatafile().getConfigsCount()).isPositive();
+    }
+  }
+
   @Nested
   class UnitTestEnvTests {
 
@@ -105,6 +147,87 @@ public class ConfigLoaderTest {
       );
       assertThat(configLoader.calcConfig().getConfigs().get("val_from_api")).isNull();
     }
+
+    @Test
+    public void testRemovingTheHighestIdLowersTheHighwaterMark() {
+      configLoader.set(cd(1, "first", 1));
+      configLoader.set(cd(3, "second", 2));
+      assertThat(configLoader.getHighwaterMark()).isEqualTo(3);
+
+      configLoader.set(
+        new ConfigElement(
+          Prefab.Config.newBuilder().setId(3).setKey("second").build(),
+          new Provenance(ConfigClient.Source.LOCAL_ONLY, "unit_tests")
+        )
+      );
+      assertThat(configLoader.getHighwaterMark()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCalcConfigReportsKeysSetSinceLastCall() {
+      configLoader.set(cd(1, "first", 1));
+      configLoader.set(cd(2, "second", 2));
+      MergedConfigData first = configLoader.calcConfig();
+
+      configLoader.set(cd(3, "second", 3));
+      // older than what is loaded, so ignored
+      configLoader.set(cd(0, "first", 10));
+      MergedConfigData second = configLoader.calcConfig();
+
+      assertThat(second.getChangedKeysSince(first)).contains(Set.of("second"));
+      assertThat(second.getConfigs().keySet())
+        .containsExactlyInAnyOrder("first", "second");
+      assertThat(second.getConfigs().get("first"))
+        .isSameAs(first.getConfigs().get("first"));
+      assertThat(configLoader.calcConfig().getChangedKeysSince(second))
+        .contains(Set.of());
+      assertThat(second.getChangedKeysSince(second)).isEmpty();
+    }
+
+    @Test
+    public void testApiConfigsLoadBackToTheSameState() {
+      configLoader.setConfigs(
+        Prefab.Configs
+          .newBuilder()
+          .addConfigs(cd(1, "first", 1).getConfig())
+          .addConfigs(cd(4, "second", 2).getConfig())
+          .setConfigServicePointer(
+            Prefab.ConfigServicePointer.newBuilder().setProjectEnvId(7)
+          )
+          .build(),
+        new Provenance(ConfigClient.Source.REMOTE_API)
+      );
+      configLoader.set(
+        new ConfigElement(
+          Prefab.Config.newBuilder().setId(5).setKey("first").build(),
+          new Provenance(ConfigClient.Source.STREAMING)
+        )
+      );
+
+      ConfigLoader restarted = new ConfigLoader(new Options());
+      restarted.setSnapshot(configLoader.getSnapshot());
+
+      assertThat(restarted.getHighwaterMark()).isEqualTo(4);
+      MergedConfigData restartedData = restarted.calcConfig();
+      assertThat(restartedData.getConfigs().keySet()).containsExactly("second");
+      assertThat(restartedData.getEnvId()).isEqualTo(7);
+    }
+
+    @Test
+    public void testReplaceConfigsRemovesConfigsLeftOut() {
+      configLoader.set(cd(5, "first", 1));
+      configLoader.set(cd(6, "second", 2));
+
+      configLoader.replaceConfigs(
+        Prefab.Configs.newBuilder().addConfigs(cd(1, "second", 3).getConfig()).build(),
+        new Provenance(ConfigClient.Source.LOCAL_FILE)
+      );
+
+      assertThat(configLoader.calcConfig().getConfigs().keySet())
+        .containsExactly("second");
+      assertThat(getValue("second")).map(Prefab.ConfigValue::getInt).contains(3L);
+      assertThat(configLoader.getHighwaterMark()).isEqualTo(1);
+    }
   }
 
   @Nested
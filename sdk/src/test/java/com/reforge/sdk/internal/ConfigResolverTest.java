@@ -6,7 +6,6 @@ import static org.mockito.Mockito.when;
 
 import cloud.prefab.domain.Prefab;
 import com.reforge.sdk.ConfigClient;
-import com.reforge.sdk.ConfigStore;
 import com.reforge.sdk.config.ConfigElement;
 import com.reforge.sdk.config.ConfigValueUtils;
 import com.reforge.sdk.config.Match;
@@ -16,10 +15,10 @@ import com.reforge.sdk.exceptions.ConfigValueException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -39,7 +38,7 @@ class ConfigResolverTest {
     .build();
 
   @Mock
-  ConfigStore configStore;
+  InternalConfigStore configStore;
 
   @Mock
   ConfigRuleEvaluator configRuleEvaluator;
@@ -47,9 +46,14 @@ class ConfigResolverTest {
   @Mock
   EnvironmentVariableLookup environmentVariableLookup;
 
-  @InjectMocks
   ConfigResolver configResolver;
 
+  @BeforeEach
+  void createResolver() {
+    configResolver =
+      new ConfigResolver(configStore, configRuleEvaluator, environmentVariableLookup);
+  }
+
   @Nested
   class EnvVarTests {
 
@@ -17,6 +17,7 @@ import java.time.ZonedDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -412,6 +413,87 @@ public class ConfigRuleEvaluatorTest {
     assertThat(alphaEval.get(0).isMatch()).isFalse();
   }
 
+  @Test
+  void itEvaluatesEachSegmentOncePerContextAndVersion() {
+    ConfigElement segment = segmentTestData();
+    when(mockConfigStoreImpl.getCompiledConfig("segment"))
+      .thenReturn(CompiledConfig.compile(segment, 0));
+    when(mockConfigStoreImpl.getElement("segment")).thenReturn(segment);
+
+    final Prefab.Criterion segmentCriteria = Prefab.Criterion
+      .newBuilder()
+      .setValueToMatch(Prefab.ConfigValue.newBuilder().setString("segment").build())
+      .setOperator(Prefab.Criterion.CriterionOperator.IN_SEG)
+      .build();
+    LookupContext lookupContext = singleValueLookupContext("group", sv("beta"));
+
+    List<EvaluatedCriterion> first = evaluator.evaluateCriterionMatch(
+      segmentCriteria,
+      lookupContext
+    );
+    List<EvaluatedCriterion> second = evaluator.evaluateCriterionMatch(
+      segmentCriteria,
+      lookupContext
+    );
+    assertThat(first).hasSize(1);
+    assertThat(first.get(0).isMatch()).isTrue();
+    assertThat(second).isSameAs(first);
+
+    when(mockConfigStoreImpl.getVersion()).thenReturn(1L);
+    List<EvaluatedCriterion> afterUpdate = evaluator.evaluateCriterionMatch(
+      segmentCriteria,
+      lookupContext
+    );
+    assertThat(afterUpdate).isNotSameAs(first).isEqualTo(first);
+  }
+
+  @Test
+  void itDoesNotRememberSegmentsOnTheCurrentTime() {
+    Prefab.Config segment = Prefab.Config
+      .newBuilder()
+      .setKey("segment")
+      .addRows(
+        Prefab.ConfigRow
+          .newBuilder()
+          .addValues(
+            Prefab.ConditionalValue
+              .newBuilder()
+              .setValue(Prefab.ConfigValue.newBuilder().setBool(true).build())
+              .addCriteria(
+                Prefab.Criterion
+                  .newBuilder()
+                  .setPropertyName(ConfigRuleEvaluator.CURRENT_TIME_KEY)
+                  .setOperator(Prefab.Criterion.CriterionOperator.PROP_AFTER)
+                  .setValueToMatch(Prefab.ConfigValue.newBuilder().setInt(0).build())
+              )
+          )
+          .build()
+      )
+      .build();
+    ConfigElement segmentElement = new ConfigElement(
+      segment,
+      new Provenance(ConfigClientImpl.Source.LOCAL_ONLY, "unit test")
+    );
+    when(mockConfigStoreImpl.getCompiledConfig("segment"))
+      .thenReturn(CompiledConfig.compile(segmentElement, 0));
+    when(mockConfigStoreImpl.getElement("segment")).thenReturn(segmentElement);
+
+    final Prefab.Criterion segmentCriteria = Prefab.Criterion
+      .newBuilder()
+      .setValueToMatch(Prefab.ConfigValue.newBuilder().setString("segment").build())
+      .setOperator(Prefab.Criterion.CriterionOperator.IN_SEG)
+      .build();
+    LookupContext lookupContext = singleValueLookupContext("group", sv("beta"));
+
+    List<EvaluatedCriterion> first = evaluator.evaluateCriterionMatch(
+      segmentCriteria,
+      lookupContext
+    );
+    assertThat(first.get(0).isMatch()).isTrue();
+    assertThat(evaluator.evaluateCriterionMatch(segmentCriteria, lookupContext))
+      .isNotSameAs(first);
+  }
+
   @Test
   public void testIntInStringListMatches() {
     final Prefab.Criterion numberCriterion = Prefab.Criterion
@@ -874,6 +956,33 @@ public class ConfigRuleEvaluatorTest {
       .isEqualTo(expectedMatch);
   }
 
+  @Test
+  void regexCriteriaCanBeReusedAcrossValuesAndThreads() throws Exception {
+    CompiledCriterion criterion = CompiledCriterion.compile(
+      Prefab.Criterion
+        .newBuilder()
+        .setPropertyName("user.email")
+        .setOperator(Prefab.Criterion.CriterionOperator.PROP_MATCHES)
+        .setValueToMatch(ConfigValueUtils.from(".*@example\\.com"))
+        .build()
+    );
+    LookupContext example = singleValueLookupContext(
+      "user.email",
+      sv("jeff@example.com")
+    );
+    LookupContext other = singleValueLookupContext("user.email", sv("jeff@other.com"));
+
+    assertThat(criterion.matches(evaluator, example, new RowPropertiesStack())).isTrue();
+    assertThat(criterion.matches(evaluator, other, new RowPropertiesStack())).isFalse();
+    assertThat(criterion.matches(evaluator, example, new RowPropertiesStack())).isTrue();
+    assertThat(
+      CompletableFuture
+        .supplyAsync(() -> criterion.matches(evaluator, other, new RowPropertiesStack()))
+        .get(5, TimeUnit.SECONDS)
+    )
+      .isFalse();
+  }
+
   private Prefab.ConfigValue sv(String s) {
     return Prefab.ConfigValue.newBuilder().setString(s).build();
   }
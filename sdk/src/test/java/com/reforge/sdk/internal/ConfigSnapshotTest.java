@@ -0,0 +1,177 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import cloud.prefab.domain.Prefab;
+import com.reforge.sdk.ConfigClient;
+import com.reforge.sdk.Options;
+import com.reforge.sdk.config.ConfigChangeEvent;
+import com.reforge.sdk.config.ConfigElement;
+import com.reforge.sdk.config.ConfigValueUtils;
+import com.reforge.sdk.config.Provenance;
+import com.reforge.sdk.util.Cache;
+import com.reforge.sdk.util.FileCache;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigSnapshotTest {
+
+  private static final String SDK_KEY = "0-P1-E1-SDK-1234-123-23";
+
+  @Test
+  void itLoadsWhatWasSavedWithoutDecodingIt() {
+    Cache cache = new InMemoryCache();
+    new ConfigSnapshot(cache, SDK_KEY).save(loaderWithConfigs().getSnapshot());
+
+    ConfigSnapshot.Contents contents = new ConfigSnapshot(cache, SDK_KEY)
+      .load()
+      .orElseThrow();
+
+    assertThat(contents.getConfigServicePointer().getProjectEnvId()).isEqualTo(5);
+    assertThat(contents.getDefaultContext().getContextsCount()).isEqualTo(1);
+    Map<String, ConfigElement> elements = contents
+      .getConfigElements()
+      .stream()
+      .collect(Collectors.toMap(ConfigElement::getKey, element -> element));
+    assertThat(elements).containsOnlyKeys("flag", "config");
+    ConfigElement flag = elements.get("flag");
+    assertThat(flag.isDecoded()).isFalse();
+    assertThat(flag.getId()).isEqualTo(3);
+    assertThat(flag.getConfigType()).isEqualTo(Prefab.ConfigType.FEATURE_FLAG);
+    assertThat(flag.getConfig()).isEqualTo(config(3, "flag", "on"));
+    assertThat(flag.isDecoded()).isTrue();
+    assertThat(elements.get("config").isDecoded()).isFalse();
+  }
+
+  @Test
+  void itDecodesOnlyTheConfigsThatAreLookedUp(@TempDir Path directory) {
+    new ConfigSnapshot(new FileCache(directory), SDK_KEY)
+      .save(loaderWithConfigs().getSnapshot());
+    ConfigSnapshot.Contents contents = new ConfigSnapshot(
+      new FileCache(directory),
+      SDK_KEY
+    )
+      .load()
+      .orElseThrow();
+    UpdatingConfigResolver resolver = new UpdatingConfigResolver(
+      new ConfigLoader(new Options()),
+      new WeightedValueEvaluator(),
+      new ConfigStoreConfigValueDeltaCalculator()
+    );
+
+    resolver.loadSnapshot(contents);
+    assertThat(resolver.update().getConfigChangeEvents())
+      .extracting(ConfigChangeEvent::getKey)
+      .containsExactlyInAnyOrder("flag", "config");
+    assertThat(resolver.getHighwaterMark()).isEqualTo(4);
+    assertThat(resolver.getApiDefaultContext().isEmpty()).isFalse();
+    assertThat(contents.getConfigElements()).noneMatch(ConfigElement::isDecoded);
+
+    assertThat(resolver.getConfigValue("flag")).contains(ConfigValueUtils.from("on"));
+    assertThat(contents.getConfigElements())
+      .filteredOn(ConfigElement::isDecoded)
+      .extracting(ConfigElement::getKey)
+      .containsExactly("flag");
+  }
+
+  @Test
+  void itStartsWithoutAnUnreadableSnapshot() {
+    Cache cache = new InMemoryCache();
+    ConfigSnapshot configSnapshot = new ConfigSnapshot(cache, SDK_KEY);
+    configSnapshot.save(loaderWithConfigs().getSnapshot());
+    ((InMemoryCache) cache).entries.replaceAll((key, bytes) -> new byte[] { 1, 2, 3 });
+
+    assertThat(configSnapshot.load()).isEmpty();
+  }
+
+  @Test
+  void itFoldsSavesMadeWithinTheDelayIntoOne() {
+    CountingCache cache = new CountingCache();
+    ConfigSnapshot configSnapshot = new ConfigSnapshot(cache, SDK_KEY, 50);
+    ConfigLoader configLoader = loaderWithConfigs();
+    AtomicInteger suppliedCount = new AtomicInteger();
+
+    for (int i = 0; i < 10; i++) {
+      configSnapshot.saveLater(() -> {
+        suppliedCount.incrementAndGet();
+        return configLoader.getSnapshot();
+      });
+    }
+
+    await().atMost(Duration.ofSeconds(5)).until(() -> cache.setCount.get() == 1);
+    assertThat(suppliedCount).hasValue(1);
+    assertThat(configSnapshot.load()).isPresent();
+  }
+
+  private static ConfigLoader loaderWithConfigs() {
+    ConfigLoader configLoader = new ConfigLoader(new Options());
+    configLoader.setConfigs(
+      Prefab.Configs
+        .newBuilder()
+        .addConfigs(config(3, "flag", "on"))
+        .addConfigs(
+          config(4, "config", "value").toBuilder().setConfigType(Prefab.ConfigType.CONFIG)
+        )
+        .setConfigServicePointer(
+          Prefab.ConfigServicePointer.newBuilder().setProjectEnvId(5)
+        )
+        .setDefaultContext(
+          Prefab.ContextSet
+            .newBuilder()
+            .addContexts(Prefab.Context.newBuilder().setType("deploy"))
+        )
+        .build(),
+      new Provenance(ConfigClient.Source.REMOTE_API)
+    );
+    return configLoader;
+  }
+
+  private static Prefab.Config config(long id, String key, String value) {
+    return Prefab.Config
+      .newBuilder()
+      .setId(id)
+      .setKey(key)
+      .setConfigType(Prefab.ConfigType.FEATURE_FLAG)
+      .addRows(
+        Prefab.ConfigRow
+          .newBuilder()
+          .addValues(
+            Prefab.ConditionalValue.newBuilder().setValue(ConfigValueUtils.from(value))
+          )
+      )
+      .build();
+  }
+
+  private static class InMemoryCache implements Cache {
+
+    private final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] get(String key) {
+      return entries.get(key);
+    }
+
+    @Override
+    public void set(String key, int expiryInSeconds, byte[] bytes) {
+      entries.put(key, bytes);
+    }
+  }
+
+  private static class CountingCache extends InMemoryCache {
+
+    private final AtomicInteger setCount = new AtomicInteger();
+
+    @Override
+    public void set(String key, int expiryInSeconds, byte[] bytes) {
+      super.set(key, expiryInSeconds, bytes);
+      setCount.incrementAndGet();
+    }
+  }
+}
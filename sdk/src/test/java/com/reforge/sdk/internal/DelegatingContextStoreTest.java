@@ -0,0 +1,36 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.reforge.sdk.context.Context;
+import com.reforge.sdk.context.ContextSet;
+import com.reforge.sdk.context.ContextStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class DelegatingContextStoreTest {
+
+  private final DelegatingContextStore delegatingContextStore = new DelegatingContextStore() {
+    @Override
+    ContextStore getContextStore() {
+      return ThreadLocalContextStore.INSTANCE;
+    }
+  };
+
+  @AfterEach
+  void clearContext() {
+    ThreadLocalContextStore.INSTANCE.clearContext();
+  }
+
+  @Test
+  void itForwardsTheEvaluationScope() {
+    assertThat(delegatingContextStore.getEvaluationScope()).isEmpty();
+
+    ThreadLocalContextStore.INSTANCE.setContext(
+      ContextSet.from(Context.newBuilder("user").build())
+    );
+
+    assertThat(delegatingContextStore.getEvaluationScope())
+      .containsSame(ThreadLocalContextStore.INSTANCE.getEvaluationScope().get());
+  }
+}
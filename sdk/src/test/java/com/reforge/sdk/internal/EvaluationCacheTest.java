@@ -0,0 +1,226 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.prefab.domain.Prefab;
+import com.reforge.sdk.ConfigClient;
+import com.reforge.sdk.config.ConfigElement;
+import com.reforge.sdk.config.ConfigValueUtils;
+import com.reforge.sdk.config.EvaluationCacheStats;
+import com.reforge.sdk.config.Provenance;
+import com.reforge.sdk.context.Context;
+import com.reforge.sdk.context.ContextSetReadable;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EvaluationCacheTest {
+
+  private static final LookupContext USER_1 = new LookupContext(
+    Context.newBuilder("user").put("key", "u-1").build()
+  );
+  private static final LookupContext USER_2 = new LookupContext(
+    Context.newBuilder("user").put("key", "u-2").build()
+  );
+
+  private ConfigStoreImpl configStore;
+  private ConfigResolver configResolver;
+
+  @BeforeEach
+  void setup() {
+    configStore = new ConfigStoreImpl();
+    configResolver =
+      new ConfigResolver(
+        configStore,
+        new ConfigRuleEvaluator(configStore, new WeightedValueEvaluator()),
+        new SystemEnvVarLookup(),
+        100
+      );
+  }
+
+  @Test
+  void itAnswersRepeatedLookupsFromTheCache() {
+    load(Map.of("flag", element("flag", userIsOneOf("u-1"))));
+
+    assertThat(value("flag", USER_1)).isEqualTo(ConfigValueUtils.from(true));
+    assertThat(value("flag", USER_1)).isEqualTo(ConfigValueUtils.from(true));
+    assertThat(value("flag", USER_2)).isEqualTo(ConfigValueUtils.from(false));
+    assertThat(value("flag", new LookupContext(USER_2.getPrefabContextSet())))
+      .isEqualTo(ConfigValueUtils.from(false));
+
+    EvaluationCacheStats stats = stats();
+    assertThat(stats.getHitCount()).isEqualTo(2);
+    assertThat(stats.getMissCount()).isEqualTo(2);
+    assertThat(stats.getSize()).isEqualTo(2);
+  }
+
+  @Test
+  void itDropsEverythingWhenNewDataIsInstalled() {
+    load(Map.of("flag", element("flag", userIsOneOf("u-1"))));
+    assertThat(value("flag", USER_1)).isEqualTo(ConfigValueUtils.from(true));
+
+    load(Map.of("flag", element("flag", userIsOneOf("u-2"))));
+    assertThat(value("flag", USER_1)).isEqualTo(ConfigValueUtils.from(false));
+
+    assertThat(stats().getHitCount()).isZero();
+    assertThat(stats().getMissCount()).isEqualTo(2);
+    assertThat(stats().getSize()).isEqualTo(1);
+  }
+
+  @Test
+  void itCachesMissingConfigs() {
+    load(Map.of());
+
+    assertThat(configResolver.getMatch("missing", USER_1)).isEmpty();
+    assertThat(configResolver.getMatch("missing", USER_1)).isEmpty();
+
+    assertThat(stats().getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void itBypassesTimeBasedConfigs() {
+    Prefab.Criterion before = Prefab.Criterion
+      .newBuilder()
+      .setPropertyName(ConfigRuleEvaluator.CURRENT_TIME_KEY)
+      .setOperator(Prefab.Criterion.CriterionOperator.PROP_BEFORE)
+      .setValueToMatch(ConfigValueUtils.from(Long.MAX_VALUE))
+      .build();
+    load(Map.of("timed", element("timed", before)));
+
+    assertThat(value("timed", USER_1)).isEqualTo(ConfigValueUtils.from(true));
+    assertThat(value("timed", USER_1)).isEqualTo(ConfigValueUtils.from(true));
+
+    assertThat(stats().getBypassCount()).isEqualTo(2);
+    assertThat(stats().getSize()).isZero();
+  }
+
+  @Test
+  void itBypassesConfigsWithTimeBasedSegments() {
+    Prefab.Criterion after = Prefab.Criterion
+      .newBuilder()
+      .setPropertyName(ConfigRuleEvaluator.CURRENT_TIME_KEY)
+      .setOperator(Prefab.Criterion.CriterionOperator.PROP_AFTER)
+      .setValueToMatch(ConfigValueUtils.from(0))
+      .build();
+    Prefab.Criterion inSegment = Prefab.Criterion
+      .newBuilder()
+      .setOperator(Prefab.Criterion.CriterionOperator.IN_SEG)
+      .setValueToMatch(ConfigValueUtils.from("segment"))
+      .build();
+    load(
+      Map.of("segment", element("segment", after), "flag", element("flag", inSegment))
+    );
+
+    assertThat(value("flag", USER_1)).isEqualTo(ConfigValueUtils.from(true));
+
+    assertThat(stats().getBypassCount()).isEqualTo(1);
+  }
+
+  @Test
+  void itOnlyCachesWeightedValuesHashedOnTheContext() {
+    load(
+      Map.of(
+        "random",
+        weightedElement("random", Optional.empty()),
+        "hashed",
+        weightedElement("hashed", Optional.of("user.key"))
+      )
+    );
+
+    configResolver.getMatch("random", USER_1);
+    assertThat(stats().getBypassCount()).isEqualTo(1);
+
+    configResolver.getMatch("hashed", LookupContext.EMPTY);
+    assertThat(stats().getBypassCount()).isEqualTo(2);
+
+    Prefab.ConfigValue first = value("hashed", USER_1);
+    assertThat(value("hashed", USER_1)).isEqualTo(first);
+    assertThat(stats().getBypassCount()).isEqualTo(2);
+    assertThat(stats().getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void itHasNoStatsWithoutACache() {
+    ConfigResolver uncached = new ConfigResolver(
+      configStore,
+      new ConfigRuleEvaluator(configStore, new WeightedValueEvaluator()),
+      new SystemEnvVarLookup()
+    );
+
+    assertThat(uncached.getEvaluationCacheStats()).isEmpty();
+  }
+
+  private Prefab.ConfigValue value(String key, LookupContext lookupContext) {
+    return configResolver.getConfigValue(key, lookupContext).orElseThrow();
+  }
+
+  private EvaluationCacheStats stats() {
+    return configResolver.getEvaluationCacheStats().orElseThrow();
+  }
+
+  private void load(Map<String, ConfigElement> configs) {
+    configStore.set(
+      new MergedConfigData(configs, 0, ContextSetReadable.EMPTY, ContextSetReadable.EMPTY)
+        .compile(configStore.get())
+    );
+  }
+
+  private static Prefab.Criterion userIsOneOf(String userKey) {
+    return Prefab.Criterion
+      .newBuilder()
+      .setPropertyName("user.key")
+      .setOperator(Prefab.Criterion.CriterionOperator.PROP_IS_ONE_OF)
+      .setValueToMatch(ConfigValueUtils.from(List.of(userKey)))
+      .build();
+  }
+
+  private static ConfigElement element(String key, Prefab.Criterion criterion) {
+    return element(
+      key,
+      Prefab.ConditionalValue
+        .newBuilder()
+        .addCriteria(criterion)
+        .setValue(ConfigValueUtils.from(true))
+        .build(),
+      Prefab.ConditionalValue.newBuilder().setValue(ConfigValueUtils.from(false)).build()
+    );
+  }
+
+  private static ConfigElement weightedElement(
+    String key,
+    Optional<String> hashByPropertyName
+  ) {
+    Prefab.WeightedValues.Builder weightedValues = Prefab.WeightedValues
+      .newBuilder()
+      .addWeightedValues(
+        Prefab.WeightedValue.newBuilder().setWeight(1).setValue(ConfigValueUtils.from(1))
+      )
+      .addWeightedValues(
+        Prefab.WeightedValue.newBuilder().setWeight(1).setValue(ConfigValueUtils.from(2))
+      );
+    hashByPropertyName.ifPresent(weightedValues::setHashByPropertyName);
+    return element(
+      key,
+      Prefab.ConditionalValue
+        .newBuilder()
+        .setValue(Prefab.ConfigValue.newBuilder().setWeightedValues(weightedValues))
+        .build()
+    );
+  }
+
+  private static ConfigElement element(
+    String key,
+    Prefab.ConditionalValue... conditionalValues
+  ) {
+    return new ConfigElement(
+      Prefab.Config
+        .newBuilder()
+        .setKey(key)
+        .addRows(Prefab.ConfigRow.newBuilder().addAllValues(List.of(conditionalValues)))
+        .build(),
+      new Provenance(ConfigClient.Source.LOCAL_ONLY, "unit test")
+    );
+  }
+}
@@ -0,0 +1,89 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+class HedgedRequestTest {
+
+  private final HostLatencyTracker hostLatencyTracker = new HostLatencyTracker(5000);
+  private final List<String> requestedHosts = new CopyOnWriteArrayList<>();
+  private final Map<String, CompletableFuture<String>> responses = new ConcurrentHashMap<>();
+
+  private CompletableFuture<String> execute(long hedgeDelayMillis, List<String> hosts) {
+    for (String host : hosts) {
+      responses.putIfAbsent(host, new CompletableFuture<>());
+    }
+    return HedgedRequest.execute(
+      host -> {
+        requestedHosts.add(host);
+        return responses.get(host);
+      },
+      "failure"::equals,
+      hostLatencyTracker,
+      hedgeDelayMillis,
+      hosts
+    );
+  }
+
+  @Test
+  void aFastHostIsTheOnlyOneAsked() {
+    responses.put("a", CompletableFuture.completedFuture("from a"));
+
+    assertThat(execute(50, List.of("a", "b")))
+      .succeedsWithin(Duration.ofSeconds(1))
+      .isEqualTo("from a");
+    assertThat(requestedHosts).containsExactly("a");
+  }
+
+  @Test
+  void aSlowHostIsHedgedAndTheFirstAnswerWins() {
+    CompletableFuture<String> result = execute(50, List.of("a", "b"));
+    responses.get("b").complete("from b");
+
+    assertThat(result).succeedsWithin(Duration.ofSeconds(1)).isEqualTo("from b");
+    assertThat(requestedHosts).containsExactly("a", "b");
+    await().atMost(Duration.ofSeconds(1)).until(() -> responses.get("a").isCancelled());
+    assertThat(hostLatencyTracker.fastestFirst(List.of("a", "b")))
+      .containsExactly("b", "a");
+  }
+
+  @Test
+  void aFailureMovesOnWithoutWaiting() {
+    responses.put("a", CompletableFuture.failedFuture(new RuntimeException("down")));
+    responses.put("b", CompletableFuture.completedFuture("failure"));
+    responses.put("c", CompletableFuture.completedFuture("from c"));
+
+    assertThat(execute(60_000, List.of("a", "b", "c")))
+      .succeedsWithin(Duration.ofSeconds(1))
+      .isEqualTo("from c");
+    assertThat(requestedHosts).containsExactly("a", "b", "c");
+  }
+
+  @Test
+  void theLastFailureIsTheResultWhenEveryHostFails() {
+    responses.put("a", CompletableFuture.failedFuture(new RuntimeException("down")));
+    responses.put("b", CompletableFuture.completedFuture("failure"));
+
+    assertThat(execute(60_000, List.of("a", "b")))
+      .succeedsWithin(Duration.ofSeconds(1))
+      .isEqualTo("failure");
+  }
+
+  @Test
+  void itFailsAtOnceWithNoHosts() {
+    assertThat(execute(50, List.of()))
+      .failsWithin(Duration.ofSeconds(1))
+      .withThrowableOfType(ExecutionException.class)
+      .withCauseInstanceOf(IllegalArgumentException.class);
+    assertThat(requestedHosts).isEmpty();
+  }
+}
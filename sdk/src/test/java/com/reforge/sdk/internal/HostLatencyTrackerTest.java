@@ -0,0 +1,51 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class HostLatencyTrackerTest {
+
+  private final HostLatencyTracker hostLatencyTracker = new HostLatencyTracker(5000);
+
+  @Test
+  void unmeasuredHostsKeepTheirOrder() {
+    assertThat(hostLatencyTracker.fastestFirst(List.of("a", "b", "c")))
+      .containsExactly("a", "b", "c");
+  }
+
+  @Test
+  void fasterHostsComeFirst() {
+    hostLatencyTracker.recordSuccess("a", 300);
+    hostLatencyTracker.recordSuccess("b", 20);
+
+    assertThat(hostLatencyTracker.fastestFirst(List.of("a", "b", "c")))
+      .containsExactly("b", "a", "c");
+  }
+
+  @Test
+  void failingHostsFallBehind() {
+    hostLatencyTracker.recordSuccess("a", 20);
+    hostLatencyTracker.recordSuccess("b", 300);
+    hostLatencyTracker.recordFailure("a");
+
+    assertThat(hostLatencyTracker.fastestFirst(List.of("a", "b")))
+      .containsExactly("b", "a");
+  }
+
+  @Test
+  void p95FollowsTheSpreadOfLatencies() {
+    assertThat(hostLatencyTracker.p95Millis("a", 500)).isEqualTo(500);
+
+    for (int i = 0; i < 50; i++) {
+      hostLatencyTracker.recordSuccess("a", 100);
+    }
+    assertThat(hostLatencyTracker.p95Millis("a", 500)).isEqualTo(100);
+
+    for (int i = 0; i < 50; i++) {
+      hostLatencyTracker.recordSuccess("b", i % 2 == 0 ? 50 : 150);
+    }
+    assertThat(hostLatencyTracker.p95Millis("b", 500)).isBetween(150L, 250L);
+  }
+}
@@ -1,22 +1,35 @@
 package com.reforge.sdk.internal;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import cloud.prefab.domain.Prefab;
 import com.google.common.cache.Cache;
+import com.google.common.primitives.Bytes;
 import com.reforge.sdk.Options;
+import com.reforge.sdk.util.ContentCodec;
+import com.reforge.sdk.util.GzipContentCodec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
 import java.net.URI;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Flow;
 import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -47,7 +60,8 @@ class HttpClientTest {
 
   @Test
   void testFailoverForConfigFetch() throws Exception {
-    // Use byte[]–based mocks since requestConfigsFromURI uses BodyHandlers.ofByteArray().
+    // Use InputStream–based mocks since requestConfigsFromURI uses
+    // BodyHandlers.ofInputStream().
     Prefab.Configs dummyConfigs = Prefab.Configs
       .newBuilder()
       .setConfigServicePointer(
@@ -56,21 +70,23 @@ class HttpClientTest {
       .build();
     byte[] dummyBytes = dummyConfigs.toByteArray();
 
-    HttpResponse<byte[]> failureResponse = mock(HttpResponse.class);
+    HttpResponse<InputStream> failureResponse = mock(HttpResponse.class);
     when(failureResponse.statusCode()).thenReturn(500);
+    when(failureResponse.body())
+      .thenAnswer(invocation -> new ByteArrayInputStream(new byte[0]));
 
-    HttpResponse<byte[]> successResponse = mock(HttpResponse.class);
+    HttpResponse<InputStream> successResponse = mock(HttpResponse.class);
     when(successResponse.statusCode()).thenReturn(200);
-    when(successResponse.body()).thenReturn(dummyBytes);
+    when(successResponse.body()).thenReturn(new ByteArrayInputStream(dummyBytes));
     // Provide minimal headers for the success branch.
     HttpHeaders successHeaders = HttpHeaders.of(Map.of(), (k, v) -> true);
     when(successResponse.headers()).thenReturn(successHeaders);
 
     // Set up stubbing: 2 failures then a success.
-    CompletableFuture<HttpResponse<byte[]>> failureFuture = CompletableFuture.completedFuture(
+    CompletableFuture<HttpResponse<InputStream>> failureFuture = CompletableFuture.completedFuture(
       failureResponse
     );
-    CompletableFuture<HttpResponse<byte[]>> successFuture = CompletableFuture.completedFuture(
+    CompletableFuture<HttpResponse<InputStream>> successFuture = CompletableFuture.completedFuture(
       successResponse
     );
     // We use a simple stubbing (without capturing) and then later verify the number of invocations.
@@ -95,6 +111,93 @@ class HttpClientTest {
     // (Optionally, if you wish to capture the URIs, you can do so via a custom Answer.)
   }
 
+  @Test
+  void testHedgedConfigFetchRetriesOnceEveryHostHasFailed() throws Exception {
+    Prefab.Configs dummyConfigs = Prefab.Configs
+      .newBuilder()
+      .setConfigServicePointer(
+        Prefab.ConfigServicePointer.newBuilder().setProjectId(123L)
+      )
+      .build();
+    HttpHeaders headers = HttpHeaders.of(Map.of(), (k, v) -> true);
+
+    HttpResponse<InputStream> failureResponse = mock(HttpResponse.class);
+    when(failureResponse.statusCode()).thenReturn(500);
+    when(failureResponse.body())
+      .thenAnswer(invocation -> new ByteArrayInputStream(new byte[0]));
+    when(failureResponse.headers()).thenReturn(headers);
+
+    HttpResponse<InputStream> successResponse = mock(HttpResponse.class);
+    when(successResponse.statusCode()).thenReturn(200);
+    when(successResponse.body())
+      .thenReturn(new ByteArrayInputStream(dummyConfigs.toByteArray()));
+    when(successResponse.headers()).thenReturn(headers);
+
+    when(
+      mockHttpClient.sendAsync(
+        any(HttpRequest.class),
+        any(HttpResponse.BodyHandler.class)
+      )
+    )
+      .thenReturn(
+        CompletableFuture.completedFuture(failureResponse),
+        CompletableFuture.completedFuture(failureResponse),
+        CompletableFuture.completedFuture(successResponse)
+      );
+
+    HttpClient hedgingHttpClient = new HttpClient(
+      mockHttpClient,
+      options.setHedgedConfigRequests(true)
+    );
+    HttpResponse<Supplier<Prefab.Configs>> response = hedgingHttpClient
+      .requestConfigs(0L)
+      .get();
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body().get()).isEqualTo(dummyConfigs);
+    verify(mockHttpClient, times(3)).sendAsync(any(), any());
+  }
+
+  @Test
+  void testHedgedConfigFetchCancelsTheSlowerExchange() throws Exception {
+    Prefab.Configs dummyConfigs = Prefab.Configs
+      .newBuilder()
+      .setConfigServicePointer(
+        Prefab.ConfigServicePointer.newBuilder().setProjectId(123L)
+      )
+      .build();
+    HttpResponse<InputStream> successResponse = mock(HttpResponse.class);
+    when(successResponse.statusCode()).thenReturn(200);
+    when(successResponse.body())
+      .thenReturn(new ByteArrayInputStream(dummyConfigs.toByteArray()));
+    when(successResponse.headers())
+      .thenReturn(HttpHeaders.of(Map.of(), (k, v) -> true));
+
+    CompletableFuture<HttpResponse<InputStream>> slowExchange = new CompletableFuture<>();
+    when(
+      mockHttpClient.sendAsync(
+        any(HttpRequest.class),
+        any(HttpResponse.BodyHandler.class)
+      )
+    )
+      .thenAnswer(invocation ->
+        invocation.<HttpRequest>getArgument(0).uri().getHost().startsWith("a.")
+          ? slowExchange
+          : CompletableFuture.completedFuture(successResponse)
+      );
+
+    HttpClient hedgingHttpClient = new HttpClient(
+      mockHttpClient,
+      options.setHedgedConfigRequests(true).setHedgeDelayMillis(10)
+    );
+    HttpResponse<Supplier<Prefab.Configs>> response = hedgingHttpClient
+      .requestConfigs(0L)
+      .get();
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    await().atMost(Duration.ofSeconds(1)).until(slowExchange::isCancelled);
+  }
+
   @Test
   void testFailoverForSSEConnection() throws Exception {
     // This test remains essentially unchanged.
@@ -141,16 +244,16 @@ class HttpClientTest {
       .build();
     byte[] dummyBytes = dummyConfigs.toByteArray();
 
-    HttpResponse<byte[]> httpResponse200 = mock(HttpResponse.class);
+    HttpResponse<InputStream> httpResponse200 = mock(HttpResponse.class);
     when(httpResponse200.statusCode()).thenReturn(200);
-    when(httpResponse200.body()).thenReturn(dummyBytes);
+    when(httpResponse200.body()).thenReturn(new ByteArrayInputStream(dummyBytes));
     HttpHeaders headers = HttpHeaders.of(
       Map.of("Cache-Control", List.of("max-age=60"), "ETag", List.of("abc")),
       (k, v) -> true
     );
     when(httpResponse200.headers()).thenReturn(headers);
 
-    CompletableFuture<HttpResponse<byte[]>> future200 = CompletableFuture.completedFuture(
+    CompletableFuture<HttpResponse<InputStream>> future200 = CompletableFuture.completedFuture(
       httpResponse200
     );
     when(
@@ -191,7 +294,6 @@ class HttpClientTest {
         Prefab.ConfigServicePointer.newBuilder().setProjectId(123L)
       )
       .build();
-    byte[] dummyBytes = dummyConfigs.toByteArray();
     // Use a time far enough in the past to ensure expiration.
     long past = System.currentTimeMillis() - 10_000;
 
@@ -203,17 +305,17 @@ class HttpClientTest {
       prefabHttpClient
     );
     HttpClient.CacheEntry expiredEntry = new HttpClient.CacheEntry(
-      dummyBytes,
+      dummyConfigs,
       "abc",
       past
     );
     cache.put(uri, expiredEntry);
 
     // Mark the stubbing for sendAsync as lenient so that if it's not invoked, we don't fail.
-    HttpResponse<byte[]> httpResponse304 = mock(HttpResponse.class);
+    HttpResponse<InputStream> httpResponse304 = mock(HttpResponse.class);
     when(httpResponse304.statusCode()).thenReturn(304);
 
-    CompletableFuture<HttpResponse<byte[]>> future304 = CompletableFuture.completedFuture(
+    CompletableFuture<HttpResponse<InputStream>> future304 = CompletableFuture.completedFuture(
       httpResponse304
     );
     lenient()
@@ -248,16 +350,17 @@ class HttpClientTest {
       .build();
     byte[] dummyBytes = dummyConfigs.toByteArray();
 
-    HttpResponse<byte[]> httpResponse200 = mock(HttpResponse.class);
+    HttpResponse<InputStream> httpResponse200 = mock(HttpResponse.class);
     when(httpResponse200.statusCode()).thenReturn(200);
-    when(httpResponse200.body()).thenReturn(dummyBytes);
+    when(httpResponse200.body())
+      .thenAnswer(invocation -> new ByteArrayInputStream(dummyBytes));
     HttpHeaders headers = HttpHeaders.of(
       Map.of("Cache-Control", List.of("max-age=60"), "ETag", List.of("abc")),
       (k, v) -> true
     );
     when(httpResponse200.headers()).thenReturn(headers);
 
-    CompletableFuture<HttpResponse<byte[]>> future200 = CompletableFuture.completedFuture(
+    CompletableFuture<HttpResponse<InputStream>> future200 = CompletableFuture.completedFuture(
       httpResponse200
     );
     when(
@@ -309,9 +412,9 @@ class HttpClientTest {
     byte[] dummyBytes = dummyConfigs.toByteArray();
 
     // Simulate a 200 response with Cache-Control: no-cache and an ETag.
-    HttpResponse<byte[]> response200 = mock(HttpResponse.class);
+    HttpResponse<InputStream> response200 = mock(HttpResponse.class);
     when(response200.statusCode()).thenReturn(200);
-    when(response200.body()).thenReturn(dummyBytes);
+    when(response200.body()).thenReturn(new ByteArrayInputStream(dummyBytes));
     HttpHeaders headersNoCache = HttpHeaders.of(
       Map.of("Cache-Control", List.of("no-cache"), "ETag", List.of("etag-no-cache")),
       (k, v) -> true
@@ -319,7 +422,7 @@ class HttpClientTest {
     when(response200.headers()).thenReturn(headersNoCache);
 
     // First call: should update the cache but mark it as immediately expired.
-    CompletableFuture<HttpResponse<byte[]>> future200 = CompletableFuture.completedFuture(
+    CompletableFuture<HttpResponse<InputStream>> future200 = CompletableFuture.completedFuture(
       response200
     );
     when(
@@ -354,9 +457,9 @@ class HttpClientTest {
     assertThat(cachedEntry.expiresAt).isLessThanOrEqualTo(System.currentTimeMillis());
 
     // Now simulate a 304 Not Modified response on a subsequent request.
-    HttpResponse<byte[]> response304 = mock(HttpResponse.class);
+    HttpResponse<InputStream> response304 = mock(HttpResponse.class);
     when(response304.statusCode()).thenReturn(304);
-    CompletableFuture<HttpResponse<byte[]>> future304 = CompletableFuture.completedFuture(
+    CompletableFuture<HttpResponse<InputStream>> future304 = CompletableFuture.completedFuture(
       response304
     );
     reset(mockHttpClient);
@@ -395,12 +498,12 @@ class HttpClientTest {
   void testZeroByteConfigRejectionFromHttpResponse() throws Exception {
     // Mock a 200 response that returns zero bytes
     byte[] zeroBytes = new byte[0];
-    HttpResponse<byte[]> zeroByteResponse = mock(HttpResponse.class);
+    HttpResponse<InputStream> zeroByteResponse = mock(HttpResponse.class);
     when(zeroByteResponse.statusCode()).thenReturn(200);
-    when(zeroByteResponse.body()).thenReturn(zeroBytes);
+    when(zeroByteResponse.body()).thenReturn(new ByteArrayInputStream(zeroBytes));
     when(zeroByteResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (k, v) -> true));
 
-    CompletableFuture<HttpResponse<byte[]>> futureZeroBytes = CompletableFuture.completedFuture(
+    CompletableFuture<HttpResponse<InputStream>> futureZeroBytes = CompletableFuture.completedFuture(
       zeroByteResponse
     );
     when(
@@ -435,12 +538,12 @@ class HttpClientTest {
   void testZeroByteConfigRejectionFromNon200Response() throws Exception {
     // Mock a 404 response that returns zero bytes
     byte[] zeroBytes = new byte[0];
-    HttpResponse<byte[]> zeroByteResponse = mock(HttpResponse.class);
+    HttpResponse<InputStream> zeroByteResponse = mock(HttpResponse.class);
     when(zeroByteResponse.statusCode()).thenReturn(404);
-    when(zeroByteResponse.body()).thenReturn(zeroBytes);
+    when(zeroByteResponse.body()).thenReturn(new ByteArrayInputStream(zeroBytes));
     when(zeroByteResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (k, v) -> true));
 
-    CompletableFuture<HttpResponse<byte[]>> futureZeroBytes = CompletableFuture.completedFuture(
+    CompletableFuture<HttpResponse<InputStream>> futureZeroBytes = CompletableFuture.completedFuture(
       zeroByteResponse
     );
     when(
@@ -472,39 +575,48 @@ class HttpClientTest {
   }
 
   @Test
-  void testZeroByteConfigRejectionFromCache() throws Exception {
-    // Insert zero-byte data directly into cache
-    URI uri = URI.create("http://a.example.com/api/v2/configs/0");
-    Field cacheField = HttpClient.class.getDeclaredField("configCache");
-    cacheField.setAccessible(true);
-    @SuppressWarnings("unchecked")
-    Cache<URI, HttpClient.CacheEntry> cache = (Cache<URI, HttpClient.CacheEntry>) cacheField.get(
-      prefabHttpClient
-    );
+  void testZeroByteConfigIsNotCached() throws Exception {
+    // A zero-byte response, even one that may be cached, is rejected rather than cached
+    HttpResponse<InputStream> zeroByteResponse = mock(HttpResponse.class);
+    when(zeroByteResponse.statusCode()).thenReturn(200);
+    when(zeroByteResponse.body()).thenReturn(new ByteArrayInputStream(new byte[0]));
+    when(zeroByteResponse.headers())
+      .thenReturn(
+        HttpHeaders.of(
+          Map.of(
+            "Cache-Control",
+            List.of("max-age=60"),
+            "ETag",
+            List.of("zero-byte-etag")
+          ),
+          (k, v) -> true
+        )
+      );
 
-    // Create a cache entry with zero-byte data that is still fresh
-    long future = System.currentTimeMillis() + 60_000;
-    HttpClient.CacheEntry zeroByteCacheEntry = new HttpClient.CacheEntry(
-      new byte[0],
-      "zero-byte-etag",
-      future
+    CompletableFuture<HttpResponse<InputStream>> futureZeroBytes = CompletableFuture.completedFuture(
+      zeroByteResponse
     );
-    cache.put(uri, zeroByteCacheEntry);
+    when(
+      mockHttpClient.sendAsync(
+        any(HttpRequest.class),
+        any(HttpResponse.BodyHandler.class)
+      )
+    )
+      .thenReturn(futureZeroBytes);
 
-    // Request configs - should return cached response but fail when accessing body
     CompletableFuture<HttpResponse<Supplier<Prefab.Configs>>> result = prefabHttpClient.requestConfigs(
       0L
     );
 
     HttpResponse<Supplier<Prefab.Configs>> response = result.get();
     assertThat(response.statusCode()).isEqualTo(200);
-    assertThat(response.headers().firstValue("X-Cache")).contains("HIT");
+    assertThat(prefabHttpClient.getCacheSize()).isEqualTo(0);
 
     // Try to get the body - this should throw IllegalArgumentException
     try {
       response.body().get();
       assertThat(false)
-        .as("Expected IllegalArgumentException for zero-byte cached config")
+        .as("Expected IllegalArgumentException for zero-byte config")
         .isTrue();
     } catch (IllegalArgumentException e) {
       // Should get IllegalArgumentException from zero-byte rejection
@@ -512,6 +624,46 @@ class HttpClientTest {
     }
   }
 
+  @Test
+  void testLargePayloadIsParsedFromTheStream() throws Exception {
+    Prefab.Configs.Builder largeConfigs = Prefab.Configs.newBuilder();
+    for (int index = 0; index < 2000; index++) {
+      largeConfigs.addConfigs(
+        Prefab.Config
+          .newBuilder()
+          .setId(index)
+          .setKey("key." + index)
+          .addRows(
+            Prefab.ConfigRow
+              .newBuilder()
+              .addValues(
+                Prefab.ConditionalValue
+                  .newBuilder()
+                  .setValue(Prefab.ConfigValue.newBuilder().setString("x".repeat(1000)))
+              )
+          )
+      );
+    }
+    Prefab.Configs configs = largeConfigs.build();
+
+    HttpResponse<InputStream> response200 = mock(HttpResponse.class);
+    when(response200.statusCode()).thenReturn(200);
+    when(response200.body()).thenReturn(new ByteArrayInputStream(configs.toByteArray()));
+    when(response200.headers()).thenReturn(HttpHeaders.of(Map.of(), (k, v) -> true));
+    when(
+      mockHttpClient.sendAsync(
+        any(HttpRequest.class),
+        any(HttpResponse.BodyHandler.class)
+      )
+    )
+      .thenReturn(CompletableFuture.completedFuture(response200));
+
+    HttpResponse<Supplier<Prefab.Configs>> response = prefabHttpClient
+      .requestConfigs(0L)
+      .get();
+    assertThat(response.body().get()).isEqualTo(configs);
+  }
+
   @Test
   void testValidConfigProcessingAfterZeroByteRejectionImplementation() throws Exception {
     // This test verifies that valid configs can still be processed normally
@@ -524,12 +676,12 @@ class HttpClientTest {
       )
       .build();
     byte[] validBytes = validConfigs.toByteArray();
-    HttpResponse<byte[]> validResponse = mock(HttpResponse.class);
+    HttpResponse<InputStream> validResponse = mock(HttpResponse.class);
     when(validResponse.statusCode()).thenReturn(200);
-    when(validResponse.body()).thenReturn(validBytes);
+    when(validResponse.body()).thenReturn(new ByteArrayInputStream(validBytes));
     when(validResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (k, v) -> true));
 
-    CompletableFuture<HttpResponse<byte[]>> futureValidBytes = CompletableFuture.completedFuture(
+    CompletableFuture<HttpResponse<InputStream>> futureValidBytes = CompletableFuture.completedFuture(
       validResponse
     );
 
@@ -556,4 +708,131 @@ class HttpClientTest {
     // Should have called sendAsync once
     verify(mockHttpClient, times(1)).sendAsync(any(), any());
   }
+
+  @Test
+  void testGzippedConfigsAreDecoded() throws Exception {
+    Prefab.Configs configs = Prefab.Configs
+      .newBuilder()
+      .setConfigServicePointer(
+        Prefab.ConfigServicePointer.newBuilder().setProjectId(789L)
+      )
+      .build();
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipped)) {
+      configs.writeTo(gzipOutputStream);
+    }
+
+    HttpResponse<InputStream> response200 = mock(HttpResponse.class);
+    when(response200.statusCode()).thenReturn(200);
+    when(response200.body()).thenReturn(new ByteArrayInputStream(gzipped.toByteArray()));
+    when(response200.headers())
+      .thenReturn(
+        HttpHeaders.of(Map.of("Content-Encoding", List.of("gzip")), (k, v) -> true)
+      );
+    when(
+      mockHttpClient.sendAsync(
+        any(HttpRequest.class),
+        any(HttpResponse.BodyHandler.class)
+      )
+    )
+      .thenReturn(CompletableFuture.completedFuture(response200));
+
+    HttpResponse<Supplier<Prefab.Configs>> response = prefabHttpClient
+      .requestConfigs(0L)
+      .get();
+    assertThat(response.body().get()).isEqualTo(configs);
+
+    ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(
+      HttpRequest.class
+    );
+    verify(mockHttpClient).sendAsync(requestCaptor.capture(), any());
+    assertThat(requestCaptor.getValue().headers().firstValue("Accept-Encoding"))
+      .contains("gzip");
+  }
+
+  @Test
+  void testConfiguredCodecsAreOfferedAndUsed() throws Exception {
+    ContentCodec reversingCodec = new ContentCodec() {
+      @Override
+      public String getEncoding() {
+        return "reversed";
+      }
+
+      @Override
+      public InputStream decode(InputStream encoded) throws IOException {
+        byte[] bytes = encoded.readAllBytes();
+        Collections.reverse(Bytes.asList(bytes));
+        return new ByteArrayInputStream(bytes);
+      }
+    };
+    prefabHttpClient =
+      new HttpClient(
+        mockHttpClient,
+        new Options()
+          .setApiHosts(List.of("http://a.example.com"))
+          .setSdkKey("not-a-real-key")
+          .setConfigContentCodecs(List.of(reversingCodec, new GzipContentCodec()))
+      );
+    Prefab.Configs configs = Prefab.Configs
+      .newBuilder()
+      .setConfigServicePointer(
+        Prefab.ConfigServicePointer.newBuilder().setProjectId(789L)
+      )
+      .build();
+    byte[] reversed = configs.toByteArray();
+    Collections.reverse(Bytes.asList(reversed));
+
+    HttpResponse<InputStream> response200 = mock(HttpResponse.class);
+    when(response200.statusCode()).thenReturn(200);
+    when(response200.body()).thenReturn(new ByteArrayInputStream(reversed));
+    when(response200.headers())
+      .thenReturn(
+        HttpHeaders.of(Map.of("Content-Encoding", List.of("reversed")), (k, v) -> true)
+      );
+    when(
+      mockHttpClient.sendAsync(
+        any(HttpRequest.class),
+        any(HttpResponse.BodyHandler.class)
+      )
+    )
+      .thenReturn(CompletableFuture.completedFuture(response200));
+
+    HttpResponse<Supplier<Prefab.Configs>> response = prefabHttpClient
+      .requestConfigs(0L)
+      .get();
+    assertThat(response.body().get()).isEqualTo(configs);
+
+    ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(
+      HttpRequest.class
+    );
+    verify(mockHttpClient).sendAsync(requestCaptor.capture(), any());
+    assertThat(requestCaptor.getValue().headers().firstValue("Accept-Encoding"))
+      .contains("reversed, gzip");
+  }
+
+  @Test
+  void testUnsupportedContentEncodingIsRejected() throws Exception {
+    HttpResponse<InputStream> response200 = mock(HttpResponse.class);
+    when(response200.statusCode()).thenReturn(200);
+    when(response200.body()).thenReturn(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+    when(response200.headers())
+      .thenReturn(
+        HttpHeaders.of(Map.of("Content-Encoding", List.of("br")), (k, v) -> true)
+      );
+    when(
+      mockHttpClient.sendAsync(
+        any(HttpRequest.class),
+        any(HttpResponse.BodyHandler.class)
+      )
+    )
+      .thenReturn(CompletableFuture.completedFuture(response200));
+
+    HttpResponse<Supplier<Prefab.Configs>> response = prefabHttpClient
+      .requestConfigs(0L)
+      .get();
+    assertThatThrownBy(() -> response.body().get())
+      .isInstanceOf(UncheckedIOException.class)
+      .hasMessageContaining("Unsupported Content-Encoding br");
+    assertThat(prefabHttpClient.getCacheSize()).isEqualTo(0);
+  }
 }
@@ -8,6 +8,7 @@ import cloud.prefab.domain.Prefab;
 import com.google.common.collect.ImmutableMap;
 import com.reforge.sdk.context.Context;
 import com.reforge.sdk.context.ContextSet;
+import java.time.Instant;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 
@@ -107,4 +108,37 @@ class LookupContextTest {
     assertThat(lookupContext1).isEqualTo(lookupContext2);
     assertThat(lookupContext1.hashCode()).isEqualTo(lookupContext2.hashCode());
   }
+
+  @Test
+  void itParsesEachVersionPropertyOnce() {
+    LookupContext lookupContext = new LookupContext(
+      Context.newBuilder("app").put("version", "1.2.3").build()
+    );
+    Prefab.ConfigValue version = lookupContext.getValue("app.version").orElseThrow();
+
+    SemanticVersion parsed = lookupContext.getSemanticVersion(version);
+
+    assertThat(parsed).isEqualTo(SemanticVersion.parse("1.2.3"));
+    assertThat(lookupContext.getSemanticVersion(version)).isSameAs(parsed);
+    assertThat(lookupContext.getSemanticVersion(getStringConfigValue("not.a.version")))
+      .isNull();
+  }
+
+  @Test
+  void itParsesEachDatePropertyOnce() {
+    LookupContext lookupContext = new LookupContext(
+      Context.newBuilder("user").put("signedUpAt", "2024-03-01T12:00:00Z").build()
+    );
+    Prefab.ConfigValue signedUpAt = lookupContext
+      .getValue("user.signedUpAt")
+      .orElseThrow();
+
+    Instant parsed = lookupContext.getInstant(signedUpAt);
+
+    assertThat(parsed).isEqualTo(Instant.parse("2024-03-01T12:00:00Z"));
+    assertThat(lookupContext.getInstant(signedUpAt)).isSameAs(parsed);
+    assertThat(lookupContext.getInstant(getIntConfigValue(1000)))
+      .isEqualTo(Instant.ofEpochMilli(1000));
+    assertThat(lookupContext.getInstant(getStringConfigValue("yesterday"))).isNull();
+  }
 }
@@ -0,0 +1,91 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class MatchEventRingBufferTest {
+
+  private final Evaluation evaluation = new Evaluation();
+  private final List<Long> handled = new ArrayList<>();
+  private final MatchEventRingBuffer.Handler handler = (
+      timestamp,
+      drained,
+      lookupContext
+    ) ->
+    handled.add(timestamp);
+
+  @Test
+  void eventsAreHandedOverOldestFirst() {
+    MatchEventRingBuffer ringBuffer = new MatchEventRingBuffer(8);
+    for (long timestamp = 1; timestamp <= 5; timestamp++) {
+      assertThat(ringBuffer.offer(timestamp, evaluation, LookupContext.EMPTY)).isTrue();
+    }
+
+    assertThat(ringBuffer.drain(handler, 3)).isEqualTo(3);
+    assertThat(ringBuffer.drain(handler, 10)).isEqualTo(2);
+    assertThat(ringBuffer.drain(handler, 10)).isZero();
+    assertThat(handled).containsExactly(1L, 2L, 3L, 4L, 5L);
+  }
+
+  @Test
+  void aFullBufferRefusesEventsUntilDrained() {
+    MatchEventRingBuffer ringBuffer = new MatchEventRingBuffer(4);
+    for (long timestamp = 1; timestamp <= 4; timestamp++) {
+      assertThat(ringBuffer.offer(timestamp, evaluation, LookupContext.EMPTY)).isTrue();
+    }
+    assertThat(ringBuffer.offer(5, evaluation, LookupContext.EMPTY)).isFalse();
+
+    ringBuffer.drain(handler, 1);
+    assertThat(ringBuffer.offer(6, evaluation, LookupContext.EMPTY)).isTrue();
+    ringBuffer.drain(handler, 10);
+
+    assertThat(handled).containsExactly(1L, 2L, 3L, 4L, 6L);
+  }
+
+  @Test
+  void concurrentProducersLoseNothingThatWasAccepted() throws Exception {
+    int producers = 8;
+    int eventsPerProducer = 20_000;
+    MatchEventRingBuffer ringBuffer = new MatchEventRingBuffer(1024);
+    AtomicLong accepted = new AtomicLong();
+    AtomicLong acceptedSum = new AtomicLong();
+    CountDownLatch done = new CountDownLatch(producers);
+    ExecutorService executorService = Executors.newFixedThreadPool(producers);
+    for (int producer = 0; producer < producers; producer++) {
+      executorService.execute(() -> {
+        for (long timestamp = 1; timestamp <= eventsPerProducer; timestamp++) {
+          if (ringBuffer.offer(timestamp, evaluation, LookupContext.EMPTY)) {
+            accepted.incrementAndGet();
+            acceptedSum.addAndGet(timestamp);
+          }
+        }
+        done.countDown();
+      });
+    }
+
+    AtomicLong handledCount = new AtomicLong();
+    AtomicLong handledSum = new AtomicLong();
+    MatchEventRingBuffer.Handler summingHandler = (timestamp, drained, lookupContext) -> {
+      handledCount.incrementAndGet();
+      handledSum.addAndGet(timestamp);
+    };
+    while (done.getCount() > 0) {
+      ringBuffer.drain(summingHandler, 100);
+    }
+    ringBuffer.drain(summingHandler, Integer.MAX_VALUE);
+    executorService.shutdown();
+    assertThat(executorService.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(accepted.get()).isPositive();
+    assertThat(handledCount.get()).isEqualTo(accepted.get());
+    assertThat(handledSum.get()).isEqualTo(acceptedSum.get());
+  }
+}
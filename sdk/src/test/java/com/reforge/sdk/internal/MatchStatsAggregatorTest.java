@@ -8,7 +8,10 @@ import com.reforge.sdk.config.ConfigElement;
 import com.reforge.sdk.config.ConfigValueUtils;
 import com.reforge.sdk.config.Match;
 import com.reforge.sdk.config.Provenance;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
@@ -62,57 +65,65 @@ class MatchStatsAggregatorTest {
 
   @Test
   void itAggregates() {
-    matchStatsAggregator.recordMatch(
-      new Match(
-        ConfigValueUtils.from(true),
-        new ConfigElement(TF_CONFIG_1, new Provenance(ConfigClient.Source.STREAMING)),
-        Collections.emptyList(),
-        0,
-        2,
-        Optional.empty(),
-        Optional.empty()
+    matchStatsAggregator.recordEvaluation(
+      evaluationOf(
+        new Match(
+          ConfigValueUtils.from(true),
+          new ConfigElement(TF_CONFIG_1, new Provenance(ConfigClient.Source.STREAMING)),
+          Collections.emptyList(),
+          0,
+          2,
+          Optional.empty(),
+          Optional.empty()
+        )
       ),
       101
     );
 
-    matchStatsAggregator.recordMatch(
-      new Match(
-        ConfigValueUtils.from(false),
-        new ConfigElement(TF_CONFIG_1, new Provenance(ConfigClient.Source.STREAMING)),
-        Collections.emptyList(),
-        0,
-        2,
-        Optional.empty(),
-        Optional.empty()
+    matchStatsAggregator.recordEvaluation(
+      evaluationOf(
+        new Match(
+          ConfigValueUtils.from(false),
+          new ConfigElement(TF_CONFIG_1, new Provenance(ConfigClient.Source.STREAMING)),
+          Collections.emptyList(),
+          0,
+          2,
+          Optional.empty(),
+          Optional.empty()
+        )
       ),
       102
     );
 
-    matchStatsAggregator.recordMatch(
-      new Match(
-        ConfigValueUtils.from(false),
-        new ConfigElement(TF_CONFIG_2, new Provenance(ConfigClient.Source.STREAMING)),
-        Collections.emptyList(),
-        0,
-        2,
-        Optional.empty(),
-        Optional.empty()
+    matchStatsAggregator.recordEvaluation(
+      evaluationOf(
+        new Match(
+          ConfigValueUtils.from(false),
+          new ConfigElement(TF_CONFIG_2, new Provenance(ConfigClient.Source.STREAMING)),
+          Collections.emptyList(),
+          0,
+          2,
+          Optional.empty(),
+          Optional.empty()
+        )
       ),
       102
     );
 
-    matchStatsAggregator.recordMatch(
-      new Match(
-        ConfigValueUtils.from(1),
-        new ConfigElement(
-          ONE_TWO_CONFIG_2,
-          new Provenance(ConfigClient.Source.STREAMING)
-        ),
-        Collections.emptyList(),
-        0,
-        3,
-        Optional.empty(),
-        Optional.empty()
+    matchStatsAggregator.recordEvaluation(
+      evaluationOf(
+        new Match(
+          ConfigValueUtils.from(1),
+          new ConfigElement(
+            ONE_TWO_CONFIG_2,
+            new Provenance(ConfigClient.Source.STREAMING)
+          ),
+          Collections.emptyList(),
+          0,
+          3,
+          Optional.empty(),
+          Optional.empty()
+        )
       ),
       107
     );
@@ -242,4 +253,172 @@ class MatchStatsAggregatorTest {
      */
 
   }
+
+  @Test
+  void itCountsMatchesInPlace() throws InterruptedException {
+    ConfigElement configElement = new ConfigElement(
+      TF_CONFIG_1,
+      new Provenance(ConfigClient.Source.STREAMING)
+    );
+    Match trueMatch = new Match(
+      ConfigValueUtils.from(true),
+      configElement,
+      Collections.emptyList(),
+      0,
+      0,
+      Optional.empty(),
+      Optional.empty()
+    );
+    // a different value from the same place, and a place beyond the config's rows
+    Match falseMatch = new Match(
+      ConfigValueUtils.from(false),
+      configElement,
+      Collections.emptyList(),
+      0,
+      0,
+      Optional.empty(),
+      Optional.empty()
+    );
+    Match outOfPlaceMatch = new Match(
+      ConfigValueUtils.from(true),
+      configElement,
+      Collections.emptyList(),
+      0,
+      2,
+      Optional.empty(),
+      Optional.empty()
+    );
+    Evaluation trueEvaluation = evaluationOf(trueMatch);
+
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      long timeStamp = 101 + i;
+      threads[i] =
+        new Thread(() -> {
+          for (int j = 0; j < 1000; j++) {
+            matchStatsAggregator.countEvaluation(trueEvaluation, timeStamp);
+          }
+        });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    matchStatsAggregator.countEvaluation(evaluationOf(falseMatch), 100);
+    matchStatsAggregator.countEvaluation(evaluationOf(outOfPlaceMatch), 110);
+
+    MatchStatsAggregator.StatsAggregate statsAggregate = matchStatsAggregator.getAndResetStatsAggregate();
+
+    assertThat(statsAggregate.getMinTime()).isEqualTo(100);
+    assertThat(statsAggregate.getMaxTime()).isEqualTo(110);
+    assertThat(statsAggregate.getCounterData())
+      .isEqualTo(
+        Map.of(
+          new MatchStatsAggregator.ConfigKeyAndTypeKey(
+            "the.key",
+            Prefab.ConfigType.FEATURE_FLAG
+          ),
+          Map.of(
+            new MatchStatsAggregator.CountKey(
+              1,
+              ConfigValueUtils.from(true),
+              0,
+              0,
+              0,
+              Optional.empty()
+            ),
+            new MatchStatsAggregator.Counter(4000),
+            new MatchStatsAggregator.CountKey(
+              1,
+              ConfigValueUtils.from(false),
+              1,
+              0,
+              0,
+              Optional.empty()
+            ),
+            new MatchStatsAggregator.Counter(1),
+            new MatchStatsAggregator.CountKey(
+              1,
+              ConfigValueUtils.from(true),
+              0,
+              0,
+              2,
+              Optional.empty()
+            ),
+            new MatchStatsAggregator.Counter(1)
+          )
+        )
+      );
+    assertThat(matchStatsAggregator.getAndResetStatsAggregate().getCounterData())
+      .isEmpty();
+  }
+
+  @Test
+  void countsMadeAsTheirCountersAreRetiredAreKeptWithTheirTimes()
+    throws InterruptedException {
+    // each config is counted in bursts, so its counters are retired and remade as the
+    // counting goes on
+    List<Evaluation> evaluations = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      evaluations.add(
+        evaluationOf(
+          new Match(
+            ConfigValueUtils.from(true),
+            new ConfigElement(
+              TF_CONFIG_1.toBuilder().setId(i).build(),
+              new Provenance(ConfigClient.Source.STREAMING)
+            ),
+            Collections.emptyList(),
+            0,
+            0,
+            Optional.empty(),
+            Optional.empty()
+          )
+        )
+      );
+    }
+    int countsPerThread = 50_000;
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      int offset = i;
+      threads[i] =
+        new Thread(() -> {
+          for (int j = 0; j < countsPerThread; j++) {
+            matchStatsAggregator.countEvaluation(
+              evaluations.get((j / 1000 + offset) % evaluations.size()),
+              j + 1
+            );
+          }
+        });
+      threads[i].start();
+    }
+
+    long total = 0;
+    int trailingFlushes = 0;
+    while (trailingFlushes < 3) {
+      if (Arrays.stream(threads).noneMatch(Thread::isAlive)) {
+        trailingFlushes++;
+      }
+      MatchStatsAggregator.StatsAggregate statsAggregate = matchStatsAggregator.getAndResetStatsAggregate();
+      if (!statsAggregate.getCounterData().isEmpty()) {
+        assertThat(statsAggregate.getMinTime()).isBetween(1L, (long) countsPerThread);
+        assertThat(statsAggregate.getMaxTime())
+          .isBetween(statsAggregate.getMinTime(), (long) countsPerThread);
+      }
+      for (Map<MatchStatsAggregator.CountKey, MatchStatsAggregator.Counter> counters : statsAggregate
+        .getCounterData()
+        .values()) {
+        for (MatchStatsAggregator.Counter counter : counters.values()) {
+          total += counter.count;
+        }
+      }
+    }
+    assertThat(total).isEqualTo((long) threads.length * countsPerThread);
+  }
+
+  private static Evaluation evaluationOf(Match match) {
+    Evaluation evaluation = new Evaluation();
+    evaluation.set(match);
+    return evaluation;
+  }
 }
@@ -0,0 +1,228 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cloud.prefab.domain.Prefab;
+import com.reforge.sdk.ConfigClient;
+import com.reforge.sdk.config.ConfigElement;
+import com.reforge.sdk.config.ConfigValueUtils;
+import com.reforge.sdk.config.EvaluatedCriterion;
+import com.reforge.sdk.config.Provenance;
+import com.reforge.sdk.context.ContextSetReadable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class MergedConfigDataTest {
+
+  private static final long PROJECT_ENV_ID = 2;
+
+  private static final MergedConfigData EMPTY = new MergedConfigData(
+    Map.of(),
+    0,
+    ContextSetReadable.EMPTY,
+    ContextSetReadable.EMPTY
+  );
+
+  @Test
+  void itCompilesEveryConfig() {
+    ConfigElement element = element("key1", "value1");
+    MergedConfigData compiled = data(Map.of("key1", element)).compile(EMPTY);
+
+    CompiledConfig compiledConfig = compiled.getCompiledConfig("key1");
+    assertThat(compiledConfig).isNotNull();
+    assertThat(compiledConfig.getConfigElement()).isSameAs(element);
+    assertThat(compiledConfig.getProjectEnvId()).isEqualTo(PROJECT_ENV_ID);
+    assertThat(compiledConfig.getRows()).hasSize(1);
+    assertThat(compiled.getCompiledConfig("missing")).isNull();
+  }
+
+  @Test
+  void itReusesPlansForUnchangedElements() {
+    ConfigElement unchanged = element("key1", "value1");
+    MergedConfigData first = data(
+      Map.of("key1", unchanged, "key2", element("key2", "a"))
+    )
+      .compile(EMPTY);
+    MergedConfigData second = data(
+      Map.of("key1", unchanged, "key2", element("key2", "b"))
+    )
+      .compile(first);
+
+    assertThat(second.getCompiledConfig("key1"))
+      .isSameAs(first.getCompiledConfig("key1"));
+    assertThat(second.getCompiledConfig("key2"))
+      .isNotSameAs(first.getCompiledConfig("key2"));
+  }
+
+  @Test
+  void itOnlyCompilesChangedKeysWhenDerivedFromThePreviousData() {
+    ConfigElement unchanged = element("key1", "value1");
+    Map<String, ConfigElement> firstConfigs = Map.of(
+      "key1",
+      unchanged,
+      "key2",
+      element("key2", "a"),
+      "key3",
+      element("key3", "c")
+    );
+    MergedConfigData first = data(firstConfigs).compile(EMPTY);
+    ConfigElement changed = element("key2", "b");
+    MergedConfigData second = new MergedConfigData(
+      Map.of("key1", unchanged, "key2", changed),
+      PROJECT_ENV_ID,
+      ContextSetReadable.EMPTY,
+      ContextSetReadable.EMPTY,
+      firstConfigs,
+      Set.of("key2", "key3")
+    )
+      .compile(first);
+
+    assertThat(second.getChangedKeysSince(first)).contains(Set.of("key2", "key3"));
+    assertThat(second.getCompiledConfig("key1"))
+      .isSameAs(first.getCompiledConfig("key1"));
+    assertThat(second.getCompiledConfig("key2").getConfigElement()).isSameAs(changed);
+    assertThat(second.getCompiledConfig("key3")).isNull();
+    assertThat(data(Map.of()).getChangedKeysSince(first)).isEmpty();
+  }
+
+  @Test
+  void itCompilesUndecodedElementsWhenFirstLookedUp() {
+    Prefab.Config config = element("key1", "value1").getConfig();
+    ConfigElement encoded = ConfigElement.encoded(
+      "key1",
+      config.getId(),
+      config.getConfigType(),
+      config.toByteString(),
+      new Provenance(ConfigClient.Source.SNAPSHOT)
+    );
+    ConfigElement unchanged = element("key2", "a");
+    Map<String, ConfigElement> firstConfigs = Map.of("key1", encoded, "key2", unchanged);
+    MergedConfigData first = data(firstConfigs).compile(EMPTY);
+    assertThat(encoded.isDecoded()).isFalse();
+
+    CompiledConfig compiledConfig = first.getCompiledConfig("key1");
+    assertThat(compiledConfig.getConfigElement()).isSameAs(encoded);
+    assertThat(encoded.isDecoded()).isTrue();
+    assertThat(first.getCompiledConfig("key1")).isSameAs(compiledConfig);
+
+    MergedConfigData second = new MergedConfigData(
+      Map.of("key1", encoded, "key2", element("key2", "b")),
+      PROJECT_ENV_ID,
+      ContextSetReadable.EMPTY,
+      ContextSetReadable.EMPTY,
+      firstConfigs,
+      Set.of("key2")
+    )
+      .compile(first);
+    assertThat(second.getCompiledConfig("key1")).isSameAs(compiledConfig);
+  }
+
+  @Test
+  void itPreResolvesContextIndependentConfigs() {
+    Prefab.Criterion alwaysTrue = Prefab.Criterion
+      .newBuilder()
+      .setOperator(Prefab.Criterion.CriterionOperator.ALWAYS_TRUE)
+      .build();
+    Prefab.Criterion oneOf = Prefab.Criterion
+      .newBuilder()
+      .setPropertyName("user.key")
+      .setOperator(Prefab.Criterion.CriterionOperator.PROP_IS_ONE_OF)
+      .setValueToMatch(ConfigValueUtils.from(List.of("u-1")))
+      .build();
+    Prefab.ConfigValue weighted = Prefab.ConfigValue
+      .newBuilder()
+      .setWeightedValues(
+        Prefab.WeightedValues
+          .newBuilder()
+          .addWeightedValues(
+            Prefab.WeightedValue
+              .newBuilder()
+              .setWeight(1)
+              .setValue(ConfigValueUtils.from(1))
+          )
+          .addWeightedValues(
+            Prefab.WeightedValue
+              .newBuilder()
+              .setWeight(1)
+              .setValue(ConfigValueUtils.from(2))
+          )
+      )
+      .build();
+    Prefab.ConfigValue encrypted = Prefab.ConfigValue
+      .newBuilder()
+      .setString("cipher")
+      .setDecryptWith("secret.key")
+      .build();
+
+    MergedConfigData compiled = data(
+      Map.of(
+        "plain",
+        element("plain", "value"),
+        "always",
+        element("always", ConfigValueUtils.from("value"), alwaysTrue),
+        "targeted",
+        element("targeted", ConfigValueUtils.from("value"), oneOf),
+        "weighted",
+        element("weighted", weighted),
+        "encrypted",
+        element("encrypted", encrypted)
+      )
+    )
+      .compile(EMPTY);
+
+    assertThat(compiled.getCompiledConfig("plain").getConstantMatch())
+      .hasValueSatisfying(match ->
+        assertThat(match.getConfigValue()).isEqualTo(ConfigValueUtils.from("value"))
+      );
+    assertThat(compiled.getCompiledConfig("plain").isContextFree()).isTrue();
+    assertThat(compiled.getCompiledConfig("always").getConstantMatch())
+      .hasValueSatisfying(match ->
+        assertThat(match.getEvaluatedCriterion())
+          .containsExactly(new EvaluatedCriterion(alwaysTrue, true))
+      );
+    assertThat(compiled.getCompiledConfig("targeted").getConstantMatch()).isEmpty();
+    assertThat(compiled.getCompiledConfig("weighted").getConstantMatch()).isEmpty();
+    assertThat(compiled.getCompiledConfig("encrypted").getConstantMatch()).isPresent();
+    assertThat(compiled.getCompiledConfig("encrypted").isContextFree()).isFalse();
+  }
+
+  private MergedConfigData data(Map<String, ConfigElement> configs) {
+    return new MergedConfigData(
+      configs,
+      PROJECT_ENV_ID,
+      ContextSetReadable.EMPTY,
+      ContextSetReadable.EMPTY
+    );
+  }
+
+  private ConfigElement element(String key, String value) {
+    return element(key, ConfigValueUtils.from(value));
+  }
+
+  private ConfigElement element(
+    String key,
+    Prefab.ConfigValue value,
+    Prefab.Criterion... criteria
+  ) {
+    return new ConfigElement(
+      Prefab.Config
+        .newBuilder()
+        .setKey(key)
+        .addRows(
+          Prefab.ConfigRow
+            .newBuilder()
+            .addValues(
+              Prefab.ConditionalValue
+                .newBuilder()
+                .addAllCriteria(List.of(criteria))
+                .setValue(value)
+                .build()
+            )
+        )
+        .build(),
+      new Provenance(ConfigClient.Source.LOCAL_ONLY, "unit test")
+    );
+  }
+}
@@ -0,0 +1,126 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class MultiPatternMatcherTest {
+
+  private static final List<String> DOMAINS = List.of(
+    "@gmail.com",
+    "@yahoo.com",
+    "@hotmail.com",
+    "@example.com",
+    "@example.org",
+    "@mail.example.com",
+    "@aol.com",
+    "@proton.me",
+    "@icloud.com",
+    "@outlook.com"
+  );
+
+  @Test
+  void itUsesTriesForLongLists() {
+    assertThat(MultiPatternMatcher.startsWithAny(DOMAINS))
+      .isInstanceOf(MultiPatternMatcher.Prefixes.class);
+    assertThat(MultiPatternMatcher.endsWithAny(DOMAINS))
+      .isInstanceOf(MultiPatternMatcher.Suffixes.class);
+    assertThat(MultiPatternMatcher.containsAny(DOMAINS))
+      .isInstanceOf(MultiPatternMatcher.Substrings.class);
+    assertThat(MultiPatternMatcher.endsWithAny(DOMAINS.subList(0, 3)))
+      .isInstanceOf(MultiPatternMatcher.Scanned.class);
+  }
+
+  @Test
+  void itMatchesSuffixes() {
+    MultiPatternMatcher matcher = MultiPatternMatcher.endsWithAny(DOMAINS);
+
+    assertThat(matcher.matches("jeff@example.com")).isTrue();
+    assertThat(matcher.matches("jeff@mail.example.com")).isTrue();
+    assertThat(matcher.matches("jeff@example.co")).isFalse();
+    assertThat(matcher.matches("example.com")).isFalse();
+    assertThat(matcher.matches("")).isFalse();
+  }
+
+  @Test
+  void itMatchesPrefixes() {
+    MultiPatternMatcher matcher = MultiPatternMatcher.startsWithAny(DOMAINS);
+
+    assertThat(matcher.matches("@aol.com.au")).isTrue();
+    assertThat(matcher.matches("@aol.co")).isFalse();
+    assertThat(matcher.matches("jeff@aol.com")).isFalse();
+  }
+
+  @Test
+  void itMatchesSubstringsAfterPartialMatches() {
+    MultiPatternMatcher matcher = MultiPatternMatcher.containsAny(
+      List.of("abcd", "bce", "cx", "hers", "his", "she", "he", "zz", "yyy")
+    );
+
+    assertThat(matcher.matches("abce")).isTrue();
+    assertThat(matcher.matches("abcx")).isTrue();
+    assertThat(matcher.matches("ushers")).isTrue();
+    assertThat(matcher.matches("abcabd")).isFalse();
+    assertThat(matcher.matches("yy-yy")).isFalse();
+  }
+
+  @Test
+  void anEmptyPatternMatchesEverything() {
+    List<String> patterns = new ArrayList<>(DOMAINS);
+    patterns.add("");
+
+    assertThat(MultiPatternMatcher.startsWithAny(patterns).matches("anything")).isTrue();
+    assertThat(MultiPatternMatcher.endsWithAny(patterns).matches("")).isTrue();
+    assertThat(MultiPatternMatcher.containsAny(patterns).matches("x")).isTrue();
+  }
+
+  @Test
+  void itAgreesWithCheckingEachPattern() {
+    Random random = new Random(42);
+    for (int round = 0; round < 200; round++) {
+      List<String> patterns = new ArrayList<>();
+      int patternCount = 1 + random.nextInt(40);
+      for (int i = 0; i < patternCount; i++) {
+        patterns.add(randomString(random, 1 + random.nextInt(4)));
+      }
+      for (int i = 0; i < 20; i++) {
+        String input = randomString(random, random.nextInt(12));
+        assertAgrees(
+          patterns,
+          input,
+          MultiPatternMatcher::startsWithAny,
+          String::startsWith
+        );
+        assertAgrees(patterns, input, MultiPatternMatcher::endsWithAny, String::endsWith);
+        assertAgrees(patterns, input, MultiPatternMatcher::containsAny, String::contains);
+      }
+    }
+  }
+
+  private static void assertAgrees(
+    List<String> patterns,
+    String input,
+    Function<List<String>, MultiPatternMatcher> factory,
+    BiPredicate<String, String> predicate
+  ) {
+    boolean expected = patterns
+      .stream()
+      .anyMatch(pattern -> predicate.test(input, pattern));
+    assertThat(factory.apply(patterns).matches(input))
+      .as("%s against %s", input, patterns)
+      .isEqualTo(expected);
+  }
+
+  private static String randomString(Random random, int length) {
+    StringBuilder stringBuilder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      stringBuilder.append((char) ('a' + random.nextInt(3)));
+    }
+    return stringBuilder.toString();
+  }
+}
@@ -0,0 +1,108 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PatchedMapTest {
+
+  @Test
+  void itAppliesChangesOnTopOfTheBase() {
+    PatchedMap<String> original = PatchedMap.of(Map.of("a", "1", "b", "2", "c", "3"));
+    Map<String, String> changes = new HashMap<>();
+    changes.put("a", "10");
+    changes.put("b", null);
+    changes.put("d", "4");
+    changes.put("missing", null);
+
+    PatchedMap<String> patched = original.with(changes);
+
+    assertThat(patched).isEqualTo(Map.of("a", "10", "c", "3", "d", "4"));
+    assertThat(patched).hasSize(3);
+    assertThat(patched.containsKey("b")).isFalse();
+    assertThat(patched.get("b")).isNull();
+    assertThat(patched.isFolded()).isFalse();
+    assertThat(original).isEqualTo(Map.of("a", "1", "b", "2", "c", "3"));
+  }
+
+  @Test
+  void itRestoresKeysRemovedEarlier() {
+    Map<String, String> removal = new HashMap<>();
+    removal.put("a", null);
+    PatchedMap<String> patched = PatchedMap
+      .of(Map.of("a", "1"))
+      .with(removal)
+      .with(Map.of("a", "2"));
+
+    assertThat(patched).isEqualTo(Map.of("a", "2"));
+  }
+
+  @Test
+  void itFoldsLargePatchesIntoTheBase() {
+    Map<String, String> changes = new HashMap<>();
+    for (int i = 0; i <= PatchedMap.MIN_FOLDED_PATCH_SIZE; i++) {
+      changes.put("key" + i, "value" + i);
+    }
+
+    PatchedMap<String> patched = PatchedMap.<String>of(Map.of()).with(changes);
+
+    assertThat(patched.isFolded()).isTrue();
+    assertThat(patched).isEqualTo(changes);
+  }
+
+  @Test
+  void itAgreesWithAHashMap() {
+    Random random = new Random(42);
+    Map<String, Integer> expected = new HashMap<>();
+    PatchedMap<Integer> patched = PatchedMap.of(Map.of());
+    for (int round = 0; round < 200; round++) {
+      Map<String, Integer> changes = new HashMap<>();
+      int changeCount = random.nextInt(20);
+      for (int i = 0; i < changeCount; i++) {
+        String key = "key" + random.nextInt(300);
+        Integer value = random.nextInt(4) == 0 ? null : random.nextInt();
+        changes.put(key, value);
+        if (value == null) {
+          expected.remove(key);
+        } else {
+          expected.put(key, value);
+        }
+      }
+      patched = patched.with(changes);
+
+      assertThat(patched).hasSize(expected.size()).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void itAgreesWithAHashMapOverALargeBase() {
+    // large enough for the recent patch to be merged into the older one many times
+    // before that is folded, as the changes add up to over twenty recent patches
+    Random random = new Random(7);
+    Map<String, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 4000; i++) {
+      expected.put("key" + i, i);
+    }
+    PatchedMap<Integer> patched = PatchedMap.of(expected);
+    for (int round = 0; round < 300; round++) {
+      Map<String, Integer> changes = new HashMap<>();
+      int changeCount = random.nextInt(10);
+      for (int i = 0; i < changeCount; i++) {
+        String key = "key" + random.nextInt(4400);
+        Integer value = random.nextInt(3) == 0 ? null : random.nextInt();
+        changes.put(key, value);
+        if (value == null) {
+          expected.remove(key);
+        } else {
+          expected.put(key, value);
+        }
+      }
+      patched = patched.with(changes);
+
+      assertThat(patched).hasSize(expected.size()).isEqualTo(expected);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.reforge.sdk.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class StringSetTest {
+
+  @Test
+  void itScansTinyLists() {
+    StringSet stringSet = StringSet.of(List.of("a", "b", "c"));
+
+    assertThat(stringSet).isInstanceOf(StringSet.Scanned.class);
+    assertThat(stringSet.contains("b")).isTrue();
+    assertThat(stringSet.contains("d")).isFalse();
+    assertThat(stringSet.contains("")).isFalse();
+  }
+
+  @Test
+  void itHashesLargeLists() {
+    List<String> userIds = IntStream
+      .range(0, 50_000)
+      .mapToObj(i -> "user-" + i)
+      .collect(Collectors.toList());
+    StringSet stringSet = StringSet.of(userIds);
+
+    assertThat(stringSet).isInstanceOf(StringSet.Hashed.class);
+    assertThat(stringSet.size()).isEqualTo(50_000);
+    for (String userId : userIds) {
+      assertThat(stringSet.contains(userId)).as(userId).isTrue();
+    }
+    assertThat(stringSet.contains("user-50000")).isFalse();
+    assertThat(stringSet.contains("user-")).isFalse();
+  }
+
+  @Test
+  void itIgnoresDuplicates() {
+    StringSet stringSet = StringSet.of(
+      List.of("a", "b", "c", "d", "e", "f", "g", "h", "a", "b")
+    );
+
+    assertThat(stringSet).isInstanceOf(StringSet.Scanned.class);
+    assertThat(stringSet.size()).isEqualTo(8);
+  }
+
+  @Test
+  void itHandlesCollidingHashCodes() {
+    // "Aa" and "BB" share a hash code, as do their concatenations
+    List<String> colliding = List.of(
+      "AaAa",
+      "AaBB",
+      "BBAa",
+      "BBBB",
+      "AaAaAa",
+      "AaAaBB",
+      "AaBBAa",
+      "AaBBBB",
+      "BBAaAa"
+    );
+    StringSet stringSet = StringSet.of(colliding);
+
+    assertThat(stringSet).isInstanceOf(StringSet.Hashed.class);
+    for (String value : colliding) {
+      assertThat(stringSet.contains(value)).as(value).isTrue();
+    }
+    assertThat(stringSet.contains("BBBBBB")).isFalse();
+  }
+}
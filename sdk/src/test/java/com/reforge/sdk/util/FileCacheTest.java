@@ -0,0 +1,68 @@
+package com.reforge.sdk.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileCacheTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void itReturnsWhatWasSetAcrossInstances() throws Exception {
+    new FileCache(directory).set("some/key", 0, bytes("first"));
+    new FileCache(directory).set("some/key", 0, bytes("second"));
+
+    assertThat(new FileCache(directory).get("some/key")).isEqualTo(bytes("second"));
+    assertThat(new FileCache(directory).get("other key")).isNull();
+  }
+
+  @Test
+  void itLeavesOnlyTheEntryFileBehind() throws Exception {
+    FileCache fileCache = new FileCache(directory.resolve("nested"));
+    fileCache.set("key", 0, bytes("value"));
+    fileCache.set("key", 0, bytes("new value"));
+
+    try (Stream<Path> files = Files.list(directory.resolve("nested"))) {
+      assertThat(files.collect(Collectors.toList())).hasSize(1);
+    }
+  }
+
+  @Test
+  void itMapsEntries() throws Exception {
+    new FileCache(directory).set("key", 0, bytes("mapped"));
+
+    ByteBuffer buffer = new FileCache(directory).getBuffer("key");
+    byte[] read = new byte[buffer.remaining()];
+    buffer.get(read);
+    assertThat(read).isEqualTo(bytes("mapped"));
+    assertThat(new FileCache(directory).getBuffer("other key")).isNull();
+  }
+
+  @Test
+  void itExpiresEntries() throws Exception {
+    Instant now = Instant.now();
+    new FileCache(directory, Clock.fixed(now, ZoneOffset.UTC)).set("key", 10, bytes("v"));
+
+    Clock before = Clock.fixed(now.plus(Duration.ofSeconds(9)), ZoneOffset.UTC);
+    Clock after = Clock.fixed(now.plus(Duration.ofSeconds(10)), ZoneOffset.UTC);
+    assertThat(new FileCache(directory, before).get("key")).isEqualTo(bytes("v"));
+    assertThat(new FileCache(directory, after).get("key")).isNull();
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}